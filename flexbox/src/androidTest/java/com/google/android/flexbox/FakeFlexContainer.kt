@@ -45,12 +45,23 @@ internal class FakeFlexContainer : FlexContainer {
 
     private var maxLine = -1
 
+    @MaxLineOverflow
+    private var maxLineOverflow = MaxLineOverflow.VISIBLE
+
+    private var rowGap = 0
+
+    private var columnGap = 0
+
+    var fixedSizeItem: FlexItem? = null
+
     override fun getFlexItemCount() = views.size
 
     override fun getFlexItemAt(index: Int) = views[index]
 
     override fun getReorderedFlexItemAt(index: Int) = views[index]
 
+    override fun getSizedFlexItemAt(index: Int, width: Int, height: Int) = views[index]
+
     override fun addView(view: View) {
         views.add(view)
     }
@@ -103,6 +114,24 @@ internal class FakeFlexContainer : FlexContainer {
         this.maxLine = maxLine
     }
 
+    override fun getMaxLineOverflow() = maxLineOverflow
+
+    override fun setMaxLineOverflow(@MaxLineOverflow maxLineOverflow: Int) {
+        this.maxLineOverflow = maxLineOverflow
+    }
+
+    override fun getRowGap() = rowGap
+
+    override fun setRowGap(rowGap: Int) {
+        this.rowGap = rowGap
+    }
+
+    override fun getColumnGap() = columnGap
+
+    override fun setColumnGap(columnGap: Int) {
+        this.columnGap = columnGap
+    }
+
     override fun getFlexLines() = flexLines
 
     override fun isMainAxisDirectionHorizontal(): Boolean {
@@ -148,4 +177,6 @@ internal class FakeFlexContainer : FlexContainer {
     override fun getFlexLinesInternal() = flexLines
 
     override fun updateViewCache(position: Int, view: View) = Unit
+
+    override fun getFixedSizeFlexItem(): FlexItem? = fixedSizeItem
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.Matchers.`is`
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Unit tests for [FlexItemStyle] shared by the LayoutParams of [FlexboxLayout] and
+ * [FlexboxLayoutManager].
+ */
+@RunWith(AndroidJUnit4::class)
+class FlexItemStyleTest {
+
+    @Test
+    @Throws(Throwable::class)
+    fun testFlexboxLayoutParams_sharedAndCopiedOnWrite() {
+        val style = FlexItemStyle.Builder().setFlexGrow(1f).setMaxWidth(150).build()
+        val lp1 = FlexboxLayout.LayoutParams(100, 100).apply { this.style = style }
+        val lp2 = FlexboxLayout.LayoutParams(100, 100).apply { this.style = style }
+        assertSame(style, lp1.style)
+        assertSame(style, lp2.style)
+
+        lp1.flexGrow = 2f
+
+        assertThat(lp1.flexGrow, `is`(2f))
+        assertThat(lp1.maxWidth, `is`(150))
+        assertNotSame(style, lp1.style)
+        assertThat(lp2.flexGrow, `is`(1f))
+        assertThat(style.flexGrow, `is`(1f))
+        assertSame(style, lp2.style)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testFlexboxLayoutParams_sameValue_notCopied() {
+        val style = FlexItemStyle.Builder().setFlexGrow(1f).setAlignSelf(AlignSelf.CENTER).build()
+        val lp = FlexboxLayout.LayoutParams(100, 100).apply { this.style = style }
+
+        lp.flexGrow = 1f
+        lp.alignSelf = AlignSelf.CENTER
+        lp.isWrapBefore = false
+
+        assertSame(style, lp.style)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testFlexboxLayoutParams_default() {
+        assertSame(FlexItemStyle.DEFAULT, FlexboxLayout.LayoutParams(100, 100).style)
+
+        val lp = FlexboxLayout.LayoutParams(100, 100)
+        lp.flexGrow = 1f
+        lp.flexGrow = FlexItem.FLEX_GROW_DEFAULT
+
+        // Built back to the default values
+        assertSame(FlexItemStyle.DEFAULT, lp.style)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testFlexboxLayoutParams_copyConstructor_sharesStyle() {
+        val style = FlexItemStyle.Builder().setOrder(2).setFlexShrink(0f).build()
+        val source = FlexboxLayout.LayoutParams(100, 100).apply { this.style = style }
+
+        val copy = FlexboxLayout.LayoutParams(source)
+        assertSame(style, copy.style)
+
+        copy.order = 3
+        assertThat(copy.order, `is`(3))
+        assertThat(copy.flexShrink, `is`(0f))
+        assertThat(source.order, `is`(2))
+        assertSame(style, source.style)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testFlexboxLayoutManagerLayoutParams_sharedAndCopiedOnWrite() {
+        val style = FlexItemStyle.Builder().setFlexBasisPercent(0.5f).setMinHeight(20).build()
+        val lp1 = FlexboxLayoutManager.LayoutParams(100, 100).apply { this.style = style }
+        val lp2 = FlexboxLayoutManager.LayoutParams(100, 100).apply { this.style = style }
+        assertSame(style, lp1.style)
+        assertSame(style, lp2.style)
+
+        lp1.flexBasisPercent = 0.5f
+        assertSame(style, lp1.style)
+
+        lp1.maxWidth = 200
+
+        assertThat(lp1.maxWidth, `is`(200))
+        assertThat(lp1.flexBasisPercent, `is`(0.5f))
+        assertThat(lp1.minHeight, `is`(20))
+        assertThat(lp2.maxWidth, `is`(FlexItem.MAX_SIZE))
+        assertSame(style, lp2.style)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testFlexboxLayoutManagerLayoutParams_defaultMinSizes() {
+        val lp = FlexboxLayoutManager.LayoutParams(100, 100)
+
+        assertThat(lp.minWidth, `is`(0))
+        assertThat(lp.minHeight, `is`(0))
+        assertEquals(lp.style, FlexboxLayoutManager.LayoutParams(50, 50).style)
+    }
+
+    @Test(expected = UnsupportedOperationException::class)
+    @Throws(Throwable::class)
+    fun testFlexboxLayoutManagerLayoutParams_styleWithOrder() {
+        val style = FlexItemStyle.Builder().setOrder(1).build()
+        FlexboxLayoutManager.LayoutParams(100, 100).style = style
+    }
+}
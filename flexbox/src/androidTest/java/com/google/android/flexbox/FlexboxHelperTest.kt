@@ -16,10 +16,13 @@
 
 package com.google.android.flexbox
 
+import android.content.Context
 import android.view.View
+import android.view.ViewGroup
 import android.widget.CheckBox
 import android.widget.TextView
 import androidx.core.widget.CompoundButtonCompat
+import androidx.recyclerview.widget.RecyclerView
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.rule.ActivityTestRule
 import com.google.android.flexbox.test.FlexboxTestActivity
@@ -32,6 +35,7 @@ import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
+import java.util.Random
 
 /**
  * Unit tests for [FlexboxHelper].
@@ -113,6 +117,339 @@ class FlexboxHelperTest {
         assertEquals(3, thirdLine.mLastIndex)
     }
 
+    @Test
+    @Throws(Throwable::class)
+    fun testCalculateHorizontalFlexLines_fixedSizeFlexItem() {
+        val activity = activityRule.activity
+        for (i in 0 until 5) {
+            // The layout params of each view aren't used since the size is declared
+            flexContainer.addView(View(activity))
+        }
+        (flexContainer as FakeFlexContainer).fixedSizeItem = FlexboxLayout.LayoutParams(150, 100)
+        flexContainer.flexWrap = FlexWrap.WRAP
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+
+        flexboxHelper.ensureIndexToFlexLine(flexContainer.flexItemCount)
+        flexboxHelper.ensureMeasureSpecCache(flexContainer.flexItemCount)
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result, widthMeasureSpec, heightMeasureSpec)
+
+        assertEquals(2, result.mFlexLines.size)
+        assertEquals(450, result.mFlexLines[0].mainSize)
+        assertEquals(300, result.mFlexLines[1].mainSize)
+        assertEquals(100, result.mFlexLines[0].crossSize)
+        assertEquals(100, result.mFlexLines[1].crossSize)
+        assertEquals(0, result.mFlexLines[0].mFirstIndex)
+        assertEquals(2, result.mFlexLines[0].mLastIndex)
+        assertEquals(3, result.mFlexLines[1].mFirstIndex)
+        assertEquals(4, result.mFlexLines[1].mLastIndex)
+
+        assertEquals(0, flexboxHelper.mIndexToFlexLine!![2])
+        assertEquals(1, flexboxHelper.mIndexToFlexLine!![3])
+        val measureSpec = flexboxHelper.mMeasureSpecCache!![4]
+        assertEquals(View.MeasureSpec.makeMeasureSpec(150, View.MeasureSpec.EXACTLY),
+                flexboxHelper.extractLowerInt(measureSpec))
+        assertEquals(View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY),
+                flexboxHelper.extractHigherInt(measureSpec))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testCalculateFlexLines_rowAndTransposedColumn_sameFlexLines() {
+        val activity = activityRule.activity
+        val random = Random(48)
+        val columnContainer: FlexContainer = FakeFlexContainer()
+        columnContainer.flexDirection = FlexDirection.COLUMN
+        repeat(1000) {
+            val mainSize = 10 + random.nextInt(190)
+            val crossSize = 10 + random.nextInt(190)
+            val margins = IntArray(4) { random.nextInt(10) }
+            val maxMainSize = if (it % 7 == 0) 50 else FlexItem.MAX_SIZE
+            flexContainer.addView(View(activity).apply {
+                layoutParams = FlexboxLayout.LayoutParams(mainSize, crossSize).apply {
+                    setMargins(margins[0], margins[1], margins[2], margins[3])
+                    maxWidth = maxMainSize
+                }
+            })
+            // The same flex item with the width and the height swapped
+            columnContainer.addView(View(activity).apply {
+                layoutParams = FlexboxLayout.LayoutParams(crossSize, mainSize).apply {
+                    setMargins(margins[1], margins[0], margins[3], margins[2])
+                    maxHeight = maxMainSize
+                }
+            })
+        }
+        flexContainer.flexWrap = FlexWrap.WRAP
+        columnContainer.flexWrap = FlexWrap.WRAP
+        val mainMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val crossMeasureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED)
+        val columnHelper = FlexboxHelper(columnContainer)
+        flexboxHelper.ensureIndexToFlexLine(flexContainer.flexItemCount)
+        columnHelper.ensureIndexToFlexLine(columnContainer.flexItemCount)
+
+        val rowResult = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(rowResult, mainMeasureSpec, crossMeasureSpec)
+        val columnResult = FlexboxHelper.FlexLinesResult()
+        columnHelper.calculateVerticalFlexLines(columnResult, crossMeasureSpec, mainMeasureSpec)
+
+        assertEquals(rowResult.mFlexLines.size, columnResult.mFlexLines.size)
+        rowResult.mFlexLines.zip(columnResult.mFlexLines).forEach { (row, column) ->
+            assertEquals(row.mFirstIndex, column.mFirstIndex)
+            assertEquals(row.itemCount, column.itemCount)
+            assertEquals(row.mainSize, column.mainSize)
+            assertEquals(row.crossSize, column.crossSize)
+        }
+        for (i in 0 until flexContainer.flexItemCount) {
+            assertEquals(flexboxHelper.mIndexToFlexLine!![i], columnHelper.mIndexToFlexLine!![i])
+            assertEquals(flexContainer.getFlexItemAt(i).measuredWidth,
+                    columnContainer.getFlexItemAt(i).measuredHeight)
+        }
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testCalculateHorizontalFlexLines_maxLineOverflowClip() {
+        val activity = activityRule.activity
+        val views = listOf(100, 200, 300, 400).map {
+            MeasureCountingView(activity).apply {
+                layoutParams = FlexboxLayout.LayoutParams(it, 100)
+            }
+        }
+        views.forEach { flexContainer.addView(it) }
+        flexContainer.flexWrap = FlexWrap.WRAP
+        flexContainer.maxLine = 1
+        flexContainer.maxLineOverflow = MaxLineOverflow.CLIP
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+
+        flexboxHelper.ensureIndexToFlexLine(flexContainer.flexItemCount)
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result, widthMeasureSpec, heightMeasureSpec)
+
+        assertEquals(1, result.mFlexLines.size)
+        assertEquals(300, result.mFlexLines[0].mainSize)
+        assertEquals(1, result.mFlexLines[0].mLastIndex)
+        assertEquals(2, result.mFirstClippedIndex)
+        assertEquals(0, flexboxHelper.mIndexToFlexLine!![1])
+        assertEquals(RecyclerView.NO_POSITION, flexboxHelper.mIndexToFlexLine!![2])
+        assertEquals(RecyclerView.NO_POSITION, flexboxHelper.mIndexToFlexLine!![3])
+        // The view which doesn't fit in the last flex line is measured to find it's clipped,
+        // but the rest of the views aren't measured
+        assertEquals(1, views[2].measureCount)
+        assertEquals(0, views[3].measureCount)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testCalculateHorizontalFlexLines_columnGap() {
+        val activity = activityRule.activity
+        listOf(100, 200, 150, 300).forEach {
+            flexContainer.addView(View(activity).apply {
+                layoutParams = FlexboxLayout.LayoutParams(it, 100)
+            })
+        }
+        flexContainer.flexWrap = FlexWrap.WRAP
+        flexContainer.columnGap = 50
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result, widthMeasureSpec, heightMeasureSpec)
+
+        // 100 + 50 + 200 + 50 + 150 = 550 exceeds 500, thus the third view wraps even though
+        // the sum of the sizes of the first three views fits
+        assertEquals(2, result.mFlexLines.size)
+        assertEquals(350, result.mFlexLines[0].mainSize)
+        assertEquals(50, result.mFlexLines[0].mDividerLengthInMainSize)
+        assertEquals(500, result.mFlexLines[1].mainSize)
+        assertEquals(2, result.mFlexLines[1].itemCount)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testCalculateHorizontalFlexLines_flexItemSizeProvider() {
+        val activity = activityRule.activity
+        repeat(3) {
+            flexContainer.addView(View(activity).apply {
+                layoutParams = FlexboxLayout.LayoutParams(
+                        ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT)
+            })
+        }
+        (flexContainer.getFlexItemAt(2).layoutParams as FlexboxLayout.LayoutParams)
+                .setMargins(10, 0, 10, 0)
+        flexContainer.flexWrap = FlexWrap.WRAP
+        val requestedIndices = mutableListOf<Int>()
+        flexboxHelper.mFlexItemSizeProvider = FlexItemSizeProvider { index, _, _, outSize ->
+            requestedIndices.add(index)
+            // The provided sizes include the margins
+            outSize[0] = 200
+            outSize[1] = 50
+            true
+        }
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result, widthMeasureSpec, heightMeasureSpec)
+
+        assertEquals(listOf(0, 1, 2), requestedIndices)
+        assertEquals(2, result.mFlexLines.size)
+        assertEquals(400, result.mFlexLines[0].mainSize)
+        assertEquals(50, result.mFlexLines[0].crossSize)
+        assertEquals(200, result.mFlexLines[1].mainSize)
+        assertEquals(200, flexContainer.getFlexItemAt(1).measuredWidth)
+        assertEquals(180, flexContainer.getFlexItemAt(2).measuredWidth)
+        assertEquals(50, flexContainer.getFlexItemAt(2).measuredHeight)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testCalculateHorizontalFlexLines_sectionLookup() {
+        val activity = activityRule.activity
+        repeat(5) {
+            flexContainer.addView(View(activity).apply {
+                layoutParams = FlexboxLayout.LayoutParams(100, 100)
+            })
+        }
+        flexContainer.flexWrap = FlexWrap.WRAP
+        flexboxHelper.mSectionLookup = object : FlexSectionLookup() {
+            override fun isSectionStart(position: Int) = position == 2
+        }
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result, widthMeasureSpec, heightMeasureSpec)
+
+        // Five items fit in a flex line, but the line wraps before the section starting at 2
+        assertEquals(2, result.mFlexLines.size)
+        assertEquals(2, result.mFlexLines[0].itemCount)
+        assertEquals(3, result.mFlexLines[1].itemCount)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testCalculateHorizontalFlexLines_sectionLookup_fixedSizeFlexItem_baseline() {
+        val activity = activityRule.activity
+        val views = (0 until 5).map {
+            object : View(activity) {
+                override fun getBaseline() = 10 * it
+            }.apply { layoutParams = FlexboxLayout.LayoutParams(100, 100) }
+        }
+        views.forEach { flexContainer.addView(it) }
+        (flexContainer as FakeFlexContainer).fixedSizeItem = FlexboxLayout.LayoutParams(100, 100)
+        flexContainer.flexWrap = FlexWrap.WRAP
+        // The items of the second section are aligned by their baselines, which the declared
+        // fixed size doesn't tell
+        flexboxHelper.mSectionLookup = object : FlexSectionLookup() {
+            override fun isSectionStart(position: Int) = position == 2
+            override fun getAlignItems(position: Int) =
+                    if (position >= 2) AlignItems.BASELINE else FlexContainer.NOT_SET
+        }
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result, widthMeasureSpec, heightMeasureSpec)
+
+        assertEquals(2, result.mFlexLines.size)
+        assertEquals(2, result.mFlexLines[0].itemCount)
+        assertEquals(3, result.mFlexLines[1].itemCount)
+        assertEquals(AlignItems.BASELINE, flexboxHelper.getAlignItems(result.mFlexLines[1]))
+        // The views are measured so that the baselines of the flex line are known
+        assertEquals(40, result.mFlexLines[1].mMaxBaseline)
+        views.forEach { assertEquals(100, it.measuredWidth) }
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testFlexLineProducer_appendedFlexItems() {
+        val activity = activityRule.activity
+        val addViews = { count: Int ->
+            repeat(count) {
+                flexContainer.addView(View(activity).apply {
+                    layoutParams = FlexboxLayout.LayoutParams(100, 100)
+                })
+            }
+        }
+        flexContainer.flexWrap = FlexWrap.WRAP
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(250, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+        val emitted = mutableListOf<FlexLine>()
+        val producer = FlexLineProducer(flexContainer, widthMeasureSpec, heightMeasureSpec,
+                FlexLineProducer.Sink { flexLine, index ->
+                    assertEquals(emitted.size, index)
+                    emitted.add(flexLine)
+                })
+
+        addViews(3)
+        producer.produce()
+        // The third item is in the open flex line
+        assertEquals(1, emitted.size)
+        assertEquals(2, emitted[0].itemCount)
+        assertEquals(2, producer.openLineFirstIndex)
+
+        addViews(2)
+        producer.produce()
+        assertEquals(2, emitted.size)
+        assertEquals(2, emitted[1].firstIndex)
+        assertEquals(2, emitted[1].itemCount)
+
+        producer.finish()
+        assertEquals(3, emitted.size)
+        assertEquals(4, emitted[2].firstIndex)
+        assertEquals(1, emitted[2].itemCount)
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testFlexLineProducer_itemSource() {
+        val activity = activityRule.activity
+        val widths = mutableListOf(100, 200, 150)
+        val itemSource = object : FlexLineProducer.ItemSource {
+            override fun getItemCount() = widths.size
+
+            override fun getSize(index: Int, outSize: IntArray) {
+                outSize[0] = widths[index]
+                outSize[1] = 10 + index
+            }
+
+            override fun getMargins(index: Int, outMargins: IntArray) {
+                outMargins[0] = 5
+                outMargins[1] = 0
+                outMargins[2] = 5
+                outMargins[3] = 0
+            }
+
+            override fun isWrapBefore(index: Int) = index == 5
+        }
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED)
+        val emitted = mutableListOf<FlexLine>()
+        val producer = FlexLineProducer(activity, itemSource, FlexDirection.ROW,
+                widthMeasureSpec, heightMeasureSpec,
+                FlexLineProducer.Sink { flexLine, _ -> emitted.add(flexLine) })
+
+        producer.produce()
+        // The margins are included, thus the third item doesn't fit in the first flex line
+        assertEquals(1, emitted.size)
+        assertEquals(2, emitted[0].itemCount)
+        assertEquals(320, emitted[0].mainSize)
+        assertEquals(11, emitted[0].crossSize)
+
+        widths.addAll(listOf(50, 300, 80))
+        producer.finish()
+        assertEquals(4, emitted.size)
+        assertEquals(2, emitted[1].itemCount)
+        assertEquals(220, emitted[1].mainSize)
+        assertEquals(13, emitted[1].crossSize)
+        assertEquals(1, emitted[2].itemCount)
+        // The last item wraps before it although it fits in the previous flex line
+        assertEquals(5, emitted[3].firstIndex)
+        assertEquals(90, emitted[3].mainSize)
+    }
+
     @Test
     @Throws(Throwable::class)
     fun testCalculateVerticalFlexLines() {
@@ -210,6 +547,45 @@ class FlexboxHelperTest {
         assertThat(view4.measuredHeight, `is`(100))
     }
 
+    @Test
+    @Throws(Throwable::class)
+    fun testDetermineMainSize_direction_row_flexGrowSetWithMaxWidth_measuredOnce() {
+        val activity = activityRule.activity
+        val lp1 = FlexboxLayout.LayoutParams(100, 100)
+        lp1.flexGrow = 1.0f
+        lp1.maxWidth = 150
+        val view1 = MeasureCountingView(activity)
+        view1.layoutParams = lp1
+        val lp2 = FlexboxLayout.LayoutParams(100, 100)
+        lp2.flexGrow = 1.0f
+        val view2 = MeasureCountingView(activity)
+        view2.layoutParams = lp2
+        val lp3 = FlexboxLayout.LayoutParams(100, 100)
+        lp3.flexGrow = 1.0f
+        val view3 = MeasureCountingView(activity)
+        view3.layoutParams = lp3
+        flexContainer.addView(view1)
+        flexContainer.addView(view2)
+        flexContainer.addView(view3)
+        flexContainer.flexDirection = FlexDirection.ROW
+        flexContainer.flexWrap = FlexWrap.WRAP
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result, widthMeasureSpec, heightMeasureSpec)
+        flexContainer.flexLines = result.mFlexLines
+        flexboxHelper.determineMainSize(widthMeasureSpec, heightMeasureSpec)
+
+        // view1 can't expand beyond its max width, the remaining space is distributed to others
+        assertThat(view1.measuredWidth, `is`(150))
+        assertThat(view2.measuredWidth, `is`(176))
+        assertThat(view3.measuredWidth, `is`(174))
+        // Each view is measured once for the flex line calculation and once with its final size
+        assertThat(view1.measureCount, `is`(2))
+        assertThat(view2.measureCount, `is`(2))
+        assertThat(view3.measureCount, `is`(2))
+    }
+
     @Test
     @Throws(Throwable::class)
     fun testDetermineMainSize_direction_column_flexGrowSet() {
@@ -551,6 +927,67 @@ class FlexboxHelperTest {
         assertThat(view4.measuredWidth, isEqualAllowingError(333))
     }
 
+    @Test
+    @Throws(Throwable::class)
+    fun testStretchViews_skipMeasureForAlreadyStretchedView() {
+        val activity = activityRule.activity
+        val lp1 = FlexboxLayout.LayoutParams(100, 100)
+        val view1 = MeasureCountingView(activity)
+        view1.layoutParams = lp1
+        val lp2 = FlexboxLayout.LayoutParams(100, 50)
+        val view2 = MeasureCountingView(activity)
+        view2.layoutParams = lp2
+        flexContainer.addView(view1)
+        flexContainer.addView(view2)
+        flexContainer.flexDirection = FlexDirection.ROW
+        flexContainer.alignItems = AlignItems.STRETCH
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result, widthMeasureSpec, heightMeasureSpec)
+        flexContainer.flexLines = result.mFlexLines
+        flexboxHelper.determineMainSize(widthMeasureSpec, heightMeasureSpec)
+        flexboxHelper.stretchViews()
+
+        // view1 already has the height of the flex line, thus not measured again
+        assertThat(view1.measuredHeight, `is`(100))
+        assertThat(view1.measureCount, `is`(1))
+        assertThat(view2.measuredHeight, `is`(100))
+        assertThat(view2.measureCount, `is`(2))
+        assertThat(flexboxHelper.mStretchMeasureSkipCount, `is`(1L))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testDetermineMainSize_skipMeasureForFlexedViewAtTargetSize() {
+        val activity = activityRule.activity
+        val lp1 = FlexboxLayout.LayoutParams(100, 100)
+        // The flexGrow can't expand view1 beyond its max width, which it already has
+        lp1.flexGrow = 1f
+        lp1.maxWidth = 100
+        val view1 = MeasureCountingView(activity)
+        view1.layoutParams = lp1
+        val lp2 = FlexboxLayout.LayoutParams(100, 100)
+        lp2.flexGrow = 1f
+        val view2 = MeasureCountingView(activity)
+        view2.layoutParams = lp2
+        flexContainer.addView(view1)
+        flexContainer.addView(view2)
+        flexContainer.flexDirection = FlexDirection.ROW
+        val widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY)
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result, widthMeasureSpec, heightMeasureSpec)
+        flexContainer.flexLines = result.mFlexLines
+        flexboxHelper.determineMainSize(widthMeasureSpec, heightMeasureSpec)
+
+        assertThat(view1.measuredWidth, `is`(100))
+        assertThat(view1.measureCount, `is`(1))
+        assertThat(view2.measuredWidth, `is`(400))
+        assertThat(view2.measureCount, `is`(2))
+        assertThat(flexboxHelper.mFlexMeasureSkipCount, `is`(1L))
+    }
+
     @Test
     fun testMakeCombinedLong() {
         var higher = -1
@@ -610,4 +1047,64 @@ class FlexboxHelperTest {
         assertThat(flexContainer.flexLines[1].mAnyItemsHaveFlexGrow, `is`(false))
         assertThat(flexContainer.flexLines[2].mAnyItemsHaveFlexGrow, `is`(true))
     }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testCopyItemCaches_restoredAfterCalculatedForAnotherWidth() {
+        val activity = activityRule.activity
+        for (i in 0 until 6) {
+            val view = View(activity)
+            view.layoutParams = FlexboxLayout.LayoutParams(100, 100)
+            flexContainer.addView(view)
+        }
+        flexContainer.flexWrap = FlexWrap.WRAP
+        val heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.UNSPECIFIED)
+        flexboxHelper.ensureIndexToFlexLine(flexContainer.flexItemCount)
+        flexboxHelper.ensureMeasureSpecCache(flexContainer.flexItemCount)
+        flexboxHelper.ensureMeasuredSizeCache(flexContainer.flexItemCount)
+
+        // Calculate only the first two flex lines, the rest of the flex items have no caches
+        val result = FlexboxHelper.FlexLinesResult()
+        flexboxHelper.calculateHorizontalFlexLines(result,
+                View.MeasureSpec.makeMeasureSpec(200, View.MeasureSpec.EXACTLY),
+                heightMeasureSpec, 150, 0, null)
+        assertEquals(2, result.mFlexLines.size)
+        val calculatedCount = result.mFlexLines[1].mLastIndex + 1
+        assertEquals(4, calculatedCount)
+        val itemCaches = flexboxHelper.copyItemCaches(calculatedCount)
+        assertNotNull(itemCaches)
+        assertEquals(calculatedCount, itemCaches!!.mIndexToFlexLine.size)
+        assertEquals(calculatedCount, itemCaches.mMeasureSpecCache.size)
+        assertEquals(calculatedCount, itemCaches.mMeasuredSizeCache.size)
+        val measureSpec = flexboxHelper.mMeasureSpecCache!![3]
+
+        // Calculate all the flex items for another width
+        result.reset()
+        flexboxHelper.calculateHorizontalFlexLines(result,
+                View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.EXACTLY),
+                heightMeasureSpec)
+        assertEquals(1, flexboxHelper.mIndexToFlexLine!![3])
+        assertEquals(1, flexboxHelper.mIndexToFlexLine!![5])
+
+        flexboxHelper.restoreItemCaches(itemCaches)
+
+        assertEquals(6, flexboxHelper.mIndexToFlexLine!!.size)
+        assertEquals(0, flexboxHelper.mIndexToFlexLine!![1])
+        assertEquals(1, flexboxHelper.mIndexToFlexLine!![2])
+        assertEquals(1, flexboxHelper.mIndexToFlexLine!![3])
+        assertEquals(measureSpec, flexboxHelper.mMeasureSpecCache!![3])
+        assertEquals(RecyclerView.NO_POSITION, flexboxHelper.mIndexToFlexLine!![4])
+        assertEquals(RecyclerView.NO_POSITION, flexboxHelper.mIndexToFlexLine!![5])
+        assertEquals(0L, flexboxHelper.mMeasureSpecCache!![5])
+    }
+}
+
+private class MeasureCountingView(context: Context) : View(context) {
+
+    var measureCount = 0
+
+    override fun onMeasure(widthMeasureSpec: Int, heightMeasureSpec: Int) {
+        measureCount++
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec)
+    }
 }
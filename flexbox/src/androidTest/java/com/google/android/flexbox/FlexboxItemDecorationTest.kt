@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox
+
+import android.graphics.Canvas
+import android.graphics.Rect
+import android.graphics.drawable.ColorDrawable
+import android.view.View
+import android.view.ViewGroup
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.rule.ActivityTestRule
+import com.google.android.flexbox.test.FlexboxTestActivity
+import com.google.android.flexbox.test.MeasureCountingAdapter
+import com.google.android.flexbox.test.TestAdapter
+import org.hamcrest.Matchers.greaterThan
+import org.hamcrest.Matchers.`is`
+import org.junit.Assert.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Unit tests for [FlexboxItemDecoration] and the methods of [FlexboxLayoutManager] it uses.
+ */
+@RunWith(AndroidJUnit4::class)
+class FlexboxItemDecorationTest {
+
+    @JvmField
+    @Rule
+    var activityRule = ActivityTestRule(FlexboxTestActivity::class.java)
+
+    @Test
+    @Throws(Throwable::class)
+    fun testIsFirstItemInFlexLine() {
+        val layoutManager = FlexboxLayoutManager(activityRule.activity)
+        // 3 items in a flex line
+        createRecyclerView(layoutManager, MeasureCountingAdapter(30, 100, 50))
+
+        val lastPosition = layoutManager.flexLines.last().let { it.firstIndex + it.itemCount - 1 }
+        for (position in 0..lastPosition) {
+            assertThat(layoutManager.isFirstItemInFlexLine(position), `is`(position % 3 == 0))
+        }
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testDrawPerFlexLine_alignItemsFlexStart_sameSpansAsPerItem() {
+        val layoutManager = FlexboxLayoutManager(activityRule.activity)
+        val recyclerView = createRecyclerView(layoutManager, MeasureCountingAdapter(60, 100, 50))
+        activityRule.runOnUiThread { recyclerView.scrollBy(0, 200) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        assertThat(layoutManager.findFirstVisibleItemPosition(), greaterThan(0))
+
+        val perItem = drawHorizontalDecorations(recyclerView, false)
+        val perFlexLine = drawHorizontalDecorations(recyclerView, true)
+
+        // Each decoration spans all the items in the flex line, the ones drawn per item are
+        // on the same line since the items are aligned to the top of the flex line
+        val attachedFlexLines = attachedChildren(layoutManager).keys
+                .map { layoutManager.getPositionToFlexLineIndex(it) }.distinct()
+        assertThat(perFlexLine.size, `is`(attachedFlexLines.size))
+        assertThat(perItem.size, `is`(layoutManager.childCount))
+        val unionsPerLine = perItem.groupBy { it.bottom }.values.map { rects ->
+            Rect(rects.first()).apply { rects.forEach { union(it) } }
+        }
+        assertThat(perFlexLine.sortedBy { it.bottom }, `is`(unionsPerLine.sortedBy { it.bottom }))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testDrawPerFlexLine_alignItemsCenter_drawnAlongTopmostItem() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        layoutManager.alignItems = AlignItems.CENTER
+        val adapter = TestAdapter()
+        val recyclerView = createRecyclerView(layoutManager, adapter)
+        activityRule.runOnUiThread {
+            for (i in 0 until 12) {
+                adapter.addItem(FlexboxLayoutManager.LayoutParams(100, if (i % 2 == 0) 50 else 30))
+            }
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        val perItem = drawHorizontalDecorations(recyclerView, false)
+        val perFlexLine = drawHorizontalDecorations(recyclerView, true)
+
+        val children = attachedChildren(layoutManager)
+        val childrenPerLine = children.entries
+                .groupBy { layoutManager.getPositionToFlexLineIndex(it.key) }
+                .toSortedMap().values.map { entries -> entries.map { it.value } }
+        assertThat(perFlexLine.size, `is`(childrenPerLine.size))
+        perFlexLine.sortedBy { it.bottom }.zip(childrenPerLine).forEach { (rect, lineChildren) ->
+            assertThat(rect.bottom, `is`(lineChildren.minOf { it.top }))
+            assertThat(rect.right, `is`(lineChildren.maxOf { it.right }))
+        }
+        // Drawn along each item at its own top, which differs in a flex line
+        assertThat(perItem.size, `is`(children.size))
+        assertThat(perItem.map { it.bottom }.distinct().size, greaterThan(perFlexLine.size))
+    }
+
+    private fun createRecyclerView(layoutManager: FlexboxLayoutManager,
+                                   adapter: RecyclerView.Adapter<*>): RecyclerView {
+        val activity = activityRule.activity
+        val recyclerView = RecyclerView(activity)
+        activityRule.runOnUiThread {
+            recyclerView.layoutParams = ViewGroup.LayoutParams(300, 240)
+            recyclerView.itemAnimator = null
+            activity.setContentView(recyclerView)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        return recyclerView
+    }
+
+    /**
+     * Draws the horizontal decorations of the attached children with a drawable recording their
+     * bounds.
+     */
+    @Throws(Throwable::class)
+    private fun drawHorizontalDecorations(recyclerView: RecyclerView,
+                                          drawPerFlexLine: Boolean): List<Rect> {
+        val drawable = RecordingDrawable()
+        activityRule.runOnUiThread {
+            val decoration = FlexboxItemDecoration(activityRule.activity)
+            decoration.setDrawable(drawable)
+            decoration.setOrientation(FlexboxItemDecoration.HORIZONTAL)
+            decoration.setDrawPerFlexLine(drawPerFlexLine)
+            decoration.onDraw(Canvas(), recyclerView, RecyclerView.State())
+        }
+        return drawable.drawnBounds
+    }
+
+    private fun attachedChildren(layoutManager: FlexboxLayoutManager): Map<Int, View> {
+        return (0 until layoutManager.childCount).associate {
+            val child = layoutManager.getChildAt(it)!!
+            layoutManager.getPosition(child) to child
+        }
+    }
+
+    private class RecordingDrawable : ColorDrawable() {
+
+        val drawnBounds = mutableListOf<Rect>()
+
+        override fun getIntrinsicWidth() = 10
+
+        override fun getIntrinsicHeight() = 5
+
+        override fun draw(canvas: Canvas) {
+            drawnBounds.add(Rect(bounds))
+        }
+    }
+}
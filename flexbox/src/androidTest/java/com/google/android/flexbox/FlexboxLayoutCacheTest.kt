@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox
+
+import android.graphics.Rect
+import android.view.View
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.rule.ActivityTestRule
+import com.google.android.flexbox.test.FlexboxTestActivity
+import org.hamcrest.Matchers.`is`
+import org.junit.Assert.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Unit tests for [FlexboxLayoutCache] and its use in [FlexboxLayout].
+ */
+@RunWith(AndroidJUnit4::class)
+class FlexboxLayoutCacheTest {
+
+    @JvmField
+    @Rule
+    var activityRule = ActivityTestRule(FlexboxTestActivity::class.java)
+
+    @Test
+    @Throws(Throwable::class)
+    fun testHitAndMissCount() {
+        val cache = FlexboxLayoutCache(4)
+        val flexboxLayout = createFlexboxLayout(cache)
+
+        measureAndLayout(flexboxLayout)
+        assertThat(cache.missCount, `is`(1L))
+        assertThat(cache.hitCount, `is`(0L))
+        assertThat(cache.size(), `is`(1))
+
+        // Bypasses the skip of the measurement with the same measure specs
+        flexboxLayout.forceLayout()
+        measureAndLayout(flexboxLayout)
+        assertThat(cache.missCount, `is`(1L))
+        assertThat(cache.hitCount, `is`(1L))
+        assertThat(cache.size(), `is`(1))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testIdenticalLayouts_sameEntry_sameBoundsAsUncached() {
+        val cache = FlexboxLayoutCache(4)
+        val first = createFlexboxLayout(cache)
+        val second = createFlexboxLayout(cache)
+        val uncached = createFlexboxLayout(null)
+
+        measureAndLayout(first)
+        measureAndLayout(second)
+        measureAndLayout(uncached)
+
+        assertThat(cache.missCount, `is`(1L))
+        assertThat(cache.hitCount, `is`(1L))
+        assertThat(cache.size(), `is`(1))
+        assertThat(second.measuredWidth, `is`(uncached.measuredWidth))
+        assertThat(second.measuredHeight, `is`(uncached.measuredHeight))
+        assertThat(second.flexLines.size, `is`(uncached.flexLines.size))
+        assertThat(childBounds(first), `is`(childBounds(uncached)))
+        assertThat(childBounds(second), `is`(childBounds(uncached)))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testEvictedAtMaxSize_leastRecentlyUsedFirst() {
+        val cache = FlexboxLayoutCache(2)
+        measureAndLayout(createFlexboxLayout(cache), 300)
+        measureAndLayout(createFlexboxLayout(cache), 400)
+        // Uses the result for 300, thus the one for 400 is the least recently used
+        measureAndLayout(createFlexboxLayout(cache), 300)
+        measureAndLayout(createFlexboxLayout(cache), 500)
+        assertThat(cache.size(), `is`(2))
+        assertThat(cache.missCount, `is`(3L))
+        assertThat(cache.hitCount, `is`(1L))
+
+        measureAndLayout(createFlexboxLayout(cache), 300)
+        assertThat(cache.hitCount, `is`(2L))
+        measureAndLayout(createFlexboxLayout(cache), 400)
+        assertThat(cache.missCount, `is`(4L))
+        assertThat(cache.size(), `is`(2))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testInvalidateAll() {
+        val cache = FlexboxLayoutCache(4)
+        measureAndLayout(createFlexboxLayout(cache))
+        assertThat(cache.size(), `is`(1))
+
+        cache.invalidateAll()
+
+        assertThat(cache.size(), `is`(0))
+        measureAndLayout(createFlexboxLayout(cache))
+        assertThat(cache.missCount, `is`(2L))
+        assertThat(cache.hitCount, `is`(0L))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testChangedAttributeOrChildSize_miss() {
+        val cache = FlexboxLayoutCache(16)
+        measureAndLayout(createFlexboxLayout(cache))
+        val changes = listOf<(FlexboxLayout) -> Unit>(
+                { it.justifyContent = JustifyContent.FLEX_END },
+                { it.alignItems = AlignItems.CENTER },
+                { it.setPadding(0, 10, 0, 0) },
+                { (it.getChildAt(2).layoutParams as FlexboxLayout.LayoutParams).width = 110 },
+                { (it.getChildAt(2).layoutParams as FlexboxLayout.LayoutParams).height = 70 },
+                { (it.getChildAt(0).layoutParams as FlexboxLayout.LayoutParams).flexGrow = 1f },
+                { (it.getChildAt(3).layoutParams as FlexboxLayout.LayoutParams).leftMargin = 5 },
+                { (it.getChildAt(4).layoutParams as FlexboxLayout.LayoutParams).isWrapBefore = true },
+                { it.getChildAt(1).visibility = View.GONE })
+
+        changes.forEachIndexed { index, change ->
+            val flexboxLayout = createFlexboxLayout(cache)
+            change(flexboxLayout)
+            measureAndLayout(flexboxLayout)
+            assertThat(cache.missCount, `is`(index + 2L))
+            assertThat(cache.hitCount, `is`(0L))
+        }
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testChildRemoved_keyShorterThanLastOne() {
+        val cache = FlexboxLayoutCache(4)
+        val flexboxLayout = createFlexboxLayout(cache)
+        measureAndLayout(flexboxLayout)
+
+        // The values of the key are written over the ones of the last key with 5 children
+        flexboxLayout.removeViewAt(4)
+        measureAndLayout(flexboxLayout)
+        assertThat(cache.missCount, `is`(2L))
+        assertThat(cache.size(), `is`(2))
+
+        val fourChildren = createFlexboxLayout(cache)
+        fourChildren.removeViewAt(4)
+        measureAndLayout(fourChildren)
+        assertThat(cache.missCount, `is`(2L))
+        assertThat(cache.hitCount, `is`(1L))
+        assertThat(childBounds(fourChildren), `is`(childBounds(flexboxLayout)))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testBaselineWithoutSignature_notCached() {
+        val cache = FlexboxLayoutCache(4)
+        val alignedByBaseline = createFlexboxLayout(cache)
+        alignedByBaseline.alignItems = AlignItems.BASELINE
+        val childAlignedByBaseline = createFlexboxLayout(cache)
+        (childAlignedByBaseline.getChildAt(1).layoutParams as FlexboxLayout.LayoutParams)
+                .alignSelf = AlignSelf.BASELINE
+
+        measureAndLayout(alignedByBaseline)
+        measureAndLayout(childAlignedByBaseline)
+
+        // Neither looked up nor stored
+        assertThat(cache.missCount, `is`(0L))
+        assertThat(cache.hitCount, `is`(0L))
+        assertThat(cache.size(), `is`(0))
+
+        val cacheWithSignature = FlexboxLayoutCache(4,
+                FlexboxLayoutCache.ChildSignatureProvider { 0L })
+        val withSignature = createFlexboxLayout(cacheWithSignature)
+        withSignature.alignItems = AlignItems.BASELINE
+        measureAndLayout(withSignature)
+        assertThat(cacheWithSignature.missCount, `is`(1L))
+        assertThat(cacheWithSignature.size(), `is`(1))
+    }
+
+    /**
+     * Creates a wrapping flex container of 5 fixed size children, one of which has a positive
+     * flexGrow.
+     */
+    private fun createFlexboxLayout(cache: FlexboxLayoutCache?): FlexboxLayout {
+        val activity = activityRule.activity
+        val flexboxLayout = FlexboxLayout(activity)
+        flexboxLayout.flexWrap = FlexWrap.WRAP
+        flexboxLayout.justifyContent = JustifyContent.CENTER
+        flexboxLayout.setLayoutCache(cache)
+        for (i in 0 until 5) {
+            val lp = FlexboxLayout.LayoutParams(100, 50 + i * 10)
+            if (i == 1) {
+                lp.flexGrow = 1f
+            }
+            val child = View(activity)
+            child.layoutParams = lp
+            flexboxLayout.addView(child)
+        }
+        return flexboxLayout
+    }
+
+    private fun measureAndLayout(flexboxLayout: FlexboxLayout, width: Int = 320) {
+        flexboxLayout.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED))
+        flexboxLayout.layout(0, 0, flexboxLayout.measuredWidth, flexboxLayout.measuredHeight)
+    }
+
+    private fun childBounds(flexboxLayout: FlexboxLayout): List<Rect> {
+        return (0 until flexboxLayout.childCount).map {
+            val child = flexboxLayout.getChildAt(it)
+            Rect(child.left, child.top, child.right, child.bottom)
+        }
+    }
+}
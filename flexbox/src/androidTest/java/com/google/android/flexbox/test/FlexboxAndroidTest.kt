@@ -17,6 +17,13 @@
 package com.google.android.flexbox.test
 
 import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Rect
+import android.graphics.drawable.ColorDrawable
+import android.graphics.drawable.Drawable
+import android.graphics.drawable.GradientDrawable
+import android.os.Looper
 import android.view.View
 import android.view.ViewGroup
 import android.widget.TextView
@@ -47,16 +54,22 @@ import com.google.android.flexbox.FlexboxLayout
 import com.google.android.flexbox.JustifyContent
 import com.google.android.flexbox.test.IsEqualAllowingError.Companion.isEqualAllowingError
 import org.hamcrest.Description
+import org.hamcrest.Matchers.greaterThan
 import org.hamcrest.TypeSafeMatcher
 import org.hamcrest.core.Is.`is`
 import org.hamcrest.core.IsNot.not
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
 import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertThat
 import org.junit.Assert.assertTrue
 import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
 /**
  * Integration tests for [FlexboxLayout].
@@ -4002,6 +4015,591 @@ class FlexboxAndroidTest {
         assertThat(flexboxLayout.flexLines.size, `is`(3))
     }
 
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testAddViews() {
+        val activity = activityRule.activity
+        val flexboxLayout = createFlexboxLayout(R.layout.activity_empty_children,
+                object : Configuration {
+                    override fun apply(flexboxLayout: FlexboxLayout) {
+                        flexboxLayout.addViews(listOf(
+                                createTextView(activity, "1", 1),
+                                createTextView(activity, "2", -1),
+                                createTextView(activity, "3", 0)))
+                    }
+                })
+
+        assertThat(flexboxLayout.childCount, `is`(3))
+        assertThat((flexboxLayout.getReorderedChildAt(0) as TextView).text.toString(), `is`("2"))
+        assertThat((flexboxLayout.getReorderedChildAt(1) as TextView).text.toString(), `is`("3"))
+        assertThat((flexboxLayout.getReorderedChildAt(2) as TextView).text.toString(), `is`("1"))
+        assertThat(flexboxLayout.getChildAt(0).width, not(0))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testAddViewsAsync() {
+        val activity = activityRule.activity
+        val flexboxLayout = createFlexboxLayout(R.layout.activity_empty_children)
+        val executor = Executors.newSingleThreadExecutor()
+        val added = CountDownLatch(1)
+        val createdOnMainThread = mutableListOf<Boolean>()
+        activityRule.runOnUiThread {
+            flexboxLayout.addViewsAsync(5, FlexboxLayout.ChildFactory { _, _, position ->
+                createdOnMainThread.add(Looper.myLooper() == Looper.getMainLooper())
+                createTextView(activity, (position + 1).toString(), 0)
+            }, executor, Runnable { added.countDown() })
+        }
+        assertTrue(added.await(5, TimeUnit.SECONDS))
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        executor.shutdown()
+
+        assertThat(flexboxLayout.childCount, `is`(5))
+        assertThat((flexboxLayout.getChildAt(4) as TextView).text.toString(), `is`("5"))
+        assertThat(createdOnMainThread, `is`(listOf(false, false, false, false, false)))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testAddViewsAsync_factoryThrows_restCreatedOnMainThread() {
+        val activity = activityRule.activity
+        val flexboxLayout = createFlexboxLayout(R.layout.activity_empty_children)
+        val executor = Executors.newSingleThreadExecutor()
+        val added = CountDownLatch(1)
+        activityRule.runOnUiThread {
+            flexboxLayout.addViewsAsync(4, FlexboxLayout.ChildFactory { _, _, position ->
+                if (position == 2 && Looper.myLooper() != Looper.getMainLooper()) {
+                    throw IllegalStateException("Needs to be created on the main thread")
+                }
+                createTextView(activity, (position + 1).toString(), 0)
+            }, executor, Runnable { added.countDown() })
+        }
+        assertTrue(added.await(5, TimeUnit.SECONDS))
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        executor.shutdown()
+
+        assertThat(flexboxLayout.childCount, `is`(4))
+        assertThat((flexboxLayout.getChildAt(2) as TextView).text.toString(), `is`("3"))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testAddViewsAsync_detached_notAdded() {
+        val activity = activityRule.activity
+        val flexboxLayout = createFlexboxLayout(R.layout.activity_empty_children)
+        val pendingTasks = mutableListOf<Runnable>()
+        var onAddedCalled = false
+        activityRule.runOnUiThread {
+            flexboxLayout.addViewsAsync(3, FlexboxLayout.ChildFactory { _, _, position ->
+                createTextView(activity, (position + 1).toString(), 0)
+            }, Executor { pendingTasks.add(it) }, Runnable { onAddedCalled = true })
+            (flexboxLayout.parent as ViewGroup).removeView(flexboxLayout)
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        // Runs the task after the view is detached
+        pendingTasks.forEach { it.run() }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        assertThat(flexboxLayout.childCount, `is`(0))
+        assertThat(onAddedCalled, `is`(false))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testJustifyContentChanged_thenChildResized_childMeasuredAgain() {
+        val activity = activityRule.activity
+        val flexboxLayout = createFlexboxLayout(R.layout.activity_empty_children,
+                object : Configuration {
+                    override fun apply(flexboxLayout: FlexboxLayout) {
+                        for (i in 1..2) {
+                            val textView = createTextView(activity, i.toString(), 0)
+                            textView.layoutParams = FlexboxLayout.LayoutParams(100, 100)
+                            flexboxLayout.addView(textView)
+                        }
+                    }
+                })
+        activityRule.runOnUiThread {
+            // Keeps the last measurement, then the child is resized before the next frame
+            flexboxLayout.justifyContent = JustifyContent.FLEX_END
+            val first = flexboxLayout.getChildAt(0)
+            first.layoutParams = FlexboxLayout.LayoutParams(150, 100)
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        val first = flexboxLayout.getChildAt(0)
+        val second = flexboxLayout.getChildAt(1)
+        assertThat(first.width, `is`(150))
+        assertThat(second.right, `is`(flexboxLayout.width))
+        assertThat(first.right, `is`(second.left))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testUpdate_layoutRequestedWhenBatchEnds() {
+        val activity = activityRule.activity
+        val flexboxLayout = createFlexboxLayout(R.layout.activity_empty_children,
+                object : Configuration {
+                    override fun apply(flexboxLayout: FlexboxLayout) {
+                        for (i in 1..3) {
+                            val textView = createTextView(activity, i.toString(), 0)
+                            textView.layoutParams = FlexboxLayout.LayoutParams(100, 100)
+                            flexboxLayout.addView(textView)
+                        }
+                    }
+                })
+        activityRule.runOnUiThread {
+            assertFalse(flexboxLayout.isLayoutRequested)
+            flexboxLayout.update(Runnable {
+                flexboxLayout.justifyContent = JustifyContent.FLEX_END
+                flexboxLayout.alignItems = AlignItems.CENTER
+                assertTrue(flexboxLayout.isUpdating)
+                assertFalse(flexboxLayout.isLayoutRequested)
+            })
+            assertFalse(flexboxLayout.isUpdating)
+            assertTrue(flexboxLayout.isLayoutRequested)
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        assertThat(flexboxLayout.getChildAt(2).right, `is`(flexboxLayout.width))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testUpdate_exceptionThrown_batchEnded() {
+        val activity = activityRule.activity
+        val flexboxLayout = createFlexboxLayout(R.layout.activity_empty_children,
+                object : Configuration {
+                    override fun apply(flexboxLayout: FlexboxLayout) {
+                        for (i in 1..3) {
+                            val textView = createTextView(activity, i.toString(), 0)
+                            textView.layoutParams = FlexboxLayout.LayoutParams(100, 100)
+                            flexboxLayout.addView(textView)
+                        }
+                    }
+                })
+        activityRule.runOnUiThread {
+            try {
+                flexboxLayout.update(Runnable {
+                    flexboxLayout.flexDirection = FlexDirection.COLUMN
+                    throw IllegalStateException()
+                })
+            } catch (expected: IllegalStateException) {
+            }
+            assertFalse(flexboxLayout.isUpdating)
+            assertTrue(flexboxLayout.isLayoutRequested)
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        // The change made before the exception is laid out
+        assertThat(flexboxLayout.getChildAt(1).top, `is`(100))
+        assertThat(flexboxLayout.getChildAt(1).left, `is`(0))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testNestedFlexboxLayout_measuredWithSameSpecs_measureSkipped() {
+        val activity = activityRule.activity
+        val outer = createNestedFlexboxLayouts(activity)
+        val inner = outer.getChildAt(0) as FlexboxLayout
+        measureAndLayout(outer)
+        val innerChildren = (0 until inner.childCount)
+                .map { inner.getChildAt(it) as MeasureCountingView }
+        val measureCounts = innerChildren.map { it.measureCount }
+        assertThat(inner.repeatedMeasureSkipCount, `is`(0L))
+
+        // Only the positions of the children change, the outer layout measures the inner one
+        // again with the same measure specs
+        inner.justifyContent = JustifyContent.FLEX_END
+        assertTrue(inner.isLayoutRequested)
+        measureAndLayout(outer)
+
+        assertThat(inner.repeatedMeasureSkipCount, greaterThan(0L))
+        assertThat(outer.repeatedMeasureSkipCount, `is`(0L))
+        assertThat(innerChildren.map { it.measureCount }, `is`(measureCounts))
+        assertThat(inner.width, `is`(200))
+        assertThat(innerChildren[1].right, `is`(200))
+        assertThat(innerChildren[0].right, `is`(innerChildren[1].left))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testNestedFlexboxLayout_childChanged_measuredAgain() {
+        val activity = activityRule.activity
+        val changes = listOf<(FlexboxLayout) -> Unit>(
+                { it.getChildAt(0).layoutParams = FlexboxLayout.LayoutParams(80, 50) },
+                { it.getChildAt(0).visibility = View.GONE },
+                { it.addView(MeasureCountingView(activity).apply {
+                    layoutParams = FlexboxLayout.LayoutParams(50, 50)
+                }) })
+
+        changes.forEach { change ->
+            // The change follows a change keeping the last measurement, so that the inner layout
+            // already waits for a layout when the child requests one
+            for (keepingMeasurementFirst in listOf(false, true)) {
+                val outer = createNestedFlexboxLayouts(activity)
+                val inner = outer.getChildAt(0) as FlexboxLayout
+                measureAndLayout(outer)
+                val last = inner.getChildAt(1) as MeasureCountingView
+                val measureCount = last.measureCount
+
+                if (keepingMeasurementFirst) {
+                    inner.justifyContent = JustifyContent.FLEX_END
+                    change(inner)
+                } else {
+                    change(inner)
+                    inner.justifyContent = JustifyContent.FLEX_END
+                }
+                measureAndLayout(outer)
+
+                assertThat(inner.repeatedMeasureSkipCount, `is`(0L))
+                assertThat(last.measureCount, greaterThan(measureCount))
+                val lastVisible = (inner.childCount - 1 downTo 0)
+                        .map { inner.getChildAt(it) }
+                        .first { it.visibility != View.GONE }
+                assertThat(lastVisible.right, `is`(200))
+            }
+        }
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testDivider_leadingAndTrailingChildrenGone_row() {
+        val flexboxLayout = createFlexboxLayoutWithDividers(activityRule.activity, 100, 100, 100,
+                100)
+        flexboxLayout.showDividerVertical = FlexboxLayout.SHOW_DIVIDER_BEGINNING or
+                FlexboxLayout.SHOW_DIVIDER_MIDDLE or FlexboxLayout.SHOW_DIVIDER_END
+        flexboxLayout.getChildAt(0).visibility = View.GONE
+        flexboxLayout.getChildAt(3).visibility = View.GONE
+        measureAndLayout(flexboxLayout)
+
+        // The beginning divider is put before the first visible child, not the middle one
+        val first = flexboxLayout.getChildAt(1)
+        val second = flexboxLayout.getChildAt(2)
+        assertThat(first.left, `is`(10))
+        assertThat(second.left, `is`(first.right + 10))
+        assertThat(flexboxLayout.flexLines.size, `is`(1))
+        // 10 (beginning divider) + 100 + 10 (middle divider) + 100 + 10 (end divider)
+        assertThat(flexboxLayout.flexLines[0].mainSize, `is`(230))
+
+        flexboxLayout.justifyContent = JustifyContent.FLEX_END
+        measureAndLayout(flexboxLayout)
+        assertThat(second.right, `is`(400 - 10))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testDivider_allChildrenGone() {
+        val flexboxLayout = createFlexboxLayoutWithDividers(activityRule.activity, 100, 100)
+        flexboxLayout.showDividerHorizontal = FlexboxLayout.SHOW_DIVIDER_BEGINNING or
+                FlexboxLayout.SHOW_DIVIDER_END
+        flexboxLayout.getChildAt(0).visibility = View.GONE
+        flexboxLayout.getChildAt(1).visibility = View.GONE
+        measureAndLayout(flexboxLayout)
+
+        // No flex line is added for the gone children, thus no divider is put either
+        assertTrue(flexboxLayout.flexLines.isEmpty())
+        assertThat(flexboxLayout.measuredHeight, `is`(0))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testDivider_emptyFlexLineBeforeFirstFlexLine_alignContentFlexEnd() {
+        val flexboxLayout = createFlexboxLayoutWithDividers(activityRule.activity, 200, 200)
+        flexboxLayout.showDividerHorizontal = FlexboxLayout.SHOW_DIVIDER_MIDDLE
+        flexboxLayout.alignContent = AlignContent.FLEX_END
+        measureAndLayout(flexboxLayout, View.MeasureSpec.makeMeasureSpec(300,
+                View.MeasureSpec.EXACTLY), width = 320)
+
+        // The empty flex line put at the top by alignContent doesn't make the first flex line
+        // having children take the middle divider
+        val first = flexboxLayout.getChildAt(0)
+        val second = flexboxLayout.getChildAt(1)
+        assertThat(first.top, `is`(300 - (100 + 15 + 100)))
+        assertThat(second.top, `is`(first.bottom + 15))
+        assertThat(second.bottom, `is`(300))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testDivider_emptyFlexLineBeforeLastFlexLine_alignContentSpaceBetween() {
+        val flexboxLayout = createFlexboxLayoutWithDividers(activityRule.activity, 200, 200)
+        flexboxLayout.showDividerHorizontal = FlexboxLayout.SHOW_DIVIDER_END
+        flexboxLayout.alignContent = AlignContent.SPACE_BETWEEN
+        measureAndLayout(flexboxLayout, View.MeasureSpec.makeMeasureSpec(300,
+                View.MeasureSpec.EXACTLY), width = 320)
+
+        // The end divider is put only after the last flex line having children, not after the
+        // empty flex line between the flex lines
+        val first = flexboxLayout.getChildAt(0)
+        val second = flexboxLayout.getChildAt(1)
+        assertThat(first.top, `is`(0))
+        assertThat(second.bottom, `is`(300 - 15))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testWrap_secondVisibleChildInFlexLine_middleDividerAndGapTakenIntoAccount() {
+        val activity = activityRule.activity
+        for (goneChildInserted in listOf(false, true)) {
+            val flexboxLayout = if (goneChildInserted) {
+                createFlexboxLayoutWithDividers(activity, 200, 200, 50, 110)
+                        .apply { getChildAt(2).visibility = View.GONE }
+            } else {
+                createFlexboxLayoutWithDividers(activity, 200, 200, 110)
+            }
+            // The beginning divider isn't put before the last child, which is the second
+            // visible child in the flex line. Thus the last child fits in 320 along with the
+            // beginning divider of 10 and the child of 200.
+            flexboxLayout.showDividerVertical = FlexboxLayout.SHOW_DIVIDER_BEGINNING
+            measureAndLayout(flexboxLayout, width = 320)
+
+            val second = flexboxLayout.getChildAt(1)
+            val last = flexboxLayout.getChildAt(flexboxLayout.childCount - 1)
+            assertThat(flexboxLayout.flexLines.size, `is`(2))
+            assertThat(last.top, `is`(second.top))
+            assertThat(last.left, `is`(second.right))
+        }
+
+        // Same for the gap, which is put only after a visible child
+        val flexboxLayout = createFlexboxLayoutWithDividers(activity, 200, 200, 50, 100)
+        flexboxLayout.getChildAt(2).visibility = View.GONE
+        flexboxLayout.columnGap = 20
+        measureAndLayout(flexboxLayout, width = 320)
+        val second = flexboxLayout.getChildAt(1)
+        val last = flexboxLayout.getChildAt(3)
+        assertThat(flexboxLayout.flexLines.size, `is`(2))
+        assertThat(last.top, `is`(second.top))
+        assertThat(last.left, `is`(second.right + 20))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testDividerRects_matchDividersAroundChildren_recomputedAfterRelayout() {
+        val divider = RecordingDrawable()
+        val flexboxLayout = createFlexboxLayoutWithDividers(activityRule.activity, 100, 100, 100,
+                100, divider = divider)
+        flexboxLayout.showDividerVertical = FlexboxLayout.SHOW_DIVIDER_BEGINNING or
+                FlexboxLayout.SHOW_DIVIDER_MIDDLE or FlexboxLayout.SHOW_DIVIDER_END
+        flexboxLayout.showDividerHorizontal = FlexboxLayout.SHOW_DIVIDER_MIDDLE
+        measureAndLayout(flexboxLayout, width = 320)
+        // 10 + 100 + 10 + 100 + 10 for each flex line
+        assertThat(flexboxLayout.flexLines.size, `is`(2))
+
+        draw(flexboxLayout)
+        assertThat(divider.drawnBounds.sortedBy { it.flattenToString() },
+                `is`(dividerRectsAroundChildren(flexboxLayout).sortedBy { it.flattenToString() }))
+        assertThat(divider.drawnBounds.size, `is`(4 + 2 + 1))
+
+        // Only the positions of the children change
+        flexboxLayout.justifyContent = JustifyContent.FLEX_END
+        measureAndLayout(flexboxLayout, width = 320)
+        assertThat(flexboxLayout.getChildAt(1).right, `is`(320 - 10))
+
+        divider.drawnBounds.clear()
+        draw(flexboxLayout)
+        assertThat(divider.drawnBounds.sortedBy { it.flattenToString() },
+                `is`(dividerRectsAroundChildren(flexboxLayout).sortedBy { it.flattenToString() }))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testDividerRects_middleDividers_childrenGone_noStaleRectDrawn() {
+        val divider = RecordingDrawable()
+        val flexboxLayout = createFlexboxLayoutWithDividers(activityRule.activity, 100, 100, 100,
+                divider = divider)
+        flexboxLayout.showDividerVertical = FlexboxLayout.SHOW_DIVIDER_MIDDLE
+        measureAndLayout(flexboxLayout)
+        draw(flexboxLayout)
+        assertThat(divider.drawnBounds, `is`(listOf(Rect(100, 0, 110, 100),
+                Rect(210, 0, 220, 100))))
+
+        flexboxLayout.getChildAt(1).visibility = View.GONE
+        measureAndLayout(flexboxLayout)
+        divider.drawnBounds.clear()
+        draw(flexboxLayout)
+        // Only the divider between the first and the last children, which moved to the left
+        assertThat(flexboxLayout.getChildAt(2).left, `is`(110))
+        assertThat(divider.drawnBounds, `is`(listOf(Rect(100, 0, 110, 100))))
+
+        flexboxLayout.getChildAt(2).visibility = View.GONE
+        measureAndLayout(flexboxLayout)
+        divider.drawnBounds.clear()
+        draw(flexboxLayout)
+        assertTrue(divider.drawnBounds.isEmpty())
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testGap_directionRow() {
+        val flexboxLayout = createFlexboxLayoutWithDividers(activityRule.activity, 100, 100, 100,
+                100, 100)
+        flexboxLayout.rowGap = 10
+        flexboxLayout.columnGap = 20
+        measureAndLayout(flexboxLayout, width = 320)
+
+        // 100 + 20 + 100 in a flex line, 100 + 20 + 100 + 20 + 100 exceeds 320
+        assertThat(childBoundsOf(flexboxLayout), `is`(listOf(
+                Rect(0, 0, 100, 100), Rect(120, 0, 220, 100),
+                Rect(0, 110, 100, 210), Rect(120, 110, 220, 210),
+                Rect(0, 220, 100, 320))))
+        assertThat(flexboxLayout.measuredHeight, `is`(320))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testGap_directionColumn() {
+        val flexboxLayout = createFlexboxLayoutWithDividers(activityRule.activity, 100, 100, 100,
+                100, 100)
+        flexboxLayout.flexDirection = FlexDirection.COLUMN
+        flexboxLayout.rowGap = 10
+        flexboxLayout.columnGap = 20
+        measureAndLayout(flexboxLayout, View.MeasureSpec.makeMeasureSpec(320,
+                View.MeasureSpec.EXACTLY))
+
+        // The rowGap is put between the children in a flex line, the columnGap between the
+        // flex lines
+        assertThat(childBoundsOf(flexboxLayout), `is`(listOf(
+                Rect(0, 0, 100, 100), Rect(0, 110, 100, 210), Rect(0, 220, 100, 320),
+                Rect(120, 0, 220, 100), Rect(120, 110, 220, 210))))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testGap_withDividers() {
+        val activity = activityRule.activity
+        val row = createFlexboxLayoutWithDividers(activity, 100, 100, 100, 100)
+        row.rowGap = 10
+        row.columnGap = 20
+        row.setShowDivider(FlexboxLayout.SHOW_DIVIDER_MIDDLE)
+        measureAndLayout(row, width = 320)
+
+        // The gap and the divider are both put between the children and between the flex lines
+        assertThat(childBoundsOf(row), `is`(listOf(
+                Rect(0, 0, 100, 100), Rect(130, 0, 230, 100),
+                Rect(0, 125, 100, 225), Rect(130, 125, 230, 225))))
+        assertThat(row.measuredHeight, `is`(225))
+
+        val column = createFlexboxLayoutWithDividers(activity, 100, 100, 100, 100, 100)
+        column.flexDirection = FlexDirection.COLUMN
+        column.rowGap = 10
+        column.columnGap = 20
+        column.setShowDivider(FlexboxLayout.SHOW_DIVIDER_MIDDLE)
+        measureAndLayout(column, View.MeasureSpec.makeMeasureSpec(320,
+                View.MeasureSpec.EXACTLY))
+
+        assertThat(childBoundsOf(column), `is`(listOf(
+                Rect(0, 0, 100, 100), Rect(0, 125, 100, 225),
+                Rect(130, 0, 230, 100), Rect(130, 125, 230, 225),
+                Rect(260, 0, 360, 100))))
+    }
+
+    @Test
+    @Throws(Throwable::class)
+    fun testGap_goneChildren() {
+        val flexboxLayout = createFlexboxLayoutWithDividers(activityRule.activity, 100, 100, 100,
+                100, 100)
+        flexboxLayout.rowGap = 10
+        flexboxLayout.columnGap = 20
+        flexboxLayout.getChildAt(0).visibility = View.GONE
+        flexboxLayout.getChildAt(2).visibility = View.GONE
+        measureAndLayout(flexboxLayout, width = 320)
+
+        // No gap is put for the gone children
+        assertThat(flexboxLayout.getChildAt(1).left, `is`(0))
+        assertThat(flexboxLayout.getChildAt(3).left, `is`(120))
+        assertThat(flexboxLayout.getChildAt(4).top, `is`(110))
+        assertThat(flexboxLayout.getChildAt(4).left, `is`(0))
+        assertThat(flexboxLayout.measuredHeight, `is`(210))
+    }
+
+    private fun childBoundsOf(flexboxLayout: FlexboxLayout): List<Rect> {
+        return (0 until flexboxLayout.childCount).map {
+            val child = flexboxLayout.getChildAt(it)
+            Rect(child.left, child.top, child.right, child.bottom)
+        }
+    }
+
+    /**
+     * @return the bounds of the dividers expected for the flex container whose dividers are shown
+     * before and after every child along the main axis and between the flex lines along the
+     * cross axis, where the direction is row and every child is as high as the flex line
+     */
+    private fun dividerRectsAroundChildren(flexboxLayout: FlexboxLayout): List<Rect> {
+        val rects = mutableListOf<Rect>()
+        flexboxLayout.flexLines.forEachIndexed { i, flexLine ->
+            val children = (flexLine.firstIndex until flexLine.firstIndex + flexLine.itemCount)
+                    .map { flexboxLayout.getChildAt(it) }
+            children.forEach { rects.add(Rect(it.left - 10, it.top, it.left, it.bottom)) }
+            val last = children.last()
+            rects.add(Rect(last.right, last.top, last.right + 10, last.bottom))
+            if (i > 0) {
+                val top = children.first().top
+                rects.add(Rect(0, top - 15, flexboxLayout.width, top))
+            }
+        }
+        return rects
+    }
+
+    private fun draw(flexboxLayout: FlexboxLayout) {
+        val bitmap = Bitmap.createBitmap(flexboxLayout.width, flexboxLayout.height,
+                Bitmap.Config.ARGB_8888)
+        flexboxLayout.draw(Canvas(bitmap))
+    }
+
+    /**
+     * Creates a wrapping flex container of the children with the given widths and the height of
+     * 100, whose dividers are 10 wide along the main axis and 15 high along the cross axis.
+     * No divider is shown until the divider modes are set.
+     */
+    private fun createFlexboxLayoutWithDividers(
+            context: Context, vararg childWidths: Int,
+            divider: Drawable = GradientDrawable().apply { setSize(10, 15) }): FlexboxLayout {
+        val flexboxLayout = FlexboxLayout(context)
+        flexboxLayout.flexWrap = FlexWrap.WRAP
+        flexboxLayout.alignItems = AlignItems.FLEX_START
+        flexboxLayout.setDividerDrawable(divider)
+        childWidths.forEach {
+            val child = View(context)
+            child.layoutParams = FlexboxLayout.LayoutParams(it, 100)
+            flexboxLayout.addView(child)
+        }
+        return flexboxLayout
+    }
+
+    /**
+     * Creates a flex container whose only child is a flex container of 200x100 holding two
+     * children of 50x50 counting their measurements.
+     */
+    private fun createNestedFlexboxLayouts(context: Context): FlexboxLayout {
+        val outer = FlexboxLayout(context)
+        outer.alignItems = AlignItems.FLEX_START
+        val inner = FlexboxLayout(context)
+        inner.layoutParams = FlexboxLayout.LayoutParams(200, 100)
+        for (i in 0 until 2) {
+            val child = MeasureCountingView(context)
+            child.layoutParams = FlexboxLayout.LayoutParams(50, 50)
+            inner.addView(child)
+        }
+        outer.addView(inner)
+        return outer
+    }
+
+    private fun measureAndLayout(flexboxLayout: FlexboxLayout,
+                                 heightMeasureSpec: Int = View.MeasureSpec.makeMeasureSpec(0,
+                                         View.MeasureSpec.UNSPECIFIED),
+                                 width: Int = 400) {
+        flexboxLayout.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                heightMeasureSpec)
+        flexboxLayout.layout(0, 0, flexboxLayout.measuredWidth, flexboxLayout.measuredHeight)
+    }
+
     @Throws(Throwable::class)
     private fun createFlexboxLayout(@LayoutRes activityLayoutResId: Int,
                                     configuration: Configuration = Configuration.EMPTY): FlexboxLayout {
@@ -4053,6 +4651,32 @@ class FlexboxAndroidTest {
         })
     }
 
+    private class MeasureCountingView(context: Context) : View(context) {
+
+        var measureCount = 0
+
+        override fun onMeasure(widthMeasureSpec: Int, heightMeasureSpec: Int) {
+            measureCount++
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec)
+        }
+    }
+
+    /**
+     * Divider of 10x15 recording the bounds it's drawn with.
+     */
+    private class RecordingDrawable : ColorDrawable() {
+
+        val drawnBounds = mutableListOf<Rect>()
+
+        override fun getIntrinsicWidth() = 10
+
+        override fun getIntrinsicHeight() = 15
+
+        override fun draw(canvas: Canvas) {
+            drawnBounds.add(Rect(bounds))
+        }
+    }
+
     private interface Configuration {
 
         fun apply(flexboxLayout: FlexboxLayout)
@@ -19,6 +19,8 @@ package com.google.android.flexbox.test
 import android.content.Context
 import android.content.pm.ActivityInfo
 import android.content.res.Configuration
+import android.graphics.Rect
+import android.view.View
 import android.view.ViewGroup
 import android.widget.TextView
 import androidx.core.content.res.ResourcesCompat
@@ -40,17 +42,23 @@ import androidx.test.rule.ActivityTestRule
 import com.google.android.flexbox.AlignItems
 import com.google.android.flexbox.AlignSelf
 import com.google.android.flexbox.FlexDirection
+import com.google.android.flexbox.FlexItemSizeEstimator
 import com.google.android.flexbox.FlexWrap
 import com.google.android.flexbox.FlexboxItemDecoration
 import com.google.android.flexbox.FlexboxItemDecoration.HORIZONTAL
 import com.google.android.flexbox.FlexboxItemDecoration.VERTICAL
 import com.google.android.flexbox.FlexboxLayoutManager
+import com.google.android.flexbox.FlexboxLayoutMetrics
 import com.google.android.flexbox.JustifyContent
 import com.google.android.flexbox.test.IsEqualAllowingError.Companion.isEqualAllowingError
 import org.hamcrest.Matchers.`is`
+import org.hamcrest.Matchers.greaterThan
+import org.hamcrest.Matchers.greaterThanOrEqualTo
 import org.hamcrest.Matchers.instanceOf
 import org.hamcrest.Matchers.lessThan
+import org.hamcrest.Matchers.lessThanOrEqualTo
 import org.hamcrest.Matchers.notNullValue
+import org.hamcrest.Matchers.sameInstance
 import org.hamcrest.core.IsNot.not
 import org.junit.Assert.assertThat
 import org.junit.Assert.assertTrue
@@ -3484,6 +3492,548 @@ class FlexboxLayoutManagerTest {
         assertThat(view3Right, `is`(activity.dpToPixel(width)))
     }
 
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testFindVisibleChild_matchesLinearSearch() {
+        val activity = activityRule.activity
+        val directions = listOf(FlexDirection.ROW, FlexDirection.ROW_REVERSE,
+                FlexDirection.COLUMN, FlexDirection.COLUMN_REVERSE)
+        for (flexDirection in directions) {
+            for (layoutDirection in listOf(View.LAYOUT_DIRECTION_LTR, View.LAYOUT_DIRECTION_RTL)) {
+                val layoutManager = FlexboxLayoutManager(activity)
+                val adapter = TestAdapter()
+                lateinit var recyclerView: RecyclerView
+                activityRule.runOnUiThread {
+                    activity.setContentView(R.layout.recyclerview)
+                    recyclerView = activity.findViewById(R.id.recyclerview)
+                    recyclerView.layoutDirection = layoutDirection
+                    layoutManager.flexDirection = flexDirection
+                    layoutManager.flexWrap = FlexWrap.WRAP
+                    recyclerView.layoutManager = layoutManager
+                    recyclerView.adapter = adapter
+                    for (i in 1..200) {
+                        // Varying sizes so that the flex lines have different lengths
+                        adapter.addItem(createLayoutParams(activity, 60 + i % 3 * 20,
+                                50 + i % 4 * 10))
+                    }
+                }
+                InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+                activityRule.runOnUiThread {
+                    // Scroll by a part of a flex line so that some children are partially visible
+                    if (layoutManager.isMainAxisDirectionHorizontal) {
+                        recyclerView.scrollBy(0, activity.dpToPixel(1000))
+                    } else {
+                        recyclerView.scrollBy(activity.dpToPixel(1000), 0)
+                    }
+                }
+                InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+                activityRule.runOnUiThread {
+                    // Twice to compare the cached results, interleaved with the queries of the
+                    // reference children for the scroll bars
+                    repeat(2) {
+                        assertThat(layoutManager.findFirstVisibleItemPosition(),
+                                `is`(findVisiblePositionLinearly(layoutManager, true, false)))
+                        recyclerView.computeVerticalScrollOffset()
+                        recyclerView.computeHorizontalScrollOffset()
+                        assertThat(layoutManager.findFirstCompletelyVisibleItemPosition(),
+                                `is`(findVisiblePositionLinearly(layoutManager, true, true)))
+                        assertThat(layoutManager.findLastVisibleItemPosition(),
+                                `is`(findVisiblePositionLinearly(layoutManager, false, false)))
+                        recyclerView.computeVerticalScrollRange()
+                        assertThat(layoutManager.findLastCompletelyVisibleItemPosition(),
+                                `is`(findVisiblePositionLinearly(layoutManager, false, true)))
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testDirectMeasure_scrolledWrapContent_measuredAgain() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = TestAdapter()
+        lateinit var recyclerView: RecyclerView
+        activityRule.runOnUiThread {
+            recyclerView = RecyclerView(activity)
+            recyclerView.layoutParams = ViewGroup.LayoutParams(activity.dpToPixel(320),
+                    ViewGroup.LayoutParams.WRAP_CONTENT)
+            activity.setContentView(recyclerView)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            layoutManager.isDirectMeasureEnabled = true
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+            for (i in 1..300) {
+                adapter.addItem(createLayoutParams(activity, 100, 70))
+            }
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        activityRule.runOnUiThread { layoutManager.scrollToPosition(240) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        val firstVisiblePosition = layoutManager.findFirstVisibleItemPosition()
+        assertThat(firstVisiblePosition, `is`(240))
+
+        // The flex lines calculated while measuring don't reach the anchor position
+        activityRule.runOnUiThread { recyclerView.requestLayout() }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        assertThat(layoutManager.findFirstVisibleItemPosition(), `is`(firstVisiblePosition))
+        // 3 items in each flex line
+        assertThat(layoutManager.flexLines.size, not(lessThan(81)))
+        val firstVisible = layoutManager.getChildAt(0)!!
+        assertThat(layoutManager.getPosition(firstVisible), `is`(240))
+        assertThat(firstVisible.left, `is`(0))
+        assertThat(firstVisible.top, `is`(0))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testDirectMeasure_measuredTwiceBeforeLayout_viewsNotLaidOutRecycled() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = MeasureCountingAdapter(100, 100, 70)
+        activityRule.runOnUiThread {
+            // Not attached to the window so that only the passes below measure and lay it out
+            val recyclerView = RecyclerView(activity)
+            // Every recycled view goes to the pool
+            recyclerView.setItemViewCacheSize(0)
+            recyclerView.recycledViewPool.setMaxRecycledViews(0, 1000)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            layoutManager.isDirectMeasureEnabled = true
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+
+            val widthSpec = View.MeasureSpec.makeMeasureSpec(320, View.MeasureSpec.EXACTLY)
+            // The views measured by the first pass beyond the height of the second one aren't
+            // laid out
+            recyclerView.measure(widthSpec,
+                    View.MeasureSpec.makeMeasureSpec(1400, View.MeasureSpec.AT_MOST))
+            recyclerView.measure(widthSpec,
+                    View.MeasureSpec.makeMeasureSpec(280, View.MeasureSpec.AT_MOST))
+            recyclerView.layout(0, 0, recyclerView.measuredWidth, recyclerView.measuredHeight)
+
+            assertThat(recyclerView.measuredHeight, `is`(280))
+            // 3 items in each of the 4 flex lines
+            assertThat(layoutManager.childCount, `is`(12))
+            assertThat(adapter.createCount, greaterThan(layoutManager.childCount))
+            assertThat(adapter.createCount, `is`(layoutManager.childCount +
+                    recyclerView.recycledViewPool.getRecycledViewCount(0)))
+        }
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testRecycledViewPoolAutoSized_limitNotSetBelowFloor() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = TestAdapter()
+        lateinit var recyclerView: RecyclerView
+        activityRule.runOnUiThread {
+            activity.setContentView(R.layout.recyclerview)
+            recyclerView = activity.findViewById(R.id.recyclerview)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            layoutManager.isRecycledViewPoolAutoSized = true
+            layoutManager.setRecycledViewPoolFloor(0, 1000)
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+            for (i in 1..500) {
+                adapter.addItem(createLayoutParams(activity, 30, 30))
+            }
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        // The limit needed for the visible flex lines is below the floor
+        assertThat(layoutManager.getRecycledViewPoolLimits().get(0, -1), `is`(-1))
+
+        activityRule.runOnUiThread {
+            layoutManager.setRecycledViewPoolFloor(0, 5)
+            recyclerView.requestLayout()
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        assertThat(layoutManager.getRecycledViewPoolFloor(0), `is`(5))
+        assertThat(layoutManager.getRecycledViewPoolLimits().get(0, -1), greaterThan(5))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testMainSizeChangedBack_keptFlexLinesRestored() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = TestAdapter()
+        lateinit var recyclerView: RecyclerView
+        activityRule.runOnUiThread {
+            recyclerView = RecyclerView(activity)
+            recyclerView.layoutParams = ViewGroup.LayoutParams(activity.dpToPixel(320),
+                    ViewGroup.LayoutParams.MATCH_PARENT)
+            activity.setContentView(recyclerView)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+            for (i in 1..300) {
+                adapter.addItem(createLayoutParams(activity, 100, 70))
+            }
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        activityRule.runOnUiThread { layoutManager.scrollToPosition(240) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        assertThat(layoutManager.findFirstVisibleItemPosition(), `is`(240))
+        // 3 items in each flex line
+        val flexLineCount = layoutManager.flexLines.size
+        assertThat(layoutManager.flexLines[80].firstIndex, `is`(240))
+
+        activityRule.runOnUiThread {
+            recyclerView.layoutParams = ViewGroup.LayoutParams(activity.dpToPixel(220),
+                    ViewGroup.LayoutParams.MATCH_PARENT)
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        // 2 items in each flex line
+        assertThat(layoutManager.flexLines[120].firstIndex, `is`(240))
+
+        activityRule.runOnUiThread {
+            recyclerView.layoutParams = ViewGroup.LayoutParams(activity.dpToPixel(320),
+                    ViewGroup.LayoutParams.MATCH_PARENT)
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        assertThat(layoutManager.findFirstVisibleItemPosition(), `is`(240))
+        assertThat(layoutManager.flexLines.size, `is`(flexLineCount))
+        assertThat(layoutManager.flexLines[80].firstIndex, `is`(240))
+        assertThat(layoutManager.flexLines[80].itemCount, `is`(3))
+        val firstVisible = layoutManager.getChildAt(0)!!
+        assertThat(layoutManager.getPosition(firstVisible), `is`(240))
+        assertThat(firstVisible.left, `is`(0))
+        assertThat(firstVisible.top, `is`(0))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testFlexItemSizeEstimator_itemsFitInEstimatedFlexLine() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = TestAdapter()
+        lateinit var recyclerView: RecyclerView
+        activityRule.runOnUiThread {
+            activity.setContentView(R.layout.recyclerview)
+            recyclerView = activity.findViewById(R.id.recyclerview)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            // The estimated sizes include the margins of 5dp on each side
+            layoutManager.flexItemSizeEstimator = FlexItemSizeEstimator { _, outSize ->
+                outSize[0] = activity.dpToPixel(100)
+                outSize[1] = activity.dpToPixel(60)
+                true
+            }
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+            for (i in 1..6) {
+                val lp = createLayoutParams(activity, 90, 50)
+                val margin = activity.dpToPixel(5)
+                lp.setMargins(margin, margin, margin, margin)
+                adapter.addItem(lp)
+            }
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        // 3 items of 100dp including the margins fit in the 320dp width
+        assertThat(layoutManager.flexLines.size, `is`(2))
+        assertThat(layoutManager.flexLines[0].itemCount, `is`(3))
+        for (i in 0 until layoutManager.childCount) {
+            val view = layoutManager.getChildAt(i)!!
+            val lp = view.layoutParams as FlexboxLayoutManager.LayoutParams
+            assertThat(view.width, isEqualAllowingError(activity.dpToPixel(90)))
+            assertThat(view.height, isEqualAllowingError(activity.dpToPixel(50)))
+            assertThat(view.right + lp.rightMargin, lessThanOrEqualTo(recyclerView.width))
+        }
+        val thirdView = layoutManager.getChildAt(2)!!
+        val fourthView = layoutManager.getChildAt(3)!!
+        assertThat(fourthView.top, isEqualAllowingError(
+                thirdView.bottom + activity.dpToPixel(10)))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testFlexboxLayoutListener_firstLayoutAndScroll() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        // 3 items in each flex line of 50px, 5 flex lines are needed to fill the height of 240px
+        val adapter = MeasureCountingAdapter(60, 100, 50)
+        val passes = mutableListOf<PassMetrics>()
+        lateinit var recyclerView: RecyclerView
+        activityRule.runOnUiThread {
+            recyclerView = RecyclerView(activity)
+            recyclerView.layoutParams = ViewGroup.LayoutParams(300, 240)
+            recyclerView.itemAnimator = null
+            activity.setContentView(recyclerView)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            // Prefetched views are bound out of the layout passes
+            layoutManager.isItemPrefetchEnabled = false
+            layoutManager.setFlexboxLayoutListener { passes.add(PassMetrics(it, adapter)) }
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        val firstLayout = passes.first()
+        firstLayout.assertTimingsNotNegative()
+        assertThat(firstLayout.computedLineCount, `is`(5))
+        assertThat(firstLayout.reusedLineCount, `is`(0))
+        assertThat(firstLayout.boundViewCount, `is`(15))
+        assertThat(layoutManager.childCount, `is`(15))
+        assertThat(firstLayout.boundViewCount, `is`(firstLayout.adapterBindCount))
+        assertThat(firstLayout.measureCount, `is`(firstLayout.adapterMeasureCount))
+
+        passes.clear()
+        // Scrolls by 2 flex lines, the 5th flex line is visible by 10px before the scroll
+        activityRule.runOnUiThread { recyclerView.scrollBy(0, 100) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        assertThat(passes.size, `is`(1))
+        val scroll = passes.first()
+        scroll.assertTimingsNotNegative()
+        assertThat(scroll.computedLineCount, `is`(2))
+        assertThat(scroll.reusedLineCount, `is`(0))
+        assertThat(scroll.boundViewCount, `is`(6))
+        assertThat(scroll.boundViewCount, `is`(scroll.adapterBindCount))
+        assertThat(scroll.measureCount, `is`(scroll.adapterMeasureCount))
+        assertThat(layoutManager.flexLines.size, `is`(7))
+        assertThat(layoutManager.findFirstVisibleItemPosition(), `is`(6))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testFlexboxLayoutListener_itemChanged_flexLinesBeforeAnchorReused() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = MeasureCountingAdapter(60, 100, 50)
+        val passes = mutableListOf<PassMetrics>()
+        lateinit var recyclerView: RecyclerView
+        activityRule.runOnUiThread {
+            recyclerView = RecyclerView(activity)
+            recyclerView.layoutParams = ViewGroup.LayoutParams(300, 240)
+            recyclerView.itemAnimator = null
+            activity.setContentView(recyclerView)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            layoutManager.isItemPrefetchEnabled = false
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        activityRule.runOnUiThread { recyclerView.scrollBy(0, 100) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        assertThat(layoutManager.findFirstVisibleItemPosition(), `is`(6))
+
+        activityRule.runOnUiThread {
+            layoutManager.setFlexboxLayoutListener { passes.add(PassMetrics(it, adapter)) }
+            adapter.notifyItemChanged(12)
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        assertThat(passes.size, `is`(1))
+        val layout = passes.first()
+        layout.assertTimingsNotNegative()
+        // The item 12 may fit in the flex line of the items 9-11, thus the flex lines prior to
+        // it are reused and the rest of the visible area is calculated from the item 9
+        assertThat(layout.reusedLineCount, `is`(3))
+        assertThat(layout.computedLineCount, `is`(4))
+        assertThat(layout.boundViewCount, `is`(12))
+        assertThat(layoutManager.flexLines.size, `is`(7))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testItemChangedBeyondVisibleArea_childrenKept() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = MeasureCountingAdapter(60, 100, 50)
+        activityRule.runOnUiThread {
+            val recyclerView = RecyclerView(activity)
+            recyclerView.layoutParams = ViewGroup.LayoutParams(300, 240)
+            recyclerView.itemAnimator = null
+            activity.setContentView(recyclerView)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        val children = attachedChildren(layoutManager)
+        val bounds = children.mapValues { childBounds(it.value) }
+        assertThat(children.size, `is`(15))
+
+        activityRule.runOnUiThread { adapter.notifyItemChanged(40) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        val childrenAfterChange = attachedChildren(layoutManager)
+        assertThat(childrenAfterChange.keys, `is`(children.keys))
+        for ((position, child) in childrenAfterChange) {
+            assertThat(child, sameInstance(children[position]))
+            assertThat(childBounds(child), `is`(bounds[position]))
+        }
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testItemChangedInVisibleArea_laidOutFromDirtyFlexLine() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = MeasureCountingAdapter(60, 100, 50)
+        val passes = mutableListOf<PassMetrics>()
+        activityRule.runOnUiThread {
+            val recyclerView = RecyclerView(activity)
+            recyclerView.layoutParams = ViewGroup.LayoutParams(300, 240)
+            recyclerView.itemAnimator = null
+            activity.setContentView(recyclerView)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            layoutManager.isItemPrefetchEnabled = false
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        val children = attachedChildren(layoutManager)
+        val bounds = children.mapValues { childBounds(it.value) }
+
+        activityRule.runOnUiThread {
+            layoutManager.setFlexboxLayoutListener { passes.add(PassMetrics(it, adapter)) }
+            adapter.notifyItemChanged(7)
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        // The item 7 may fit in the flex line of the items 6-8, which is the dirty one
+        val childrenAfterChange = attachedChildren(layoutManager)
+        assertThat(childrenAfterChange.keys, `is`(children.keys))
+        for (position in 0 until 6) {
+            assertThat(childrenAfterChange[position], sameInstance(children[position]))
+        }
+        for ((position, child) in childrenAfterChange) {
+            assertThat(childBounds(child), `is`(bounds[position]))
+        }
+        assertThat(passes.size, `is`(1))
+        val layout = passes.first()
+        assertThat(layout.reusedLineCount, `is`(2))
+        assertThat(layout.computedLineCount, `is`(3))
+        assertThat(layout.boundViewCount, `is`(9))
+        // Only the changed item is bound again, the others are taken from the scrap
+        assertThat(layout.adapterBindCount, `is`(1))
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testItemsInsertedAndRemovedBeyondVisibleArea_scrollToRecalculatedFlexLines() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = MeasureCountingAdapter(60, 100, 50)
+        activityRule.runOnUiThread {
+            val recyclerView = RecyclerView(activity)
+            recyclerView.layoutParams = ViewGroup.LayoutParams(300, 240)
+            recyclerView.itemAnimator = null
+            activity.setContentView(recyclerView)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        val children = attachedChildren(layoutManager)
+
+        activityRule.runOnUiThread { adapter.addItem(30) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        assertThat(attachedChildren(layoutManager), `is`(children))
+
+        activityRule.runOnUiThread { layoutManager.scrollToPosition(45) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        // 61 items, the item 45 starts the 16th flex line
+        assertThat(layoutManager.findFirstVisibleItemPosition(), `is`(45))
+        assertThat(layoutManager.getChildAt(0)!!.top, `is`(0))
+        assertThat(layoutManager.flexLines[15].firstIndex, `is`(45))
+        assertThat(layoutManager.flexLines[15].itemCount, `is`(3))
+
+        activityRule.runOnUiThread { layoutManager.scrollToPosition(0) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        val childrenAtStart = attachedChildren(layoutManager)
+        activityRule.runOnUiThread {
+            adapter.removeItem(31)
+            adapter.removeItem(31)
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        assertThat(attachedChildren(layoutManager), `is`(childrenAtStart))
+
+        activityRule.runOnUiThread { layoutManager.scrollToPosition(58) }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        // 59 items, the last flex line has the items 57 and 58
+        val flexLines = layoutManager.flexLines
+        assertThat(flexLines.size, `is`(20))
+        assertThat(flexLines[19].firstIndex, `is`(57))
+        assertThat(flexLines[19].itemCount, `is`(2))
+        assertThat(layoutManager.findLastVisibleItemPosition(), `is`(58))
+        for (i in 0 until flexLines.size) {
+            assertThat(flexLines[i].firstIndex, `is`(i * 3))
+        }
+    }
+
+    @Test
+    @FlakyTest
+    @Throws(Throwable::class)
+    fun testRowGap_scrolledBackAndForth_gapsBetweenFlexLines() {
+        val activity = activityRule.activity
+        val layoutManager = FlexboxLayoutManager(activity)
+        val adapter = MeasureCountingAdapter(60, 100, 50)
+        val recyclerView = RecyclerView(activity)
+        activityRule.runOnUiThread {
+            recyclerView.layoutParams = ViewGroup.LayoutParams(300, 240)
+            recyclerView.itemAnimator = null
+            activity.setContentView(recyclerView)
+            layoutManager.flexDirection = FlexDirection.ROW
+            layoutManager.flexWrap = FlexWrap.WRAP
+            layoutManager.rowGap = 20
+            recyclerView.layoutManager = layoutManager
+            recyclerView.adapter = adapter
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        val initialBounds = attachedChildren(layoutManager).mapValues { childBounds(it.value) }
+        assertThat(initialBounds[3]!!.top, `is`(50 + 20))
+        assertFlexLinesApartByRowGap(layoutManager, 50, 20)
+
+        // Scrolled by the amounts stopping at the edges of the flex lines and of the gaps, so
+        // that the flex line laid out next is right after a gap or right after a flex line
+        val deltas = listOf(50, 20, 70, 35, 140, 1, 69, 210)
+        for (delta in deltas) {
+            activityRule.runOnUiThread { recyclerView.scrollBy(0, delta) }
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+            assertFlexLinesApartByRowGap(layoutManager, 50, 20)
+        }
+        // Scrolled by 595 in total, the flex line 8 is laid out from 560 to 610
+        assertThat(layoutManager.findFirstVisibleItemPosition(), `is`(24))
+        for (delta in deltas.reversed()) {
+            activityRule.runOnUiThread { recyclerView.scrollBy(0, -delta) }
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+            assertFlexLinesApartByRowGap(layoutManager, 50, 20)
+        }
+
+        val children = attachedChildren(layoutManager)
+        for ((position, bounds) in initialBounds) {
+            assertThat(childBounds(children.getValue(position)), `is`(bounds))
+        }
+    }
+
     /**
      * Creates a new flex item.
      *
@@ -3497,7 +4047,95 @@ class FlexboxLayoutManagerTest {
         return FlexboxLayoutManager.LayoutParams(context.dpToPixel(width), context.dpToPixel(height))
     }
 
+    /**
+     * Finds the position of the first or last visible child by checking every attached child,
+     * with the same criteria as [FlexboxLayoutManager.findFirstVisibleItemPosition] and the
+     * similar methods.
+     */
+    private fun findVisiblePositionLinearly(layoutManager: FlexboxLayoutManager,
+                                            fromStart: Boolean, completelyVisible: Boolean): Int {
+        val indices = if (fromStart) {
+            0 until layoutManager.childCount
+        } else {
+            layoutManager.childCount - 1 downTo 0
+        }
+        for (i in indices) {
+            val view = layoutManager.getChildAt(i)!!
+            val lp = view.layoutParams as RecyclerView.LayoutParams
+            val left = layoutManager.paddingLeft
+            val top = layoutManager.paddingTop
+            val right = layoutManager.width - layoutManager.paddingRight
+            val bottom = layoutManager.height - layoutManager.paddingBottom
+            val childLeft = layoutManager.getDecoratedLeft(view) - lp.leftMargin
+            val childTop = layoutManager.getDecoratedTop(view) - lp.topMargin
+            val childRight = layoutManager.getDecoratedRight(view) + lp.rightMargin
+            val childBottom = layoutManager.getDecoratedBottom(view) + lp.bottomMargin
+            val visible = if (completelyVisible) {
+                left <= childLeft && right >= childRight && top <= childTop
+                        && bottom >= childBottom
+            } else {
+                (childLeft >= right || childRight >= left)
+                        && (childTop >= bottom || childBottom >= top)
+            }
+            if (visible) {
+                return layoutManager.getPosition(view)
+            }
+        }
+        return RecyclerView.NO_POSITION
+    }
+
+    /**
+     * @return the attached children of the layoutManager by their adapter positions
+     */
+    /**
+     * Asserts the attached children, 3 in each flex line, are laid out in the flex lines of the
+     * given height separated by the given row gap.
+     */
+    private fun assertFlexLinesApartByRowGap(layoutManager: FlexboxLayoutManager,
+                                             flexLineHeight: Int, rowGap: Int) {
+        val children = attachedChildren(layoutManager)
+        val (anyPosition, anyChild) = children.entries.first()
+        val firstFlexLineTop = anyChild.top - anyPosition / 3 * (flexLineHeight + rowGap)
+        for ((position, child) in children) {
+            assertThat(child.top, `is`(firstFlexLineTop + position / 3 * (flexLineHeight + rowGap)))
+            assertThat(child.left, `is`(position % 3 * 100))
+        }
+    }
+
+    private fun attachedChildren(layoutManager: FlexboxLayoutManager): Map<Int, View> {
+        return (0 until layoutManager.childCount).associate {
+            val child = layoutManager.getChildAt(it)!!
+            layoutManager.getPosition(child) to child
+        }
+    }
+
+    private fun childBounds(child: View) = Rect(child.left, child.top, child.right, child.bottom)
+
     private fun swipe(from: CoordinatesProvider, to: CoordinatesProvider): ViewAction {
         return GeneralSwipeAction(Swipe.FAST, from, to, Press.FINGER)
     }
+
+    /**
+     * Copy of the [FlexboxLayoutMetrics] of a layout pass, whose instance is reused for the next
+     * pass, along with the numbers of the bindings and measurements counted by the adapter
+     * during the pass.
+     */
+    private class PassMetrics(metrics: FlexboxLayoutMetrics, adapter: MeasureCountingAdapter) {
+        val timings = listOf(metrics.calculateFlexLinesNanos, metrics.determineMainSizeNanos,
+                metrics.determineCrossSizeNanos, metrics.stretchViewsNanos, metrics.layoutNanos)
+        val measureCount = metrics.measureCount
+        val boundViewCount = metrics.boundViewCount
+        val computedLineCount = metrics.computedLineCount
+        val reusedLineCount = metrics.reusedLineCount
+        val adapterBindCount = adapter.bindCount
+        val adapterMeasureCount = adapter.measureCount
+
+        init {
+            adapter.resetCounts()
+        }
+
+        fun assertTimingsNotNegative() {
+            timings.forEach { assertThat(it, greaterThanOrEqualTo(0L)) }
+        }
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.test
+
+import android.content.Context
+import android.view.View
+import android.view.ViewGroup
+import androidx.recyclerview.widget.RecyclerView
+import com.google.android.flexbox.FlexboxLayoutManager
+
+/**
+ * [RecyclerView.Adapter] implementation of the items of the same size in pixels, which counts
+ * how many times the views are created, bound and measured.
+ */
+internal class MeasureCountingAdapter(private var itemCount: Int, private val width: Int,
+                                      private val height: Int)
+    : RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+
+    var createCount = 0
+
+    var bindCount = 0
+
+    var measureCount = 0
+
+    fun resetCounts() {
+        createCount = 0
+        bindCount = 0
+        measureCount = 0
+    }
+
+    fun addItem(position: Int) {
+        itemCount++
+        notifyItemInserted(position)
+    }
+
+    fun removeItem(position: Int) {
+        itemCount--
+        notifyItemRemoved(position)
+    }
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): RecyclerView.ViewHolder {
+        createCount++
+        return object : RecyclerView.ViewHolder(CountingView(parent.context)) {}
+    }
+
+    override fun onBindViewHolder(holder: RecyclerView.ViewHolder, position: Int) {
+        bindCount++
+        holder.itemView.layoutParams = FlexboxLayoutManager.LayoutParams(width, height)
+    }
+
+    override fun getItemCount() = itemCount
+
+    private inner class CountingView(context: Context) : View(context) {
+
+        override fun onMeasure(widthMeasureSpec: Int, heightMeasureSpec: Int) {
+            measureCount++
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec)
+        }
+    }
+}
@@ -24,35 +24,10 @@ import java.util.List;
  * An interface that has the common behavior as the flex container such as {@link FlexboxLayout}
  * and {@link FlexboxLayoutManager}.
  */
-interface FlexContainer {
+interface FlexContainer extends ReadOnlyFlexContainer {
 
     int NOT_SET = -1;
 
-    /**
-     * @return the number of flex items contained in the flex container.
-     */
-    int getFlexItemCount();
-
-    /**
-     * Returns a flex item as a View at the given index.
-     *
-     * @param index the index
-     * @return the view at the index
-     */
-    View getFlexItemAt(int index);
-
-    /**
-     * Returns a flex item as a View, which is reordered by taking the order attribute into
-     * account.
-     *
-     * @param index the index of the view
-     * @return the reordered view, which order attribute is taken into account.
-     * If the index is negative or out of bounds of the number of contained views,
-     * returns {@code null}.
-     * @see FlexItem#getOrder()
-     */
-    View getReorderedFlexItemAt(int index);
-
     /**
      * Adds the view to the flex container as a flex item.
      *
@@ -80,13 +55,6 @@ interface FlexContainer {
      */
     void removeViewAt(int index);
 
-    /**
-     * @return the flex direction attribute of the flex container.
-     * @see FlexDirection
-     */
-    @FlexDirection
-    int getFlexDirection();
-
     /**
      * Sets the given flex direction attribute to the flex container.
      *
@@ -95,13 +63,6 @@ interface FlexContainer {
      */
     void setFlexDirection(@FlexDirection int flexDirection);
 
-    /**
-     * @return the flex wrap attribute of the flex container.
-     * @see FlexWrap
-     */
-    @FlexWrap
-    int getFlexWrap();
-
     /**
      * Sets the given flex wrap attribute to the flex container.
      *
@@ -110,13 +71,6 @@ interface FlexContainer {
      */
     void setFlexWrap(@FlexWrap int flexWrap);
 
-    /**
-     * @return the justify content attribute of the flex container.
-     * @see JustifyContent
-     */
-    @JustifyContent
-    int getJustifyContent();
-
     /**
      * Sets the given justify content attribute to the flex container.
      *
@@ -125,13 +79,6 @@ interface FlexContainer {
      */
     void setJustifyContent(@JustifyContent int justifyContent);
 
-    /**
-     * @return the align content attribute of the flex container.
-     * @see AlignContent
-     */
-    @AlignContent
-    int getAlignContent();
-
     /**
      * Sets the given align content attribute to the flex container.
      *
@@ -139,13 +86,6 @@ interface FlexContainer {
      */
     void setAlignContent(@AlignContent int alignContent);
 
-    /**
-     * @return the align items attribute of the flex container.
-     * @see AlignItems
-     */
-    @AlignItems
-    int getAlignItems();
-
     /**
      * Sets the given align items attribute to the flex container.
      *
@@ -163,139 +103,37 @@ interface FlexContainer {
     List<FlexLine> getFlexLines();
 
     /**
-     * Returns true if the main axis is horizontal, false otherwise.
-     *
-     * @return true if the main axis is horizontal, false otherwise
-     */
-    boolean isMainAxisDirectionHorizontal();
-
-    /**
-     * Returns the length of decoration (such as dividers) of the flex item along the main axis.
-     *
-     * @param view            the view from which the length of the decoration is retrieved
-     * @param index           the absolute index of the flex item within the flex container
-     * @param indexInFlexLine the relative index of the flex item within the flex line
-     * @return the length of the decoration. Note that the length of the flex item itself is not
-     * included in the result.
-     */
-    int getDecorationLengthMainAxis(View view, int index, int indexInFlexLine);
-
-    /**
-     * Returns the length of decoration (such as dividers) of the flex item along the cross axis.
-     *
-     * @param view the view from which the length of the decoration is retrieved
-     * @return the length of the decoration. Note that the length of the flex item itself is not
-     * included in the result.
-     */
-    int getDecorationLengthCrossAxis(View view);
-
-    /**
-     * @return the top padding of the flex container.
-     */
-    int getPaddingTop();
-
-    /**
-     * @return the left padding of the flex container.
-     */
-    int getPaddingLeft();
-
-    /**
-     * @return the right padding of the flex container.
-     */
-    int getPaddingRight();
-
-    /**
-     * @return the bottom padding of the flex container.
-     */
-    int getPaddingBottom();
-
-    /**
-     * @return the start padding of this view depending on its resolved layout direction.
-     */
-    int getPaddingStart();
-
-    /**
-     * @return the end padding of this view depending on its resolved layout direction.
-     */
-    int getPaddingEnd();
-
-    /**
-     * Returns the child measure spec for its width.
-     *
-     * @param widthSpec      the measure spec for the width imposed by the parent
-     * @param padding        the padding along the width for the parent
-     * @param childDimension the value of the child dimension
-     */
-    int getChildWidthMeasureSpec(int widthSpec, int padding, int childDimension);
-
-    /**
-     * Returns the child measure spec for its height.
-     *
-     * @param heightSpec     the measure spec for the height imposed by the parent
-     * @param padding        the padding along the height for the parent
-     * @param childDimension the value of the child dimension
-     */
-    int getChildHeightMeasureSpec(int heightSpec, int padding, int childDimension);
-
-    /**
-     * @return the largest main size of all flex lines including decorator lengths.
-     */
-    int getLargestMainSize();
-
-    /**
-     * @return the sum of the cross sizes of all flex lines including decorator lengths.
-     */
-    int getSumOfCrossSize();
-
-    /**
-     * Callback when a new flex item is added to the current container
-     *
-     * @param view            the view as a flex item which is added
-     * @param index           the absolute index of the flex item added
-     * @param indexInFlexLine the relative index of the flex item added within the flex line
-     * @param flexLine        the flex line where the new flex item is added
-     */
-    void onNewFlexItemAdded(View view, int index, int indexInFlexLine, FlexLine flexLine);
-
-    /**
-     * Callback when a new flex line is added to the current container
      *
-     * @param flexLine the new added flex line
+     * @param maxLine the int value, which specifies the maximum number of flex lines
      */
-    void onNewFlexLineAdded(FlexLine flexLine);
+    void setMaxLine(int maxLine);
 
     /**
-     * Sets the list of the flex lines that compose the flex container to the one received as an
-     * argument.
+     * Sets the policy for the flex items which don't fit in the flex lines limited by the maxLine
+     * attribute.
      *
-     * @param flexLines the list of flex lines
-     */
-    void setFlexLines(List<FlexLine> flexLines);
-
-    /**
-     * @return the current value of the maximum number of flex lines. If not set, {@link #NOT_SET}
-     * is returned.
+     * @param maxLineOverflow the policy, either {@link MaxLineOverflow#VISIBLE} or
+     *                        {@link MaxLineOverflow#CLIP}
      */
-    int getMaxLine();
+    void setMaxLineOverflow(@MaxLineOverflow int maxLineOverflow);
 
     /**
+     * Sets the gap between adjacent flex items stacked vertically. Same as the row-gap property
+     * of CSS, the gap is put only between flex items (or between flex lines), not before the
+     * first one nor after the last one, and it's taken into account when the flex lines are
+     * calculated without any divider or decoration.
      *
-     * @param maxLine the int value, which specifies the maximum number of flex lines
-     */
-    void setMaxLine(int maxLine);
-
-    /**
-     * @return the list of the flex lines including dummy flex lines (flex line that doesn't have
-     * any flex items in it but used for the alignment along the cross axis), which aren't included
-     * in the {@link FlexContainer#getFlexLines()}.
+     * @param rowGap the gap in pixels, must not be negative
      */
-    List<FlexLine> getFlexLinesInternal();
+    void setRowGap(int rowGap);
 
     /**
-     * Update the view cache in the flex container.
+     * Sets the gap between adjacent flex items placed side by side horizontally. Same as the
+     * column-gap property of CSS, the gap is put only between flex items (or between flex lines),
+     * not before the first one nor after the last one, and it's taken into account when the flex
+     * lines are calculated without any divider or decoration.
      *
-     * @param position the position of the view to be updated
-     * @param view     the view instance
+     * @param columnGap the gap in pixels, must not be negative
      */
-    void updateViewCache(int position, View view);
+    void setColumnGap(int columnGap);
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Estimates the sizes of the items of the {@link FlexboxLayoutManager} which aren't loaded yet,
+ * e.g. the placeholders of a paged data source, so that the flex lines containing them are
+ * calculated without binding their views.
+ *
+ * An estimated item takes exactly the estimated size in the flex lines. When it's laid out, its
+ * view is measured to the estimated size minus its margins and item decorations so that it takes
+ * the same space. Once the item is loaded, notify the adapter of the change (e.g.
+ * {@code notifyItemRangeChanged}) and return {@code false} for its position. The flex lines from
+ * the changed position are calculated again with the actual size, keeping the first visible item
+ * at the same position.
+ */
+public interface FlexItemSizeEstimator {
+
+    /**
+     * Returns the estimated size of the item at the given position if it isn't loaded. The
+     * estimate may depend on the view type of the item, e.g. a default size for each view type.
+     *
+     * @param position the adapter position of the item
+     * @param outSize  the array where the estimated width and height of the item, including its
+     *                 margins, are set at the index 0 and 1 respectively
+     * @return {@code true} if the size is estimated and set to the outSize, {@code false} if the
+     * item is loaded and its view needs to be bound and measured as usual
+     */
+    boolean getEstimatedSize(int position, @NonNull int[] outSize);
+}
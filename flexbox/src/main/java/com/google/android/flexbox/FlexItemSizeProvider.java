@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Provides the sizes of the flex items computed ahead of the measurement, e.g. from the text
+ * metrics precomputed on a background thread by {@code PrecomputedTextCompat}.
+ *
+ * The provider is asked for the size of a flex item by its index before the view of the flex
+ * item is retrieved. When a size is provided, the flex lines are calculated with that size, thus
+ * a view like TextView doesn't need to compute its desired size from its content on the main
+ * thread to find where the flex lines are broken. The {@link FlexboxLayoutManager} doesn't even
+ * bind the view until the flex item is laid out, when the view is measured exactly to the
+ * provided size minus its margins and item decorations. The {@link FlexboxLayout} measures its
+ * child exactly to the provided size minus its margins, which is skipped while the child already
+ * has that size.
+ */
+public interface FlexItemSizeProvider {
+
+    /**
+     * Returns the size of the flex item at the given index.
+     *
+     * @param index             the index of the flex item in the flex container (the adapter
+     *                          position for the {@link FlexboxLayoutManager})
+     * @param widthMeasureSpec  the width measure spec of the flex container
+     * @param heightMeasureSpec the height measure spec of the flex container
+     * @param outSize           the array where the width and the height of the flex item,
+     *                          including its margins, are set at the index 0 and 1 respectively
+     * @return {@code true} if the size is set to the outSize, {@code false} if the size isn't
+     * known and the view needs to be measured as usual
+     */
+    boolean getSize(int index, int widthMeasureSpec, int heightMeasureSpec,
+            @NonNull int[] outSize);
+}
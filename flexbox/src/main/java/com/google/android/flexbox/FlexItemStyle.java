@@ -0,0 +1,337 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import static com.google.android.flexbox.FlexContainer.NOT_SET;
+import static com.google.android.flexbox.FlexItem.FLEX_BASIS_PERCENT_DEFAULT;
+import static com.google.android.flexbox.FlexItem.FLEX_GROW_DEFAULT;
+import static com.google.android.flexbox.FlexItem.FLEX_SHRINK_DEFAULT;
+import static com.google.android.flexbox.FlexItem.MAX_SIZE;
+import static com.google.android.flexbox.FlexItem.ORDER_DEFAULT;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An immutable set of the flex item attributes other than the size and the margins, which can
+ * be shared by many flex items (e.g. all the chips in a list) instead of each
+ * {@link FlexboxLayout.LayoutParams} or {@link FlexboxLayoutManager.LayoutParams} holding its
+ * own copy. Set a style through {@code LayoutParams#setStyle(FlexItemStyle)}.
+ *
+ * The setters of the LayoutParams (e.g. {@link FlexItem#setFlexGrow(float)}) replace the style
+ * of that LayoutParams with a modified copy, thus the other flex items sharing the style aren't
+ * affected.
+ */
+public final class FlexItemStyle {
+
+    /** The style having the default values of all the attributes. */
+    public static final FlexItemStyle DEFAULT = new FlexItemStyle(new Builder());
+
+    private final int mOrder;
+
+    private final float mFlexGrow;
+
+    private final float mFlexShrink;
+
+    private final int mAlignSelf;
+
+    private final float mFlexBasisPercent;
+
+    private final int mMinWidth;
+
+    private final int mMinHeight;
+
+    private final int mMaxWidth;
+
+    private final int mMaxHeight;
+
+    private final boolean mWrapBefore;
+
+    private FlexItemStyle(Builder builder) {
+        mOrder = builder.mOrder;
+        mFlexGrow = builder.mFlexGrow;
+        mFlexShrink = builder.mFlexShrink;
+        mAlignSelf = builder.mAlignSelf;
+        mFlexBasisPercent = builder.mFlexBasisPercent;
+        mMinWidth = builder.mMinWidth;
+        mMinHeight = builder.mMinHeight;
+        mMaxWidth = builder.mMaxWidth;
+        mMaxHeight = builder.mMaxHeight;
+        mWrapBefore = builder.mWrapBefore;
+    }
+
+    /**
+     * @see FlexItem#getOrder()
+     */
+    public int getOrder() {
+        return mOrder;
+    }
+
+    /**
+     * @see FlexItem#getFlexGrow()
+     */
+    public float getFlexGrow() {
+        return mFlexGrow;
+    }
+
+    /**
+     * @see FlexItem#getFlexShrink()
+     */
+    public float getFlexShrink() {
+        return mFlexShrink;
+    }
+
+    /**
+     * @see FlexItem#getAlignSelf()
+     */
+    @AlignSelf
+    public int getAlignSelf() {
+        return mAlignSelf;
+    }
+
+    /**
+     * @see FlexItem#getFlexBasisPercent()
+     */
+    public float getFlexBasisPercent() {
+        return mFlexBasisPercent;
+    }
+
+    /**
+     * @see FlexItem#getMinWidth()
+     */
+    public int getMinWidth() {
+        return mMinWidth;
+    }
+
+    /**
+     * @see FlexItem#getMinHeight()
+     */
+    public int getMinHeight() {
+        return mMinHeight;
+    }
+
+    /**
+     * @see FlexItem#getMaxWidth()
+     */
+    public int getMaxWidth() {
+        return mMaxWidth;
+    }
+
+    /**
+     * @see FlexItem#getMaxHeight()
+     */
+    public int getMaxHeight() {
+        return mMaxHeight;
+    }
+
+    /**
+     * @see FlexItem#isWrapBefore()
+     */
+    public boolean isWrapBefore() {
+        return mWrapBefore;
+    }
+
+    /**
+     * @return {@code true} if the min or max sizes of this style may change the measured size of
+     * a flex item
+     */
+    boolean hasSizeConstraints() {
+        // The measured sizes are never negative nor larger than MAX_SIZE
+        return mMinWidth > 0 || mMinHeight > 0 || mMaxWidth < MAX_SIZE || mMaxHeight < MAX_SIZE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FlexItemStyle)) {
+            return false;
+        }
+        FlexItemStyle style = (FlexItemStyle) o;
+        return mOrder == style.mOrder
+                && Float.compare(mFlexGrow, style.mFlexGrow) == 0
+                && Float.compare(mFlexShrink, style.mFlexShrink) == 0
+                && mAlignSelf == style.mAlignSelf
+                && Float.compare(mFlexBasisPercent, style.mFlexBasisPercent) == 0
+                && mMinWidth == style.mMinWidth
+                && mMinHeight == style.mMinHeight
+                && mMaxWidth == style.mMaxWidth
+                && mMaxHeight == style.mMaxHeight
+                && mWrapBefore == style.mWrapBefore;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mOrder;
+        result = 31 * result + Float.floatToIntBits(mFlexGrow);
+        result = 31 * result + Float.floatToIntBits(mFlexShrink);
+        result = 31 * result + mAlignSelf;
+        result = 31 * result + Float.floatToIntBits(mFlexBasisPercent);
+        result = 31 * result + mMinWidth;
+        result = 31 * result + mMinHeight;
+        result = 31 * result + mMaxWidth;
+        result = 31 * result + mMaxHeight;
+        result = 31 * result + (mWrapBefore ? 1 : 0);
+        return result;
+    }
+
+    /**
+     * Builds a {@link FlexItemStyle}. The attributes not set have the default values of
+     * {@link FlexItem}.
+     */
+    public static final class Builder {
+
+        private int mOrder = ORDER_DEFAULT;
+
+        private float mFlexGrow = FLEX_GROW_DEFAULT;
+
+        private float mFlexShrink = FLEX_SHRINK_DEFAULT;
+
+        private int mAlignSelf = AlignSelf.AUTO;
+
+        private float mFlexBasisPercent = FLEX_BASIS_PERCENT_DEFAULT;
+
+        private int mMinWidth = NOT_SET;
+
+        private int mMinHeight = NOT_SET;
+
+        private int mMaxWidth = MAX_SIZE;
+
+        private int mMaxHeight = MAX_SIZE;
+
+        private boolean mWrapBefore;
+
+        public Builder() {
+        }
+
+        /**
+         * @param source the style whose attributes are copied
+         */
+        public Builder(@NonNull FlexItemStyle source) {
+            mOrder = source.mOrder;
+            mFlexGrow = source.mFlexGrow;
+            mFlexShrink = source.mFlexShrink;
+            mAlignSelf = source.mAlignSelf;
+            mFlexBasisPercent = source.mFlexBasisPercent;
+            mMinWidth = source.mMinWidth;
+            mMinHeight = source.mMinHeight;
+            mMaxWidth = source.mMaxWidth;
+            mMaxHeight = source.mMaxHeight;
+            mWrapBefore = source.mWrapBefore;
+        }
+
+        /**
+         * @see FlexItem#setOrder(int)
+         */
+        @NonNull
+        public Builder setOrder(int order) {
+            mOrder = order;
+            return this;
+        }
+
+        /**
+         * @see FlexItem#setFlexGrow(float)
+         */
+        @NonNull
+        public Builder setFlexGrow(float flexGrow) {
+            mFlexGrow = flexGrow;
+            return this;
+        }
+
+        /**
+         * @see FlexItem#setFlexShrink(float)
+         */
+        @NonNull
+        public Builder setFlexShrink(float flexShrink) {
+            mFlexShrink = flexShrink;
+            return this;
+        }
+
+        /**
+         * @see FlexItem#setAlignSelf(int)
+         */
+        @NonNull
+        public Builder setAlignSelf(@AlignSelf int alignSelf) {
+            mAlignSelf = alignSelf;
+            return this;
+        }
+
+        /**
+         * @see FlexItem#setFlexBasisPercent(float)
+         */
+        @NonNull
+        public Builder setFlexBasisPercent(float flexBasisPercent) {
+            mFlexBasisPercent = flexBasisPercent;
+            return this;
+        }
+
+        /**
+         * @see FlexItem#setMinWidth(int)
+         */
+        @NonNull
+        public Builder setMinWidth(int minWidth) {
+            mMinWidth = minWidth;
+            return this;
+        }
+
+        /**
+         * @see FlexItem#setMinHeight(int)
+         */
+        @NonNull
+        public Builder setMinHeight(int minHeight) {
+            mMinHeight = minHeight;
+            return this;
+        }
+
+        /**
+         * @see FlexItem#setMaxWidth(int)
+         */
+        @NonNull
+        public Builder setMaxWidth(int maxWidth) {
+            mMaxWidth = maxWidth;
+            return this;
+        }
+
+        /**
+         * @see FlexItem#setMaxHeight(int)
+         */
+        @NonNull
+        public Builder setMaxHeight(int maxHeight) {
+            mMaxHeight = maxHeight;
+            return this;
+        }
+
+        /**
+         * @see FlexItem#setWrapBefore(boolean)
+         */
+        @NonNull
+        public Builder setWrapBefore(boolean wrapBefore) {
+            mWrapBefore = wrapBefore;
+            return this;
+        }
+
+        /**
+         * @return the style having the attributes set, which is {@link #DEFAULT} if all of them
+         * have the default values
+         */
+        @NonNull
+        public FlexItemStyle build() {
+            FlexItemStyle style = new FlexItemStyle(this);
+            return style.equals(DEFAULT) ? DEFAULT : style;
+        }
+    }
+}
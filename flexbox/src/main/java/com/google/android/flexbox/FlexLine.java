@@ -31,6 +31,31 @@ public class FlexLine {
     FlexLine() {
     }
 
+    /**
+     * Creates a copy of the given flex line, used to restore the flex lines from a cached layout.
+     */
+    FlexLine(FlexLine source) {
+        mLeft = source.mLeft;
+        mTop = source.mTop;
+        mRight = source.mRight;
+        mBottom = source.mBottom;
+        mMainSize = source.mMainSize;
+        mDividerLengthInMainSize = source.mDividerLengthInMainSize;
+        mCrossSize = source.mCrossSize;
+        mItemCount = source.mItemCount;
+        mGoneItemCount = source.mGoneItemCount;
+        mTotalFlexGrow = source.mTotalFlexGrow;
+        mTotalFlexShrink = source.mTotalFlexShrink;
+        mMaxBaseline = source.mMaxBaseline;
+        mSumCrossSizeBefore = source.mSumCrossSizeBefore;
+        mIndicesAlignSelfStretch = new ArrayList<>(source.mIndicesAlignSelfStretch);
+        mFirstIndex = source.mFirstIndex;
+        mLastIndex = source.mLastIndex;
+        mFirstVisibleIndex = source.mFirstVisibleIndex;
+        mAnyItemsHaveFlexGrow = source.mAnyItemsHaveFlexGrow;
+        mAnyItemsHaveFlexShrink = source.mAnyItemsHaveFlexShrink;
+    }
+
     int mLeft = Integer.MAX_VALUE;
 
     int mTop = Integer.MAX_VALUE;
@@ -90,6 +115,12 @@ public class FlexLine {
 
     int mLastIndex;
 
+    /**
+     * The absolute index of the first flex item in this line whose visibility isn't
+     * {@link View#GONE}, or -1 if there is no such flex item.
+     */
+    int mFirstVisibleIndex = -1;
+
     /**
      * Set to true if any {@link FlexItem}s in this line have {@link FlexItem#getFlexGrow()}
      * attributes set (have the value other than {@link FlexItem#FLEX_GROW_DEFAULT})
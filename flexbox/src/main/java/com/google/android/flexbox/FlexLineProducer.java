@@ -0,0 +1,496 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import static androidx.recyclerview.widget.RecyclerView.NO_POSITION;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Calculates the flex lines of the flex items provided by an {@link ItemSource}, which are
+ * appended over time, e.g. pages loaded from a paged data source, and emits each flex line to a
+ * {@link Sink} as soon as it's complete.
+ *
+ * Each call of {@link #produce()} only measures the flex items appended since the previous call,
+ * starting from the last flex line, which is kept open because the next flex item may still fit
+ * in it. The flex lines before it are never calculated again.
+ *
+ * The flex lines are emitted as they're broken, i.e. the flexGrow and flexShrink attributes
+ * aren't applied to the main sizes and the cross sizes aren't aligned by alignContent, which
+ * depend on all the flex lines.
+ *
+ * Note that the first flex item of a flex line is measured with the space along the cross axis
+ * left by all the complete flex lines, while the flex container measuring all the flex items at
+ * once measures it before the previous flex line is complete. Thus a flex item whose size
+ * depends on that space (e.g. the width of a flex item in a column) may be measured to a
+ * smaller size.
+ */
+public final class FlexLineProducer {
+
+    /**
+     * Receives the flex lines produced by a {@link FlexLineProducer}.
+     */
+    public interface Sink {
+
+        /**
+         * Called when a flex line is complete. The flex line isn't modified by the producer
+         * after this call.
+         *
+         * @param flexLine the complete flex line
+         * @param index    the index of the flex line in the flex container
+         */
+        void onFlexLine(@NonNull FlexLine flexLine, int index);
+    }
+
+    /**
+     * Provides the flex items to a {@link FlexLineProducer} by their indices, without a view
+     * created for each of them. The flex items are wrapped into the flex lines with their sizes
+     * and margins, and the other attributes of {@link FlexItem} have their default values.
+     */
+    public interface ItemSource {
+
+        /**
+         * @return the number of the flex items appended so far
+         */
+        int getItemCount();
+
+        /**
+         * @param index   the index of the flex item
+         * @param outSize the array where the width and the height of the flex item in pixels,
+         *                excluding its margins, are set at the index 0 and 1 respectively
+         */
+        void getSize(int index, @NonNull int[] outSize);
+
+        /**
+         * @param index      the index of the flex item
+         * @param outMargins the array where the left, top, right and bottom margins of the flex
+         *                   item in pixels are set at the index 0 to 3 respectively
+         */
+        void getMargins(int index, @NonNull int[] outMargins);
+
+        /**
+         * @param index the index of the flex item
+         * @return {@code true} if the flex item starts a new flex line
+         * @see FlexItem#isWrapBefore()
+         */
+        boolean isWrapBefore(int index);
+    }
+
+    private final ReadOnlyFlexContainer mFlexContainer;
+
+    private final FlexboxHelper mFlexboxHelper;
+
+    private final int mWidthMeasureSpec;
+
+    private final int mHeightMeasureSpec;
+
+    private final Sink mSink;
+
+    private final int mCrossGap;
+
+    private final FlexboxHelper.FlexLinesResult mFlexLinesResult =
+            new FlexboxHelper.FlexLinesResult();
+
+    /** The complete flex lines, which have been emitted to the sink */
+    private final List<FlexLine> mFlexLines = new ArrayList<>();
+
+    /**
+     * The index of the first flex item in the open flex line, from which the next call of
+     * {@link #produce()} starts the calculation.
+     */
+    private int mOpenLineFirstIndex;
+
+    /** The sum of the cross sizes and the gaps of the complete flex lines */
+    private int mCompleteCrossSize;
+
+    /** True if the rest of the flex items are clipped by the maxLine attribute */
+    private boolean mClipped;
+
+    /** True if {@link #finish()} has been called */
+    private boolean mFinished;
+
+    /**
+     * @param context           the context used to create the view standing in for the flex
+     *                          items while they're measured
+     * @param itemSource        the source providing the flex items
+     * @param flexDirection     the flex direction of the flex lines, which wrap when the flex
+     *                          items don't fit in the main size
+     * @param widthMeasureSpec  the horizontal space requirements imposed by the parent
+     * @param heightMeasureSpec the vertical space requirements imposed by the parent
+     * @param sink              the sink which the complete flex lines are emitted to
+     */
+    public FlexLineProducer(@NonNull Context context, @NonNull ItemSource itemSource,
+            @FlexDirection int flexDirection, int widthMeasureSpec, int heightMeasureSpec,
+            @NonNull Sink sink) {
+        this(new ItemSourceFlexContainer(context, itemSource, flexDirection), widthMeasureSpec,
+                heightMeasureSpec, sink);
+    }
+
+    /**
+     * @param flexContainer     the flex container providing the flex items, whose attributes
+     *                          mustn't be changed while the flex lines are produced
+     * @param widthMeasureSpec  the horizontal space requirements imposed by the parent
+     * @param heightMeasureSpec the vertical space requirements imposed by the parent
+     * @param sink              the sink which the complete flex lines are emitted to
+     */
+    FlexLineProducer(@NonNull ReadOnlyFlexContainer flexContainer, int widthMeasureSpec,
+            int heightMeasureSpec, @NonNull Sink sink) {
+        mFlexContainer = flexContainer;
+        mFlexboxHelper = new FlexboxHelper(flexContainer);
+        mWidthMeasureSpec = widthMeasureSpec;
+        mHeightMeasureSpec = heightMeasureSpec;
+        mSink = sink;
+        mCrossGap = mFlexboxHelper.getGapCross(flexContainer.isMainAxisDirectionHorizontal());
+    }
+
+    /**
+     * Calculates the flex lines for the flex items appended to the flex container since the last
+     * call, and emits the flex lines completed by them. The last flex line stays open until a
+     * flex item appended later wraps or {@link #finish()} is called.
+     *
+     * @throws IllegalStateException if called after {@link #finish()}
+     */
+    public void produce() {
+        if (mFinished) {
+            throw new IllegalStateException("The flex lines are already finished");
+        }
+        if (mClipped || mOpenLineFirstIndex >= mFlexContainer.getFlexItemCount()) {
+            return;
+        }
+        FlexLine openLine = calculateFromOpenLine();
+        if (openLine != null) {
+            mOpenLineFirstIndex = openLine.mFirstIndex;
+        }
+    }
+
+    /**
+     * Emits the open flex line, if any, after calculating the flex items appended since the
+     * last call of {@link #produce()}. No flex lines are produced after this call.
+     */
+    public void finish() {
+        if (mFinished) {
+            return;
+        }
+        FlexLine openLine = !mClipped
+                && mOpenLineFirstIndex < mFlexContainer.getFlexItemCount()
+                ? calculateFromOpenLine() : null;
+        if (openLine != null) {
+            emit(openLine);
+        }
+        mFinished = true;
+    }
+
+    /**
+     * Discards all the flex lines so that the next call of {@link #produce()} calculates them
+     * from the first flex item, e.g. when the flex items already emitted have been changed.
+     */
+    public void reset() {
+        mFlexLines.clear();
+        mOpenLineFirstIndex = 0;
+        mCompleteCrossSize = 0;
+        mClipped = false;
+        mFinished = false;
+    }
+
+    /**
+     * @return the complete flex lines emitted so far
+     */
+    @NonNull
+    public List<FlexLine> getFlexLines() {
+        return Collections.unmodifiableList(mFlexLines);
+    }
+
+    /**
+     * @return the index of the first flex item in the open flex line, which is calculated again
+     * by the next call of {@link #produce()}
+     */
+    public int getOpenLineFirstIndex() {
+        return mOpenLineFirstIndex;
+    }
+
+    /**
+     * Calculates the flex lines from the open flex line to the last flex item and emits the
+     * complete ones.
+     *
+     * @return the new open flex line, or {@code null} if all the flex lines are complete
+     */
+    private FlexLine calculateFromOpenLine() {
+        int emittedCount = mFlexLines.size();
+        mFlexLinesResult.reset();
+        if (mFlexContainer.isMainAxisDirectionHorizontal()) {
+            mFlexboxHelper.calculateFlexLines(mFlexLinesResult, mWidthMeasureSpec,
+                    mHeightMeasureSpec, Integer.MAX_VALUE, mOpenLineFirstIndex, NO_POSITION,
+                    mFlexLines, mCompleteCrossSize);
+        } else {
+            mFlexboxHelper.calculateFlexLines(mFlexLinesResult, mHeightMeasureSpec,
+                    mWidthMeasureSpec, Integer.MAX_VALUE, mOpenLineFirstIndex, NO_POSITION,
+                    mFlexLines, mCompleteCrossSize);
+        }
+        // The calculated flex lines are appended to mFlexLines, take them out to emit them in
+        // order
+        List<FlexLine> newLines = new ArrayList<>(mFlexLines.subList(emittedCount,
+                mFlexLines.size()));
+        mFlexLines.subList(emittedCount, mFlexLines.size()).clear();
+        FlexLine openLine = null;
+        int completeCount = newLines.size();
+        if (mFlexLinesResult.mFirstClippedIndex != NO_POSITION) {
+            // The rest of the flex items are clipped by maxLine, no flex line follows
+            mClipped = true;
+        } else if (completeCount > 0) {
+            // The last flex line ends with the last flex item, which may be followed by the
+            // flex items appended later
+            completeCount--;
+            openLine = newLines.get(completeCount);
+        }
+        for (int i = 0; i < completeCount; i++) {
+            emit(newLines.get(i));
+        }
+        return openLine;
+    }
+
+    private void emit(FlexLine flexLine) {
+        mFlexLines.add(flexLine);
+        mSink.onFlexLine(flexLine, mFlexLines.size() - 1);
+        mOpenLineFirstIndex = flexLine.mLastIndex + 1;
+        mCompleteCrossSize += flexLine.mCrossSize + mCrossGap;
+    }
+
+    /**
+     * The {@link ReadOnlyFlexContainer} whose flex items are provided by an {@link ItemSource}.
+     * A single view stands in for all the flex items, which is resized for each of them when
+     * retrieved, since the flex lines are calculated one flex item at a time.
+     */
+    private static final class ItemSourceFlexContainer implements ReadOnlyFlexContainer {
+
+        /**
+         * Shared by the items wrapping before them, so that the LayoutParams of the stand-in
+         * view switches between two styles instead of copying a style for each item.
+         */
+        private static final FlexItemStyle WRAP_BEFORE_STYLE = new FlexItemStyle.Builder()
+                .setWrapBefore(true)
+                .build();
+
+        private final ItemSource mItemSource;
+
+        @FlexDirection
+        private final int mFlexDirection;
+
+        private final View mFlexItem;
+
+        private final FlexboxLayout.LayoutParams mLayoutParams =
+                new FlexboxLayout.LayoutParams(0, 0);
+
+        private final int[] mSize = new int[2];
+
+        private final int[] mMargins = new int[4];
+
+        private List<FlexLine> mFlexLines = new ArrayList<>();
+
+        ItemSourceFlexContainer(Context context, ItemSource itemSource,
+                @FlexDirection int flexDirection) {
+            mItemSource = itemSource;
+            mFlexDirection = flexDirection;
+            mFlexItem = new View(context);
+            mFlexItem.setLayoutParams(mLayoutParams);
+        }
+
+        @Override
+        public int getFlexItemCount() {
+            return mItemSource.getItemCount();
+        }
+
+        @Override
+        public View getFlexItemAt(int index) {
+            mItemSource.getSize(index, mSize);
+            mItemSource.getMargins(index, mMargins);
+            mLayoutParams.width = mSize[0];
+            mLayoutParams.height = mSize[1];
+            mLayoutParams.setMargins(mMargins[0], mMargins[1], mMargins[2], mMargins[3]);
+            mLayoutParams.setStyle(mItemSource.isWrapBefore(index)
+                    ? WRAP_BEFORE_STYLE : FlexItemStyle.DEFAULT);
+            return mFlexItem;
+        }
+
+        @Override
+        public View getReorderedFlexItemAt(int index) {
+            return getFlexItemAt(index);
+        }
+
+        @Override
+        public View getSizedFlexItemAt(int index, int width, int height) {
+            return getFlexItemAt(index);
+        }
+
+        @Override
+        public int getFlexDirection() {
+            return mFlexDirection;
+        }
+
+        @Override
+        public int getFlexWrap() {
+            return FlexWrap.WRAP;
+        }
+
+        @Override
+        public int getJustifyContent() {
+            return JustifyContent.FLEX_START;
+        }
+
+        @Override
+        public int getAlignContent() {
+            return AlignContent.FLEX_START;
+        }
+
+        @Override
+        public int getAlignItems() {
+            return AlignItems.FLEX_START;
+        }
+
+        @Override
+        public boolean isMainAxisDirectionHorizontal() {
+            return mFlexDirection == FlexDirection.ROW
+                    || mFlexDirection == FlexDirection.ROW_REVERSE;
+        }
+
+        @Override
+        public int getDecorationLengthMainAxis(View view, int index, int indexInFlexLine) {
+            return 0;
+        }
+
+        @Override
+        public int getDecorationLengthCrossAxis(View view) {
+            return 0;
+        }
+
+        @Override
+        public int getPaddingTop() {
+            return 0;
+        }
+
+        @Override
+        public int getPaddingLeft() {
+            return 0;
+        }
+
+        @Override
+        public int getPaddingRight() {
+            return 0;
+        }
+
+        @Override
+        public int getPaddingBottom() {
+            return 0;
+        }
+
+        @Override
+        public int getPaddingStart() {
+            return 0;
+        }
+
+        @Override
+        public int getPaddingEnd() {
+            return 0;
+        }
+
+        @Override
+        public int getChildWidthMeasureSpec(int widthSpec, int padding, int childDimension) {
+            return ViewGroup.getChildMeasureSpec(widthSpec, padding, childDimension);
+        }
+
+        @Override
+        public int getChildHeightMeasureSpec(int heightSpec, int padding, int childDimension) {
+            return ViewGroup.getChildMeasureSpec(heightSpec, padding, childDimension);
+        }
+
+        @Override
+        public int getLargestMainSize() {
+            int largestSize = Integer.MIN_VALUE;
+            for (FlexLine flexLine : mFlexLines) {
+                largestSize = Math.max(largestSize, flexLine.mMainSize);
+            }
+            return largestSize;
+        }
+
+        @Override
+        public int getSumOfCrossSize() {
+            int sum = 0;
+            for (FlexLine flexLine : mFlexLines) {
+                sum += flexLine.mCrossSize;
+            }
+            return sum;
+        }
+
+        @Override
+        public void onNewFlexItemAdded(View view, int index, int indexInFlexLine,
+                FlexLine flexLine) {
+            // No op
+        }
+
+        @Override
+        public void onNewFlexLineAdded(FlexLine flexLine) {
+            // No op
+        }
+
+        @Override
+        public void setFlexLines(List<FlexLine> flexLines) {
+            mFlexLines = flexLines;
+        }
+
+        @Override
+        public int getMaxLine() {
+            return FlexContainer.NOT_SET;
+        }
+
+        @Override
+        public int getMaxLineOverflow() {
+            return MaxLineOverflow.VISIBLE;
+        }
+
+        @Override
+        public int getRowGap() {
+            return 0;
+        }
+
+        @Override
+        public int getColumnGap() {
+            return 0;
+        }
+
+        @Override
+        public List<FlexLine> getFlexLinesInternal() {
+            return mFlexLines;
+        }
+
+        @Override
+        public void updateViewCache(int position, View view) {
+            // No op
+        }
+
+        @Override
+        public FlexItem getFixedSizeFlexItem() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+/**
+ * Divides the flex items of a {@link FlexboxLayoutManager} into sections, i.e. ranges of the
+ * adapter positions which always start a new flex line and may have their own justifyContent and
+ * alignItems, e.g. the groups of a sectioned tag browser. This lets a single RecyclerView lay out
+ * what otherwise needs a RecyclerView nested for each section.
+ *
+ * The flex direction is shared by all the sections, since it determines the scroll direction of
+ * the RecyclerView.
+ */
+public abstract class FlexSectionLookup {
+
+    /**
+     * Returns whether the item at the given position starts a new section. A flex line always
+     * wraps before such an item unless the flex wrap is {@link FlexWrap#NOWRAP}.
+     *
+     * @param position the adapter position of the item
+     * @return {@code true} if the item is the first one in its section
+     */
+    public abstract boolean isSectionStart(int position);
+
+    /**
+     * Returns the justifyContent of the section including the given position. By default the
+     * one of the {@link FlexboxLayoutManager} is used.
+     *
+     * @param position the adapter position of the first item in a flex line
+     * @return the justifyContent applied to the flex line, or {@link FlexContainer#NOT_SET} to
+     * use the one of the {@link FlexboxLayoutManager}
+     */
+    public int getJustifyContent(int position) {
+        return FlexContainer.NOT_SET;
+    }
+
+    /**
+     * Returns the alignItems of the section including the given position. By default the one of
+     * the {@link FlexboxLayoutManager} is used.
+     *
+     * @param position the adapter position of the first item in a flex line
+     * @return the alignItems applied to the flex line, or {@link FlexContainer#NOT_SET} to use
+     * the one of the {@link FlexboxLayoutManager}
+     */
+    public int getAlignItems(int position) {
+        return FlexContainer.NOT_SET;
+    }
+}
@@ -50,7 +50,7 @@ class FlexboxHelper {
 
     private static final long MEASURE_SPEC_WIDTH_MASK = 0xffffffffL;
 
-    private final FlexContainer mFlexContainer;
+    private final ReadOnlyFlexContainer mFlexContainer;
 
     /**
      * Holds the 'frozen' state of children during measure. If a view is frozen it will no longer
@@ -58,6 +58,57 @@ class FlexboxHelper {
      */
     private boolean[] mChildrenFrozen;
 
+    /**
+     * Holds the target main sizes of the flex items in the flex line being expanded or shrunk.
+     * The sizes are resolved arithmetically before measuring each flex item so that each flex
+     * item is measured at most once to determine the main size.
+     */
+    private int[] mFlexTargetMainSizes;
+
+    /**
+     * The number of measurements skipped while expanding or shrinking the flex items because the
+     * flexed size of the flex item was the same as its measured size.
+     */
+    long mFlexMeasureSkipCount;
+
+    /**
+     * The number of measurements skipped while stretching the flex items because the stretched
+     * size of the flex item was the same as its measured size.
+     */
+    long mStretchMeasureSkipCount;
+
+    /**
+     * The style of the flex item last found to have no size constraints while checking the size
+     * constraints, so that the following flex items sharing the same style skip the evaluation.
+     * Styles are immutable, thus comparing the references is enough.
+     */
+    @Nullable
+    private FlexItemStyle mPrevStyle;
+
+    /**
+     * The metrics of the current layout pass, which are collected only if a
+     * {@link FlexboxLayoutListener} is set to the flex container.
+     */
+    @Nullable
+    FlexboxLayoutMetrics mMetrics;
+
+    /**
+     * Provides the sizes of the flex items to be measured exactly with, set through the flex
+     * container.
+     */
+    @Nullable
+    FlexItemSizeProvider mFlexItemSizeProvider;
+
+    /**
+     * Divides the flex items into sections which start new flex lines and have their own
+     * justifyContent and alignItems, set through the {@link FlexboxLayoutManager}.
+     */
+    @Nullable
+    FlexSectionLookup mSectionLookup;
+
+    /** Receives the size from the {@link #mFlexItemSizeProvider} to avoid allocations. */
+    private final int[] mProvidedSize = new int[2];
+
     /**
      * Map the view index to the flex line which contains the view represented by the index to
      * look for a flex line from a given view index in a constant time.
@@ -100,7 +151,7 @@ class FlexboxHelper {
     @Nullable
     private long[] mMeasuredSizeCache;
 
-    FlexboxHelper(FlexContainer flexContainer) {
+    FlexboxHelper(ReadOnlyFlexContainer flexContainer) {
         mFlexContainer = flexContainer;
     }
 
@@ -388,6 +439,33 @@ class FlexboxHelper {
     void calculateFlexLines(FlexLinesResult result, int mainMeasureSpec,
             int crossMeasureSpec, int needsCalcAmount, int fromIndex, int toIndex,
             @Nullable List<FlexLine> existingLines) {
+        calculateFlexLines(result, mainMeasureSpec, crossMeasureSpec, needsCalcAmount, fromIndex,
+                toIndex, existingLines, 0);
+    }
+
+    /**
+     * Same as {@link #calculateFlexLines(FlexLinesResult, int, int, int, int, int, List)} except
+     * that the cross size taken by the flex lines before the fromIndex is given, which is
+     * subtracted from the space available to the flex items along the cross axis as if the flex
+     * lines were calculated from the first flex item.
+     *
+     * @param initialCrossSize the sum of the cross sizes and the gaps of the flex lines before
+     *                         the flex line starting at the fromIndex
+     */
+    void calculateFlexLines(FlexLinesResult result, int mainMeasureSpec,
+            int crossMeasureSpec, int needsCalcAmount, int fromIndex, int toIndex,
+            @Nullable List<FlexLine> existingLines, int initialCrossSize) {
+        long startNanos = mMetrics != null ? System.nanoTime() : 0;
+        calculateFlexLinesInternal(result, mainMeasureSpec, crossMeasureSpec, needsCalcAmount,
+                fromIndex, toIndex, existingLines, initialCrossSize);
+        if (mMetrics != null) {
+            mMetrics.mCalculateFlexLinesNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    private void calculateFlexLinesInternal(FlexLinesResult result, int mainMeasureSpec,
+            int crossMeasureSpec, int needsCalcAmount, int fromIndex, int toIndex,
+            @Nullable List<FlexLine> existingLines, int initialCrossSize) {
 
         boolean isMainHorizontal = mFlexContainer.isMainAxisDirectionHorizontal();
 
@@ -405,17 +483,37 @@ class FlexboxHelper {
 
         result.mFlexLines = flexLines;
 
+        int maxLine = mFlexContainer.getMaxLine();
+        boolean clipsOverflow = maxLine != NOT_SET
+                && mFlexContainer.getMaxLineOverflow() == MaxLineOverflow.CLIP;
+        if (clipsOverflow && flexLines.size() >= maxLine) {
+            // All flex lines allowed are already calculated, the rest of the flex items are
+            // clipped without being measured.
+            clipFlexItems(result, fromIndex);
+            return;
+        }
+
+        FlexItem fixedSizeFlexItem = getFixedSizeFlexItem();
+        if (fixedSizeFlexItem != null) {
+            calculateFixedSizeFlexLines(result, fixedSizeFlexItem, mainMeasureSpec,
+                    crossMeasureSpec, needsCalcAmount, fromIndex, toIndex);
+            return;
+        }
+
         boolean reachedToIndex = toIndex == NO_POSITION;
 
         int mainPaddingStart = getPaddingStartMain(isMainHorizontal);
         int mainPaddingEnd = getPaddingEndMain(isMainHorizontal);
         int crossPaddingStart = getPaddingStartCross(isMainHorizontal);
         int crossPaddingEnd = getPaddingEndCross(isMainHorizontal);
+        int mainGap = getGapMain(isMainHorizontal);
+        int crossGap = getGapCross(isMainHorizontal);
+        int flexWrap = mFlexContainer.getFlexWrap();
 
         int largestSizeInCross = Integer.MIN_VALUE;
 
-        // The amount of cross size calculated in this method call.
-        int sumCrossSize = 0;
+        // The amount of cross size calculated in this method call, plus the initialCrossSize.
+        int sumCrossSize = initialCrossSize;
 
         // The index of the view in the flex line.
         int indexInFlexLine = 0;
@@ -424,9 +522,19 @@ class FlexboxHelper {
         flexLine.mFirstIndex = fromIndex;
         flexLine.mMainSize = mainPaddingStart + mainPaddingEnd;
 
+        int widthMeasureSpec = isMainHorizontal ? mainMeasureSpec : crossMeasureSpec;
+        int heightMeasureSpec = isMainHorizontal ? crossMeasureSpec : mainMeasureSpec;
+
         int childCount = mFlexContainer.getFlexItemCount();
         for (int i = fromIndex; i < childCount; i++) {
-            View child = mFlexContainer.getReorderedFlexItemAt(i);
+            // Ask for the provided size before retrieving the view so that the flex container
+            // doesn't need to bind the view of the flex item
+            boolean sizeProvided = mFlexItemSizeProvider != null
+                    && mFlexItemSizeProvider.getSize(i, widthMeasureSpec, heightMeasureSpec,
+                    mProvidedSize);
+            View child = sizeProvided
+                    ? mFlexContainer.getSizedFlexItemAt(i, mProvidedSize[0], mProvidedSize[1])
+                    : mFlexContainer.getReorderedFlexItemAt(i);
 
             if (child == null) {
                 if (isLastFlexItem(i, childCount, flexLine)) {
@@ -450,7 +558,23 @@ class FlexboxHelper {
                 flexLine.mIndicesAlignSelfStretch.add(i);
             }
 
-            int childMainSize = getFlexItemSizeMain(flexItem, isMainHorizontal);
+            // Resolve the axes once per flex item instead of in each of the helpers such as
+            // getFlexItemSizeMain, which are called several times for a flex item
+            int childMainSize;
+            int childCrossSize;
+            int childMarginMain;
+            int childMarginCross;
+            if (isMainHorizontal) {
+                childMainSize = flexItem.getWidth();
+                childCrossSize = flexItem.getHeight();
+                childMarginMain = flexItem.getMarginLeft() + flexItem.getMarginRight();
+                childMarginCross = flexItem.getMarginTop() + flexItem.getMarginBottom();
+            } else {
+                childMainSize = flexItem.getHeight();
+                childCrossSize = flexItem.getWidth();
+                childMarginMain = flexItem.getMarginTop() + flexItem.getMarginBottom();
+                childMarginCross = flexItem.getMarginLeft() + flexItem.getMarginRight();
+            }
 
             if (flexItem.getFlexBasisPercent() != FLEX_BASIS_PERCENT_DEFAULT
                     && mainMode == View.MeasureSpec.EXACTLY) {
@@ -462,34 +586,37 @@ class FlexboxHelper {
 
             int childMainMeasureSpec;
             int childCrossMeasureSpec;
-            if (isMainHorizontal) {
+            if (sizeProvided) {
+                childMainMeasureSpec = makeProvidedMeasureSpec(
+                        mProvidedSize[isMainHorizontal ? 0 : 1], childMarginMain);
+                childCrossMeasureSpec = makeProvidedMeasureSpec(
+                        mProvidedSize[isMainHorizontal ? 1 : 0], childMarginCross);
+            } else if (isMainHorizontal) {
                 childMainMeasureSpec = mFlexContainer.getChildWidthMeasureSpec(mainMeasureSpec,
-                        mainPaddingStart + mainPaddingEnd +
-                                getFlexItemMarginStartMain(flexItem, true) +
-                                getFlexItemMarginEndMain(flexItem, true),
-                        childMainSize);
+                        mainPaddingStart + mainPaddingEnd + childMarginMain, childMainSize);
                 childCrossMeasureSpec = mFlexContainer.getChildHeightMeasureSpec(crossMeasureSpec,
-                        crossPaddingStart + crossPaddingEnd +
-                                getFlexItemMarginStartCross(flexItem, true) +
-                                getFlexItemMarginEndCross(flexItem, true)
-                                + sumCrossSize,
-                        getFlexItemSizeCross(flexItem, true));
-                child.measure(childMainMeasureSpec, childCrossMeasureSpec);
-                updateMeasureCache(i, childMainMeasureSpec, childCrossMeasureSpec, child);
+                        crossPaddingStart + crossPaddingEnd + childMarginCross + sumCrossSize,
+                        childCrossSize);
             } else {
                 childCrossMeasureSpec = mFlexContainer.getChildWidthMeasureSpec(crossMeasureSpec,
-                        crossPaddingStart + crossPaddingEnd +
-                                getFlexItemMarginStartCross(flexItem, false) +
-                                getFlexItemMarginEndCross(flexItem, false) + sumCrossSize,
-                        getFlexItemSizeCross(flexItem, false));
+                        crossPaddingStart + crossPaddingEnd + childMarginCross + sumCrossSize,
+                        childCrossSize);
                 childMainMeasureSpec = mFlexContainer.getChildHeightMeasureSpec(mainMeasureSpec,
-                        mainPaddingStart + mainPaddingEnd +
-                                getFlexItemMarginStartMain(flexItem, false) +
-                                getFlexItemMarginEndMain(flexItem, false),
-                        childMainSize);
-                child.measure(childCrossMeasureSpec, childMainMeasureSpec);
-                updateMeasureCache(i, childCrossMeasureSpec, childMainMeasureSpec, child);
+                        mainPaddingStart + mainPaddingEnd + childMarginMain, childMainSize);
+            }
+            int childWidthMeasureSpec = isMainHorizontal
+                    ? childMainMeasureSpec : childCrossMeasureSpec;
+            int childHeightMeasureSpec = isMainHorizontal
+                    ? childCrossMeasureSpec : childMainMeasureSpec;
+            if (!sizeProvided || child.isLayoutRequested()
+                    || child.getMeasuredWidth()
+                    != View.MeasureSpec.getSize(childWidthMeasureSpec)
+                    || child.getMeasuredHeight()
+                    != View.MeasureSpec.getSize(childHeightMeasureSpec)) {
+                // The view already having the provided size isn't measured again
+                measureChild(child, childWidthMeasureSpec, childHeightMeasureSpec);
             }
+            updateMeasureCache(i, childWidthMeasureSpec, childHeightMeasureSpec, child);
             mFlexContainer.updateViewCache(i, child);
 
             // Check the size constraint after the first measurement for the child
@@ -498,23 +625,33 @@ class FlexboxHelper {
             // {@link FlexItem#getMaxWidth()} and {@link FlexItem#getMaxHeight()} attributes.
             // E.g. When the child's layout_width is wrap_content the measured width may be
             // less than the min width after the first measurement.
-            checkSizeConstraints(child, i);
+            // The check is skipped for the fixed size flex items since they are measured
+            // exactly with the size which is already within the constraints.
+            if (!isFixedSizeFlexItem(flexItem)) {
+                checkSizeConstraints(child, i);
+            }
 
             childState = View.combineMeasuredStates(
                     childState, child.getMeasuredState());
 
             if (isWrapRequired(child, mainMode, mainSize, flexLine.mMainSize,
-                    getViewMeasuredSizeMain(child, isMainHorizontal)
-                            + getFlexItemMarginStartMain(flexItem, isMainHorizontal) +
-                            getFlexItemMarginEndMain(flexItem, isMainHorizontal),
-                    flexItem, i, indexInFlexLine, flexLines.size())) {
+                    getViewMeasuredSizeMain(child, isMainHorizontal) + childMarginMain
+                            + (flexLine.getItemCountNotGone() > 0 ? mainGap : 0),
+                    flexItem, i, flexLine.getItemCountNotGone(), flexLines.size())) {
                 if (flexLine.getItemCountNotGone() > 0) {
                     addFlexLine(flexLines, flexLine, i > 0 ? i - 1 : 0, sumCrossSize);
-                    sumCrossSize += flexLine.mCrossSize;
+                    sumCrossSize += flexLine.mCrossSize + crossGap;
+                }
+                if (clipsOverflow && flexLines.size() >= maxLine) {
+                    // The last flex line allowed is full, stop measuring the rest of the flex
+                    // items
+                    clipFlexItems(result, i);
+                    break;
                 }
 
                 if (isMainHorizontal) {
-                    if (flexItem.getHeight() == ViewGroup.LayoutParams.MATCH_PARENT) {
+                    if (!sizeProvided
+                            && flexItem.getHeight() == ViewGroup.LayoutParams.MATCH_PARENT) {
                         // This case takes care of the corner case where the cross size of the
                         // child is affected by the just added flex line.
                         // E.g. when the child's layout_height is set to match_parent, the height
@@ -528,11 +665,12 @@ class FlexboxHelper {
                                         + flexItem.getMarginTop()
                                         + flexItem.getMarginBottom() + sumCrossSize,
                                 flexItem.getHeight());
-                        child.measure(childMainMeasureSpec, childCrossMeasureSpec);
+                        measureChild(child, childMainMeasureSpec, childCrossMeasureSpec);
                         checkSizeConstraints(child, i);
                     }
                 } else {
-                    if (flexItem.getWidth() == ViewGroup.LayoutParams.MATCH_PARENT) {
+                    if (!sizeProvided
+                            && flexItem.getWidth() == ViewGroup.LayoutParams.MATCH_PARENT) {
                         // This case takes care of the corner case where the cross size of the
                         // child is affected by the just added flex line.
                         // E.g. when the child's layout_width is set to match_parent, the width
@@ -546,7 +684,7 @@ class FlexboxHelper {
                                         + flexItem.getMarginLeft()
                                         + flexItem.getMarginRight() + sumCrossSize,
                                 flexItem.getWidth());
-                        child.measure(childCrossMeasureSpec, childMainMeasureSpec);
+                        measureChild(child, childCrossMeasureSpec, childMainMeasureSpec);
                         checkSizeConstraints(child, i);
                     }
                 }
@@ -567,26 +705,40 @@ class FlexboxHelper {
             if (mIndexToFlexLine != null) {
                 mIndexToFlexLine[i] = flexLines.size();
             }
-            flexLine.mMainSize += getViewMeasuredSizeMain(child, isMainHorizontal)
-                    + getFlexItemMarginStartMain(flexItem, isMainHorizontal) +
-                    getFlexItemMarginEndMain(flexItem, isMainHorizontal);
+            // The child may have been measured again after the wrap
+            int childMeasuredMainSize;
+            int childMeasuredCrossSize;
+            if (isMainHorizontal) {
+                childMeasuredMainSize = child.getMeasuredWidth();
+                childMeasuredCrossSize = child.getMeasuredHeight();
+            } else {
+                childMeasuredMainSize = child.getMeasuredHeight();
+                childMeasuredCrossSize = child.getMeasuredWidth();
+            }
+            flexLine.mMainSize += childMeasuredMainSize + childMarginMain;
             flexLine.mTotalFlexGrow += flexItem.getFlexGrow();
             flexLine.mTotalFlexShrink += flexItem.getFlexShrink();
 
+            if (flexLine.mFirstVisibleIndex < 0) {
+                flexLine.mFirstVisibleIndex = i;
+            } else if (mainGap > 0) {
+                // The gap is treated in the same way as the dividers so that it's kept as it is
+                // when the flex items are expanded or shrunk
+                flexLine.mMainSize += mainGap;
+                flexLine.mDividerLengthInMainSize += mainGap;
+            }
             mFlexContainer.onNewFlexItemAdded(child, i, indexInFlexLine, flexLine);
 
             largestSizeInCross = Math.max(largestSizeInCross,
-                    getViewMeasuredSizeCross(child, isMainHorizontal) +
-                            getFlexItemMarginStartCross(flexItem, isMainHorizontal) +
-                            getFlexItemMarginEndCross(flexItem, isMainHorizontal) +
-                            mFlexContainer.getDecorationLengthCrossAxis(child));
+                    childMeasuredCrossSize + childMarginCross
+                            + mFlexContainer.getDecorationLengthCrossAxis(child));
             // Temporarily set the cross axis length as the largest child in the flexLine
             // Expand along the cross axis depending on the mAlignContent property if needed
             // later
             flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestSizeInCross);
 
             if (isMainHorizontal) {
-                if (mFlexContainer.getFlexWrap() != FlexWrap.WRAP_REVERSE) {
+                if (flexWrap != FlexWrap.WRAP_REVERSE) {
                     flexLine.mMaxBaseline = Math.max(flexLine.mMaxBaseline,
                             child.getBaseline() + flexItem.getMarginTop());
                 } else {
@@ -601,7 +753,7 @@ class FlexboxHelper {
 
             if (isLastFlexItem(i, childCount, flexLine)) {
                 addFlexLine(flexLines, flexLine, i, sumCrossSize);
-                sumCrossSize += flexLine.mCrossSize;
+                sumCrossSize += flexLine.mCrossSize + crossGap;
             }
 
             if (toIndex != NO_POSITION
@@ -632,6 +784,173 @@ class FlexboxHelper {
         result.mChildState = childState;
     }
 
+    /**
+     * Calculates the flex lines for the flex items declared to have the same fixed size by
+     * {@link FlexContainer#getFixedSizeFlexItem()}.
+     * Unlike {@link #calculateFlexLines(FlexLinesResult, int, int, int, int, int, List)}, no views
+     * are retrieved or measured here. The number of flex items in a flex line is computed
+     * arithmetically from the available main size and the size of the declared flex item, and
+     * the measure spec caches are filled so that each view can be measured when it's actually
+     * laid out.
+     *
+     * @param result            the instance of {@link FlexLinesResult} whose flex lines the
+     *                          calculated flex lines are added to
+     * @param fixedSizeFlexItem the flex item representing the size of every flex item
+     * @param mainMeasureSpec   the main axis measure spec imposed by the flex container
+     * @param crossMeasureSpec  the cross axis measure spec imposed by the flex container
+     * @param needsCalcAmount   the amount of pixels where flex line calculation should be stopped
+     * @param fromIndex         the index of the child from which the calculation starts
+     * @param toIndex           the index of the child to which the calculation ends
+     */
+    private void calculateFixedSizeFlexLines(FlexLinesResult result, FlexItem fixedSizeFlexItem,
+            int mainMeasureSpec, int crossMeasureSpec, int needsCalcAmount, int fromIndex,
+            int toIndex) {
+        boolean isMainHorizontal = mFlexContainer.isMainAxisDirectionHorizontal();
+        List<FlexLine> flexLines = result.mFlexLines;
+
+        int mainMode = View.MeasureSpec.getMode(mainMeasureSpec);
+        int mainSize = View.MeasureSpec.getSize(mainMeasureSpec);
+        int mainPadding = getPaddingStartMain(isMainHorizontal)
+                + getPaddingEndMain(isMainHorizontal);
+        int crossPadding = getPaddingStartCross(isMainHorizontal)
+                + getPaddingEndCross(isMainHorizontal);
+        int mainMargin = getFlexItemMarginStartMain(fixedSizeFlexItem, isMainHorizontal)
+                + getFlexItemMarginEndMain(fixedSizeFlexItem, isMainHorizontal);
+        int crossMargin = getFlexItemMarginStartCross(fixedSizeFlexItem, isMainHorizontal)
+                + getFlexItemMarginEndCross(fixedSizeFlexItem, isMainHorizontal);
+        int itemMainSize = getFlexItemSizeMain(fixedSizeFlexItem, isMainHorizontal);
+        int itemCrossSize = getFlexItemSizeCross(fixedSizeFlexItem, isMainHorizontal);
+
+        // The measure specs are the same for all flex items, thus computed only once
+        int childMainMeasureSpec;
+        int childCrossMeasureSpec;
+        long measureSpec;
+        long measuredSize;
+        if (isMainHorizontal) {
+            childMainMeasureSpec = mFlexContainer.getChildWidthMeasureSpec(mainMeasureSpec,
+                    mainPadding + mainMargin, itemMainSize);
+            childCrossMeasureSpec = mFlexContainer.getChildHeightMeasureSpec(crossMeasureSpec,
+                    crossPadding + crossMargin, itemCrossSize);
+            measureSpec = makeCombinedLong(childMainMeasureSpec, childCrossMeasureSpec);
+            measuredSize = makeCombinedLong(itemMainSize, itemCrossSize);
+        } else {
+            childCrossMeasureSpec = mFlexContainer.getChildWidthMeasureSpec(crossMeasureSpec,
+                    crossPadding + crossMargin, itemCrossSize);
+            childMainMeasureSpec = mFlexContainer.getChildHeightMeasureSpec(mainMeasureSpec,
+                    mainPadding + mainMargin, itemMainSize);
+            measureSpec = makeCombinedLong(childCrossMeasureSpec, childMainMeasureSpec);
+            measuredSize = makeCombinedLong(itemCrossSize, itemMainSize);
+        }
+
+        int itemMainLength = itemMainSize + mainMargin;
+        int itemCrossLength = itemCrossSize + crossMargin;
+        int mainGap = getGapMain(isMainHorizontal);
+        int crossGap = getGapCross(isMainHorizontal);
+        int itemsPerLine;
+        if (mFlexContainer.getFlexWrap() == FlexWrap.NOWRAP
+                || mainMode == View.MeasureSpec.UNSPECIFIED || itemMainLength + mainGap <= 0) {
+            itemsPerLine = Integer.MAX_VALUE;
+        } else {
+            // Same as the isWrapRequired method, at least one flex item is put in a flex line.
+            // n flex items need n - 1 gaps between them.
+            itemsPerLine = Math.max(
+                    (mainSize - mainPadding + mainGap) / (itemMainLength + mainGap), 1);
+        }
+        int maxLine = mFlexContainer.getMaxLine();
+        boolean clipsOverflow = maxLine != NOT_SET
+                && mFlexContainer.getMaxLineOverflow() == MaxLineOverflow.CLIP;
+        float flexGrow = fixedSizeFlexItem.getFlexGrow();
+        float flexShrink = fixedSizeFlexItem.getFlexShrink();
+
+        boolean reachedToIndex = toIndex == NO_POSITION;
+        int sumCrossSize = 0;
+        int childCount = mFlexContainer.getFlexItemCount();
+        int index = fromIndex;
+        while (index < childCount) {
+            int itemCount;
+            // Judge the condition by adding 1 to the current size of flex lines because the flex
+            // line being computed isn't added to the flex lines yet.
+            if (maxLine != NOT_SET && maxLine <= flexLines.size() + 1 && !clipsOverflow) {
+                itemCount = childCount - index;
+            } else {
+                itemCount = Math.min(itemsPerLine, childCount - index);
+            }
+            FlexLine flexLine = new FlexLine();
+            flexLine.mFirstIndex = index;
+            flexLine.mFirstVisibleIndex = index;
+            flexLine.mItemCount = itemCount;
+            flexLine.mDividerLengthInMainSize = mainGap * (itemCount - 1);
+            flexLine.mMainSize = mainPadding + itemMainLength * itemCount
+                    + flexLine.mDividerLengthInMainSize;
+            flexLine.mCrossSize = itemCrossLength;
+            flexLine.mTotalFlexGrow = flexGrow * itemCount;
+            flexLine.mTotalFlexShrink = flexShrink * itemCount;
+            flexLine.mAnyItemsHaveFlexGrow = flexGrow != FLEX_GROW_DEFAULT;
+            flexLine.mAnyItemsHaveFlexShrink = flexShrink != FLEX_SHRINK_NOT_SET;
+
+            int lastIndex = index + itemCount - 1;
+            if (mIndexToFlexLine != null) {
+                Arrays.fill(mIndexToFlexLine, index, lastIndex + 1, flexLines.size());
+            }
+            if (mMeasureSpecCache != null) {
+                Arrays.fill(mMeasureSpecCache, index, lastIndex + 1, measureSpec);
+            }
+            if (mMeasuredSizeCache != null) {
+                Arrays.fill(mMeasuredSizeCache, index, lastIndex + 1, measuredSize);
+            }
+            addFlexLine(flexLines, flexLine, lastIndex, sumCrossSize);
+            sumCrossSize += flexLine.mCrossSize + crossGap;
+            index = lastIndex + 1;
+
+            if (clipsOverflow && flexLines.size() >= maxLine && index < childCount) {
+                clipFlexItems(result, index);
+                break;
+            }
+
+            if (!reachedToIndex && lastIndex >= toIndex) {
+                // Same as the calculateFlexLines method, let the sumCrossSize start from the
+                // negative value of a flex line's cross size so that flex lines are calculated
+                // enough to fill the visible area beyond the flex line including toIndex.
+                sumCrossSize = -itemCrossLength;
+                reachedToIndex = true;
+            }
+            if (sumCrossSize > needsCalcAmount && reachedToIndex) {
+                break;
+            }
+        }
+        result.mChildState = 0;
+    }
+
+    /**
+     * @return the flex item declared by {@link FlexContainer#getFixedSizeFlexItem()}, or
+     * {@code null} if the {@link #mSectionLookup} is set since each section may align its flex
+     * items differently, e.g. by their baselines, which needs each view to be measured
+     */
+    @Nullable
+    private FlexItem getFixedSizeFlexItem() {
+        if (mSectionLookup != null) {
+            return null;
+        }
+        return mFlexContainer.getFixedSizeFlexItem();
+    }
+
+    /**
+     * Returns if the size of the given flex item is fixed, i.e. both of its width and height
+     * are exact values within its minimum and maximum size constraints and its flex basis percent
+     * isn't set. The size of such a flex item can be determined without measuring the view.
+     *
+     * @param flexItem the flex item to be checked
+     * @return {@code true} if the size of the flex item is fixed, {@code false} otherwise
+     */
+    boolean isFixedSizeFlexItem(FlexItem flexItem) {
+        int width = flexItem.getWidth();
+        int height = flexItem.getHeight();
+        return width >= 0 && height >= 0
+                && flexItem.getFlexBasisPercent() == FLEX_BASIS_PERCENT_DEFAULT
+                && width >= flexItem.getMinWidth() && width <= flexItem.getMaxWidth()
+                && height >= flexItem.getMinHeight() && height <= flexItem.getMaxHeight();
+    }
+
     /**
      * Compound buttons (ex. {{@link android.widget.CheckBox}}, {@link android.widget.ToggleButton})
      * have a button drawable with minimum height and width specified for them.
@@ -710,6 +1029,36 @@ class FlexboxHelper {
         return mFlexContainer.getPaddingEnd();
     }
 
+    /**
+     * Returns the container's gap between flex items in the main axis. Either column gap or row
+     * gap.
+     *
+     * @param isMainHorizontal is the main axis horizontal
+     * @return the gap between flex items in the main axis
+     */
+    int getGapMain(boolean isMainHorizontal) {
+        if (isMainHorizontal) {
+            return mFlexContainer.getColumnGap();
+        }
+
+        return mFlexContainer.getRowGap();
+    }
+
+    /**
+     * Returns the container's gap between flex lines in the cross axis. Either row gap or column
+     * gap.
+     *
+     * @param isMainHorizontal is the main axis horizontal
+     * @return the gap between flex lines in the cross axis
+     */
+    int getGapCross(boolean isMainHorizontal) {
+        if (isMainHorizontal) {
+            return mFlexContainer.getRowGap();
+        }
+
+        return mFlexContainer.getColumnGap();
+    }
+
     /**
      * Returns the view's measured size in the main axis. Either width or height.
      *
@@ -858,7 +1207,8 @@ class FlexboxHelper {
      * @param flexItem      the LayoutParams for the view being determined whether a new flex line
      *                      is needed
      * @param index         the index of the view being added within the entire flex container
-     * @param indexInFlexLine the index of the view being added within the current flex line
+     * @param indexInFlexLine the index of the view being added within the current flex line,
+     *                        not counting the views whose visibility is {@link View#GONE}
      * @param flexLinesSize the number of the existing flexlines size
      * @return {@code true} if a wrap is required, {@code false} otherwise
      * @see FlexContainer#getFlexWrap()
@@ -872,13 +1222,19 @@ class FlexboxHelper {
         if (flexItem.isWrapBefore()) {
             return true;
         }
+        if (mSectionLookup != null && mSectionLookup.isSectionStart(index)) {
+            return true;
+        }
         if (mode == View.MeasureSpec.UNSPECIFIED) {
             return false;
         }
         int maxLine = mFlexContainer.getMaxLine();
         // Judge the condition by adding 1 to the current flexLinesSize because the flex line
         // being computed isn't added to the flexLinesSize.
-        if (maxLine != NOT_SET && maxLine <= flexLinesSize + 1) {
+        // If the overflowing flex items are clipped, the wrap is required as usual so that the
+        // caller can stop at the flex item that doesn't fit in the last flex line.
+        if (maxLine != NOT_SET && maxLine <= flexLinesSize + 1
+                && mFlexContainer.getMaxLineOverflow() != MaxLineOverflow.CLIP) {
             return false;
         }
         int decorationLength =
@@ -889,6 +1245,55 @@ class FlexboxHelper {
         return maxSize < currentLength + childLength;
     }
 
+    /**
+     * @param flexLine the flex line
+     * @return the justifyContent applied to the flex line, which is the one of the section the
+     * flex line belongs to if the {@link #mSectionLookup} is set
+     */
+    @JustifyContent
+    int getJustifyContent(FlexLine flexLine) {
+        if (mSectionLookup != null) {
+            int justifyContent = mSectionLookup.getJustifyContent(flexLine.mFirstIndex);
+            if (justifyContent != NOT_SET) {
+                return justifyContent;
+            }
+        }
+        return mFlexContainer.getJustifyContent();
+    }
+
+    /**
+     * @param flexLine the flex line
+     * @return the alignItems applied to the flex line, which is the one of the section the flex
+     * line belongs to if the {@link #mSectionLookup} is set
+     */
+    @AlignItems
+    int getAlignItems(FlexLine flexLine) {
+        if (mSectionLookup != null) {
+            int alignItems = mSectionLookup.getAlignItems(flexLine.mFirstIndex);
+            if (alignItems != NOT_SET) {
+                return alignItems;
+            }
+        }
+        return mFlexContainer.getAlignItems();
+    }
+
+    /**
+     * Marks the flex items from the given index as clipped, i.e. they don't belong to any flex
+     * line because the flex lines limited by {@link FlexContainer#getMaxLine()} are full.
+     *
+     * @param result             the instance of {@link FlexLinesResult} to be updated
+     * @param firstClippedIndex  the index of the first flex item to be clipped
+     */
+    private void clipFlexItems(FlexLinesResult result, int firstClippedIndex) {
+        result.mFirstClippedIndex = firstClippedIndex;
+        if (mIndexToFlexLine != null) {
+            int toIndex = Math.min(mFlexContainer.getFlexItemCount(), mIndexToFlexLine.length);
+            if (firstClippedIndex < toIndex) {
+                Arrays.fill(mIndexToFlexLine, firstClippedIndex, toIndex, NO_POSITION);
+            }
+        }
+    }
+
     private boolean isLastFlexItem(int childIndex, int childCount,
             FlexLine flexLine) {
         return childIndex == childCount - 1 && flexLine.getItemCountNotGone() != 0;
@@ -900,6 +1305,33 @@ class FlexboxHelper {
         mFlexContainer.onNewFlexLineAdded(flexLine);
         flexLine.mLastIndex = viewIndex;
         flexLines.add(flexLine);
+        if (mMetrics != null) {
+            mMetrics.mComputedLineCount++;
+        }
+    }
+
+    /**
+     * @return the exact measure spec of the size provided by the {@link #mFlexItemSizeProvider},
+     * which includes the margins of the flex item
+     */
+    private static int makeProvidedMeasureSpec(int providedSize, int margin) {
+        return View.MeasureSpec.makeMeasureSpec(Math.max(providedSize - margin, 0),
+                View.MeasureSpec.EXACTLY);
+    }
+
+    /**
+     * Measures the flex item with the given measure specs, counting the measurement if the
+     * metrics are collected.
+     *
+     * @param view              the view to be measured
+     * @param widthMeasureSpec  the width measure spec for the view
+     * @param heightMeasureSpec the height measure spec for the view
+     */
+    void measureChild(View view, int widthMeasureSpec, int heightMeasureSpec) {
+        view.measure(widthMeasureSpec, heightMeasureSpec);
+        if (mMetrics != null) {
+            mMetrics.mMeasureCount++;
+        }
     }
 
     /**
@@ -913,6 +1345,17 @@ class FlexboxHelper {
     private void checkSizeConstraints(View view, int index) {
         boolean needsMeasure = false;
         FlexItem flexItem = (FlexItem) view.getLayoutParams();
+        FlexItemStyle style = getStyle(flexItem);
+        if (style != null) {
+            if (style == mPrevStyle) {
+                // Shares the style of the previous flex item, which has no size constraints
+                return;
+            }
+            if (!style.hasSizeConstraints()) {
+                mPrevStyle = style;
+                return;
+            }
+        }
         int childWidth = view.getMeasuredWidth();
         int childHeight = view.getMeasuredHeight();
 
@@ -935,12 +1378,30 @@ class FlexboxHelper {
             int widthSpec = View.MeasureSpec.makeMeasureSpec(childWidth, View.MeasureSpec.EXACTLY);
             int heightSpec = View.MeasureSpec
                     .makeMeasureSpec(childHeight, View.MeasureSpec.EXACTLY);
-            view.measure(widthSpec, heightSpec);
+            measureChild(view, widthSpec, heightSpec);
             updateMeasureCache(index, widthSpec, heightSpec, view);
             mFlexContainer.updateViewCache(index, view);
         }
     }
 
+    /**
+     * Returns the style of the flex item if it's the LayoutParams of the flex containers in this
+     * library.
+     *
+     * @param flexItem the flex item
+     * @return the style shared by the flex item, or {@code null} if the flex item doesn't have
+     * a {@link FlexItemStyle}
+     */
+    @Nullable
+    static FlexItemStyle getStyle(FlexItem flexItem) {
+        if (flexItem instanceof FlexboxLayout.LayoutParams) {
+            return ((FlexboxLayout.LayoutParams) flexItem).getStyle();
+        } else if (flexItem instanceof FlexboxLayoutManager.LayoutParams) {
+            return ((FlexboxLayoutManager.LayoutParams) flexItem).getStyle();
+        }
+        return null;
+    }
+
     /**
      * @see #determineMainSize(int, int, int)
      */
@@ -960,6 +1421,15 @@ class FlexboxHelper {
      * @see FlexContainer#getFlexDirection()
      */
     void determineMainSize(int widthMeasureSpec, int heightMeasureSpec, int fromIndex) {
+        long startNanos = mMetrics != null ? System.nanoTime() : 0;
+        determineMainSizeInternal(widthMeasureSpec, heightMeasureSpec, fromIndex);
+        if (mMetrics != null) {
+            mMetrics.mDetermineMainSizeNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    private void determineMainSizeInternal(int widthMeasureSpec, int heightMeasureSpec,
+            int fromIndex) {
         ensureChildrenFrozen(mFlexContainer.getFlexItemCount());
         if (fromIndex >= mFlexContainer.getFlexItemCount()) {
             return;
@@ -1006,10 +1476,10 @@ class FlexboxHelper {
             FlexLine flexLine = flexLines.get(i);
             if (flexLine.mMainSize < mainSize && flexLine.mAnyItemsHaveFlexGrow) {
                 expandFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine,
-                        mainSize, paddingAlongMainAxis, false);
+                        mainSize, paddingAlongMainAxis);
             } else if (flexLine.mMainSize > mainSize && flexLine.mAnyItemsHaveFlexShrink) {
                 shrinkFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine,
-                        mainSize, paddingAlongMainAxis, false);
+                        mainSize, paddingAlongMainAxis);
             }
         }
     }
@@ -1027,209 +1497,214 @@ class FlexboxHelper {
 
     /**
      * Expand the flex items along the main axis based on the individual mFlexGrow attribute.
+     * The target main size of each flex item is resolved arithmetically first, redistributing the
+     * positive free space which isn't fully distributed because of the maximum size constraints.
+     * Then each flex item having the flex grow attribute is measured only once with its final
+     * size.
      *
      * @param widthMeasureSpec     the horizontal space requirements as imposed by the parent
      * @param heightMeasureSpec    the vertical space requirements as imposed by the parent
      * @param flexLine             the flex line to which flex items belong
      * @param maxMainSize          the maximum main size. Expanded main size will be this size
      * @param paddingAlongMainAxis the padding value along the main axis
-     * @param calledRecursively    true if this method is called recursively, false otherwise
      * @see FlexContainer#getFlexDirection()
      * @see FlexContainer#setFlexDirection(int)
      * @see FlexItem#getFlexGrow()
      */
     private void expandFlexItems(int widthMeasureSpec, int heightMeasureSpec, FlexLine flexLine,
-            int maxMainSize, int paddingAlongMainAxis, boolean calledRecursively) {
+            int maxMainSize, int paddingAlongMainAxis) {
         if (flexLine.mTotalFlexGrow <= 0 || maxMainSize < flexLine.mMainSize) {
             return;
         }
-        int sizeBeforeExpand = flexLine.mMainSize;
-        boolean needsReexpand = false;
-        float unitSpace = (maxMainSize - flexLine.mMainSize) / flexLine.mTotalFlexGrow;
-        flexLine.mMainSize = paddingAlongMainAxis + flexLine.mDividerLengthInMainSize;
-
-        // Setting the cross size of the flex line as the temporal value since the cross size of
-        // each flex item may be changed from the initial calculation
-        // (in the measureHorizontal/measureVertical method) even this method is part of the main
-        // size determination.
-        // E.g. If a TextView's layout_width is set to 0dp, layout_height is set to wrap_content,
-        // and layout_flexGrow is set to 1, the TextView is trying to expand to the vertical
-        // direction to enclose its content (in the measureHorizontal method), but
-        // the width will be expanded in this method. In that case, the height needs to be measured
-        // again with the expanded width.
-        int largestCrossSize = 0;
-        if (!calledRecursively) {
-            flexLine.mCrossSize = Integer.MIN_VALUE;
-        }
-        float accumulatedRoundError = 0;
-        for (int i = 0; i < flexLine.mItemCount; i++) {
-            int index = flexLine.mFirstIndex + i;
-            View child = mFlexContainer.getReorderedFlexItemAt(index);
-            if (child == null || child.getVisibility() == View.GONE) {
-                continue;
-            }
-            FlexItem flexItem = (FlexItem) child.getLayoutParams();
-            int flexDirection = mFlexContainer.getFlexDirection();
-            if (flexDirection == FlexDirection.ROW || flexDirection == FlexDirection.ROW_REVERSE) {
-                // The direction of the main axis is horizontal
-
-                int childMeasuredWidth = child.getMeasuredWidth();
-                if (mMeasuredSizeCache != null) {
-                    // Retrieve the measured width from the cache because there
-                    // are some cases that the view is re-created from the last measure, thus
-                    // View#getMeasuredWidth returns 0.
-                    // E.g. if the flex container is FlexboxLayoutManager, the case happens
-                    // frequently
-                    childMeasuredWidth = extractLowerInt(mMeasuredSizeCache[index]);
-                }
-                int childMeasuredHeight = child.getMeasuredHeight();
-                if (mMeasuredSizeCache != null) {
-                    // Extract the measured height from the cache
-                    childMeasuredHeight = extractHigherInt(mMeasuredSizeCache[index]);
+        boolean isMainHorizontal = mFlexContainer.isMainAxisDirectionHorizontal();
+        int[] targetMainSizes = prepareFlexTargetMainSizes(flexLine, isMainHorizontal);
+        int mainSize = flexLine.mMainSize;
+        while (flexLine.mTotalFlexGrow > 0 && maxMainSize >= mainSize) {
+            int sizeBeforeExpand = mainSize;
+            boolean needsReexpand = false;
+            float unitSpace = (maxMainSize - mainSize) / flexLine.mTotalFlexGrow;
+            mainSize = paddingAlongMainAxis + flexLine.mDividerLengthInMainSize;
+            float accumulatedRoundError = 0;
+            for (int i = 0; i < flexLine.mItemCount; i++) {
+                int index = flexLine.mFirstIndex + i;
+                View child = mFlexContainer.getReorderedFlexItemAt(index);
+                if (child == null || child.getVisibility() == View.GONE) {
+                    continue;
                 }
+                FlexItem flexItem = (FlexItem) child.getLayoutParams();
                 if (!mChildrenFrozen[index] && flexItem.getFlexGrow() > 0f) {
-                    float rawCalculatedWidth = childMeasuredWidth
+                    float rawCalculatedSize = targetMainSizes[i]
                             + unitSpace * flexItem.getFlexGrow();
                     if (i == flexLine.mItemCount - 1) {
-                        rawCalculatedWidth += accumulatedRoundError;
+                        rawCalculatedSize += accumulatedRoundError;
                         accumulatedRoundError = 0;
                     }
-                    int newWidth = Math.round(rawCalculatedWidth);
-                    if (newWidth > flexItem.getMaxWidth()) {
-                        // This means the child can't expand beyond the value of the mMaxWidth
+                    int newSize = Math.round(rawCalculatedSize);
+                    int maxSize = isMainHorizontal ? flexItem.getMaxWidth()
+                            : flexItem.getMaxHeight();
+                    if (newSize > maxSize) {
+                        // This means the child can't expand beyond the value of the maximum size
                         // attribute.
                         // To adjust the flex line length to the size of maxMainSize, remaining
                         // positive free space needs to be re-distributed to other flex items
-                        // (children views). In that case, invoke this method again with the same
-                        // fromIndex.
+                        // (children views). In that case, resolve the sizes again for the
+                        // remaining flex items.
                         needsReexpand = true;
-                        newWidth = flexItem.getMaxWidth();
+                        newSize = maxSize;
                         mChildrenFrozen[index] = true;
                         flexLine.mTotalFlexGrow -= flexItem.getFlexGrow();
                     } else {
-                        accumulatedRoundError += (rawCalculatedWidth - newWidth);
+                        accumulatedRoundError += (rawCalculatedSize - newSize);
                         if (accumulatedRoundError > 1.0) {
-                            newWidth += 1;
+                            newSize += 1;
                             accumulatedRoundError -= 1.0;
                         } else if (accumulatedRoundError < -1.0) {
-                            newWidth -= 1;
+                            newSize -= 1;
                             accumulatedRoundError += 1.0;
                         }
                     }
-                    int childHeightMeasureSpec = getChildHeightMeasureSpecInternal(
-                            heightMeasureSpec, flexItem, flexLine.mSumCrossSizeBefore);
-                    int childWidthMeasureSpec = View.MeasureSpec.makeMeasureSpec(newWidth,
-                            View.MeasureSpec.EXACTLY);
-                    child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
-                    childMeasuredWidth = child.getMeasuredWidth();
-                    childMeasuredHeight = child.getMeasuredHeight();
-                    updateMeasureCache(index, childWidthMeasureSpec, childHeightMeasureSpec,
-                            child);
-                    mFlexContainer.updateViewCache(index, child);
+                    targetMainSizes[i] = newSize;
                 }
-                largestCrossSize = Math.max(largestCrossSize, childMeasuredHeight
-                        + flexItem.getMarginTop() + flexItem.getMarginBottom()
-                        + mFlexContainer.getDecorationLengthCrossAxis(child));
-                flexLine.mMainSize += childMeasuredWidth + flexItem.getMarginLeft()
-                        + flexItem.getMarginRight();
-            } else {
-                // The direction of the main axis is vertical
-
-                int childMeasuredHeight = child.getMeasuredHeight();
-                if (mMeasuredSizeCache != null) {
-                    // Retrieve the measured height from the cache because there
-                    // are some cases that the view is re-created from the last measure, thus
-                    // View#getMeasuredHeight returns 0.
-                    // E.g. if the flex container is FlexboxLayoutManager, that case happens
-                    // frequently
-                    childMeasuredHeight =
-                            extractHigherInt(mMeasuredSizeCache[index]);
-                }
-                int childMeasuredWidth = child.getMeasuredWidth();
-                if (mMeasuredSizeCache != null) {
-                    // Extract the measured width from the cache
-                    childMeasuredWidth =
-                            extractLowerInt(mMeasuredSizeCache[index]);
+                mainSize += targetMainSizes[i]
+                        + getFlexItemMarginStartMain(flexItem, isMainHorizontal)
+                        + getFlexItemMarginEndMain(flexItem, isMainHorizontal);
+            }
+            if (!needsReexpand || sizeBeforeExpand == mainSize) {
+                break;
+            }
+        }
+        measureFlexedItems(widthMeasureSpec, heightMeasureSpec, flexLine, paddingAlongMainAxis,
+                targetMainSizes, true);
+    }
+
+    /**
+     * Shrink the flex items along the main axis based on the individual mFlexShrink attribute.
+     * The target main size of each flex item is resolved arithmetically first, redistributing the
+     * negative free space which isn't fully distributed because of the minimum size constraints.
+     * Then each flex item having the flex shrink attribute is measured only once with its final
+     * size.
+     *
+     * @param widthMeasureSpec     the horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec    the vertical space requirements as imposed by the parent
+     * @param flexLine             the flex line to which flex items belong
+     * @param maxMainSize          the maximum main size. Shrank main size will be this size
+     * @param paddingAlongMainAxis the padding value along the main axis
+     * @see FlexContainer#getFlexDirection()
+     * @see FlexContainer#setFlexDirection(int)
+     * @see FlexItem#getFlexShrink()
+     */
+    private void shrinkFlexItems(int widthMeasureSpec, int heightMeasureSpec, FlexLine flexLine,
+            int maxMainSize, int paddingAlongMainAxis) {
+        if (flexLine.mTotalFlexShrink <= 0 || maxMainSize > flexLine.mMainSize) {
+            return;
+        }
+        boolean isMainHorizontal = mFlexContainer.isMainAxisDirectionHorizontal();
+        int[] targetMainSizes = prepareFlexTargetMainSizes(flexLine, isMainHorizontal);
+        int mainSize = flexLine.mMainSize;
+        while (flexLine.mTotalFlexShrink > 0 && maxMainSize <= mainSize) {
+            int sizeBeforeShrink = mainSize;
+            boolean needsReshrink = false;
+            float unitShrink = (mainSize - maxMainSize) / flexLine.mTotalFlexShrink;
+            float accumulatedRoundError = 0;
+            mainSize = paddingAlongMainAxis + flexLine.mDividerLengthInMainSize;
+            for (int i = 0; i < flexLine.mItemCount; i++) {
+                int index = flexLine.mFirstIndex + i;
+                View child = mFlexContainer.getReorderedFlexItemAt(index);
+                if (child == null || child.getVisibility() == View.GONE) {
+                    continue;
                 }
-                if (!mChildrenFrozen[index] && flexItem.getFlexGrow() > 0f) {
-                    float rawCalculatedHeight = childMeasuredHeight
-                            + unitSpace * flexItem.getFlexGrow();
+                FlexItem flexItem = (FlexItem) child.getLayoutParams();
+                if (!mChildrenFrozen[index] && flexItem.getFlexShrink() > 0f) {
+                    float rawCalculatedSize = targetMainSizes[i]
+                            - unitShrink * flexItem.getFlexShrink();
                     if (i == flexLine.mItemCount - 1) {
-                        rawCalculatedHeight += accumulatedRoundError;
+                        rawCalculatedSize += accumulatedRoundError;
                         accumulatedRoundError = 0;
                     }
-                    int newHeight = Math.round(rawCalculatedHeight);
-                    if (newHeight > flexItem.getMaxHeight()) {
-                        // This means the child can't expand beyond the value of the mMaxHeight
-                        // attribute.
-                        // To adjust the flex line length to the size of maxMainSize, remaining
-                        // positive free space needs to be re-distributed to other flex items
-                        // (children views). In that case, invoke this method again with the same
-                        // fromIndex.
-                        needsReexpand = true;
-                        newHeight = flexItem.getMaxHeight();
+                    int newSize = Math.round(rawCalculatedSize);
+                    int minSize = isMainHorizontal ? flexItem.getMinWidth()
+                            : flexItem.getMinHeight();
+                    if (newSize < minSize) {
+                        // This means the child doesn't have enough space to distribute the negative
+                        // free space. To adjust the flex line length down to the maxMainSize,
+                        // remaining negative free space needs to be re-distributed to other flex
+                        // items (children views). In that case, resolve the sizes again for the
+                        // remaining flex items.
+                        needsReshrink = true;
+                        newSize = minSize;
                         mChildrenFrozen[index] = true;
-                        flexLine.mTotalFlexGrow -= flexItem.getFlexGrow();
+                        flexLine.mTotalFlexShrink -= flexItem.getFlexShrink();
                     } else {
-                        accumulatedRoundError += (rawCalculatedHeight - newHeight);
+                        accumulatedRoundError += (rawCalculatedSize - newSize);
                         if (accumulatedRoundError > 1.0) {
-                            newHeight += 1;
-                            accumulatedRoundError -= 1.0;
+                            newSize += 1;
+                            accumulatedRoundError -= 1;
                         } else if (accumulatedRoundError < -1.0) {
-                            newHeight -= 1;
-                            accumulatedRoundError += 1.0;
+                            newSize -= 1;
+                            accumulatedRoundError += 1;
                         }
                     }
-                    int childWidthMeasureSpec = getChildWidthMeasureSpecInternal(widthMeasureSpec,
-                            flexItem, flexLine.mSumCrossSizeBefore);
-                    int childHeightMeasureSpec = View.MeasureSpec.makeMeasureSpec(newHeight,
-                            View.MeasureSpec.EXACTLY);
-                    child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
-                    childMeasuredWidth = child.getMeasuredWidth();
-                    childMeasuredHeight = child.getMeasuredHeight();
-                    updateMeasureCache(index, childWidthMeasureSpec, childHeightMeasureSpec,
-                            child);
-                    mFlexContainer.updateViewCache(index, child);
+                    targetMainSizes[i] = newSize;
                 }
-                largestCrossSize = Math.max(largestCrossSize, childMeasuredWidth
-                        + flexItem.getMarginLeft() + flexItem.getMarginRight()
-                        + mFlexContainer.getDecorationLengthCrossAxis(child));
-                flexLine.mMainSize += childMeasuredHeight + flexItem.getMarginTop()
-                        + flexItem.getMarginBottom();
+                mainSize += targetMainSizes[i]
+                        + getFlexItemMarginStartMain(flexItem, isMainHorizontal)
+                        + getFlexItemMarginEndMain(flexItem, isMainHorizontal);
             }
-            flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestCrossSize);
+            if (!needsReshrink || sizeBeforeShrink == mainSize) {
+                break;
+            }
+        }
+        measureFlexedItems(widthMeasureSpec, heightMeasureSpec, flexLine, paddingAlongMainAxis,
+                targetMainSizes, false);
+    }
+
+    /**
+     * Fills the target main sizes of the flex items in the given flex line with their current
+     * measured sizes along the main axis.
+     *
+     * @param flexLine         the flex line whose flex items' sizes are going to be resolved
+     * @param isMainHorizontal is the main axis horizontal
+     * @return the array of the target main sizes indexed by the index within the flex line
+     */
+    private int[] prepareFlexTargetMainSizes(FlexLine flexLine, boolean isMainHorizontal) {
+        ensureFlexTargetMainSizes(flexLine.mItemCount);
+        for (int i = 0; i < flexLine.mItemCount; i++) {
+            int index = flexLine.mFirstIndex + i;
+            View child = mFlexContainer.getReorderedFlexItemAt(index);
+            if (child == null || child.getVisibility() == View.GONE) {
+                continue;
+            }
+            mFlexTargetMainSizes[i] = getCachedMeasuredSizeMain(child, index, isMainHorizontal);
         }
+        return mFlexTargetMainSizes;
+    }
 
-        if (needsReexpand && sizeBeforeExpand != flexLine.mMainSize) {
-            // Re-invoke the method with the same flex line to distribute the positive free space
-            // that wasn't fully distributed (because of maximum length constraint)
-            expandFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine, maxMainSize,
-                    paddingAlongMainAxis, true);
+    private void ensureFlexTargetMainSizes(int size) {
+        if (mFlexTargetMainSizes == null) {
+            mFlexTargetMainSizes = new int[Math.max(size, INITIAL_CAPACITY)];
+        } else if (mFlexTargetMainSizes.length < size) {
+            int newCapacity = mFlexTargetMainSizes.length * 2;
+            mFlexTargetMainSizes = new int[Math.max(newCapacity, size)];
         }
     }
 
     /**
-     * Shrink the flex items along the main axis based on the individual mFlexShrink attribute.
+     * Measures the flex items which have the flex grow (or flex shrink) attribute with the
+     * resolved target main sizes, and updates the main size and the cross size of the flex line.
      *
      * @param widthMeasureSpec     the horizontal space requirements as imposed by the parent
      * @param heightMeasureSpec    the vertical space requirements as imposed by the parent
      * @param flexLine             the flex line to which flex items belong
-     * @param maxMainSize          the maximum main size. Shrank main size will be this size
      * @param paddingAlongMainAxis the padding value along the main axis
-     * @param calledRecursively    true if this method is called recursively, false otherwise
-     * @see FlexContainer#getFlexDirection()
-     * @see FlexContainer#setFlexDirection(int)
-     * @see FlexItem#getFlexShrink()
+     * @param targetMainSizes      the resolved main sizes indexed by the index within the flex
+     *                             line
+     * @param expanded             {@code true} if the flex items are expanded, {@code false}
+     *                             if shrunk
      */
-    private void shrinkFlexItems(int widthMeasureSpec, int heightMeasureSpec, FlexLine flexLine,
-            int maxMainSize, int paddingAlongMainAxis, boolean calledRecursively) {
-        int sizeBeforeShrink = flexLine.mMainSize;
-        if (flexLine.mTotalFlexShrink <= 0 || maxMainSize > flexLine.mMainSize) {
-            return;
-        }
-        boolean needsReshrink = false;
-        float unitShrink = (flexLine.mMainSize - maxMainSize) / flexLine.mTotalFlexShrink;
-        float accumulatedRoundError = 0;
+    private void measureFlexedItems(int widthMeasureSpec, int heightMeasureSpec,
+            FlexLine flexLine, int paddingAlongMainAxis, int[] targetMainSizes,
+            boolean expanded) {
+        boolean isMainHorizontal = mFlexContainer.isMainAxisDirectionHorizontal();
         flexLine.mMainSize = paddingAlongMainAxis + flexLine.mDividerLengthInMainSize;
 
         // Setting the cross size of the flex line as the temporal value since the cross size of
@@ -1242,9 +1717,7 @@ class FlexboxHelper {
         // the width will be expanded in this method. In that case, the height needs to be measured
         // again with the expanded width.
         int largestCrossSize = 0;
-        if (!calledRecursively) {
-            flexLine.mCrossSize = Integer.MIN_VALUE;
-        }
+        flexLine.mCrossSize = Integer.MIN_VALUE;
         for (int i = 0; i < flexLine.mItemCount; i++) {
             int index = flexLine.mFirstIndex + i;
             View child = mFlexContainer.getReorderedFlexItemAt(index);
@@ -1252,140 +1725,80 @@ class FlexboxHelper {
                 continue;
             }
             FlexItem flexItem = (FlexItem) child.getLayoutParams();
-            int flexDirection = mFlexContainer.getFlexDirection();
-            if (flexDirection == FlexDirection.ROW || flexDirection == FlexDirection.ROW_REVERSE) {
-                // The direction of main axis is horizontal
-
-                int childMeasuredWidth = child.getMeasuredWidth();
-                if (mMeasuredSizeCache != null) {
-                    // Retrieve the measured width from the cache because there
-                    // are some cases that the view is re-created from the last measure, thus
-                    // View#getMeasuredWidth returns 0.
-                    // E.g. if the flex container is FlexboxLayoutManager, the case happens
-                    // frequently
-                    childMeasuredWidth = extractLowerInt(mMeasuredSizeCache[index]);
-                }
-                int childMeasuredHeight = child.getMeasuredHeight();
-                if (mMeasuredSizeCache != null) {
-                    // Extract the measured height from the cache
-                    childMeasuredHeight = extractHigherInt(mMeasuredSizeCache[index]);
-                }
-                if (!mChildrenFrozen[index] && flexItem.getFlexShrink() > 0f) {
-                    float rawCalculatedWidth = childMeasuredWidth
-                            - unitShrink * flexItem.getFlexShrink();
-                    if (i == flexLine.mItemCount - 1) {
-                        rawCalculatedWidth += accumulatedRoundError;
-                        accumulatedRoundError = 0;
-                    }
-                    int newWidth = Math.round(rawCalculatedWidth);
-                    if (newWidth < flexItem.getMinWidth()) {
-                        // This means the child doesn't have enough space to distribute the negative
-                        // free space. To adjust the flex line length down to the maxMainSize,
-                        // remaining
-                        // negative free space needs to be re-distributed to other flex items
-                        // (children views). In that case, invoke this method again with the same
-                        // fromIndex.
-                        needsReshrink = true;
-                        newWidth = flexItem.getMinWidth();
-                        mChildrenFrozen[index] = true;
-                        flexLine.mTotalFlexShrink -= flexItem.getFlexShrink();
-                    } else {
-                        accumulatedRoundError += (rawCalculatedWidth - newWidth);
-                        if (accumulatedRoundError > 1.0) {
-                            newWidth += 1;
-                            accumulatedRoundError -= 1;
-                        } else if (accumulatedRoundError < -1.0) {
-                            newWidth -= 1;
-                            accumulatedRoundError += 1;
-                        }
-                    }
-                    int childHeightMeasureSpec = getChildHeightMeasureSpecInternal(
+            int childMeasuredMainSize = getCachedMeasuredSizeMain(child, index, isMainHorizontal);
+            int childMeasuredCrossSize =
+                    getCachedMeasuredSizeCross(child, index, isMainHorizontal);
+            float flex = expanded ? flexItem.getFlexGrow() : flexItem.getFlexShrink();
+            if (flex > 0f && targetMainSizes[i] == childMeasuredMainSize) {
+                // The flexed size is the same as the measured size, measuring the flex item
+                // again with the same size won't change the result
+                mFlexMeasureSkipCount++;
+            } else if (flex > 0f) {
+                int childWidthMeasureSpec;
+                int childHeightMeasureSpec;
+                if (isMainHorizontal) {
+                    childWidthMeasureSpec = View.MeasureSpec.makeMeasureSpec(targetMainSizes[i],
+                            View.MeasureSpec.EXACTLY);
+                    childHeightMeasureSpec = getChildHeightMeasureSpecInternal(
                             heightMeasureSpec, flexItem, flexLine.mSumCrossSizeBefore);
-                    int childWidthMeasureSpec =
-                            View.MeasureSpec.makeMeasureSpec(newWidth, View.MeasureSpec.EXACTLY);
-                    child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
-
-                    childMeasuredWidth = child.getMeasuredWidth();
-                    childMeasuredHeight = child.getMeasuredHeight();
-                    updateMeasureCache(index, childWidthMeasureSpec, childHeightMeasureSpec,
-                            child);
-                    mFlexContainer.updateViewCache(index, child);
-                }
-                largestCrossSize = Math.max(largestCrossSize, childMeasuredHeight +
-                        flexItem.getMarginTop() + flexItem.getMarginBottom() +
-                        mFlexContainer.getDecorationLengthCrossAxis(child));
-                flexLine.mMainSize += childMeasuredWidth + flexItem.getMarginLeft()
-                        + flexItem.getMarginRight();
-            } else {
-                // The direction of main axis is vertical
-
-                int childMeasuredHeight = child.getMeasuredHeight();
-                if (mMeasuredSizeCache != null) {
-                    // Retrieve the measured height from the cache because there
-                    // are some cases that the view is re-created from the last measure, thus
-                    // View#getMeasuredHeight returns 0.
-                    // E.g. if the flex container is FlexboxLayoutManager, that case happens
-                    // frequently
-                    childMeasuredHeight =
-                            extractHigherInt(mMeasuredSizeCache[index]);
-                }
-                int childMeasuredWidth = child.getMeasuredWidth();
-                if (mMeasuredSizeCache != null) {
-                    // Extract the measured width from the cache
-                    childMeasuredWidth =
-                            extractLowerInt(mMeasuredSizeCache[index]);
-                }
-                if (!mChildrenFrozen[index] && flexItem.getFlexShrink() > 0f) {
-                    float rawCalculatedHeight = childMeasuredHeight
-                            - unitShrink * flexItem.getFlexShrink();
-                    if (i == flexLine.mItemCount - 1) {
-                        rawCalculatedHeight += accumulatedRoundError;
-                        accumulatedRoundError = 0;
-                    }
-                    int newHeight = Math.round(rawCalculatedHeight);
-                    if (newHeight < flexItem.getMinHeight()) {
-                        // Need to invoke this method again like the case flex direction is vertical
-                        needsReshrink = true;
-                        newHeight = flexItem.getMinHeight();
-                        mChildrenFrozen[index] = true;
-                        flexLine.mTotalFlexShrink -= flexItem.getFlexShrink();
-                    } else {
-                        accumulatedRoundError += (rawCalculatedHeight - newHeight);
-                        if (accumulatedRoundError > 1.0) {
-                            newHeight += 1;
-                            accumulatedRoundError -= 1;
-                        } else if (accumulatedRoundError < -1.0) {
-                            newHeight -= 1;
-                            accumulatedRoundError += 1;
-                        }
-                    }
-                    int childWidthMeasureSpec = getChildWidthMeasureSpecInternal(widthMeasureSpec,
+                } else {
+                    childWidthMeasureSpec = getChildWidthMeasureSpecInternal(widthMeasureSpec,
                             flexItem, flexLine.mSumCrossSizeBefore);
-                    int childHeightMeasureSpec =
-                            View.MeasureSpec.makeMeasureSpec(newHeight, View.MeasureSpec.EXACTLY);
-                    child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
-
-                    childMeasuredWidth = child.getMeasuredWidth();
-                    childMeasuredHeight = child.getMeasuredHeight();
-                    updateMeasureCache(index, childWidthMeasureSpec, childHeightMeasureSpec,
-                            child);
-                    mFlexContainer.updateViewCache(index, child);
+                    childHeightMeasureSpec = View.MeasureSpec.makeMeasureSpec(
+                            targetMainSizes[i], View.MeasureSpec.EXACTLY);
                 }
-                largestCrossSize = Math.max(largestCrossSize, childMeasuredWidth +
-                        flexItem.getMarginLeft() + flexItem.getMarginRight() +
-                        mFlexContainer.getDecorationLengthCrossAxis(child));
-                flexLine.mMainSize += childMeasuredHeight + flexItem.getMarginTop()
-                        + flexItem.getMarginBottom();
+                measureChild(child, childWidthMeasureSpec, childHeightMeasureSpec);
+                childMeasuredMainSize = getViewMeasuredSizeMain(child, isMainHorizontal);
+                childMeasuredCrossSize = getViewMeasuredSizeCross(child, isMainHorizontal);
+                updateMeasureCache(index, childWidthMeasureSpec, childHeightMeasureSpec,
+                        child);
+                mFlexContainer.updateViewCache(index, child);
             }
+            largestCrossSize = Math.max(largestCrossSize, childMeasuredCrossSize
+                    + getFlexItemMarginStartCross(flexItem, isMainHorizontal)
+                    + getFlexItemMarginEndCross(flexItem, isMainHorizontal)
+                    + mFlexContainer.getDecorationLengthCrossAxis(child));
+            flexLine.mMainSize += childMeasuredMainSize
+                    + getFlexItemMarginStartMain(flexItem, isMainHorizontal)
+                    + getFlexItemMarginEndMain(flexItem, isMainHorizontal);
             flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestCrossSize);
         }
+    }
+
+    /**
+     * Returns the measured size of the view along the main axis.
+     * The measured size is retrieved from the cache if available because there are some cases
+     * that the view is re-created from the last measure, thus View#getMeasuredWidth returns 0.
+     * E.g. if the flex container is FlexboxLayoutManager, the case happens frequently.
+     *
+     * @param view             the view from which the measured size is retrieved
+     * @param index            the index of the view
+     * @param isMainHorizontal is the main axis horizontal
+     * @return the measured size along the main axis
+     */
+    private int getCachedMeasuredSizeMain(View view, int index, boolean isMainHorizontal) {
+        if (mMeasuredSizeCache == null) {
+            return getViewMeasuredSizeMain(view, isMainHorizontal);
+        }
+        return isMainHorizontal ? extractLowerInt(mMeasuredSizeCache[index])
+                : extractHigherInt(mMeasuredSizeCache[index]);
+    }
 
-        if (needsReshrink && sizeBeforeShrink != flexLine.mMainSize) {
-            // Re-invoke the method with the same fromIndex to distribute the negative free space
-            // that wasn't fully distributed (because some views length were not enough)
-            shrinkFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine,
-                    maxMainSize, paddingAlongMainAxis, true);
+    /**
+     * Returns the measured size of the view along the cross axis.
+     *
+     * @param view             the view from which the measured size is retrieved
+     * @param index            the index of the view
+     * @param isMainHorizontal is the main axis horizontal
+     * @return the measured size along the cross axis
+     * @see #getCachedMeasuredSizeMain(View, int, boolean)
+     */
+    private int getCachedMeasuredSizeCross(View view, int index, boolean isMainHorizontal) {
+        if (mMeasuredSizeCache == null) {
+            return getViewMeasuredSizeCross(view, isMainHorizontal);
         }
+        return isMainHorizontal ? extractHigherInt(mMeasuredSizeCache[index])
+                : extractLowerInt(mMeasuredSizeCache[index]);
     }
 
     private int getChildWidthMeasureSpecInternal(int widthMeasureSpec, FlexItem flexItem,
@@ -1437,6 +1850,15 @@ class FlexboxHelper {
      */
     void determineCrossSize(int widthMeasureSpec, int heightMeasureSpec,
             int paddingAlongCrossAxis) {
+        long startNanos = mMetrics != null ? System.nanoTime() : 0;
+        determineCrossSizeInternal(widthMeasureSpec, heightMeasureSpec, paddingAlongCrossAxis);
+        if (mMetrics != null) {
+            mMetrics.mDetermineCrossSizeNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    private void determineCrossSizeInternal(int widthMeasureSpec, int heightMeasureSpec,
+            int paddingAlongCrossAxis) {
         // The MeasureSpec mode along the cross axis
         int mode;
         // The MeasureSpec size along the cross axis
@@ -1615,18 +2037,31 @@ class FlexboxHelper {
      * @see FlexItem#getAlignSelf()
      */
     void stretchViews(int fromIndex) {
+        long startNanos = mMetrics != null ? System.nanoTime() : 0;
+        stretchViewsInternal(fromIndex);
+        if (mMetrics != null) {
+            mMetrics.mStretchViewsNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    private void stretchViewsInternal(int fromIndex) {
         if (fromIndex >= mFlexContainer.getFlexItemCount()) {
             return;
         }
+        if (getFixedSizeFlexItem() != null) {
+            // The cross size of each flex line is the same as the cross size of the fixed size
+            // flex items, thus there is nothing to be stretched
+            return;
+        }
         int flexDirection = mFlexContainer.getFlexDirection();
-        if (mFlexContainer.getAlignItems() == AlignItems.STRETCH) {
-            int flexLineIndex = 0;
-            if (mIndexToFlexLine != null) {
-                flexLineIndex = mIndexToFlexLine[fromIndex];
-            }
-            List<FlexLine> flexLines = mFlexContainer.getFlexLinesInternal();
-            for (int i = flexLineIndex, size = flexLines.size(); i < size; i++) {
-                FlexLine flexLine = flexLines.get(i);
+        int flexLineIndex = 0;
+        if (mFlexContainer.getAlignItems() == AlignItems.STRETCH && mIndexToFlexLine != null) {
+            flexLineIndex = mIndexToFlexLine[fromIndex];
+        }
+        List<FlexLine> flexLines = mFlexContainer.getFlexLinesInternal();
+        for (int i = flexLineIndex, size = flexLines.size(); i < size; i++) {
+            FlexLine flexLine = flexLines.get(i);
+            if (getAlignItems(flexLine) == AlignItems.STRETCH) {
                 for (int j = 0, itemCount = flexLine.mItemCount; j < itemCount; j++) {
                     int viewIndex = flexLine.mFirstIndex + j;
                     if (j >= mFlexContainer.getFlexItemCount()) {
@@ -1641,43 +2076,33 @@ class FlexboxHelper {
                             flexItem.getAlignSelf() != AlignItems.STRETCH) {
                         continue;
                     }
-                    switch (flexDirection) {
-                        case FlexDirection.ROW: // Intentional fall through
-                        case FlexDirection.ROW_REVERSE:
-                            stretchViewVertically(view, flexLine.mCrossSize, viewIndex);
-                            break;
-                        case FlexDirection.COLUMN:
-                        case FlexDirection.COLUMN_REVERSE:
-                            stretchViewHorizontally(view, flexLine.mCrossSize, viewIndex);
-                            break;
-                        default:
-                            throw new IllegalArgumentException(
-                                    "Invalid flex direction: " + flexDirection);
-                    }
+                    stretchView(view, flexLine.mCrossSize, viewIndex, flexDirection);
                 }
-            }
-        } else {
-            for (FlexLine flexLine : mFlexContainer.getFlexLinesInternal()) {
+            } else {
                 for (Integer index : flexLine.mIndicesAlignSelfStretch) {
                     View view = mFlexContainer.getReorderedFlexItemAt(index);
-                    switch (flexDirection) {
-                        case FlexDirection.ROW: // Intentional fall through
-                        case FlexDirection.ROW_REVERSE:
-                            stretchViewVertically(view, flexLine.mCrossSize, index);
-                            break;
-                        case FlexDirection.COLUMN:
-                        case FlexDirection.COLUMN_REVERSE:
-                            stretchViewHorizontally(view, flexLine.mCrossSize, index);
-                            break;
-                        default:
-                            throw new IllegalArgumentException(
-                                    "Invalid flex direction: " + flexDirection);
-                    }
+                    stretchView(view, flexLine.mCrossSize, index, flexDirection);
                 }
             }
         }
     }
 
+    private void stretchView(View view, int crossSize, int index, int flexDirection) {
+        switch (flexDirection) {
+            case FlexDirection.ROW: // Intentional fall through
+            case FlexDirection.ROW_REVERSE:
+                stretchViewVertically(view, crossSize, index);
+                break;
+            case FlexDirection.COLUMN:
+            case FlexDirection.COLUMN_REVERSE:
+                stretchViewHorizontally(view, crossSize, index);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Invalid flex direction: " + flexDirection);
+        }
+    }
+
     /**
      * Expand the view vertically to the size of the crossSize (considering the view margins)
      *
@@ -1691,6 +2116,11 @@ class FlexboxHelper {
                 mFlexContainer.getDecorationLengthCrossAxis(view);
         newHeight = Math.max(newHeight, flexItem.getMinHeight());
         newHeight = Math.min(newHeight, flexItem.getMaxHeight());
+        if (newHeight == getCachedMeasuredSizeCross(view, index, true)) {
+            // The view already has the stretched height
+            mStretchMeasureSkipCount++;
+            return;
+        }
         int childWidthSpec;
         int measuredWidth;
         if (mMeasuredSizeCache != null) {
@@ -1707,7 +2137,7 @@ class FlexboxHelper {
                 View.MeasureSpec.EXACTLY);
 
         int childHeightSpec = View.MeasureSpec.makeMeasureSpec(newHeight, View.MeasureSpec.EXACTLY);
-        view.measure(childWidthSpec, childHeightSpec);
+        measureChild(view, childWidthSpec, childHeightSpec);
 
         updateMeasureCache(index, childWidthSpec, childHeightSpec, view);
         mFlexContainer.updateViewCache(index, view);
@@ -1726,6 +2156,11 @@ class FlexboxHelper {
                 - mFlexContainer.getDecorationLengthCrossAxis(view);
         newWidth = Math.max(newWidth, flexItem.getMinWidth());
         newWidth = Math.min(newWidth, flexItem.getMaxWidth());
+        if (newWidth == getCachedMeasuredSizeCross(view, index, false)) {
+            // The view already has the stretched width
+            mStretchMeasureSkipCount++;
+            return;
+        }
         int childHeightSpec;
         int measuredHeight;
         if (mMeasuredSizeCache != null) {
@@ -1741,7 +2176,7 @@ class FlexboxHelper {
         childHeightSpec = View.MeasureSpec.makeMeasureSpec(measuredHeight,
                 View.MeasureSpec.EXACTLY);
         int childWidthSpec = View.MeasureSpec.makeMeasureSpec(newWidth, View.MeasureSpec.EXACTLY);
-        view.measure(childWidthSpec, childHeightSpec);
+        measureChild(view, childWidthSpec, childHeightSpec);
 
         updateMeasureCache(index, childWidthSpec, childHeightSpec, view);
         mFlexContainer.updateViewCache(index, view);
@@ -1771,7 +2206,7 @@ class FlexboxHelper {
     void layoutSingleChildHorizontal(View view, FlexLine flexLine, int left, int top, int right,
             int bottom) {
         FlexItem flexItem = (FlexItem) view.getLayoutParams();
-        int alignItems = mFlexContainer.getAlignItems();
+        int alignItems = getAlignItems(flexLine);
         if (flexItem.getAlignSelf() != AlignSelf.AUTO) {
             // Expecting the values for alignItems and mAlignSelf match except for ALIGN_SELF_AUTO.
             // Assigning the mAlignSelf value as alignItems should work.
@@ -1855,7 +2290,7 @@ class FlexboxHelper {
     void layoutSingleChildVertical(View view, FlexLine flexLine, boolean isRtl,
             int left, int top, int right, int bottom) {
         FlexItem flexItem = (FlexItem) view.getLayoutParams();
-        int alignItems = mFlexContainer.getAlignItems();
+        int alignItems = getAlignItems(flexLine);
         if (flexItem.getAlignSelf() != AlignSelf.AUTO) {
             // Expecting the values for alignItems and mAlignSelf match except for ALIGN_SELF_AUTO.
             // Assigning the mAlignSelf value as alignItems should work.
@@ -1906,6 +2341,46 @@ class FlexboxHelper {
         }
     }
 
+    /**
+     * Copies the caches of the flex items (the indices of the flex lines, the measure specs and
+     * the measured sizes) so that they can be restored later by {@link #restoreItemCaches}.
+     *
+     * @param size the number of the flex items whose caches are copied, e.g. the number of the
+     *             flex items in the calculated flex lines
+     * @return the copied caches, or {@code null} if the caches aren't created yet
+     */
+    @Nullable
+    ItemCaches copyItemCaches(int size) {
+        if (mIndexToFlexLine == null || mMeasureSpecCache == null
+                || mMeasuredSizeCache == null) {
+            return null;
+        }
+        ItemCaches itemCaches = new ItemCaches();
+        itemCaches.mIndexToFlexLine = Arrays.copyOf(mIndexToFlexLine, size);
+        itemCaches.mMeasureSpecCache = Arrays.copyOf(mMeasureSpecCache, size);
+        itemCaches.mMeasuredSizeCache = Arrays.copyOf(mMeasuredSizeCache, size);
+        return itemCaches;
+    }
+
+    /**
+     * Replaces the caches of the flex items with the ones copied by {@link #copyItemCaches}. The
+     * caches of the flex items beyond the copied ones are cleared. The caches must be already
+     * created to hold at least the copied ones.
+     */
+    void restoreItemCaches(ItemCaches itemCaches) {
+        assert mIndexToFlexLine != null;
+        assert mMeasureSpecCache != null;
+        assert mMeasuredSizeCache != null;
+
+        int size = itemCaches.mIndexToFlexLine.length;
+        System.arraycopy(itemCaches.mIndexToFlexLine, 0, mIndexToFlexLine, 0, size);
+        Arrays.fill(mIndexToFlexLine, size, mIndexToFlexLine.length, NO_POSITION);
+        System.arraycopy(itemCaches.mMeasureSpecCache, 0, mMeasureSpecCache, 0, size);
+        Arrays.fill(mMeasureSpecCache, size, mMeasureSpecCache.length, 0);
+        System.arraycopy(itemCaches.mMeasuredSizeCache, 0, mMeasuredSizeCache, 0, size);
+        Arrays.fill(mMeasuredSizeCache, size, mMeasuredSizeCache.length, 0);
+    }
+
     void ensureMeasuredSizeCache(int size) {
         if (mMeasuredSizeCache == null) {
             mMeasuredSizeCache = new long[Math.max(size, INITIAL_CAPACITY)];
@@ -2051,15 +2526,35 @@ class FlexboxHelper {
         }
     }
 
+    /**
+     * The copy of the caches of the flex items.
+     */
+    static class ItemCaches {
+
+        int[] mIndexToFlexLine;
+
+        long[] mMeasureSpecCache;
+
+        long[] mMeasuredSizeCache;
+    }
+
     static class FlexLinesResult {
 
         List<FlexLine> mFlexLines;
 
         int mChildState;
 
+        /**
+         * The index of the first flex item which isn't put in any flex line because of the
+         * {@link MaxLineOverflow#CLIP} policy, or {@code NO_POSITION} if no flex
+         * items are clipped.
+         */
+        int mFirstClippedIndex = NO_POSITION;
+
         void reset() {
             mFlexLines = null;
             mChildState = 0;
+            mFirstClippedIndex = NO_POSITION;
         }
     }
 }
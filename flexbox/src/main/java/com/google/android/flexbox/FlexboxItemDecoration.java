@@ -25,8 +25,6 @@ import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.view.View;
 
-import java.util.List;
-
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -51,10 +49,25 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
 
     private static final int[] LIST_DIVIDER_ATTRS = new int[]{android.R.attr.listDivider};
 
+    /** The indices of the fields of a span in {@link #mFlexLineSpans} */
+    private static final int SPAN_EDGE = 0;
+    private static final int SPAN_START = 1;
+    private static final int SPAN_END = 2;
+    private static final int SPAN_FIELD_COUNT = 3;
+
     private Drawable mDrawable;
 
     private int mOrientation;
 
+    private boolean mDrawPerFlexLine;
+
+    /**
+     * Holds the spans of the flex lines while drawing the decorations per flex line, reused
+     * across the draws.
+     * @see #collectFlexLineSpans(RecyclerView, FlexboxLayoutManager, boolean, boolean)
+     */
+    private int[] mFlexLineSpans = new int[0];
+
     public FlexboxItemDecoration(Context context) {
         final TypedArray a = context.obtainStyledAttributes(LIST_DIVIDER_ATTRS);
         mDrawable = a.getDrawable(0);
@@ -87,13 +100,43 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
         mOrientation = orientation;
     }
 
+    /**
+     * Set whether the decorations between flex lines are drawn per flex line.
+     * If set to {@code true}, the decoration between flex lines is drawn once for each flex line
+     * as a single span covering all the items in the flex line, instead of once for each item.
+     * That reduces the number of draw calls from the number of the visible items to the number of
+     * the visible flex lines, although the decoration is also drawn over the space between items
+     * (e.g. the space distributed by the justifyContent attribute).
+     * The decoration of a flex line is drawn along the item closest to the cross start of the flex
+     * line, e.g. along the top of the topmost item when the main axis direction is horizontal.
+     * Thus the drawing differs from the one per item if the items in a flex line are not aligned
+     * to the cross start (e.g. alignItems is center or flex_end and the items have different
+     * sizes), where the decoration of each item is drawn along the item itself.
+     * The decorations between items in a flex line are drawn for each item regardless of this
+     * value. The default value is {@code false}.
+     */
+    public void setDrawPerFlexLine(boolean drawPerFlexLine) {
+        mDrawPerFlexLine = drawPerFlexLine;
+    }
+
     @Override
     public void onDraw(
             @NonNull Canvas canvas,
             @NonNull RecyclerView parent,
             @NonNull RecyclerView.State state) {
-        drawHorizontalDecorations(canvas, parent);
-        drawVerticalDecorations(canvas, parent);
+        FlexboxLayoutManager layoutManager = (FlexboxLayoutManager) parent.getLayoutManager();
+        if (mDrawPerFlexLine) {
+            if (layoutManager.isMainAxisDirectionHorizontal()) {
+                drawHorizontalDecorationsPerFlexLine(canvas, parent, layoutManager);
+                drawVerticalDecorations(canvas, parent, layoutManager);
+            } else {
+                drawHorizontalDecorations(canvas, parent, layoutManager);
+                drawVerticalDecorationsPerFlexLine(canvas, parent, layoutManager);
+            }
+        } else {
+            drawHorizontalDecorations(canvas, parent, layoutManager);
+            drawVerticalDecorations(canvas, parent, layoutManager);
+        }
     }
 
     @Override
@@ -111,15 +154,15 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
             return;
         }
         FlexboxLayoutManager layoutManager = (FlexboxLayoutManager) parent.getLayoutManager();
-        List<FlexLine> flexLines = layoutManager.getFlexLines();
-        int flexDirection = layoutManager.getFlexDirection();
-        setOffsetAlongMainAxis(outRect, position, layoutManager, flexLines, flexDirection);
-        setOffsetAlongCrossAxis(outRect, position, layoutManager, flexLines);
+        boolean mainAxisHorizontal = layoutManager.isMainAxisDirectionHorizontal();
+        boolean layoutRtl = layoutManager.isLayoutRtl();
+        setOffsetAlongMainAxis(outRect, position, layoutManager, mainAxisHorizontal, layoutRtl);
+        setOffsetAlongCrossAxis(outRect, position, layoutManager, mainAxisHorizontal, layoutRtl);
     }
 
     private void setOffsetAlongCrossAxis(Rect outRect, int position,
-            FlexboxLayoutManager layoutManager, List<FlexLine> flexLines) {
-        if (flexLines.size() == 0) {
+            FlexboxLayoutManager layoutManager, boolean mainAxisHorizontal, boolean layoutRtl) {
+        if (layoutManager.getFlexLinesInternal().size() == 0) {
             return;
         }
         int flexLineIndex = layoutManager.getPositionToFlexLineIndex(position);
@@ -127,7 +170,7 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
             return;
         }
 
-        if (layoutManager.isMainAxisDirectionHorizontal()) {
+        if (mainAxisHorizontal) {
             if (!needsHorizontalDecoration()) {
                 outRect.top = 0;
                 outRect.bottom = 0;
@@ -139,7 +182,7 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
             if (!needsVerticalDecoration()) {
                 return;
             }
-            if (layoutManager.isLayoutRtl()) {
+            if (layoutRtl) {
                 outRect.right = mDrawable.getIntrinsicWidth();
                 outRect.left = 0;
             } else {
@@ -151,18 +194,18 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
     }
 
     private void setOffsetAlongMainAxis(Rect outRect, int position,
-            FlexboxLayoutManager layoutManager, List<FlexLine> flexLines, int flexDirection) {
-        if (isFirstItemInLine(position, flexLines, layoutManager)) {
+            FlexboxLayoutManager layoutManager, boolean mainAxisHorizontal, boolean layoutRtl) {
+        if (layoutManager.isFirstItemInFlexLine(position)) {
             return;
         }
 
-        if (layoutManager.isMainAxisDirectionHorizontal()) {
+        if (mainAxisHorizontal) {
             if (!needsVerticalDecoration()) {
                 outRect.left = 0;
                 outRect.right = 0;
                 return;
             }
-            if (layoutManager.isLayoutRtl()) {
+            if (layoutRtl) {
                 outRect.right = mDrawable.getIntrinsicWidth();
                 outRect.left = 0;
             } else {
@@ -175,7 +218,7 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
                 outRect.bottom = 0;
                 return;
             }
-            if (flexDirection == FlexDirection.COLUMN_REVERSE) {
+            if (layoutManager.getFlexDirection() == FlexDirection.COLUMN_REVERSE) {
                 outRect.bottom = mDrawable.getIntrinsicHeight();
                 outRect.top = 0;
             } else {
@@ -186,40 +229,44 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
 
     }
 
-    private void drawVerticalDecorations(Canvas canvas, RecyclerView parent) {
+    private void drawVerticalDecorations(Canvas canvas, RecyclerView parent,
+            FlexboxLayoutManager layoutManager) {
         if (!needsVerticalDecoration()) {
             return;
         }
-        FlexboxLayoutManager layoutManager = (FlexboxLayoutManager) parent.getLayoutManager();
         int parentTop = parent.getTop() - parent.getPaddingTop();
         int parentBottom = parent.getBottom() + parent.getPaddingBottom();
         int childCount = parent.getChildCount();
         int flexDirection = layoutManager.getFlexDirection();
+        boolean layoutRtl = layoutManager.isLayoutRtl();
+        boolean mainAxisHorizontal = layoutManager.isMainAxisDirectionHorizontal();
+        int drawableWidth = mDrawable.getIntrinsicWidth();
+        int drawableHeight = mDrawable.getIntrinsicHeight();
         for (int i = 0; i < childCount; i++) {
             View child = parent.getChildAt(i);
 
             RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
 
             int left, right;
-            if (layoutManager.isLayoutRtl()) {
+            if (layoutRtl) {
                 left = child.getRight() + lp.rightMargin;
-                right = left + mDrawable.getIntrinsicWidth();
+                right = left + drawableWidth;
             } else {
                 right = child.getLeft() - lp.leftMargin;
-                left = right - mDrawable.getIntrinsicWidth();
+                left = right - drawableWidth;
             }
 
             int top, bottom;
-            if (layoutManager.isMainAxisDirectionHorizontal()) {
+            if (mainAxisHorizontal) {
                 top = child.getTop() - lp.topMargin;
                 bottom = child.getBottom() + lp.bottomMargin;
             } else {
                 if (flexDirection == FlexDirection.COLUMN_REVERSE) {
-                    bottom = child.getBottom() + lp.bottomMargin + mDrawable.getIntrinsicHeight();
+                    bottom = child.getBottom() + lp.bottomMargin + drawableHeight;
                     bottom = Math.min(bottom, parentBottom);
                     top = child.getTop() - lp.topMargin;
                 } else {
-                    top = child.getTop() - lp.topMargin - mDrawable.getIntrinsicHeight();
+                    top = child.getTop() - lp.topMargin - drawableHeight;
                     top = Math.max(top, parentTop);
                     bottom = child.getBottom() + lp.bottomMargin;
                 }
@@ -230,15 +277,19 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
         }
     }
 
-    private void drawHorizontalDecorations(Canvas canvas, RecyclerView parent) {
+    private void drawHorizontalDecorations(Canvas canvas, RecyclerView parent,
+            FlexboxLayoutManager layoutManager) {
         if (!needsHorizontalDecoration()) {
             return;
         }
-        FlexboxLayoutManager layoutManager = (FlexboxLayoutManager) parent.getLayoutManager();
         int flexDirection = layoutManager.getFlexDirection();
         int parentLeft = parent.getLeft() - parent.getPaddingLeft();
         int parentRight = parent.getRight() + parent.getPaddingRight();
         int childCount = parent.getChildCount();
+        boolean layoutRtl = layoutManager.isLayoutRtl();
+        boolean mainAxisHorizontal = layoutManager.isMainAxisDirectionHorizontal();
+        int drawableWidth = mDrawable.getIntrinsicWidth();
+        int drawableHeight = mDrawable.getIntrinsicHeight();
         for (int i = 0; i < childCount; i++) {
             View child = parent.getChildAt(i);
             RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
@@ -246,20 +297,20 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
             int top, bottom;
             if (flexDirection == FlexDirection.COLUMN_REVERSE) {
                 top = child.getBottom() + lp.bottomMargin;
-                bottom = top + mDrawable.getIntrinsicHeight();
+                bottom = top + drawableHeight;
             } else {
                 bottom = child.getTop() - lp.topMargin;
-                top = bottom - mDrawable.getIntrinsicHeight();
+                top = bottom - drawableHeight;
             }
 
             int left, right;
-            if (layoutManager.isMainAxisDirectionHorizontal()) {
-                if (layoutManager.isLayoutRtl()) {
-                    right = child.getRight() + lp.rightMargin + mDrawable.getIntrinsicWidth();
+            if (mainAxisHorizontal) {
+                if (layoutRtl) {
+                    right = child.getRight() + lp.rightMargin + drawableWidth;
                     right = Math.min(right, parentRight);
                     left = child.getLeft() - lp.leftMargin;
                 } else {
-                    left = child.getLeft() - lp.leftMargin - mDrawable.getIntrinsicWidth();
+                    left = child.getLeft() - lp.leftMargin - drawableWidth;
                     left = Math.max(left, parentLeft);
                     right = child.getRight() + lp.rightMargin;
                 }
@@ -272,35 +323,185 @@ public class FlexboxItemDecoration extends RecyclerView.ItemDecoration {
         }
     }
 
-    private boolean needsHorizontalDecoration() {
-        return (mOrientation & HORIZONTAL) > 0;
+    /**
+     * Draws the horizontal decorations between flex lines when the main axis direction is
+     * horizontal, one decoration for each flex line spanning all the items in it.
+     */
+    private void drawHorizontalDecorationsPerFlexLine(Canvas canvas, RecyclerView parent,
+            FlexboxLayoutManager layoutManager) {
+        if (!needsHorizontalDecoration()) {
+            return;
+        }
+        int parentLeft = parent.getLeft() - parent.getPaddingLeft();
+        int parentRight = parent.getRight() + parent.getPaddingRight();
+        boolean layoutRtl = layoutManager.isLayoutRtl();
+        int drawableWidth = mDrawable.getIntrinsicWidth();
+        int drawableHeight = mDrawable.getIntrinsicHeight();
+        int flexLineCount = collectFlexLineSpans(parent, layoutManager, true, layoutRtl);
+        for (int i = 0; i < flexLineCount; i++) {
+            int offset = i * SPAN_FIELD_COUNT;
+            if (mFlexLineSpans[offset + SPAN_END] == Integer.MIN_VALUE) {
+                // No child in the flex line is attached
+                continue;
+            }
+            drawHorizontalSpan(canvas, mFlexLineSpans[offset + SPAN_START],
+                    mFlexLineSpans[offset + SPAN_EDGE], mFlexLineSpans[offset + SPAN_END],
+                    parentLeft, parentRight, layoutRtl, drawableWidth, drawableHeight);
+        }
     }
 
-    private boolean needsVerticalDecoration() {
-        return (mOrientation & VERTICAL) > 0;
+    private void drawHorizontalSpan(Canvas canvas, int left, int bottom, int right,
+            int parentLeft, int parentRight, boolean layoutRtl, int drawableWidth,
+            int drawableHeight) {
+        // Same as drawHorizontalDecorations, extend the span to cover the decoration at the
+        // intersection with the vertical decoration
+        if (layoutRtl) {
+            right = Math.min(right + drawableWidth, parentRight);
+        } else {
+            left = Math.max(left - drawableWidth, parentLeft);
+        }
+        mDrawable.setBounds(left, bottom - drawableHeight, right, bottom);
+        mDrawable.draw(canvas);
     }
 
     /**
-     * @return {@code true} if the given position is the first item in a flex line.
+     * Draws the vertical decorations between flex lines when the main axis direction is
+     * vertical, one decoration for each flex line spanning all the items in it.
      */
-    private boolean isFirstItemInLine(int position, List<FlexLine> flexLines,
+    private void drawVerticalDecorationsPerFlexLine(Canvas canvas, RecyclerView parent,
             FlexboxLayoutManager layoutManager) {
-        int flexLineIndex = layoutManager.getPositionToFlexLineIndex(position);
-        if (flexLineIndex != NO_POSITION &&
-                flexLineIndex < layoutManager.getFlexLinesInternal().size() &&
-                layoutManager.getFlexLinesInternal().get(flexLineIndex).mFirstIndex == position) {
-            return true;
+        if (!needsVerticalDecoration()) {
+            return;
         }
-        if (position == 0) {
-            return true;
+        int parentTop = parent.getTop() - parent.getPaddingTop();
+        int parentBottom = parent.getBottom() + parent.getPaddingBottom();
+        boolean layoutRtl = layoutManager.isLayoutRtl();
+        boolean columnReverse = layoutManager.getFlexDirection() == FlexDirection.COLUMN_REVERSE;
+        int drawableWidth = mDrawable.getIntrinsicWidth();
+        int drawableHeight = mDrawable.getIntrinsicHeight();
+        int flexLineCount = collectFlexLineSpans(parent, layoutManager, false, layoutRtl);
+        for (int i = 0; i < flexLineCount; i++) {
+            int offset = i * SPAN_FIELD_COUNT;
+            if (mFlexLineSpans[offset + SPAN_END] == Integer.MIN_VALUE) {
+                // No child in the flex line is attached
+                continue;
+            }
+            drawVerticalSpan(canvas, mFlexLineSpans[offset + SPAN_EDGE],
+                    mFlexLineSpans[offset + SPAN_START], mFlexLineSpans[offset + SPAN_END],
+                    parentTop, parentBottom, layoutRtl, columnReverse, drawableWidth,
+                    drawableHeight);
+        }
+    }
+
+    private void drawVerticalSpan(Canvas canvas, int edge, int top, int bottom, int parentTop,
+            int parentBottom, boolean layoutRtl, boolean columnReverse, int drawableWidth,
+            int drawableHeight) {
+        // Same as drawVerticalDecorations, extend the span to cover the decoration at the
+        // intersection with the horizontal decoration
+        if (columnReverse) {
+            bottom = Math.min(bottom + drawableHeight, parentBottom);
+        } else {
+            top = Math.max(top - drawableHeight, parentTop);
+        }
+        if (layoutRtl) {
+            mDrawable.setBounds(edge, top, edge + drawableWidth, bottom);
+        } else {
+            mDrawable.setBounds(edge - drawableWidth, top, edge, bottom);
+        }
+        mDrawable.draw(canvas);
+    }
+
+    /**
+     * Collects the span of the attached children of each flex line into {@link #mFlexLineSpans},
+     * starting from the first flex line having an attached child. The children are grouped by
+     * the index of the flex line which includes them rather than by their order in the parent,
+     * since the order of the children doesn't always follow their adapter positions, e.g. while
+     * the disappearing views are animated.
+     *
+     * For each flex line, the span consists of the edge where the decoration is drawn along the
+     * cross axis (the minimum top of the children, or the minimum left, or the maximum right in
+     * RTL, when the main axis direction is vertical) and of the minimum start and the maximum end
+     * of the children along the main axis. The end is {@link Integer#MIN_VALUE} if no child in
+     * the flex line is attached.
+     *
+     * @return the number of the flex lines collected
+     */
+    private int collectFlexLineSpans(RecyclerView parent, FlexboxLayoutManager layoutManager,
+            boolean mainAxisHorizontal, boolean layoutRtl) {
+        int childCount = parent.getChildCount();
+        int firstFlexLineIndex = Integer.MAX_VALUE;
+        int lastFlexLineIndex = NO_POSITION;
+        for (int i = 0; i < childCount; i++) {
+            int flexLineIndex = getFlexLineIndex(parent, parent.getChildAt(i), layoutManager);
+            if (flexLineIndex == NO_POSITION) {
+                continue;
+            }
+            firstFlexLineIndex = Math.min(firstFlexLineIndex, flexLineIndex);
+            lastFlexLineIndex = Math.max(lastFlexLineIndex, flexLineIndex);
+        }
+        if (lastFlexLineIndex == NO_POSITION) {
+            return 0;
+        }
+        int flexLineCount = lastFlexLineIndex - firstFlexLineIndex + 1;
+        if (mFlexLineSpans.length < flexLineCount * SPAN_FIELD_COUNT) {
+            mFlexLineSpans = new int[flexLineCount * SPAN_FIELD_COUNT];
         }
-        if (flexLines.size() == 0) {
-            return false;
+        // The decorations are drawn at the right of the flex lines in RTL when the main axis
+        // direction is vertical
+        boolean maxEdge = !mainAxisHorizontal && layoutRtl;
+        for (int i = 0; i < flexLineCount; i++) {
+            int offset = i * SPAN_FIELD_COUNT;
+            mFlexLineSpans[offset + SPAN_EDGE] = maxEdge ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            mFlexLineSpans[offset + SPAN_START] = Integer.MAX_VALUE;
+            mFlexLineSpans[offset + SPAN_END] = Integer.MIN_VALUE;
         }
-        // Check if the position is the "lastIndex + 1" of the last line in case the FlexLine which
-        // has the View, whose index is position is not included in the flexLines. (E.g. flexLines
-        // is being calculated
-        FlexLine lastLine = flexLines.get(flexLines.size() - 1);
-        return lastLine.mLastIndex == position - 1;
+        for (int i = 0; i < childCount; i++) {
+            View child = parent.getChildAt(i);
+            int flexLineIndex = getFlexLineIndex(parent, child, layoutManager);
+            if (flexLineIndex == NO_POSITION) {
+                continue;
+            }
+            RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+            int edge, start, end;
+            if (mainAxisHorizontal) {
+                edge = child.getTop() - lp.topMargin;
+                start = child.getLeft() - lp.leftMargin;
+                end = child.getRight() + lp.rightMargin;
+            } else {
+                edge = layoutRtl ? child.getRight() + lp.rightMargin
+                        : child.getLeft() - lp.leftMargin;
+                start = child.getTop() - lp.topMargin;
+                end = child.getBottom() + lp.bottomMargin;
+            }
+            int offset = (flexLineIndex - firstFlexLineIndex) * SPAN_FIELD_COUNT;
+            mFlexLineSpans[offset + SPAN_EDGE] = maxEdge
+                    ? Math.max(mFlexLineSpans[offset + SPAN_EDGE], edge)
+                    : Math.min(mFlexLineSpans[offset + SPAN_EDGE], edge);
+            mFlexLineSpans[offset + SPAN_START] = Math.min(mFlexLineSpans[offset + SPAN_START],
+                    start);
+            mFlexLineSpans[offset + SPAN_END] = Math.max(mFlexLineSpans[offset + SPAN_END], end);
+        }
+        return flexLineCount;
+    }
+
+    /**
+     * @return the index of the flex line which includes the given child, or
+     * {@link RecyclerView#NO_POSITION} if the child doesn't belong to any flex line
+     */
+    private int getFlexLineIndex(RecyclerView parent, View child,
+            FlexboxLayoutManager layoutManager) {
+        int position = parent.getChildLayoutPosition(child);
+        if (position == NO_POSITION) {
+            return NO_POSITION;
+        }
+        return layoutManager.getPositionToFlexLineIndex(position);
+    }
+
+    private boolean needsHorizontalDecoration() {
+        return (mOrientation & HORIZONTAL) > 0;
+    }
+
+    private boolean needsVerticalDecoration() {
+        return (mOrientation & VERTICAL) > 0;
     }
 }
@@ -20,10 +20,13 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.SparseIntArray;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
@@ -32,9 +35,12 @@ import android.widget.RelativeLayout;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.view.ViewCompat;
 
@@ -121,6 +127,82 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
      */
     private int mMaxLine = NOT_SET;
 
+    /**
+     * The current value of the {@link MaxLineOverflow}, the default value is
+     * {@link MaxLineOverflow#VISIBLE}.
+     *
+     * @see MaxLineOverflow
+     */
+    private int mMaxLineOverflow;
+
+    /**
+     * The current value of the rowGap attribute, the gap between flex items (or flex lines)
+     * stacked vertically.
+     *
+     * @see FlexContainer#getRowGap()
+     */
+    private int mRowGap;
+
+    /**
+     * The current value of the columnGap attribute, the gap between flex items (or flex lines)
+     * placed side by side horizontally.
+     *
+     * @see FlexContainer#getColumnGap()
+     */
+    private int mColumnGap;
+
+    /**
+     * The number of flex items (except for the ones whose visibility is {@link View#GONE}) hidden
+     * by the {@link MaxLineOverflow#CLIP} policy in the last layout.
+     */
+    private int mClippedItemCount;
+
+    @Nullable
+    private OnItemsClippedListener mOnItemsClippedListener;
+
+    @Nullable
+    private FlexboxLayoutListener mFlexboxLayoutListener;
+
+    /**
+     * The cache of the measurement results, which may be shared with other instances.
+     *
+     * @see #setLayoutCache(FlexboxLayoutCache)
+     */
+    @Nullable
+    private FlexboxLayoutCache mLayoutCache;
+
+    /**
+     * Set to true if the result of the last measurement (the measured size of this layout and
+     * its children and the flex lines) is still valid, i.e. nothing affecting the measurement of
+     * this layout or any child changed since then.
+     */
+    private boolean mLastMeasureValid;
+
+    private int mLastWidthMeasureSpec;
+
+    private int mLastHeightMeasureSpec;
+
+    private int mLastMeasuredWidthAndState;
+
+    private int mLastMeasuredHeightAndState;
+
+    /** @see #getRepeatedMeasureSkipCount() */
+    private long mRepeatedMeasureSkipCount;
+
+    /** The depth of the nested {@link #update(Runnable)} calls in progress */
+    private int mUpdateDepth;
+
+    /** Set to true if a layout is requested while an update is in progress */
+    private boolean mLayoutRequestedInUpdate;
+
+    /**
+     * The additions started by {@link #addViewsAsync(int, ChildFactory, Executor, Runnable)}
+     * whose views aren't added yet, which are cancelled when this view is detached. Only
+     * accessed on the main thread.
+     */
+    @Nullable
+    private List<AsyncAddition> mAsyncAdditions;
+
     /**
      * The int definition to be used as the arguments for the {@link #setShowDivider(int)},
      * {@link #setShowDividerHorizontal(int)} or {@link #setShowDividerVertical(int)}.
@@ -181,6 +263,25 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
     /** The width of the {@link #mDividerDrawableVertical}. */
     private int mDividerVerticalWidth;
 
+    /** The value in {@link #mDividerRects} indicating the divider is horizontal. */
+    private static final int DIVIDER_HORIZONTAL = 0;
+
+    /** The value in {@link #mDividerRects} indicating the divider is vertical. */
+    private static final int DIVIDER_VERTICAL = 1;
+
+    /** The number of ints in {@link #mDividerRects} used for a divider. */
+    private static final int DIVIDER_RECT_FIELDS = 5;
+
+    /**
+     * The bounds of the dividers computed at the end of the last layout. Each divider is stored
+     * as {@link #DIVIDER_RECT_FIELDS} consecutive ints, either {@link #DIVIDER_HORIZONTAL} or
+     * {@link #DIVIDER_VERTICAL} followed by the left, top, right and bottom of the divider.
+     */
+    private int[] mDividerRects = new int[0];
+
+    /** The number of ints used in {@link #mDividerRects}. */
+    private int mDividerRectsSize;
+
     /**
      * Holds reordered indices, which {@link FlexItem#getOrder()} parameters are taken
      * into account
@@ -199,12 +300,38 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
 
     private List<FlexLine> mFlexLines = new ArrayList<>();
 
+    /**
+     * The index of the first flex line in {@link #mFlexLines} which has any flex items whose
+     * visibility isn't gone, used to judge if the beginning divider is needed for a flex line.
+     * Dummy flex lines inserted for the alignContent attribute don't have such flex items.
+     */
+    private int mFirstNonEmptyFlexLineIndex;
+
+    /**
+     * The index of the last flex line in {@link #mFlexLines} which has any flex items whose
+     * visibility isn't gone, used to judge if the end divider is needed after a flex line.
+     */
+    private int mLastNonEmptyFlexLineIndex;
+
     /**
      * Used for receiving the calculation of the flex results to avoid creating a new instance
      * every time flex lines are calculated.
      */
     private FlexboxHelper.FlexLinesResult mFlexLinesResult = new FlexboxHelper.FlexLinesResult();
 
+    /** The number of the values of the container in a key of the {@link #mLayoutCache} */
+    private static final int LAYOUT_CACHE_KEY_HEADER_SIZE = 22;
+
+    /** The number of the values of each child in a key of the {@link #mLayoutCache} */
+    private static final int LAYOUT_CACHE_KEY_CHILD_SIZE = 18;
+
+    /**
+     * The scratch array holding the values of the key looked up in the {@link #mLayoutCache},
+     * which is reused for every measurement and copied only when a result is stored.
+     */
+    @Nullable
+    private long[] mLayoutCacheKeyValues;
+
     public FlexboxLayout(Context context) {
         this(context, null);
     }
@@ -226,6 +353,10 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         mAlignItems = a.getInt(R.styleable.FlexboxLayout_alignItems, AlignItems.FLEX_START);
         mAlignContent = a.getInt(R.styleable.FlexboxLayout_alignContent, AlignContent.FLEX_START);
         mMaxLine = a.getInt(R.styleable.FlexboxLayout_maxLine, NOT_SET);
+        mMaxLineOverflow = a
+                .getInt(R.styleable.FlexboxLayout_maxLineOverflow, MaxLineOverflow.VISIBLE);
+        mRowGap = Math.max(a.getDimensionPixelSize(R.styleable.FlexboxLayout_rowGap, 0), 0);
+        mColumnGap = Math.max(a.getDimensionPixelSize(R.styleable.FlexboxLayout_columnGap, 0), 0);
         Drawable drawable = a.getDrawable(R.styleable.FlexboxLayout_dividerDrawable);
         if (drawable != null) {
             setDividerDrawableHorizontal(drawable);
@@ -261,6 +392,15 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mLastMeasureValid && mLastWidthMeasureSpec == widthMeasureSpec
+                && mLastHeightMeasureSpec == heightMeasureSpec && !isAnyChildLayoutRequested()) {
+            // Measured again with the same measure specs, e.g. by the parent FlexboxLayout
+            // expanding or stretching this layout to the size it already has. The children and
+            // the flex lines still hold the result of the last measurement.
+            mRepeatedMeasureSkipCount++;
+            setMeasuredDimension(mLastMeasuredWidthAndState, mLastMeasuredHeightAndState);
+            return;
+        }
         if (mOrderCache == null) {
             mOrderCache = new SparseIntArray(getChildCount());
         }
@@ -268,6 +408,16 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
             mReorderedIndices = mFlexboxHelper.createReorderedIndices(mOrderCache);
         }
 
+        FlexboxLayoutCache.Key layoutCacheKey = null;
+        if (mLayoutCache != null) {
+            layoutCacheKey = createLayoutCacheKey(widthMeasureSpec, heightMeasureSpec);
+            if (layoutCacheKey != null
+                    && applyLayoutCacheEntry(mLayoutCache.get(layoutCacheKey))) {
+                rememberLastMeasure(widthMeasureSpec, heightMeasureSpec);
+                return;
+            }
+        }
+
         // TODO: Only calculate the children views which are affected from the last measure.
 
         switch (mFlexDirection) {
@@ -283,6 +433,235 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                 throw new IllegalStateException(
                         "Invalid value for the flex direction is set: " + mFlexDirection);
         }
+        if (layoutCacheKey != null) {
+            mLayoutCache.put(layoutCacheKey.copy(), createLayoutCacheEntry());
+        }
+        rememberLastMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * @return {@code true} if any child requested a layout since the last measurement. A child
+     * changed after this layout requested a layout doesn't call {@link #requestLayout()} again
+     * since this layout is already waiting for a layout, e.g. after a change of justifyContent
+     * which keeps the last measurement.
+     */
+    private boolean isAnyChildLayoutRequested() {
+        for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            if (getChildAt(i).isLayoutRequested()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rememberLastMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        mLastMeasuredWidthAndState = getMeasuredWidthAndState();
+        mLastMeasuredHeightAndState = getMeasuredHeightAndState();
+        mLastMeasureValid = true;
+    }
+
+    @Override
+    public void requestLayout() {
+        // Called when this layout or any descendant changes, the last measurement can't be reused
+        mLastMeasureValid = false;
+        if (mUpdateDepth > 0) {
+            mLayoutRequestedInUpdate = true;
+            return;
+        }
+        super.requestLayout();
+    }
+
+    /**
+     * Requests a layout for a change which only affects the positions of the children, e.g. a
+     * change of justifyContent. The last measurement stays valid, so that the flex lines and the
+     * measured sizes of the children are reused and only {@link #onLayout} runs again if this
+     * layout is measured with the same measure specs.
+     */
+    private void requestLayoutKeepingMeasurement() {
+        boolean lastMeasureValid = mLastMeasureValid;
+        requestLayout();
+        mLastMeasureValid = lastMeasureValid;
+    }
+
+    /**
+     * @param alignItems the value of alignItems
+     * @return {@code true} if the given alignItems only affects the positions of the flex items,
+     * i.e. it neither stretches them nor aligns them by their baselines, which are taken into
+     * account when measuring.
+     */
+    private static boolean isPositioningOnlyAlignItems(@AlignItems int alignItems) {
+        return alignItems == AlignItems.FLEX_START || alignItems == AlignItems.FLEX_END
+                || alignItems == AlignItems.CENTER;
+    }
+
+    /**
+     * Runs a batch of changes to the attributes of this layout or the layout params of its
+     * children. The layout requested by the changes is deferred until the batch ends, so that
+     * the changes are measured and laid out in a single pass. The batch ends even if the changes
+     * throw an exception. The calls can be nested.
+     *
+     * As with a single change, if all the changes in the batch only affect the positions of the
+     * children (e.g. justifyContent), the last measurement is kept and only the layout runs again.
+     *
+     * @param changes the changes to run
+     */
+    public void update(@NonNull Runnable changes) {
+        mUpdateDepth++;
+        try {
+            changes.run();
+        } finally {
+            mUpdateDepth--;
+            if (mUpdateDepth == 0 && mLayoutRequestedInUpdate) {
+                mLayoutRequestedInUpdate = false;
+                // The last measurement is already invalidated if any change in the batch needs it
+                super.requestLayout();
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if a batch of changes run by {@link #update(Runnable)} is in progress
+     */
+    public boolean isUpdating() {
+        return mUpdateDepth > 0;
+    }
+
+    @Override
+    public void forceLayout() {
+        mLastMeasureValid = false;
+        super.forceLayout();
+    }
+
+    /**
+     * Creates the key of the measurement result for the {@link #mLayoutCache}.
+     *
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec vertical space requirements as imposed by the parent
+     * @return the key, or {@code null} if the result can't be cached because the size or the
+     * baseline of any child can't be determined by its attributes. The key holds the values in
+     * {@link #mLayoutCacheKeyValues}, thus it needs to be copied to be stored in the cache.
+     */
+    @Nullable
+    private FlexboxLayoutCache.Key createLayoutCacheKey(int widthMeasureSpec,
+            int heightMeasureSpec) {
+        assert mLayoutCache != null;
+        FlexboxLayoutCache.ChildSignatureProvider signatureProvider =
+                mLayoutCache.getChildSignatureProvider();
+        if (signatureProvider == null && mAlignItems == AlignItems.BASELINE) {
+            // The baselines depend on the content of the children, which isn't in the key
+            return null;
+        }
+        int childCount = getChildCount();
+        int length = LAYOUT_CACHE_KEY_HEADER_SIZE + LAYOUT_CACHE_KEY_CHILD_SIZE * childCount;
+        if (mLayoutCacheKeyValues == null || mLayoutCacheKeyValues.length < length) {
+            mLayoutCacheKeyValues = new long[length];
+        }
+        long[] values = mLayoutCacheKeyValues;
+        int i = 0;
+        values[i++] = widthMeasureSpec;
+        values[i++] = heightMeasureSpec;
+        values[i++] = mFlexDirection;
+        values[i++] = mFlexWrap;
+        values[i++] = mJustifyContent;
+        values[i++] = mAlignItems;
+        values[i++] = mAlignContent;
+        values[i++] = mMaxLine;
+        values[i++] = mMaxLineOverflow;
+        values[i++] = mRowGap;
+        values[i++] = mColumnGap;
+        values[i++] = mShowDividerHorizontal;
+        values[i++] = mShowDividerVertical;
+        values[i++] = mDividerHorizontalHeight;
+        values[i++] = mDividerVerticalWidth;
+        values[i++] = getPaddingLeft();
+        values[i++] = getPaddingTop();
+        values[i++] = getPaddingRight();
+        values[i++] = getPaddingBottom();
+        values[i++] = ViewCompat.getPaddingStart(this);
+        values[i++] = ViewCompat.getPaddingEnd(this);
+        values[i++] = childCount;
+        for (int childIndex = 0; childIndex < childCount; childIndex++) {
+            View child = getChildAt(childIndex);
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            long signature = 0;
+            if (child.getVisibility() != View.GONE) {
+                if (signatureProvider != null) {
+                    signature = signatureProvider.getSignature(child);
+                } else if (!mFlexboxHelper.isFixedSizeFlexItem(lp)
+                        || lp.getAlignSelf() == AlignSelf.BASELINE) {
+                    return null;
+                }
+            }
+            values[i++] = child.getVisibility();
+            values[i++] = lp.width;
+            values[i++] = lp.height;
+            values[i++] = lp.leftMargin;
+            values[i++] = lp.topMargin;
+            values[i++] = lp.rightMargin;
+            values[i++] = lp.bottomMargin;
+            FlexItemStyle style = lp.mStyle;
+            values[i++] = style.getOrder();
+            values[i++] = Float.floatToIntBits(style.getFlexGrow());
+            values[i++] = Float.floatToIntBits(style.getFlexShrink());
+            values[i++] = style.getAlignSelf();
+            values[i++] = Float.floatToIntBits(style.getFlexBasisPercent());
+            values[i++] = style.getMinWidth();
+            values[i++] = style.getMinHeight();
+            values[i++] = style.getMaxWidth();
+            values[i++] = style.getMaxHeight();
+            values[i++] = style.isWrapBefore() ? 1 : 0;
+            values[i++] = signature;
+        }
+        return new FlexboxLayoutCache.Key(values, length);
+    }
+
+    /**
+     * @return the measurement result just calculated to be stored in the {@link #mLayoutCache}
+     */
+    private FlexboxLayoutCache.Entry createLayoutCacheEntry() {
+        int childCount = getChildCount();
+        int[] childWidths = new int[childCount];
+        int[] childHeights = new int[childCount];
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            childWidths[i] = child.getMeasuredWidth();
+            childHeights[i] = child.getMeasuredHeight();
+        }
+        return new FlexboxLayoutCache.Entry(mFlexLines, childWidths, childHeights,
+                mFlexLinesResult.mFirstClippedIndex, mFlexLinesResult.mChildState,
+                getMeasuredWidthAndState(), getMeasuredHeightAndState());
+    }
+
+    /**
+     * Applies the cached measurement result instead of calculating the flex lines. Each child is
+     * measured exactly with its cached size.
+     *
+     * @param entry the cached result, or {@code null} if not found
+     * @return {@code true} if the result is applied, {@code false} otherwise
+     */
+    private boolean applyLayoutCacheEntry(@Nullable FlexboxLayoutCache.Entry entry) {
+        if (entry == null) {
+            return false;
+        }
+        for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == View.GONE) {
+                continue;
+            }
+            mFlexboxHelper.measureChild(child,
+                    MeasureSpec.makeMeasureSpec(entry.mChildWidths[i], MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(entry.mChildHeights[i], MeasureSpec.EXACTLY));
+        }
+        mFlexLinesResult.reset();
+        mFlexLinesResult.mFlexLines = entry.copyFlexLines();
+        mFlexLinesResult.mFirstClippedIndex = entry.mFirstClippedIndex;
+        mFlexLinesResult.mChildState = entry.mChildState;
+        mFlexLines = mFlexLinesResult.mFlexLines;
+        updateNonEmptyFlexLineIndices();
+        setMeasuredDimension(entry.mMeasuredWidthAndState, entry.mMeasuredHeightAndState);
+        return true;
     }
 
     @Override
@@ -316,6 +695,12 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         return getReorderedChildAt(index);
     }
 
+    @Override
+    public View getSizedFlexItemAt(int index, int width, int height) {
+        // The children are already there, nothing is saved by standing in for them
+        return getReorderedChildAt(index);
+    }
+
     @Override
     public void addView(View child, int index, ViewGroup.LayoutParams params) {
         if (mOrderCache == null) {
@@ -330,6 +715,84 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         super.addView(child, index, params);
     }
 
+    /**
+     * Adds the given views at the end of the children at once. Unlike calling
+     * {@link #addView(View)} for each of them, the reordered indices are computed and the layout
+     * is requested only once for all the views.
+     *
+     * @param children the views to add, which must not have a parent
+     */
+    public void addViews(List<View> children) {
+        if (children.isEmpty()) {
+            return;
+        }
+        if (mOrderCache == null) {
+            mOrderCache = new SparseIntArray(getChildCount() + children.size());
+        }
+        for (int i = 0, size = children.size(); i < size; i++) {
+            View child = children.get(i);
+            ViewGroup.LayoutParams params = child.getLayoutParams();
+            if (params == null) {
+                params = generateDefaultLayoutParams();
+            }
+            addViewInLayout(child, -1, params, true);
+        }
+        mReorderedIndices = mFlexboxHelper.createReorderedIndices(mOrderCache);
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Creates the views on the given executor and adds them with {@link #addViews(List)} on the
+     * main thread, so that inflating many children (e.g. chips of a filter panel) doesn't block
+     * the main thread.
+     *
+     * If the factory throws an exception on the executor (e.g. the view can only be created on
+     * the main thread), the rest of the views are created on the main thread, where an exception
+     * thrown again isn't caught. The views are discarded without being added if this view is
+     * detached or {@link #cancelAddViewsAsync()} is called before they're added.
+     *
+     * @param count    the number of the views to create
+     * @param factory  the factory creating the views, which is called on the executor
+     * @param executor the executor on which the views are created
+     * @param onAdded  the callback run on the main thread after the views are added, or
+     *                 {@code null}
+     */
+    public void addViewsAsync(int count, ChildFactory factory, Executor executor,
+            @Nullable Runnable onAdded) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        AsyncAddition addition = new AsyncAddition(count, factory, onAdded);
+        if (mAsyncAdditions == null) {
+            mAsyncAdditions = new ArrayList<>();
+        }
+        mAsyncAdditions.add(addition);
+        executor.execute(addition);
+    }
+
+    /**
+     * Cancels the additions started by
+     * {@link #addViewsAsync(int, ChildFactory, Executor, Runnable)} whose views aren't added yet.
+     * The views already created are discarded and the callbacks of the additions aren't run.
+     */
+    public void cancelAddViewsAsync() {
+        if (mAsyncAdditions == null) {
+            return;
+        }
+        for (int i = 0, size = mAsyncAdditions.size(); i < size; i++) {
+            mAsyncAdditions.get(i).cancel();
+        }
+        mAsyncAdditions.clear();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // Don't let the pending additions keep this view alive
+        cancelAddViewsAsync();
+    }
+
     /**
      * Sub method for {@link #onMeasure(int, int)}, when the main axis direction is horizontal
      * (either left to right or right to left).
@@ -350,6 +813,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                 .calculateHorizontalFlexLines(mFlexLinesResult, widthMeasureSpec,
                         heightMeasureSpec);
         mFlexLines = mFlexLinesResult.mFlexLines;
+        updateNonEmptyFlexLineIndices();
 
         mFlexboxHelper.determineMainSize(widthMeasureSpec, heightMeasureSpec);
 
@@ -384,6 +848,8 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
 
         mFlexboxHelper.determineCrossSize(widthMeasureSpec, heightMeasureSpec,
                 getPaddingTop() + getPaddingBottom());
+        // Dummy flex lines may be inserted for the alignContent attribute
+        updateNonEmptyFlexLineIndices();
         // Now cross size for each flex line is determined.
         // Expand the views if alignItems (or mAlignSelf in each child view) is set to stretch
         mFlexboxHelper.stretchViews();
@@ -409,10 +875,13 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         mFlexboxHelper.calculateVerticalFlexLines(mFlexLinesResult, widthMeasureSpec,
                 heightMeasureSpec);
         mFlexLines = mFlexLinesResult.mFlexLines;
+        updateNonEmptyFlexLineIndices();
 
         mFlexboxHelper.determineMainSize(widthMeasureSpec, heightMeasureSpec);
         mFlexboxHelper.determineCrossSize(widthMeasureSpec, heightMeasureSpec,
                 getPaddingLeft() + getPaddingRight());
+        // Dummy flex lines may be inserted for the alignContent attribute
+        updateNonEmptyFlexLineIndices();
         // Now cross size for each flex line is determined.
         // Expand the views if alignItems (or mAlignSelf in each child view) is set to stretch
         mFlexboxHelper.stretchViews();
@@ -530,9 +999,20 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
     @Override
     public int getSumOfCrossSize() {
         int sum = 0;
+        int crossGap = isMainAxisDirectionHorizontal() ? mRowGap : mColumnGap;
+        boolean nonEmptyLineFound = false;
         for (int i = 0, size = mFlexLines.size(); i < size; i++) {
             FlexLine flexLine = mFlexLines.get(i);
 
+            // The gap is put only between the flex lines having flex items. The dummy flex lines
+            // represent the space distributed by the alignContent attribute instead.
+            if (flexLine.getItemCountNotGone() > 0) {
+                if (nonEmptyLineFound) {
+                    sum += crossGap;
+                }
+                nonEmptyLineFound = true;
+            }
+
             // Judge if the beginning or middle dividers are required
             if (hasDividerBeforeFlexLine(i)) {
                 if (isMainAxisDirectionHorizontal()) {
@@ -562,6 +1042,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        long startNanos = mFlexboxHelper.mMetrics != null ? System.nanoTime() : 0;
         int layoutDirection = ViewCompat.getLayoutDirection(this);
         boolean isRtl;
         switch (mFlexDirection) {
@@ -590,6 +1071,40 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
             default:
                 throw new IllegalStateException("Invalid flex direction is set: " + mFlexDirection);
         }
+        layoutClippedChildren();
+        computeDividerRects();
+        FlexboxLayoutMetrics metrics = mFlexboxHelper.mMetrics;
+        if (mFlexboxLayoutListener != null && metrics != null) {
+            metrics.mLayoutNanos += System.nanoTime() - startNanos;
+            mFlexboxLayoutListener.onLayoutPassCompleted(metrics);
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Lays out the children which are hidden by the {@link MaxLineOverflow#CLIP} policy with zero
+     * size, because they aren't included in any flex line and therefore not measured, and
+     * notifies the {@link OnItemsClippedListener} if the number of them is changed.
+     */
+    private void layoutClippedChildren() {
+        int clippedItemCount = 0;
+        int firstClippedIndex = mFlexLinesResult.mFirstClippedIndex;
+        if (firstClippedIndex >= 0) {
+            for (int i = firstClippedIndex, childCount = getChildCount(); i < childCount; i++) {
+                View child = getReorderedChildAt(i);
+                if (child == null || child.getVisibility() == View.GONE) {
+                    continue;
+                }
+                child.layout(0, 0, 0, 0);
+                clippedItemCount++;
+            }
+        }
+        if (mClippedItemCount != clippedItemCount) {
+            mClippedItemCount = clippedItemCount;
+            if (mOnItemsClippedListener != null) {
+                mOnItemsClippedListener.onItemsClipped(clippedItemCount);
+            }
+        }
     }
 
     /**
@@ -631,6 +1146,10 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         float childRight;
         for (int i = 0, size = mFlexLines.size(); i < size; i++) {
             FlexLine flexLine = mFlexLines.get(i);
+            if (hasGapBeforeFlexLine(i)) {
+                childBottom -= mRowGap;
+                childTop += mRowGap;
+            }
             if (hasDividerBeforeFlexLine(i)) {
                 childBottom -= mDividerHorizontalHeight;
                 childTop += mDividerHorizontalHeight;
@@ -690,11 +1209,15 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                     continue;
                 }
                 LayoutParams lp = ((LayoutParams) child.getLayoutParams());
+                if (index != flexLine.mFirstVisibleIndex) {
+                    childLeft += mColumnGap;
+                    childRight -= mColumnGap;
+                }
                 childLeft += lp.leftMargin;
                 childRight -= lp.rightMargin;
                 int beforeDividerLength = 0;
                 int endDividerLength = 0;
-                if (hasDividerBeforeChildAtAlongMainAxis(index, j)) {
+                if (hasDividerBeforeChildAtAlongMainAxis(index == flexLine.mFirstVisibleIndex)) {
                     beforeDividerLength = mDividerVerticalWidth;
                     childLeft += beforeDividerLength;
                     childRight -= beforeDividerLength;
@@ -788,6 +1311,10 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
 
         for (int i = 0, size = mFlexLines.size(); i < size; i++) {
             FlexLine flexLine = mFlexLines.get(i);
+            if (hasGapBeforeFlexLine(i)) {
+                childLeft += mColumnGap;
+                childRight -= mColumnGap;
+            }
             if (hasDividerBeforeFlexLine(i)) {
                 childLeft += mDividerVerticalWidth;
                 childRight -= mDividerVerticalWidth;
@@ -847,11 +1374,15 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                     continue;
                 }
                 LayoutParams lp = ((LayoutParams) child.getLayoutParams());
+                if (index != flexLine.mFirstVisibleIndex) {
+                    childTop += mRowGap;
+                    childBottom -= mRowGap;
+                }
                 childTop += lp.topMargin;
                 childBottom -= lp.bottomMargin;
                 int beforeDividerLength = 0;
                 int endDividerLength = 0;
-                if (hasDividerBeforeChildAtAlongMainAxis(index, j)) {
+                if (hasDividerBeforeChildAtAlongMainAxis(index == flexLine.mFirstVisibleIndex)) {
                     beforeDividerLength = mDividerHorizontalHeight;
                     childTop += beforeDividerLength;
                     childBottom -= beforeDividerLength;
@@ -902,6 +1433,25 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
 
     @Override
     protected void onDraw(Canvas canvas) {
+        for (int i = 0; i < mDividerRectsSize; i += DIVIDER_RECT_FIELDS) {
+            Drawable divider = mDividerRects[i] == DIVIDER_VERTICAL
+                    ? mDividerDrawableVertical : mDividerDrawableHorizontal;
+            if (divider == null) {
+                continue;
+            }
+            divider.setBounds(mDividerRects[i + 1], mDividerRects[i + 2], mDividerRects[i + 3],
+                    mDividerRects[i + 4]);
+            divider.draw(canvas);
+        }
+    }
+
+    /**
+     * Computes the bounds of the dividers from the result of the layout and stores them to
+     * {@link #mDividerRects} so that {@link #onDraw(Canvas)} doesn't need to traverse the flex
+     * lines and the children on every frame.
+     */
+    private void computeDividerRects() {
+        mDividerRectsSize = 0;
         if (mDividerDrawableVertical == null && mDividerDrawableHorizontal == null) {
             return;
         }
@@ -919,44 +1469,43 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                 if (mFlexWrap == FlexWrap.WRAP_REVERSE) {
                     fromBottomToTop = true;
                 }
-                drawDividersHorizontal(canvas, isRtl, fromBottomToTop);
+                computeDividersHorizontal(isRtl, fromBottomToTop);
                 break;
             case FlexDirection.ROW_REVERSE:
                 isRtl = layoutDirection != ViewCompat.LAYOUT_DIRECTION_RTL;
                 if (mFlexWrap == FlexWrap.WRAP_REVERSE) {
                     fromBottomToTop = true;
                 }
-                drawDividersHorizontal(canvas, isRtl, fromBottomToTop);
+                computeDividersHorizontal(isRtl, fromBottomToTop);
                 break;
             case FlexDirection.COLUMN:
                 isRtl = layoutDirection == ViewCompat.LAYOUT_DIRECTION_RTL;
                 if (mFlexWrap == FlexWrap.WRAP_REVERSE) {
                     isRtl = !isRtl;
                 }
-                drawDividersVertical(canvas, isRtl, false);
+                computeDividersVertical(isRtl, false);
                 break;
             case FlexDirection.COLUMN_REVERSE:
                 isRtl = layoutDirection == ViewCompat.LAYOUT_DIRECTION_RTL;
                 if (mFlexWrap == FlexWrap.WRAP_REVERSE) {
                     isRtl = !isRtl;
                 }
-                drawDividersVertical(canvas, isRtl, true);
+                computeDividersVertical(isRtl, true);
                 break;
         }
     }
 
     /**
-     * Sub method for {@link #onDraw(Canvas)} when the main axis direction is horizontal
+     * Sub method for {@link #computeDividerRects()} when the main axis direction is horizontal
      * ({@link #mFlexDirection} is either of {@link FlexDirection#ROW} or
      * {@link FlexDirection#ROW_REVERSE}.
      *
-     * @param canvas          the canvas on which the background will be drawn
      * @param isRtl           {@code true} when the horizontal layout direction is right to left,
      *                        {@code false} otherwise
      * @param fromBottomToTop {@code true} when the vertical layout direction is bottom to top,
      *                        {@code false} otherwise
      */
-    private void drawDividersHorizontal(Canvas canvas, boolean isRtl, boolean fromBottomToTop) {
+    private void computeDividersHorizontal(boolean isRtl, boolean fromBottomToTop) {
         int paddingLeft = getPaddingLeft();
         int paddingRight = getPaddingRight();
         int horizontalDividerLength = Math.max(0, getWidth() - paddingRight - paddingLeft);
@@ -971,7 +1520,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                 LayoutParams lp = (LayoutParams) view.getLayoutParams();
 
                 // Judge if the beginning or middle divider is needed
-                if (hasDividerBeforeChildAtAlongMainAxis(viewIndex, j)) {
+                if (hasDividerBeforeChildAtAlongMainAxis(viewIndex == flexLine.mFirstVisibleIndex)) {
                     int dividerLeft;
                     if (isRtl) {
                         dividerLeft = view.getRight() + lp.rightMargin;
@@ -979,7 +1528,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                         dividerLeft = view.getLeft() - lp.leftMargin - mDividerVerticalWidth;
                     }
 
-                    drawVerticalDivider(canvas, dividerLeft, flexLine.mTop, flexLine.mCrossSize);
+                    addVerticalDividerRect(dividerLeft, flexLine.mTop, flexLine.mCrossSize);
                 }
 
                 // Judge if the end divider is needed
@@ -992,7 +1541,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                             dividerLeft = view.getRight() + lp.rightMargin;
                         }
 
-                        drawVerticalDivider(canvas, dividerLeft, flexLine.mTop,
+                        addVerticalDividerRect(dividerLeft, flexLine.mTop,
                                 flexLine.mCrossSize);
                     }
                 }
@@ -1006,7 +1555,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                 } else {
                     horizontalDividerTop = flexLine.mTop - mDividerHorizontalHeight;
                 }
-                drawHorizontalDivider(canvas, paddingLeft, horizontalDividerTop,
+                addHorizontalDividerRect(paddingLeft, horizontalDividerTop,
                         horizontalDividerLength);
             }
             // Judge if the end divider is needed before the flex line
@@ -1018,7 +1567,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                     } else {
                         horizontalDividerTop = flexLine.mBottom;
                     }
-                    drawHorizontalDivider(canvas, paddingLeft, horizontalDividerTop,
+                    addHorizontalDividerRect(paddingLeft, horizontalDividerTop,
                             horizontalDividerLength);
                 }
             }
@@ -1026,17 +1575,16 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
     }
 
     /**
-     * Sub method for {@link #onDraw(Canvas)} when the main axis direction is vertical
+     * Sub method for {@link #computeDividerRects()} when the main axis direction is vertical
      * ({@link #mFlexDirection} is either of {@link FlexDirection#COLUMN} or
      * {@link FlexDirection#COLUMN_REVERSE}.
      *
-     * @param canvas          the canvas on which the background will be drawn
      * @param isRtl           {@code true} when the horizontal layout direction is right to left,
      *                        {@code false} otherwise
      * @param fromBottomToTop {@code true} when the vertical layout direction is bottom to top,
      *                        {@code false} otherwise
      */
-    private void drawDividersVertical(Canvas canvas, boolean isRtl, boolean fromBottomToTop) {
+    private void computeDividersVertical(boolean isRtl, boolean fromBottomToTop) {
         int paddingTop = getPaddingTop();
         int paddingBottom = getPaddingBottom();
         int verticalDividerLength = Math.max(0, getHeight() - paddingBottom - paddingTop);
@@ -1053,7 +1601,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                 LayoutParams lp = (LayoutParams) view.getLayoutParams();
 
                 // Judge if the beginning or middle divider is needed
-                if (hasDividerBeforeChildAtAlongMainAxis(viewIndex, j)) {
+                if (hasDividerBeforeChildAtAlongMainAxis(viewIndex == flexLine.mFirstVisibleIndex)) {
                     int dividerTop;
                     if (fromBottomToTop) {
                         dividerTop = view.getBottom() + lp.bottomMargin;
@@ -1061,7 +1609,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                         dividerTop = view.getTop() - lp.topMargin - mDividerHorizontalHeight;
                     }
 
-                    drawHorizontalDivider(canvas, flexLine.mLeft, dividerTop, flexLine.mCrossSize);
+                    addHorizontalDividerRect(flexLine.mLeft, dividerTop, flexLine.mCrossSize);
                 }
 
                 // Judge if the end divider is needed
@@ -1074,7 +1622,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                             dividerTop = view.getBottom() + lp.bottomMargin;
                         }
 
-                        drawHorizontalDivider(canvas, flexLine.mLeft, dividerTop,
+                        addHorizontalDividerRect(flexLine.mLeft, dividerTop,
                                 flexLine.mCrossSize);
                     }
                 }
@@ -1088,7 +1636,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                 } else {
                     verticalDividerLeft = flexLine.mLeft - mDividerVerticalWidth;
                 }
-                drawVerticalDivider(canvas, verticalDividerLeft, paddingTop,
+                addVerticalDividerRect(verticalDividerLeft, paddingTop,
                         verticalDividerLength);
             }
             if (hasEndDividerAfterFlexLine(i)) {
@@ -1099,28 +1647,38 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
                     } else {
                         verticalDividerLeft = flexLine.mRight;
                     }
-                    drawVerticalDivider(canvas, verticalDividerLeft, paddingTop,
+                    addVerticalDividerRect(verticalDividerLeft, paddingTop,
                             verticalDividerLength);
                 }
             }
         }
     }
 
-    private void drawVerticalDivider(Canvas canvas, int left, int top, int length) {
+    private void addVerticalDividerRect(int left, int top, int length) {
         if (mDividerDrawableVertical == null) {
             return;
         }
-        mDividerDrawableVertical.setBounds(left, top, left + mDividerVerticalWidth, top + length);
-        mDividerDrawableVertical.draw(canvas);
+        addDividerRect(DIVIDER_VERTICAL, left, top, left + mDividerVerticalWidth, top + length);
     }
 
-    private void drawHorizontalDivider(Canvas canvas, int left, int top, int length) {
+    private void addHorizontalDividerRect(int left, int top, int length) {
         if (mDividerDrawableHorizontal == null) {
             return;
         }
-        mDividerDrawableHorizontal
-                .setBounds(left, top, left + length, top + mDividerHorizontalHeight);
-        mDividerDrawableHorizontal.draw(canvas);
+        addDividerRect(DIVIDER_HORIZONTAL, left, top, left + length,
+                top + mDividerHorizontalHeight);
+    }
+
+    private void addDividerRect(int orientation, int left, int top, int right, int bottom) {
+        if (mDividerRectsSize + DIVIDER_RECT_FIELDS > mDividerRects.length) {
+            mDividerRects = Arrays.copyOf(mDividerRects,
+                    Math.max(mDividerRects.length * 2, mDividerRectsSize + DIVIDER_RECT_FIELDS));
+        }
+        mDividerRects[mDividerRectsSize++] = orientation;
+        mDividerRects[mDividerRectsSize++] = left;
+        mDividerRects[mDividerRectsSize++] = top;
+        mDividerRects[mDividerRectsSize++] = right;
+        mDividerRects[mDividerRectsSize++] = bottom;
     }
 
     @Override
@@ -1181,7 +1739,8 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
     public void setJustifyContent(@JustifyContent int justifyContent) {
         if (mJustifyContent != justifyContent) {
             mJustifyContent = justifyContent;
-            requestLayout();
+            // Only the positions of the flex items change
+            requestLayoutKeepingMeasurement();
         }
     }
 
@@ -1194,8 +1753,14 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
     @Override
     public void setAlignItems(@AlignItems int alignItems) {
         if (mAlignItems != alignItems) {
+            boolean layoutOnly = isPositioningOnlyAlignItems(mAlignItems)
+                    && isPositioningOnlyAlignItems(alignItems);
             mAlignItems = alignItems;
-            requestLayout();
+            if (layoutOnly) {
+                requestLayoutKeepingMeasurement();
+            } else {
+                requestLayout();
+            }
         }
     }
 
@@ -1226,6 +1791,153 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         }
     }
 
+    @MaxLineOverflow
+    @Override
+    public int getMaxLineOverflow() {
+        return mMaxLineOverflow;
+    }
+
+    @Override
+    public void setMaxLineOverflow(@MaxLineOverflow int maxLineOverflow) {
+        if (mMaxLineOverflow != maxLineOverflow) {
+            mMaxLineOverflow = maxLineOverflow;
+            requestLayout();
+        }
+    }
+
+    @Override
+    public int getRowGap() {
+        return mRowGap;
+    }
+
+    @Override
+    public void setRowGap(int rowGap) {
+        if (rowGap < 0) {
+            throw new IllegalArgumentException("rowGap must not be negative: " + rowGap);
+        }
+        if (mRowGap != rowGap) {
+            mRowGap = rowGap;
+            requestLayout();
+        }
+    }
+
+    @Override
+    public int getColumnGap() {
+        return mColumnGap;
+    }
+
+    @Override
+    public void setColumnGap(int columnGap) {
+        if (columnGap < 0) {
+            throw new IllegalArgumentException("columnGap must not be negative: " + columnGap);
+        }
+        if (mColumnGap != columnGap) {
+            mColumnGap = columnGap;
+            requestLayout();
+        }
+    }
+
+    /**
+     * @return the number of flex items hidden by the {@link MaxLineOverflow#CLIP} policy in the
+     * last layout. The flex items whose visibility is {@link View#GONE} aren't counted.
+     */
+    public int getClippedItemCount() {
+        return mClippedItemCount;
+    }
+
+    /**
+     * Sets the listener to be notified when the number of flex items hidden by the
+     * {@link MaxLineOverflow#CLIP} policy changes.
+     *
+     * @param listener the listener, or {@code null} to remove the current one
+     */
+    public void setOnItemsClippedListener(@Nullable OnItemsClippedListener listener) {
+        mOnItemsClippedListener = listener;
+    }
+
+    /**
+     * Sets the listener to be notified of the metrics of each layout pass. The metrics are
+     * collected only while the listener is set.
+     *
+     * @param listener the listener, or {@code null} to stop collecting the metrics
+     */
+    public void setFlexboxLayoutListener(@Nullable FlexboxLayoutListener listener) {
+        mFlexboxLayoutListener = listener;
+        mFlexboxHelper.mMetrics = listener != null ? new FlexboxLayoutMetrics() : null;
+    }
+
+    /**
+     * Sets the provider of the sizes of the flex items computed ahead of the measurement (e.g. from
+     * the text metrics precomputed on a background thread). A flex item whose size is provided is
+     * measured exactly to that size minus its margins when the flex lines are calculated, unless
+     * it already has that size.
+     *
+     * @param sizeProvider the provider, or {@code null} to measure all the flex items as usual
+     */
+    public void setFlexItemSizeProvider(@Nullable FlexItemSizeProvider sizeProvider) {
+        if (mFlexboxHelper.mFlexItemSizeProvider != sizeProvider) {
+            mFlexboxHelper.mFlexItemSizeProvider = sizeProvider;
+            requestLayout();
+        }
+    }
+
+    /**
+     * @return the provider of the sizes of the flex items, or {@code null} if not set
+     */
+    @Nullable
+    public FlexItemSizeProvider getFlexItemSizeProvider() {
+        return mFlexboxHelper.mFlexItemSizeProvider;
+    }
+
+    /**
+     * Sets the cache of the measurement results. When the same configuration of the children is
+     * measured with the same measure specs as the one cached, the flex lines aren't calculated
+     * and the cached result is applied instead. The cache can be shared among the instances,
+     * e.g. {@link FlexboxLayoutCache#getSharedInstance()}.
+     *
+     * @param layoutCache the cache, or {@code null} to always calculate the flex lines
+     */
+    public void setLayoutCache(@Nullable FlexboxLayoutCache layoutCache) {
+        if (mLayoutCache != layoutCache) {
+            mLayoutCache = layoutCache;
+            requestLayout();
+        }
+    }
+
+    /**
+     * @return the cache of the measurement results set to this layout, or {@code null} if not set
+     */
+    @Nullable
+    public FlexboxLayoutCache getLayoutCache() {
+        return mLayoutCache;
+    }
+
+    /**
+     * @return the number of child measurements skipped since this layout was created because
+     * the size of a flex item resolved from its flexGrow or flexShrink attribute was the same as
+     * its measured size
+     */
+    public long getFlexMeasureSkipCount() {
+        return mFlexboxHelper.mFlexMeasureSkipCount;
+    }
+
+    /**
+     * @return the number of child measurements skipped since this layout was created because
+     * a flex item to be stretched by the {@link AlignItems#STRETCH} (or {@link AlignSelf#STRETCH})
+     * attribute already had the stretched size
+     */
+    public long getStretchMeasureSkipCount() {
+        return mFlexboxHelper.mStretchMeasureSkipCount;
+    }
+
+    /**
+     * @return the number of measurements of this layout skipped since this layout was created
+     * because it was measured again with the same measure specs without any change in between
+     */
+    public long getRepeatedMeasureSkipCount() {
+        return mRepeatedMeasureSkipCount;
+    }
+
     /**
      * @return the flex lines composing this flex container. This method returns a copy of the
      * original list excluding a dummy flex line (flex line that doesn't have any flex items in it
@@ -1248,14 +1960,14 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
     public int getDecorationLengthMainAxis(View view, int index, int indexInFlexLine) {
         int decorationLength = 0;
         if (isMainAxisDirectionHorizontal()) {
-            if (hasDividerBeforeChildAtAlongMainAxis(index, indexInFlexLine)) {
+            if (hasDividerBeforeChildAtAlongMainAxis(indexInFlexLine == 0)) {
                 decorationLength += mDividerVerticalWidth;
             }
             if ((mShowDividerVertical & SHOW_DIVIDER_END) > 0) {
                 decorationLength += mDividerVerticalWidth;
             }
         } else {
-            if (hasDividerBeforeChildAtAlongMainAxis(index, indexInFlexLine)) {
+            if (hasDividerBeforeChildAtAlongMainAxis(indexInFlexLine == 0)) {
                 decorationLength += mDividerHorizontalHeight;
             }
             if ((mShowDividerHorizontal & SHOW_DIVIDER_END) > 0) {
@@ -1302,7 +2014,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
     @Override
     public void onNewFlexItemAdded(View view, int index, int indexInFlexLine, FlexLine flexLine) {
         // Check if the beginning or middle divider is required for the flex item
-        if (hasDividerBeforeChildAtAlongMainAxis(index, indexInFlexLine)) {
+        if (hasDividerBeforeChildAtAlongMainAxis(index == flexLine.mFirstVisibleIndex)) {
             if (isMainAxisDirectionHorizontal()) {
                 flexLine.mMainSize += mDividerVerticalWidth;
                 flexLine.mDividerLengthInMainSize += mDividerVerticalWidth;
@@ -1318,6 +2030,24 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         mFlexLines = flexLines;
     }
 
+    /**
+     * Updates {@link #mFirstNonEmptyFlexLineIndex} and {@link #mLastNonEmptyFlexLineIndex} so that
+     * the dividers between flex lines can be judged without scanning the other flex lines.
+     */
+    private void updateNonEmptyFlexLineIndices() {
+        int size = mFlexLines.size();
+        mFirstNonEmptyFlexLineIndex = size;
+        mLastNonEmptyFlexLineIndex = -1;
+        for (int i = 0; i < size; i++) {
+            if (mFlexLines.get(i).getItemCountNotGone() > 0) {
+                if (mFirstNonEmptyFlexLineIndex == size) {
+                    mFirstNonEmptyFlexLineIndex = i;
+                }
+                mLastNonEmptyFlexLineIndex = i;
+            }
+        }
+    }
+
     @Override
     public List<FlexLine> getFlexLinesInternal() {
         return mFlexLines;
@@ -1328,6 +2058,13 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         // No op
     }
 
+    @Override
+    public FlexItem getFixedSizeFlexItem() {
+        // All children are attached to this container and measured anyway, the fixed size flex
+        // items are detected per child in the FlexboxHelper instead.
+        return null;
+    }
+
     /**
      * @return the horizontal divider drawable that will divide each item.
      * @see #setDividerDrawable(Drawable)
@@ -1470,15 +2207,14 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
     }
 
     /**
-     * Check if a divider is needed before the view whose indices are passed as arguments.
+     * Check if a divider is needed before a view.
      *
-     * @param index           the absolute index of the view to be judged
-     * @param indexInFlexLine the relative index in the flex line where the view
-     *                        belongs
+     * @param isFirstVisibleItem {@code true} if all the views before the view in the flex line
+     *                           where the view belongs are gone, {@code false} otherwise
      * @return {@code true} if a divider is needed, {@code false} otherwise
      */
-    private boolean hasDividerBeforeChildAtAlongMainAxis(int index, int indexInFlexLine) {
-        if (allViewsAreGoneBefore(index, indexInFlexLine)) {
+    private boolean hasDividerBeforeChildAtAlongMainAxis(boolean isFirstVisibleItem) {
+        if (isFirstVisibleItem) {
             if (isMainAxisDirectionHorizontal()) {
                 return (mShowDividerVertical & SHOW_DIVIDER_BEGINNING) != 0;
             } else {
@@ -1493,16 +2229,6 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         }
     }
 
-    private boolean allViewsAreGoneBefore(int index, int indexInFlexLine) {
-        for (int i = 1; i <= indexInFlexLine; i++) {
-            View view = getReorderedChildAt(index - i);
-            if (view != null && view.getVisibility() != View.GONE) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     /**
      * Check if a divider is needed before the flex line whose index is passed as an argument.
      *
@@ -1513,7 +2239,7 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         if (flexLineIndex < 0 || flexLineIndex >= mFlexLines.size()) {
             return false;
         }
-        if (allFlexLinesAreDummyBefore(flexLineIndex)) {
+        if (flexLineIndex <= mFirstNonEmptyFlexLineIndex) {
             if (isMainAxisDirectionHorizontal()) {
                 return (mShowDividerHorizontal & SHOW_DIVIDER_BEGINNING) != 0;
             } else {
@@ -1528,13 +2254,17 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         }
     }
 
-    private boolean allFlexLinesAreDummyBefore(int flexLineIndex) {
-        for (int i = 0; i < flexLineIndex; i++) {
-            if (mFlexLines.get(i).getItemCountNotGone() > 0) {
-                return false;
-            }
-        }
-        return true;
+    /**
+     * Check if the gap along the cross axis is needed before the flex line whose index is passed
+     * as an argument, i.e. the flex line has flex items and isn't the first such flex line.
+     *
+     * @param flexLineIndex the index of the flex line to be checked
+     * @return {@code true} if the gap is needed, {@code false} otherwise
+     */
+    private boolean hasGapBeforeFlexLine(int flexLineIndex) {
+        return flexLineIndex > mFirstNonEmptyFlexLineIndex
+                && flexLineIndex < mFlexLines.size()
+                && mFlexLines.get(flexLineIndex).getItemCountNotGone() > 0;
     }
 
     /**
@@ -1547,11 +2277,8 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
         if (flexLineIndex < 0 || flexLineIndex >= mFlexLines.size()) {
             return false;
         }
-
-        for (int i = flexLineIndex + 1; i < mFlexLines.size(); i++) {
-            if (mFlexLines.get(i).getItemCountNotGone() > 0) {
-                return false;
-            }
+        if (flexLineIndex < mLastNonEmptyFlexLineIndex) {
+            return false;
         }
         if (isMainAxisDirectionHorizontal()) {
             return (mShowDividerHorizontal & SHOW_DIVIDER_END) != 0;
@@ -1562,104 +2289,152 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
     }
 
     /**
-     * Per child parameters for children views of the {@link FlexboxLayout}.
-     *
-     * Note that some parent fields (which are not primitive nor a class implements
-     * {@link Parcelable}) are not included as the stored/restored fields after this class
-     * is serialized/de-serialized as an {@link Parcelable}.
+     * The views created on an executor for
+     * {@link #addViewsAsync(int, ChildFactory, Executor, Runnable)}, which are added to this view
+     * on the main thread.
      */
-    public static class LayoutParams extends ViewGroup.MarginLayoutParams implements FlexItem {
+    private final class AsyncAddition implements Runnable {
 
-        /**
-         * @see FlexItem#getOrder()
-         */
-        private int mOrder = FlexItem.ORDER_DEFAULT;
+        private final int mCount;
 
-        /**
-         * @see FlexItem#getFlexGrow()
-         */
-        private float mFlexGrow = FlexItem.FLEX_GROW_DEFAULT;
+        private final ChildFactory mFactory;
 
-        /**
-         * @see FlexItem#getFlexShrink()
-         */
-        private float mFlexShrink = FlexItem.FLEX_SHRINK_DEFAULT;
+        @Nullable
+        private final Runnable mOnAdded;
 
-        /**
-         * @see FlexItem#getAlignSelf()
-         */
-        private int mAlignSelf = AlignSelf.AUTO;
+        private final LayoutInflater mInflater = LayoutInflater.from(getContext());
 
-        /**
-         * @see FlexItem#getFlexBasisPercent()
-         */
-        private float mFlexBasisPercent = FlexItem.FLEX_BASIS_PERCENT_DEFAULT;
+        private final Handler mMainHandler = new Handler(Looper.getMainLooper());
 
-        /**
-         * @see FlexItem#getMinWidth()
-         */
-        private int mMinWidth = NOT_SET;
+        /** The created views, handed over from the executor to the main thread */
+        private final List<View> mChildren;
 
-        /**
-         * @see FlexItem#getMinHeight()
-         */
-        private int mMinHeight = NOT_SET;
+        private final Runnable mAddRunnable = new Runnable() {
+            @Override
+            public void run() {
+                add();
+            }
+        };
 
-        /**
-         * @see FlexItem#getMaxWidth()
-         */
-        private int mMaxWidth = MAX_SIZE;
+        private volatile boolean mCancelled;
+
+        AsyncAddition(int count, ChildFactory factory, @Nullable Runnable onAdded) {
+            mCount = count;
+            mFactory = factory;
+            mOnAdded = onAdded;
+            mChildren = new ArrayList<>(count);
+        }
+
+        /** Creates the views on the executor. */
+        @Override
+        public void run() {
+            try {
+                createChildren();
+            } catch (RuntimeException e) {
+                // Some views can't be created off the main thread, e.g. the ones creating a
+                // Handler. The rest of the views are created on the main thread.
+            }
+            if (!mCancelled) {
+                mMainHandler.post(mAddRunnable);
+            }
+        }
+
+        private void createChildren() {
+            for (int i = mChildren.size(); i < mCount && !mCancelled; i++) {
+                mChildren.add(mFactory.createChild(mInflater, FlexboxLayout.this, i));
+            }
+        }
+
+        private void add() {
+            if (mCancelled) {
+                return;
+            }
+            if (mAsyncAdditions != null) {
+                mAsyncAdditions.remove(this);
+            }
+            createChildren();
+            addViews(mChildren);
+            if (mOnAdded != null) {
+                mOnAdded.run();
+            }
+        }
+
+        void cancel() {
+            mCancelled = true;
+            mMainHandler.removeCallbacks(mAddRunnable);
+        }
+    }
+
+    /**
+     * Creates the children added by {@link #addViewsAsync(int, ChildFactory, Executor, Runnable)}.
+     */
+    public interface ChildFactory {
 
         /**
-         * @see FlexItem#getMaxHeight()
+         * Creates the child at the given position, called on a background thread, or on the
+         * main thread for the rest of the children once it throws an exception. The child must
+         * not be attached to the parent, e.g. inflate it with {@code attachToRoot} false.
+         *
+         * @param inflater the layout inflater of the parent
+         * @param parent   the flex container the child will be added to
+         * @param position the position of the child among the created ones
+         * @return the created child
          */
-        private int mMaxHeight = MAX_SIZE;
+        View createChild(LayoutInflater inflater, FlexboxLayout parent, int position);
+    }
+
+    /**
+     * Per child parameters for children views of the {@link FlexboxLayout}.
+     *
+     * Note that some parent fields (which are not primitive nor a class implements
+     * {@link Parcelable}) are not included as the stored/restored fields after this class
+     * is serialized/de-serialized as an {@link Parcelable}.
+     */
+    public static class LayoutParams extends ViewGroup.MarginLayoutParams implements FlexItem {
 
         /**
-         * @see FlexItem#isWrapBefore()
+         * The attributes of this flex item other than the size and the margins, which may be
+         * shared with other flex items.
+         *
+         * @see #setStyle(FlexItemStyle)
          */
-        private boolean mWrapBefore;
+        private FlexItemStyle mStyle = FlexItemStyle.DEFAULT;
 
         public LayoutParams(Context context, AttributeSet attrs) {
             super(context, attrs);
 
             TypedArray a = context
                     .obtainStyledAttributes(attrs, R.styleable.FlexboxLayout_Layout);
-            mOrder = a.getInt(R.styleable.FlexboxLayout_Layout_layout_order, ORDER_DEFAULT);
-            mFlexGrow = a
-                    .getFloat(R.styleable.FlexboxLayout_Layout_layout_flexGrow, FLEX_GROW_DEFAULT);
-            mFlexShrink = a.getFloat(R.styleable.FlexboxLayout_Layout_layout_flexShrink,
-                    FLEX_SHRINK_DEFAULT);
-            mAlignSelf = a
-                    .getInt(R.styleable.FlexboxLayout_Layout_layout_alignSelf, AlignSelf.AUTO);
-            mFlexBasisPercent = a
-                    .getFraction(R.styleable.FlexboxLayout_Layout_layout_flexBasisPercent, 1, 1,
-                            FLEX_BASIS_PERCENT_DEFAULT);
-            mMinWidth = a
-                    .getDimensionPixelSize(R.styleable.FlexboxLayout_Layout_layout_minWidth, NOT_SET);
-            mMinHeight = a
-                    .getDimensionPixelSize(R.styleable.FlexboxLayout_Layout_layout_minHeight, NOT_SET);
-            mMaxWidth = a.getDimensionPixelSize(R.styleable.FlexboxLayout_Layout_layout_maxWidth,
-                    MAX_SIZE);
-            mMaxHeight = a.getDimensionPixelSize(R.styleable.FlexboxLayout_Layout_layout_maxHeight,
-                    MAX_SIZE);
-            mWrapBefore = a.getBoolean(R.styleable.FlexboxLayout_Layout_layout_wrapBefore, false);
+            mStyle = new FlexItemStyle.Builder()
+                    .setOrder(a.getInt(R.styleable.FlexboxLayout_Layout_layout_order,
+                            ORDER_DEFAULT))
+                    .setFlexGrow(a.getFloat(R.styleable.FlexboxLayout_Layout_layout_flexGrow,
+                            FLEX_GROW_DEFAULT))
+                    .setFlexShrink(a.getFloat(R.styleable.FlexboxLayout_Layout_layout_flexShrink,
+                            FLEX_SHRINK_DEFAULT))
+                    .setAlignSelf(a.getInt(R.styleable.FlexboxLayout_Layout_layout_alignSelf,
+                            AlignSelf.AUTO))
+                    .setFlexBasisPercent(a.getFraction(
+                            R.styleable.FlexboxLayout_Layout_layout_flexBasisPercent, 1, 1,
+                            FLEX_BASIS_PERCENT_DEFAULT))
+                    .setMinWidth(a.getDimensionPixelSize(
+                            R.styleable.FlexboxLayout_Layout_layout_minWidth, NOT_SET))
+                    .setMinHeight(a.getDimensionPixelSize(
+                            R.styleable.FlexboxLayout_Layout_layout_minHeight, NOT_SET))
+                    .setMaxWidth(a.getDimensionPixelSize(
+                            R.styleable.FlexboxLayout_Layout_layout_maxWidth, MAX_SIZE))
+                    .setMaxHeight(a.getDimensionPixelSize(
+                            R.styleable.FlexboxLayout_Layout_layout_maxHeight, MAX_SIZE))
+                    .setWrapBefore(a.getBoolean(
+                            R.styleable.FlexboxLayout_Layout_layout_wrapBefore, false))
+                    .build();
             a.recycle();
         }
 
         public LayoutParams(LayoutParams source) {
             super(source);
 
-            mOrder = source.mOrder;
-            mFlexGrow = source.mFlexGrow;
-            mFlexShrink = source.mFlexShrink;
-            mAlignSelf = source.mAlignSelf;
-            mFlexBasisPercent = source.mFlexBasisPercent;
-            mMinWidth = source.mMinWidth;
-            mMinHeight = source.mMinHeight;
-            mMaxWidth = source.mMaxWidth;
-            mMaxHeight = source.mMaxHeight;
-            mWrapBefore = source.mWrapBefore;
+            mStyle = source.mStyle;
         }
 
         public LayoutParams(ViewGroup.LayoutParams source) {
@@ -1674,6 +2449,26 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
             super(source);
         }
 
+        /**
+         * @return the style holding the attributes of this flex item other than the size and
+         * the margins
+         */
+        @NonNull
+        public FlexItemStyle getStyle() {
+            return mStyle;
+        }
+
+        /**
+         * Sets the style holding the attributes of this flex item other than the size and the
+         * margins. The same style can be set to many flex items, which share its attributes
+         * without copying them.
+         *
+         * @param style the style of this flex item
+         */
+        public void setStyle(@NonNull FlexItemStyle style) {
+            mStyle = style;
+        }
+
         @Override
         public int getWidth() {
             return width;
@@ -1696,103 +2491,125 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
 
         @Override
         public int getOrder() {
-            return mOrder;
+            return mStyle.getOrder();
         }
 
         @Override
         public void setOrder(int order) {
-            mOrder = order;
+            if (mStyle.getOrder() != order) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setOrder(order).build();
+            }
         }
 
         @Override
         public float getFlexGrow() {
-            return mFlexGrow;
+            return mStyle.getFlexGrow();
         }
 
         @Override
         public void setFlexGrow(float flexGrow) {
-            this.mFlexGrow = flexGrow;
+            if (mStyle.getFlexGrow() != flexGrow) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setFlexGrow(flexGrow).build();
+            }
         }
 
         @Override
         public float getFlexShrink() {
-            return mFlexShrink;
+            return mStyle.getFlexShrink();
         }
 
         @Override
         public void setFlexShrink(float flexShrink) {
-            this.mFlexShrink = flexShrink;
+            if (mStyle.getFlexShrink() != flexShrink) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setFlexShrink(flexShrink).build();
+            }
         }
 
         @AlignSelf
         @Override
         public int getAlignSelf() {
-            return mAlignSelf;
+            return mStyle.getAlignSelf();
         }
 
         @Override
         public void setAlignSelf(@AlignSelf int alignSelf) {
-            this.mAlignSelf = alignSelf;
+            if (mStyle.getAlignSelf() != alignSelf) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setAlignSelf(alignSelf).build();
+            }
         }
 
         @Override
         public int getMinWidth() {
-            return mMinWidth;
+            return mStyle.getMinWidth();
         }
 
         @Override
         public void setMinWidth(int minWidth) {
-            this.mMinWidth = minWidth;
+            if (mStyle.getMinWidth() != minWidth) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setMinWidth(minWidth).build();
+            }
         }
 
         @Override
         public int getMinHeight() {
-            return mMinHeight;
+            return mStyle.getMinHeight();
         }
 
         @Override
         public void setMinHeight(int minHeight) {
-            this.mMinHeight = minHeight;
+            if (mStyle.getMinHeight() != minHeight) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setMinHeight(minHeight).build();
+            }
         }
 
         @Override
         public int getMaxWidth() {
-            return mMaxWidth;
+            return mStyle.getMaxWidth();
         }
 
         @Override
         public void setMaxWidth(int maxWidth) {
-            this.mMaxWidth = maxWidth;
+            if (mStyle.getMaxWidth() != maxWidth) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setMaxWidth(maxWidth).build();
+            }
         }
 
         @Override
         public int getMaxHeight() {
-            return mMaxHeight;
+            return mStyle.getMaxHeight();
         }
 
         @Override
         public void setMaxHeight(int maxHeight) {
-            this.mMaxHeight = maxHeight;
+            if (mStyle.getMaxHeight() != maxHeight) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setMaxHeight(maxHeight).build();
+            }
         }
 
         @Override
         public boolean isWrapBefore() {
-            return mWrapBefore;
+            return mStyle.isWrapBefore();
         }
 
         @Override
         public void setWrapBefore(boolean wrapBefore) {
-            this.mWrapBefore = wrapBefore;
+            if (mStyle.isWrapBefore() != wrapBefore) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setWrapBefore(wrapBefore).build();
+            }
         }
 
         @Override
         public float getFlexBasisPercent() {
-            return mFlexBasisPercent;
+            return mStyle.getFlexBasisPercent();
         }
 
         @Override
         public void setFlexBasisPercent(float flexBasisPercent) {
-            this.mFlexBasisPercent = flexBasisPercent;
+            if (mStyle.getFlexBasisPercent() != flexBasisPercent) {
+                mStyle = new FlexItemStyle.Builder(mStyle)
+                        .setFlexBasisPercent(flexBasisPercent)
+                        .build();
+            }
         }
 
         @Override
@@ -1822,16 +2639,16 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
 
         @Override
         public void writeToParcel(Parcel dest, int flags) {
-            dest.writeInt(this.mOrder);
-            dest.writeFloat(this.mFlexGrow);
-            dest.writeFloat(this.mFlexShrink);
-            dest.writeInt(this.mAlignSelf);
-            dest.writeFloat(this.mFlexBasisPercent);
-            dest.writeInt(this.mMinWidth);
-            dest.writeInt(this.mMinHeight);
-            dest.writeInt(this.mMaxWidth);
-            dest.writeInt(this.mMaxHeight);
-            dest.writeByte(this.mWrapBefore ? (byte) 1 : (byte) 0);
+            dest.writeInt(mStyle.getOrder());
+            dest.writeFloat(mStyle.getFlexGrow());
+            dest.writeFloat(mStyle.getFlexShrink());
+            dest.writeInt(mStyle.getAlignSelf());
+            dest.writeFloat(mStyle.getFlexBasisPercent());
+            dest.writeInt(mStyle.getMinWidth());
+            dest.writeInt(mStyle.getMinHeight());
+            dest.writeInt(mStyle.getMaxWidth());
+            dest.writeInt(mStyle.getMaxHeight());
+            dest.writeByte(mStyle.isWrapBefore() ? (byte) 1 : (byte) 0);
             dest.writeInt(this.bottomMargin);
             dest.writeInt(this.leftMargin);
             dest.writeInt(this.rightMargin);
@@ -1844,16 +2661,18 @@ public class FlexboxLayout extends ViewGroup implements FlexContainer {
             // Passing a resolved value to resolve a lint warning
             // height and width are set in this method anyway.
             super(0, 0);
-            this.mOrder = in.readInt();
-            this.mFlexGrow = in.readFloat();
-            this.mFlexShrink = in.readFloat();
-            this.mAlignSelf = in.readInt();
-            this.mFlexBasisPercent = in.readFloat();
-            this.mMinWidth = in.readInt();
-            this.mMinHeight = in.readInt();
-            this.mMaxWidth = in.readInt();
-            this.mMaxHeight = in.readInt();
-            this.mWrapBefore = in.readByte() != 0;
+            this.mStyle = new FlexItemStyle.Builder()
+                    .setOrder(in.readInt())
+                    .setFlexGrow(in.readFloat())
+                    .setFlexShrink(in.readFloat())
+                    .setAlignSelf(in.readInt())
+                    .setFlexBasisPercent(in.readFloat())
+                    .setMinWidth(in.readInt())
+                    .setMinHeight(in.readInt())
+                    .setMaxWidth(in.readInt())
+                    .setMaxHeight(in.readInt())
+                    .setWrapBefore(in.readByte() != 0)
+                    .build();
             this.bottomMargin = in.readInt();
             this.leftMargin = in.readInt();
             this.rightMargin = in.readInt();
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A least recently used cache of the measurement results of {@link FlexboxLayout}s, which can be
+ * shared by many instances laying out the same configurations of children (e.g. rows of a
+ * RecyclerView). Set the cache through {@link FlexboxLayout#setLayoutCache(FlexboxLayoutCache)}.
+ *
+ * A result is looked up by the measure specs, the attributes of the flex container and the
+ * attributes of each child. If found, the flex lines aren't calculated and each child is measured
+ * only once with its cached size.
+ *
+ * The size of a child needs to be determined by its attributes for the result to be cached.
+ * Without a {@link ChildSignatureProvider}, only the flex containers whose visible children have
+ * fixed sizes (exact layout_width and layout_height, no flexBasisPercent) and aren't aligned
+ * by their baselines are cached. Set a provider to cache the ones whose children are sized or
+ * aligned by their content.
+ */
+public final class FlexboxLayoutCache {
+
+    /**
+     * Provides the value representing the content of a child which affects its measured size.
+     */
+    public interface ChildSignatureProvider {
+
+        /**
+         * Returns the signature of the given child. Two children having the same signature and
+         * the same layout params must be measured to the same size for the same measure specs,
+         * e.g. the hash code of the text of a chip.
+         *
+         * @param child the child of a flex container
+         * @return the signature of the child
+         */
+        long getSignature(@NonNull View child);
+    }
+
+    private static final int DEFAULT_MAX_SIZE = 256;
+
+    @Nullable
+    private static FlexboxLayoutCache sSharedInstance;
+
+    private final int mMaxSize;
+
+    @Nullable
+    private final ChildSignatureProvider mChildSignatureProvider;
+
+    private final LinkedHashMap<Key, Entry> mEntries;
+
+    private long mHitCount;
+
+    private long mMissCount;
+
+    /**
+     * @param maxSize the maximum number of the results kept in the cache
+     */
+    public FlexboxLayoutCache(int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * @param maxSize                the maximum number of the results kept in the cache
+     * @param childSignatureProvider the provider of the signatures of the children whose sizes
+     *                               depend on their content, or {@code null} to cache only the
+     *                               results of the children having fixed sizes
+     */
+    public FlexboxLayoutCache(int maxSize,
+            @Nullable ChildSignatureProvider childSignatureProvider) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        mMaxSize = maxSize;
+        mChildSignatureProvider = childSignatureProvider;
+        mEntries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > mMaxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the process-wide cache which only caches the results of the children having fixed
+     * sizes
+     */
+    @NonNull
+    public static synchronized FlexboxLayoutCache getSharedInstance() {
+        if (sSharedInstance == null) {
+            sSharedInstance = new FlexboxLayoutCache(DEFAULT_MAX_SIZE);
+        }
+        return sSharedInstance;
+    }
+
+    /**
+     * Removes all the cached results. Call this when something not covered by the cache key
+     * changes the measurement of the children, e.g. the content of the children without a
+     * {@link ChildSignatureProvider}.
+     */
+    public synchronized void invalidateAll() {
+        mEntries.clear();
+    }
+
+    /**
+     * @return the maximum number of the results kept in the cache
+     */
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * @return the number of the results currently cached
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * @return the number of the measurements which the cached results are used for
+     */
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return the number of the measurements which could be cached but no result was found for
+     */
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    @Nullable
+    ChildSignatureProvider getChildSignatureProvider() {
+        return mChildSignatureProvider;
+    }
+
+    @Nullable
+    synchronized Entry get(Key key) {
+        Entry entry = mEntries.get(key);
+        if (entry != null) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+        }
+        return entry;
+    }
+
+    synchronized void put(Key key, Entry entry) {
+        mEntries.put(key, entry);
+    }
+
+    /**
+     * The key of a cached result, holding all the values which affect the measurement.
+     */
+    static final class Key {
+
+        /** The values of this key, of which only the first {@link #mLength} values are used */
+        private final long[] mValues;
+
+        private final int mLength;
+
+        private final int mHashCode;
+
+        /**
+         * @param values the values of the key, which aren't copied thus the array can be a scratch
+         *               reused for the lookups. Use {@link #copy()} to store the key in the cache.
+         * @param length the number of the values used from the start of the array
+         */
+        Key(long[] values, int length) {
+            mValues = values;
+            mLength = length;
+            int hashCode = 1;
+            for (int i = 0; i < length; i++) {
+                long value = values[i];
+                hashCode = 31 * hashCode + (int) (value ^ (value >>> 32));
+            }
+            mHashCode = hashCode;
+        }
+
+        /**
+         * @return the key holding its own copy of the values, which can be stored in the cache
+         */
+        Key copy() {
+            return new Key(Arrays.copyOf(mValues, mLength), mLength);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            if (mHashCode != key.mHashCode || mLength != key.mLength) {
+                return false;
+            }
+            for (int i = 0; i < mLength; i++) {
+                if (mValues[i] != key.mValues[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+
+    /**
+     * The cached result of a measurement.
+     */
+    static final class Entry {
+
+        /** The flex lines, which are copied whenever they're stored or restored. */
+        private final List<FlexLine> mFlexLines;
+
+        /** The measured widths of the children in the order of the child indices */
+        final int[] mChildWidths;
+
+        /** The measured heights of the children in the order of the child indices */
+        final int[] mChildHeights;
+
+        final int mFirstClippedIndex;
+
+        final int mChildState;
+
+        final int mMeasuredWidthAndState;
+
+        final int mMeasuredHeightAndState;
+
+        Entry(List<FlexLine> flexLines, int[] childWidths, int[] childHeights,
+                int firstClippedIndex, int childState, int measuredWidthAndState,
+                int measuredHeightAndState) {
+            mFlexLines = copyFlexLines(flexLines);
+            mChildWidths = childWidths;
+            mChildHeights = childHeights;
+            mFirstClippedIndex = firstClippedIndex;
+            mChildState = childState;
+            mMeasuredWidthAndState = measuredWidthAndState;
+            mMeasuredHeightAndState = measuredHeightAndState;
+        }
+
+        /**
+         * @return the copy of the cached flex lines, which can be modified by the flex container
+         */
+        List<FlexLine> copyFlexLines() {
+            return copyFlexLines(mFlexLines);
+        }
+
+        private static List<FlexLine> copyFlexLines(List<FlexLine> flexLines) {
+            List<FlexLine> result = new ArrayList<>(flexLines.size());
+            for (int i = 0, size = flexLines.size(); i < size; i++) {
+                result.add(new FlexLine(flexLines.get(i)));
+            }
+            return result;
+        }
+    }
+}
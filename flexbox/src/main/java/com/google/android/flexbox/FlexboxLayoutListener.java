@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Interface definition for a callback to be invoked when a layout pass of a flex container
+ * ({@link FlexboxLayout} or {@link FlexboxLayoutManager}) is completed, reporting where the time
+ * was spent during the pass.
+ */
+public interface FlexboxLayoutListener {
+
+    /**
+     * Called when a layout pass is completed.
+     * For the {@link FlexboxLayout}, a pass consists of the measurements since the last layout and
+     * the layout itself. For the {@link FlexboxLayoutManager}, a pass is either a layout of the
+     * children or a scroll along the main axis direction.
+     *
+     * @param metrics the metrics of the completed pass. The instance is reused for the next
+     *                pass, thus copy the values if they need to be retained.
+     */
+    void onLayoutPassCompleted(@NonNull FlexboxLayoutMetrics metrics);
+}
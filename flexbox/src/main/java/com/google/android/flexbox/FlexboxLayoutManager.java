@@ -27,13 +27,19 @@ import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.view.ViewCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.LinearSmoothScroller;
@@ -59,6 +65,26 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
     private static final boolean DEBUG = false;
 
+    private static final int CHILD_QUERY_FIRST_REFERENCE = 0;
+
+    private static final int CHILD_QUERY_LAST_REFERENCE = 1;
+
+    private static final int CHILD_QUERY_FIRST_VISIBLE = 2;
+
+    private static final int CHILD_QUERY_FIRST_COMPLETELY_VISIBLE = 3;
+
+    private static final int CHILD_QUERY_LAST_VISIBLE = 4;
+
+    private static final int CHILD_QUERY_LAST_COMPLETELY_VISIBLE = 5;
+
+    private static final int CHILD_QUERY_COUNT = 6;
+
+    /** The maximum number of the main sizes whose flex lines are kept */
+    private static final int MAX_KEPT_MAIN_SIZES = 3;
+
+    /** The maximum number of the recycled views per view type in a RecycledViewPool by default */
+    private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
     /**
      * The current value of the {@link FlexDirection}, the default value is {@link
      * FlexDirection#ROW}.
@@ -92,6 +118,36 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
     private int mMaxLine = NOT_SET;
 
+    /**
+     * The current value of the {@link MaxLineOverflow}, the default value is
+     * {@link MaxLineOverflow#VISIBLE}.
+     *
+     * @see FlexContainer#getMaxLineOverflow()
+     */
+    private int mMaxLineOverflow = MaxLineOverflow.VISIBLE;
+
+    /**
+     * @see FlexContainer#getRowGap()
+     */
+    private int mRowGap;
+
+    /**
+     * @see FlexContainer#getColumnGap()
+     */
+    private int mColumnGap;
+
+    /**
+     * The number of items hidden by the {@link MaxLineOverflow#CLIP} policy, which is known once
+     * the flex lines up to the one limited by the maxLine attribute are calculated.
+     */
+    private int mClippedItemCount;
+
+    @Nullable
+    private OnItemsClippedListener mOnItemsClippedListener;
+
+    @Nullable
+    private FlexboxLayoutListener mFlexboxLayoutListener;
+
     /**
      * True if the layout direction is right to left, false otherwise.
      */
@@ -106,6 +162,28 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
     private final FlexboxHelper mFlexboxHelper = new FlexboxHelper(this);
 
+    @Nullable
+    private FlexItemSizeEstimator mFlexItemSizeEstimator;
+
+    /** Receives the size from the {@link #mFlexItemSizeEstimator} to avoid allocations. */
+    private final int[] mEstimatedSize = new int[2];
+
+    /**
+     * The detached view standing in for the items whose sizes are estimated by the
+     * {@link #mFlexItemSizeEstimator} or provided by the {@link FlexItemSizeProvider} while the
+     * flex lines are calculated, which is created lazily and shared by all of them.
+     */
+    @Nullable
+    private View mEstimatedFlexItem;
+
+    /**
+     * The positions whose flex lines were calculated with the {@link #mEstimatedFlexItem}. The
+     * views bound for them are measured to the estimated or provided size minus their margins
+     * and decorations when they're laid out, so that they take the same space as in the flex
+     * lines.
+     */
+    private final SparseBooleanArray mEstimatedPositions = new SparseBooleanArray();
+
     /**
      * A snapshot of the {@link RecyclerView.Recycler} instance at a given moment.
      * It's not guaranteed that this instance has a reference to the latest Recycler.
@@ -163,12 +241,84 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      */
     private int mLastHeight = Integer.MIN_VALUE;
 
+    /**
+     * The main size which the current flex lines are calculated for, or
+     * {@link Integer#MIN_VALUE} if unknown.
+     */
+    private int mFlexLinesMainSize = Integer.MIN_VALUE;
+
+    /**
+     * The flex lines calculated for the main sizes other than the current one, which are
+     * restored when the main size changes back to one of them (e.g. by rotating the device back
+     * or resizing the window in the multi window mode). The least recently used ones are
+     * discarded.
+     */
+    private final LinkedHashMap<Integer, KeptFlexLines> mKeptFlexLines =
+            new LinkedHashMap<Integer, KeptFlexLines>(MAX_KEPT_MAIN_SIZES + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, KeptFlexLines> eldest) {
+                    return size() > MAX_KEPT_MAIN_SIZES;
+                }
+            };
+
+    /** @see #setDirectMeasureEnabled(boolean) */
+    private boolean mDirectMeasureEnabled;
+
+    /**
+     * The measure specs passed to {@link #onMeasure} while the flex lines are calculated in it,
+     * or {@link Integer#MIN_VALUE} otherwise. The size of the RecyclerView isn't determined yet
+     * at that time, thus the measure specs of the children are created from these instead.
+     */
+    private int mDirectWidthMeasureSpec = Integer.MIN_VALUE;
+
+    private int mDirectHeightMeasureSpec = Integer.MIN_VALUE;
+
+    /**
+     * The main size for which all the flex lines are calculated in {@link #onMeasure}, which
+     * the following {@link #onLayoutChildren} reuses if the main size is the same, or
+     * {@link Integer#MIN_VALUE} if there are no such flex lines.
+     */
+    private int mDirectlyMeasuredMainSize = Integer.MIN_VALUE;
+
     /**
      * If set to {@code true}, this LayoutManager tries to recycle the children when detached from
      * the RecyclerView so that recycled views can be reused using RecycledViewPool.
      */
     private boolean mRecycleChildrenOnDetach;
 
+    /**
+     * If set to {@code true}, this LayoutManager raises the maximum numbers of the recycled views
+     * in the RecycledViewPool of the RecyclerView according to the observed flex lines.
+     */
+    private boolean mRecycledViewPoolAutoSized;
+
+    /**
+     * The maximum numbers of the recycled views per view type which this LayoutManager has set to
+     * the RecycledViewPool of the RecyclerView it's attached to.
+     */
+    private final SparseIntArray mRecycledViewPoolLimits = new SparseIntArray();
+
+    /**
+     * The maximum numbers of the recycled views per view type which the pool keeps at least,
+     * below which this LayoutManager never sets the limits.
+     */
+    private final SparseIntArray mRecycledViewPoolFloors = new SparseIntArray();
+
+    /**
+     * The indices of the first and the last attached flex lines when the limits of the
+     * RecycledViewPool were updated last, which are compared while scrolling so that the limits
+     * are updated only when the attached flex lines change.
+     */
+    private int mPoolObservedFirstLine = NO_POSITION;
+
+    private int mPoolObservedLastLine = NO_POSITION;
+
+    /** The number of the children per view type in the flex line being observed */
+    private final SparseIntArray mLineViewTypeCounts = new SparseIntArray();
+
+    /** The maximum number of the children per view type in a flex line observed */
+    private final SparseIntArray mMaxLineViewTypeCounts = new SparseIntArray();
+
     /**
      * View cache within this LayoutManager. This is used to avoid the same ViewHolder is created
      * multiple times in the same layout pass (onLayoutChildren or scrollHorizontally or
@@ -182,6 +332,15 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
     /** The reference to the parent of the RecyclerView */
     private View mParent;
 
+    /** The reference to the RecyclerView this LayoutManager is attached to */
+    private RecyclerView mRecyclerView;
+
+    /**
+     * The flex item representing the size of every flex item, set if the flex items are declared
+     * to have the same fixed size through {@link #setFixedItemSize(int, int)}.
+     */
+    private LayoutParams mFixedSizeFlexItem;
+
     /**
      * Indicates the position that the view position that the flex line which has the view having
      * this position needs to be recomputed before the next layout.
@@ -190,6 +349,33 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      */
     private int mDirtyPosition = NO_POSITION;
 
+    /**
+     * The smallest position changed by the adapter since the last layout, including the ones
+     * beyond the visible area unlike {@link #mDirtyPosition}, or {@link RecyclerView#NO_POSITION}
+     * if the adapter hasn't notified any change.
+     */
+    private int mFirstChangedPosition = NO_POSITION;
+
+    /**
+     * The results of the queries for the attached children (such as
+     * {@link #findFirstVisibleItemPosition()}), indexed by the CHILD_QUERY_ constants. They're
+     * reused until the children are laid out or scrolled, e.g. by the computations of the scroll
+     * bars in the same frame.
+     */
+    private final View[] mChildQueryResults = new View[CHILD_QUERY_COUNT];
+
+    /** Whether the result of each query is stored in {@link #mChildQueryResults} */
+    private final boolean[] mChildQueryCached = new boolean[CHILD_QUERY_COUNT];
+
+    /** The number of the attached children when the query results are stored */
+    private int mChildQueryChildCount = NO_POSITION;
+
+    /**
+     * The item count used to find the reference children stored in the query results, which
+     * the visible children don't depend on
+     */
+    private int mChildQueryItemCount = NO_POSITION;
+
     /**
      * Used for storing the results of calculation of flex lines to avoid creating a new instance
      * every time the calculation happens.
@@ -266,7 +452,113 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
     @Override
     public boolean isAutoMeasureEnabled() {
-        return true;
+        return !mDirectMeasureEnabled;
+    }
+
+    /**
+     * @return {@code true} if this LayoutManager measures the RecyclerView by itself
+     * @see #setDirectMeasureEnabled(boolean)
+     */
+    public boolean isDirectMeasureEnabled() {
+        return mDirectMeasureEnabled;
+    }
+
+    /**
+     * Sets whether this LayoutManager measures the RecyclerView by itself instead of relying on
+     * the auto measurement of the RecyclerView, which lays out the children twice when the size
+     * of the RecyclerView is wrap_content. If enabled, the size is derived from the flex lines
+     * calculated once while measuring, which are reused by the following layout. E.g. this is
+     * useful for a wrap_content RecyclerView inside a scrolling parent.
+     *
+     * Note that all the flex lines are calculated while measuring if the size along the cross
+     * axis isn't bounded, thus every item in the adapter is bound at least once.
+     *
+     * @param directMeasureEnabled {@code true} to measure the RecyclerView by this LayoutManager
+     */
+    public void setDirectMeasureEnabled(boolean directMeasureEnabled) {
+        if (mDirectMeasureEnabled != directMeasureEnabled) {
+            mDirectMeasureEnabled = directMeasureEnabled;
+            mDirectlyMeasuredMainSize = Integer.MIN_VALUE;
+            requestLayout();
+        }
+    }
+
+    @Override
+    public void onMeasure(@NonNull RecyclerView.Recycler recycler,
+            @NonNull RecyclerView.State state, int widthSpec, int heightSpec) {
+        if (!mDirectMeasureEnabled) {
+            super.onMeasure(recycler, state, widthSpec, heightSpec);
+            return;
+        }
+        mDirectlyMeasuredMainSize = Integer.MIN_VALUE;
+        boolean mainAxisHorizontal = isMainAxisDirectionHorizontal();
+        int mainSpec = mainAxisHorizontal ? widthSpec : heightSpec;
+        int crossSpec = mainAxisHorizontal ? heightSpec : widthSpec;
+        int itemCount = state.getItemCount();
+        if (itemCount == 0 || View.MeasureSpec.getMode(mainSpec) == View.MeasureSpec.UNSPECIFIED
+                || (View.MeasureSpec.getMode(mainSpec) == View.MeasureSpec.EXACTLY
+                && View.MeasureSpec.getMode(crossSpec) == View.MeasureSpec.EXACTLY)) {
+            // Nothing to calculate or the flex lines can't be wrapped, fall back to the size
+            // determined by the measure specs
+            super.onMeasure(recycler, state, widthSpec, heightSpec);
+            return;
+        }
+
+        mRecycler = recycler;
+        mState = state;
+        // The views of the previous measurement which no layout has used since then
+        recycleViewCache(recycler, state);
+        mFlexLinesMainSize = Integer.MIN_VALUE;
+        mFlexboxHelper.ensureMeasureSpecCache(itemCount);
+        mFlexboxHelper.ensureMeasuredSizeCache(itemCount);
+        mFlexboxHelper.ensureIndexToFlexLine(itemCount);
+        // The flex lines calculated for the previous layout are discarded, so are the indices
+        // of the flex lines which contain the items
+        Arrays.fill(mFlexboxHelper.mIndexToFlexLine, NO_POSITION);
+        mFlexLines.clear();
+        mFlexLinesResult.reset();
+        int needsToFill = View.MeasureSpec.getMode(crossSpec) == View.MeasureSpec.UNSPECIFIED
+                ? Integer.MAX_VALUE : View.MeasureSpec.getSize(crossSpec);
+        mDirectWidthMeasureSpec = widthSpec;
+        mDirectHeightMeasureSpec = heightSpec;
+        try {
+            if (mainAxisHorizontal) {
+                mFlexboxHelper.calculateHorizontalFlexLines(mFlexLinesResult, widthSpec,
+                        heightSpec, needsToFill, 0, mFlexLines);
+            } else {
+                mFlexboxHelper.calculateVerticalFlexLines(mFlexLinesResult, widthSpec,
+                        heightSpec, needsToFill, 0, mFlexLines);
+            }
+            mFlexLines = mFlexLinesResult.mFlexLines;
+            mFlexboxHelper.determineMainSize(widthSpec, heightSpec);
+            mFlexboxHelper.stretchViews();
+        } finally {
+            mDirectWidthMeasureSpec = Integer.MIN_VALUE;
+            mDirectHeightMeasureSpec = Integer.MIN_VALUE;
+        }
+
+        int mainSize;
+        if (View.MeasureSpec.getMode(mainSpec) == View.MeasureSpec.EXACTLY) {
+            mainSize = View.MeasureSpec.getSize(mainSpec);
+        } else {
+            mainSize = Math.min(getLargestMainSize(), View.MeasureSpec.getSize(mainSpec));
+            mainSize = Math.max(mainSize, mainAxisHorizontal ? getMinimumWidth()
+                    : getMinimumHeight());
+        }
+        int crossPadding = mainAxisHorizontal ? getPaddingTop() + getPaddingBottom()
+                : getPaddingLeft() + getPaddingRight();
+        int crossSize = chooseSize(crossSpec, getSumOfCrossSize() + crossPadding,
+                mainAxisHorizontal ? getMinimumHeight() : getMinimumWidth());
+        if (mainAxisHorizontal) {
+            setMeasuredDimension(mainSize, crossSize);
+        } else {
+            setMeasuredDimension(crossSize, mainSize);
+        }
+        if (View.MeasureSpec.getMode(mainSpec) == View.MeasureSpec.EXACTLY) {
+            // The flex lines are calculated for the same main size as the following layout
+            // pass
+            mDirectlyMeasuredMainSize = mainSize;
+        }
     }
 
     // From here, methods from FlexContainer
@@ -373,6 +665,140 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         }
     }
 
+    @MaxLineOverflow
+    @Override
+    public int getMaxLineOverflow() {
+        return mMaxLineOverflow;
+    }
+
+    @Override
+    public void setMaxLineOverflow(@MaxLineOverflow int maxLineOverflow) {
+        if (mMaxLineOverflow != maxLineOverflow) {
+            mMaxLineOverflow = maxLineOverflow;
+            removeAllViews();
+            clearFlexLines();
+            requestLayout();
+        }
+    }
+
+    @Override
+    public int getRowGap() {
+        return mRowGap;
+    }
+
+    @Override
+    public void setRowGap(int rowGap) {
+        if (rowGap < 0) {
+            throw new IllegalArgumentException("rowGap must not be negative: " + rowGap);
+        }
+        if (mRowGap != rowGap) {
+            mRowGap = rowGap;
+            removeAllViews();
+            clearFlexLines();
+            requestLayout();
+        }
+    }
+
+    @Override
+    public int getColumnGap() {
+        return mColumnGap;
+    }
+
+    @Override
+    public void setColumnGap(int columnGap) {
+        if (columnGap < 0) {
+            throw new IllegalArgumentException("columnGap must not be negative: " + columnGap);
+        }
+        if (mColumnGap != columnGap) {
+            mColumnGap = columnGap;
+            removeAllViews();
+            clearFlexLines();
+            requestLayout();
+        }
+    }
+
+    /**
+     * @return the number of items hidden by the {@link MaxLineOverflow#CLIP} policy. The value is
+     * known once the flex lines up to the one limited by the maxLine attribute are calculated,
+     * 0 is returned until then.
+     */
+    public int getClippedItemCount() {
+        return mClippedItemCount;
+    }
+
+    /**
+     * Sets the listener to be notified when the number of items hidden by the
+     * {@link MaxLineOverflow#CLIP} policy changes.
+     *
+     * @param listener the listener, or {@code null} to remove the current one
+     */
+    public void setOnItemsClippedListener(@Nullable OnItemsClippedListener listener) {
+        mOnItemsClippedListener = listener;
+    }
+
+    /**
+     * Declares that every flex item has the same fixed size, i.e. every item's layout_width and
+     * layout_height are the given exact values without margins, and no minimum/maximum size
+     * constraints, flex basis percent, flex grow or flex shrink attributes take effect.
+     * Once declared, the flex lines are computed arithmetically from the declared size instead of
+     * binding and measuring each view, thus only the views which actually become visible are
+     * bound and measured.
+     *
+     * The declared size is ignored while any item decoration is added to the RecyclerView, the
+     * align items attribute is {@link AlignItems#BASELINE} or a {@link FlexSectionLookup} is set,
+     * since they depend on each view.
+     *
+     * @param width  the width of every flex item in pixels, or a negative value to clear the
+     *               declared size
+     * @param height the height of every flex item in pixels, or a negative value to clear the
+     *               declared size
+     */
+    public void setFixedItemSize(int width, int height) {
+        if (width < 0 || height < 0) {
+            if (mFixedSizeFlexItem != null) {
+                mFixedSizeFlexItem = null;
+                clearFlexLines();
+                requestLayout();
+            }
+            return;
+        }
+        if (mFixedSizeFlexItem != null && mFixedSizeFlexItem.width == width
+                && mFixedSizeFlexItem.height == height) {
+            return;
+        }
+        LayoutParams fixedSizeFlexItem = new LayoutParams(width, height);
+        fixedSizeFlexItem.setFlexShrink(FlexItem.FLEX_SHRINK_NOT_SET);
+        mFixedSizeFlexItem = fixedSizeFlexItem;
+        clearFlexLines();
+        requestLayout();
+    }
+
+    /**
+     * @return {@code true} if the flex items are declared to have the same fixed size through
+     * {@link #setFixedItemSize(int, int)}, {@code false} otherwise
+     */
+    public boolean hasFixedItemSize() {
+        return mFixedSizeFlexItem != null;
+    }
+
+    /**
+     * @return the number of child measurements skipped since this layout manager was created because
+     * the size of a flex item resolved from its flexGrow or flexShrink attribute was the same as
+     * its measured size
+     */
+    public long getFlexMeasureSkipCount() {
+        return mFlexboxHelper.mFlexMeasureSkipCount;
+    }
+
+    /**
+     * @return the number of child measurements skipped since this layout manager was created because
+     * a flex item to be stretched by the {@link AlignItems#STRETCH} (or {@link AlignSelf#STRETCH})
+     * attribute already had the stretched size
+     */
+    public long getStretchMeasureSkipCount() {
+        return mFlexboxHelper.mStretchMeasureSkipCount;
+    }
+
     @Override
     @NonNull
     public List<FlexLine> getFlexLines() {
@@ -407,6 +833,11 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
     @Override
     public void onNewFlexItemAdded(View view, int index, int indexInFlexLine, FlexLine flexLine) {
+        if (view == mEstimatedFlexItem) {
+            // The decorations can't be calculated without a ViewHolder, they're added when the
+            // item is laid out
+            return;
+        }
         // To avoid creating a new Rect instance every time, passing the same Rect instance
         // since calculated decorations are assigned to view's LayoutParams inside the
         // calculateItemDecorationsForChild method anyway.
@@ -457,6 +888,9 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         if (cachedView != null) {
             return cachedView;
         }
+        if (mFlexboxHelper.mMetrics != null) {
+            mFlexboxHelper.mMetrics.mBoundViewCount++;
+        }
         return mRecycler.getViewForPosition(index);
     }
 
@@ -467,6 +901,9 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      * part of the layout is needed.
      * Implementing this method just to make this class conform to the
      * {@link FlexContainer} interface.
+     * If the {@link FlexItemSizeEstimator} estimates the size of the item, a detached view of
+     * that size is returned instead of binding the view for the index, since this method is only
+     * used by the flex line calculation.
      *
      * @param index the index of the view
      * @return the view for the given index.
@@ -475,9 +912,42 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      */
     @Override
     public View getReorderedFlexItemAt(int index) {
+        if (mFlexItemSizeEstimator != null && mViewCache.get(index) == null
+                && mFlexItemSizeEstimator.getEstimatedSize(index, mEstimatedSize)) {
+            mEstimatedPositions.put(index, true);
+            return getEstimatedFlexItem(mEstimatedSize[0], mEstimatedSize[1]);
+        }
+        mEstimatedPositions.delete(index);
         return getFlexItemAt(index);
     }
 
+    /**
+     * Returns the view standing in for the item whose size is provided by the
+     * {@link FlexItemSizeProvider} unless the view for the index is already bound, so that the
+     * view is bound and measured only when the item is laid out.
+     */
+    @Override
+    public View getSizedFlexItemAt(int index, int width, int height) {
+        View cachedView = mViewCache.get(index);
+        if (cachedView != null) {
+            mEstimatedPositions.delete(index);
+            return cachedView;
+        }
+        mEstimatedPositions.put(index, true);
+        return getEstimatedFlexItem(width, height);
+    }
+
+    private View getEstimatedFlexItem(int width, int height) {
+        if (mEstimatedFlexItem == null) {
+            mEstimatedFlexItem = new View(mContext);
+            mEstimatedFlexItem.setLayoutParams(new LayoutParams(width, height));
+        }
+        LayoutParams lp = (LayoutParams) mEstimatedFlexItem.getLayoutParams();
+        lp.width = width;
+        lp.height = height;
+        return mEstimatedFlexItem;
+    }
+
     @Override
     public void onNewFlexLineAdded(FlexLine flexLine) {
         // No op
@@ -485,12 +955,22 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
     @Override
     public int getChildWidthMeasureSpec(int widthSpec, int padding, int childDimension) {
+        if (mDirectWidthMeasureSpec != Integer.MIN_VALUE) {
+            return getChildMeasureSpec(View.MeasureSpec.getSize(mDirectWidthMeasureSpec),
+                    View.MeasureSpec.getMode(mDirectWidthMeasureSpec), padding, childDimension,
+                    canScrollHorizontally());
+        }
         return getChildMeasureSpec(getWidth(), getWidthMode(), padding, childDimension,
                 canScrollHorizontally());
     }
 
     @Override
     public int getChildHeightMeasureSpec(int heightSpec, int padding, int childDimension) {
+        if (mDirectHeightMeasureSpec != Integer.MIN_VALUE) {
+            return getChildMeasureSpec(View.MeasureSpec.getSize(mDirectHeightMeasureSpec),
+                    View.MeasureSpec.getMode(mDirectHeightMeasureSpec), padding, childDimension,
+                    canScrollVertically());
+        }
         return getChildMeasureSpec(getHeight(), getHeightMode(), padding, childDimension,
                 canScrollVertically());
     }
@@ -516,6 +996,10 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
             // TODO: Consider adding decorator between flex lines.
             sum += flexLine.mCrossSize;
         }
+        if (mFlexLines.size() > 1) {
+            sum += mFlexboxHelper.getGapCross(isMainAxisDirectionHorizontal())
+                    * (mFlexLines.size() - 1);
+        }
         return sum;
     }
 
@@ -531,8 +1015,21 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
     @Override
     public void updateViewCache(int position, View view) {
+        if (view == mEstimatedFlexItem) {
+            // The actual view needs to be bound when the item is laid out
+            return;
+        }
         mViewCache.put(position, view);
     }
+
+    @Override
+    public FlexItem getFixedSizeFlexItem() {
+        if (mFixedSizeFlexItem == null || mAlignItems == AlignItems.BASELINE
+                || (mRecyclerView != null && mRecyclerView.getItemDecorationCount() > 0)) {
+            return null;
+        }
+        return mFixedSizeFlexItem;
+    }
     // The end of methods from FlexContainer
 
     // ScrollVectorProvider method
@@ -572,6 +1069,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
     @Override
     public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
         removeAllViews();
+        mKeptFlexLines.clear();
     }
 
     @Override
@@ -638,7 +1136,17 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         updateDirtyPosition(Math.min(from, to));
     }
 
+    @Override
+    public void onItemsChanged(@NonNull RecyclerView recyclerView) {
+        super.onItemsChanged(recyclerView);
+        mFirstChangedPosition = 0;
+        mKeptFlexLines.clear();
+    }
+
     private void updateDirtyPosition(int positionStart) {
+        mKeptFlexLines.clear();
+        mFirstChangedPosition = mFirstChangedPosition == NO_POSITION ? positionStart
+                : Math.min(mFirstChangedPosition, positionStart);
         int lastVisiblePosition = findLastVisibleItemPosition();
         if (positionStart >= lastVisiblePosition) {
             return;
@@ -663,14 +1171,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         // Assign the pending scroll position and offset so that the first visible position is
         // restored in the next layout.
         mPendingScrollPosition = getPosition(firstView);
-
-        if (!isMainAxisDirectionHorizontal() && mIsRtl) {
-            mPendingScrollPositionOffset = mOrientationHelper.getDecoratedEnd(firstView) +
-                    mOrientationHelper.getEndPadding();
-        } else {
-            mPendingScrollPositionOffset = mOrientationHelper.getDecoratedStart(firstView) -
-                    mOrientationHelper.getStartAfterPadding();
-        }
+        mPendingScrollPositionOffset = getOffsetFromStart(firstView);
     }
 
     @Override
@@ -697,6 +1198,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         // LayoutManager#getChildCount doesn't include the views that are detached or scrapped.
         mRecycler = recycler;
         mState = state;
+        invalidateChildQueries();
         int childCount = state.getItemCount();
         if (childCount == 0 && state.isPreLayout()) {
             return;
@@ -709,6 +1211,15 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
         mFlexboxHelper.ensureIndexToFlexLine(childCount);
 
+        int dirtyFlexLinePosition = findFirstPositionOfDirtyFlexLine(state);
+        if (dirtyFlexLinePosition != NO_POSITION) {
+            // The flex lines prior to the dirty one don't change, keep their attached children
+            // as they are and lay out the rest from the dirty flex line
+            layoutFromDirtyFlexLine(recycler, state, childCount, dirtyFlexLinePosition);
+            recycleViewCache(recycler, state);
+            return;
+        }
+
         mLayoutState.mShouldRecycle = false;
 
         if (mPendingSavedState != null && mPendingSavedState.hasValidAnchor(childCount)) {
@@ -782,6 +1293,40 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
                 fixLayoutEndGap(endOffset, recycler, state, false);
             }
         }
+        recycleViewCache(recycler, state);
+    }
+
+    /**
+     * Recycles the views in {@link #mViewCache} bound for the flex line calculation but not laid
+     * out, e.g. the ones beyond the visible area or the ones measured in {@link #onMeasure} for
+     * a layout which doesn't take place, then clears the cache. The RecyclerView isn't aware of
+     * such views unless they're scrapped, thus each of them needs to be either added or recycled
+     * so that its ViewHolder is reused. The scrapped views are left to the RecyclerView, which
+     * recycles or animates them after the layout.
+     *
+     * The cache is kept in the pre-layout pass since the following layout pass uses it.
+     */
+    private void recycleViewCache(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (state.isPreLayout()) {
+            return;
+        }
+        List<RecyclerView.ViewHolder> scrapList = recycler.getScrapList();
+        for (int i = 0, size = mViewCache.size(); i < size; i++) {
+            View view = mViewCache.valueAt(i);
+            if (view.getParent() == null && !isScrapped(view, scrapList)) {
+                recycler.recycleView(view);
+            }
+        }
+        mViewCache.clear();
+    }
+
+    private static boolean isScrapped(View view, List<RecyclerView.ViewHolder> scrapList) {
+        for (int i = 0, size = scrapList.size(); i < size; i++) {
+            if (scrapList.get(i).itemView == view) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -861,6 +1406,153 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         return fixOffset;
     }
 
+    /**
+     * Returns the first position of the first flex line affected by the changes of the adapter
+     * since the last layout if the flex lines prior to it can stay as they are along with their
+     * attached children. The flex line containing the item prior to the first changed one is
+     * affected too, since the changed item may now fit in it. Otherwise returns
+     * {@link RecyclerView#NO_POSITION}, which means all the children need to be laid out again.
+     */
+    private int findFirstPositionOfDirtyFlexLine(RecyclerView.State state) {
+        if (mFirstChangedPosition == NO_POSITION || state.isPreLayout()
+                || state.willRunPredictiveAnimations() || mPendingSavedState != null
+                || mFlexWrap == FlexWrap.NOWRAP || mLastWidth != getWidth()
+                || mLastHeight != getHeight()
+                || mDirectlyMeasuredMainSize != Integer.MIN_VALUE) {
+            return NO_POSITION;
+        }
+        if (mPendingScrollPosition != NO_POSITION && !isPendingScrollKeepingChildren()) {
+            return NO_POSITION;
+        }
+        int childCount = getChildCount();
+        if (childCount == 0 || mFlexLines.isEmpty()) {
+            return NO_POSITION;
+        }
+        assert mFlexboxHelper.mIndexToFlexLine != null;
+        int lastUnchangedPosition = Math.max(mFirstChangedPosition - 1, 0);
+        int lastCalculatedPosition = mFlexLines.get(mFlexLines.size() - 1).mLastIndex;
+        int dirtyPosition;
+        if (lastUnchangedPosition > lastCalculatedPosition) {
+            // All the calculated flex lines are prior to the changed items
+            dirtyPosition = lastCalculatedPosition + 1;
+        } else {
+            if (lastUnchangedPosition >= mFlexboxHelper.mIndexToFlexLine.length) {
+                return NO_POSITION;
+            }
+            int dirtyFlexLine = mFlexboxHelper.mIndexToFlexLine[lastUnchangedPosition];
+            if (dirtyFlexLine == NO_POSITION || dirtyFlexLine >= mFlexLines.size()) {
+                return NO_POSITION;
+            }
+            dirtyPosition = mFlexLines.get(dirtyFlexLine).mFirstIndex;
+        }
+        boolean anyChildKept = false;
+        boolean anyChildDirty = false;
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if (child == null) {
+                continue;
+            }
+            if (getPosition(child) >= dirtyPosition) {
+                anyChildDirty = true;
+            } else if (child.isLayoutRequested()) {
+                // The child needs to be measured again
+                return NO_POSITION;
+            } else {
+                anyChildKept = true;
+            }
+        }
+        if (!anyChildKept || (anyChildDirty && mFlexWrap != FlexWrap.WRAP)) {
+            // The dirty flex line is the first attached one, whose first visible child needs to
+            // be anchored again, or the dirty flex lines are filled toward the start
+            return NO_POSITION;
+        }
+        return dirtyPosition;
+    }
+
+    /**
+     * @return {@code true} if the pending scroll is the one assigned by
+     * {@link #updateDirtyPosition(int)} and keeps the first attached child at its current
+     * position, thus the attached children prior to the dirty flex line can stay as they are
+     */
+    private boolean isPendingScrollKeepingChildren() {
+        if (mDirtyPosition == NO_POSITION) {
+            return false;
+        }
+        View firstView = getChildClosestToStart();
+        return firstView != null && getPosition(firstView) == mPendingScrollPosition
+                && getOffsetFromStart(firstView) == mPendingScrollPositionOffset;
+    }
+
+    /**
+     * @return the offset of the given child from the start of the visible area, which is kept by
+     * a pending scroll to the position of the child
+     */
+    private int getOffsetFromStart(View child) {
+        if (!isMainAxisDirectionHorizontal() && mIsRtl) {
+            return mOrientationHelper.getDecoratedEnd(child) + mOrientationHelper.getEndPadding();
+        } else {
+            return mOrientationHelper.getDecoratedStart(child)
+                    - mOrientationHelper.getStartAfterPadding();
+        }
+    }
+
+    /**
+     * Lays out the children from the dirty flex line, keeping the children attached prior to it
+     * at their current positions. Only the children at or after the first position of the dirty
+     * flex line are detached and scrapped, and the visible area is filled from the start of the
+     * dirty flex line. If no child is attached at or after the dirty flex line, the attached
+     * children fill the visible area and the following flex lines are recalculated as the user
+     * scrolls to them.
+     *
+     * @param itemCount     the number of the items in the adapter
+     * @param dirtyPosition the first position of the dirty flex line
+     */
+    private void layoutFromDirtyFlexLine(RecyclerView.Recycler recycler, RecyclerView.State state,
+            int itemCount, int dirtyPosition) {
+        boolean columnAndRtl = !isMainAxisDirectionHorizontal() && mIsRtl;
+        int coordinate = INVALID_OFFSET;
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            if (child == null || getPosition(child) < dirtyPosition) {
+                continue;
+            }
+            // The dirty flex line starts where its children start, which are laid out prior to
+            // the following flex lines
+            if (columnAndRtl) {
+                int childStart = mOrientationHelper.getDecoratedEnd(child);
+                coordinate = coordinate == INVALID_OFFSET ? childStart
+                        : Math.max(coordinate, childStart);
+            } else {
+                int childStart = mOrientationHelper.getDecoratedStart(child);
+                coordinate = coordinate == INVALID_OFFSET ? childStart
+                        : Math.min(coordinate, childStart);
+            }
+            detachAndScrapViewAt(i, recycler);
+        }
+        if (coordinate == INVALID_OFFSET) {
+            // The attached children don't change, recalculate the following flex lines as the
+            // user scrolls to them
+            if (dirtyPosition <= mFlexLines.get(mFlexLines.size() - 1).mLastIndex) {
+                mFlexboxHelper.clearFlexLines(mFlexLines, dirtyPosition);
+            }
+            return;
+        }
+
+        mLayoutState.mShouldRecycle = false;
+        assert mFlexboxHelper.mIndexToFlexLine != null;
+        mAnchorInfo.reset();
+        mAnchorInfo.mPosition = dirtyPosition;
+        mAnchorInfo.mFlexLinePosition = mFlexboxHelper.mIndexToFlexLine[dirtyPosition];
+        mAnchorInfo.mCoordinate = coordinate;
+        mAnchorInfo.mValid = true;
+        updateLayoutStateToFillEnd(mAnchorInfo, false, true);
+        updateFlexLines(itemCount);
+        fill(recycler, state, mLayoutState);
+        if (getChildCount() > 0) {
+            fixLayoutEndGap(mLayoutState.mOffset, recycler, state, false);
+        }
+    }
+
     private void updateFlexLines(int childCount) {
         //noinspection ResourceType
         int widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(getWidth(), getWidthMode());
@@ -897,15 +1589,60 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
                     : mLayoutState.mAvailable;
         }
 
+        int lastMainSize = isMainAxisDirectionHorizontal() ? mLastWidth : mLastHeight;
+        int mainSize = isMainAxisDirectionHorizontal() ? width : height;
         mLastWidth = width;
         mLastHeight = height;
 
+        int directlyMeasuredMainSize = mDirectlyMeasuredMainSize;
+        mDirectlyMeasuredMainSize = Integer.MIN_VALUE;
+        if (directlyMeasuredMainSize == (isMainAxisDirectionHorizontal() ? width : height)
+                && mDirtyPosition == NO_POSITION && mPendingScrollPosition == NO_POSITION
+                && !mState.isPreLayout()) {
+            // The flex lines have just been calculated for the same main size in onMeasure
+            mFlexLinesMainSize = mainSize;
+            int lastIndex = mFlexLines.isEmpty()
+                    ? NO_POSITION : mFlexLines.get(mFlexLines.size() - 1).mLastIndex;
+            if (mAnchorInfo.mPosition <= lastIndex) {
+                return;
+            }
+            // onMeasure stopped before the anchor position, e.g. the RecyclerView scrolled
+            // beyond the space bounding its cross size. Continue the flex lines up to the anchor
+            // position
+            int fromIndex = lastIndex + 1;
+            mFlexLinesResult.reset();
+            if (isMainAxisDirectionHorizontal()) {
+                mFlexboxHelper.calculateFlexLines(mFlexLinesResult, widthMeasureSpec,
+                        heightMeasureSpec, needsToFill, fromIndex, mAnchorInfo.mPosition,
+                        mFlexLines);
+            } else {
+                mFlexboxHelper.calculateFlexLines(mFlexLinesResult, heightMeasureSpec,
+                        widthMeasureSpec, needsToFill, fromIndex, mAnchorInfo.mPosition,
+                        mFlexLines);
+            }
+            mFlexLines = mFlexLinesResult.mFlexLines;
+            mFlexboxHelper.determineMainSize(widthMeasureSpec, heightMeasureSpec, fromIndex);
+            mFlexboxHelper.stretchViews(fromIndex);
+            assert mFlexboxHelper.mIndexToFlexLine != null;
+            mAnchorInfo.mFlexLinePosition =
+                    mFlexboxHelper.mIndexToFlexLine[mAnchorInfo.mPosition];
+            mLayoutState.mFlexLinePosition = mAnchorInfo.mFlexLinePosition;
+            return;
+        }
+
         if (mDirtyPosition == NO_POSITION &&
                 (mPendingScrollPosition != NO_POSITION || isMainSizeChanged)) {
             if (mAnchorInfo.mLayoutFromEnd) {
                 // Prior flex lines should be already calculated, don't have to be updated
                 return;
             }
+            if (isMainSizeChanged) {
+                keepFlexLines(lastMainSize, childCount);
+                if (restoreKeptFlexLines(mainSize, childCount, widthMeasureSpec,
+                        heightMeasureSpec, needsToFill)) {
+                    return;
+                }
+            }
             // TODO: This path may need another consideration to not calculate the entire flex
             // lines prior to the anchor position since it may cause noticeable amount of
             // skipped frames.
@@ -934,7 +1671,16 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
             mFlexboxHelper.stretchViews();
             mAnchorInfo.mFlexLinePosition =
                     mFlexboxHelper.mIndexToFlexLine[mAnchorInfo.mPosition];
+            if (mAnchorInfo.mFlexLinePosition == NO_POSITION
+                    && mFlexLinesResult.mFirstClippedIndex != NO_POSITION
+                    && mFlexLines.size() > 0) {
+                // The anchor position is hidden by the MaxLineOverflow#CLIP policy, anchor to
+                // the last flex line instead
+                mAnchorInfo.mFlexLinePosition = mFlexLines.size() - 1;
+                mAnchorInfo.mPosition = mFlexLines.get(mAnchorInfo.mFlexLinePosition).mFirstIndex;
+            }
             mLayoutState.mFlexLinePosition = mAnchorInfo.mFlexLinePosition;
+            mFlexLinesMainSize = mainSize;
         } else {
             // Calculate the flex lines until the calculated cross size reaches the
             // LayoutState#mAvailable (or until the end of the flex container)
@@ -951,6 +1697,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
                     // changed) and calculate beyond the available amount
                     // (visible area that needs to be filled)
                     mFlexboxHelper.clearFlexLines(mFlexLines, fromIndex);
+                    recordReusedFlexLines();
                     mFlexboxHelper.calculateFlexLines(mFlexLinesResult, widthMeasureSpec,
                             heightMeasureSpec, needsToFill, fromIndex, mAnchorInfo.mPosition,
                             mFlexLines);
@@ -968,6 +1715,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
                     // changed) and calculate beyond the available amount
                     // (visible area that needs to be filled)
                     mFlexboxHelper.clearFlexLines(mFlexLines, fromIndex);
+                    recordReusedFlexLines();
                     mFlexboxHelper.calculateFlexLines(mFlexLinesResult, heightMeasureSpec,
                             widthMeasureSpec, needsToFill, fromIndex, mAnchorInfo.mPosition,
                             mFlexLines);
@@ -990,21 +1738,227 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
             // be true at the same time. Because it's scrollable along the cross axis
             // or even if not (when flex wrap is "nowrap") the size of the flex lines should be 1.
             mFlexboxHelper.stretchViews(fromIndex);
+            // The flex lines before the fromIndex may have been calculated for another main size
+            mFlexLinesMainSize = fromIndex == 0 || mFlexLinesMainSize == mainSize
+                    ? mainSize : Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Keeps the current flex lines and the caches of the flex items to be restored when the main
+     * size changes back to the given one.
+     *
+     * @param mainSize  the main size which the current flex lines are calculated for
+     * @param itemCount the number of the items in the adapter
+     */
+    private void keepFlexLines(int mainSize, int itemCount) {
+        if (mainSize == Integer.MIN_VALUE || mFlexLinesMainSize != mainSize
+                || mFirstChangedPosition != NO_POSITION || mFlexLines.isEmpty()) {
+            return;
+        }
+        // Only the items in the calculated flex lines have the caches
+        FlexboxHelper.ItemCaches itemCaches = mFlexboxHelper
+                .copyItemCaches(mFlexLines.get(mFlexLines.size() - 1).mLastIndex + 1);
+        if (itemCaches == null) {
+            return;
+        }
+        mKeptFlexLines.put(mainSize,
+                new KeptFlexLines(new ArrayList<>(mFlexLines), itemCaches, itemCount));
+    }
+
+    /**
+     * Restores the flex lines kept for the given main size if they include the anchor position,
+     * calculating the following flex lines if the kept ones don't fill the visible area.
+     *
+     * @return {@code true} if the flex lines are restored
+     */
+    private boolean restoreKeptFlexLines(int mainSize, int itemCount, int widthMeasureSpec,
+            int heightMeasureSpec, int needsToFill) {
+        KeptFlexLines kept = mKeptFlexLines.remove(mainSize);
+        if (kept == null || kept.mItemCount != itemCount) {
+            return false;
+        }
+        FlexLine lastFlexLine = kept.mFlexLines.get(kept.mFlexLines.size() - 1);
+        int anchorPosition = mAnchorInfo.mPosition;
+        if (anchorPosition < 0 || anchorPosition > lastFlexLine.mLastIndex) {
+            return false;
+        }
+        int anchorFlexLine = kept.mItemCaches.mIndexToFlexLine[anchorPosition];
+        if (anchorFlexLine == NO_POSITION) {
+            return false;
+        }
+        mFlexLines = kept.mFlexLines;
+        mFlexboxHelper.restoreItemCaches(kept.mItemCaches);
+        recordReusedFlexLines();
+
+        int filled = 0;
+        for (int i = anchorFlexLine, size = mFlexLines.size(); i < size; i++) {
+            filled += mFlexLines.get(i).mCrossSize;
+        }
+        int fromIndex = lastFlexLine.mLastIndex + 1;
+        if (filled < needsToFill && fromIndex < itemCount
+                && (mMaxLine == NOT_SET || mFlexLines.size() < mMaxLine)) {
+            mFlexLinesResult.reset();
+            if (isMainAxisDirectionHorizontal()) {
+                mFlexboxHelper.calculateHorizontalFlexLines(mFlexLinesResult, widthMeasureSpec,
+                        heightMeasureSpec, needsToFill - filled, fromIndex, mFlexLines);
+            } else {
+                mFlexboxHelper.calculateVerticalFlexLines(mFlexLinesResult, widthMeasureSpec,
+                        heightMeasureSpec, needsToFill - filled, fromIndex, mFlexLines);
+            }
+            mFlexLines = mFlexLinesResult.mFlexLines;
+            mFlexboxHelper.determineMainSize(widthMeasureSpec, heightMeasureSpec, fromIndex);
+            mFlexboxHelper.stretchViews(fromIndex);
+        }
+        mAnchorInfo.mFlexLinePosition = anchorFlexLine;
+        mLayoutState.mFlexLinePosition = anchorFlexLine;
+        mFlexLinesMainSize = mainSize;
+        return true;
+    }
+
+    @Override
+    public void onLayoutCompleted(RecyclerView.State state) {
+        super.onLayoutCompleted(state);
+        if (DEBUG) {
+            Log.d(TAG, "onLayoutCompleted. " + state);
+        }
+        mPendingSavedState = null;
+        mPendingScrollPosition = NO_POSITION;
+        mPendingScrollPositionOffset = INVALID_OFFSET;
+        mDirtyPosition = NO_POSITION;
+        mFirstChangedPosition = NO_POSITION;
+        mDirectlyMeasuredMainSize = Integer.MIN_VALUE;
+        mAnchorInfo.reset();
+        mViewCache.clear();
+        invalidateChildQueries();
+        updateClippedItemCount();
+        updateRecycledViewPoolLimits();
+        dispatchLayoutPassCompleted();
+    }
+
+    /**
+     * Sets the listener to be notified of the metrics of each layout pass. The metrics are
+     * collected only while the listener is set.
+     *
+     * @param listener the listener, or {@code null} to stop collecting the metrics
+     */
+    public void setFlexboxLayoutListener(@Nullable FlexboxLayoutListener listener) {
+        mFlexboxLayoutListener = listener;
+        mFlexboxHelper.mMetrics = listener != null ? new FlexboxLayoutMetrics() : null;
+    }
+
+    /**
+     * Sets the provider of the sizes of the flex items computed ahead of the measurement (e.g. from
+     * the text metrics precomputed on a background thread). The flex lines containing an item
+     * whose size is provided are calculated without binding its view, which is bound and
+     * measured exactly to that size when the item is laid out.
+     *
+     * @param sizeProvider the provider, or {@code null} to measure all the flex items as usual
+     */
+    public void setFlexItemSizeProvider(@Nullable FlexItemSizeProvider sizeProvider) {
+        if (mFlexboxHelper.mFlexItemSizeProvider != sizeProvider) {
+            mFlexboxHelper.mFlexItemSizeProvider = sizeProvider;
+            removeAllViews();
+            clearFlexLines();
+            requestLayout();
         }
     }
 
-    @Override
-    public void onLayoutCompleted(RecyclerView.State state) {
-        super.onLayoutCompleted(state);
-        if (DEBUG) {
-            Log.d(TAG, "onLayoutCompleted. " + state);
+    /**
+     * @return the provider of the sizes of the flex items, or {@code null} if not set
+     */
+    @Nullable
+    public FlexItemSizeProvider getFlexItemSizeProvider() {
+        return mFlexboxHelper.mFlexItemSizeProvider;
+    }
+
+    /**
+     * Sets the estimator of the sizes of the items which aren't loaded yet (e.g. the placeholders
+     * of a paged data source). The flex lines containing such items are calculated with the
+     * estimated sizes without binding their views, e.g. when scrolling to a position far from
+     * the current one.
+     *
+     * @param sizeEstimator the estimator, or {@code null} to bind and measure all the items
+     */
+    public void setFlexItemSizeEstimator(@Nullable FlexItemSizeEstimator sizeEstimator) {
+        if (mFlexItemSizeEstimator != sizeEstimator) {
+            mFlexItemSizeEstimator = sizeEstimator;
+            removeAllViews();
+            clearFlexLines();
+            requestLayout();
+        }
+    }
+
+    /**
+     * @return the estimator of the sizes of the items which aren't loaded, or {@code null} if not
+     * set
+     */
+    @Nullable
+    public FlexItemSizeEstimator getFlexItemSizeEstimator() {
+        return mFlexItemSizeEstimator;
+    }
+
+    /**
+     * Sets the lookup dividing the items into sections. Each section starts a new flex line and
+     * may have its own justifyContent and alignItems, so that sections of flex items can be laid
+     * out by this LayoutManager without nesting a RecyclerView for each of them.
+     *
+     * @param sectionLookup the lookup, or {@code null} to lay out all the items as one section
+     */
+    public void setSectionLookup(@Nullable FlexSectionLookup sectionLookup) {
+        if (mFlexboxHelper.mSectionLookup != sectionLookup) {
+            mFlexboxHelper.mSectionLookup = sectionLookup;
+            removeAllViews();
+            clearFlexLines();
+            requestLayout();
+        }
+    }
+
+    /**
+     * @return the lookup dividing the items into sections, or {@code null} if not set
+     */
+    @Nullable
+    public FlexSectionLookup getSectionLookup() {
+        return mFlexboxHelper.mSectionLookup;
+    }
+
+    private void dispatchLayoutPassCompleted() {
+        FlexboxLayoutMetrics metrics = mFlexboxHelper.mMetrics;
+        if (mFlexboxLayoutListener == null || metrics == null) {
+            return;
+        }
+        mFlexboxLayoutListener.onLayoutPassCompleted(metrics);
+        metrics.reset();
+    }
+
+    /**
+     * Adds the number of the current flex lines to the metrics as reused, called once in a layout
+     * pass right after the flex lines calculated in an earlier pass are taken, i.e. the ones
+     * prior to the position to calculate from or the restored kept ones.
+     */
+    private void recordReusedFlexLines() {
+        if (mFlexboxHelper.mMetrics != null) {
+            mFlexboxHelper.mMetrics.mReusedLineCount += mFlexLines.size();
+        }
+    }
+
+    /**
+     * Updates the number of items hidden by the {@link MaxLineOverflow#CLIP} policy from the
+     * calculated flex lines and notifies the {@link OnItemsClippedListener} if it's changed.
+     */
+    private void updateClippedItemCount() {
+        int clippedItemCount = 0;
+        if (mMaxLine != NOT_SET && mMaxLineOverflow == MaxLineOverflow.CLIP
+                && mFlexLines.size() >= mMaxLine) {
+            FlexLine lastFlexLine = mFlexLines.get(mFlexLines.size() - 1);
+            clippedItemCount = Math.max(getItemCount() - lastFlexLine.mLastIndex - 1, 0);
+        }
+        if (mClippedItemCount != clippedItemCount) {
+            mClippedItemCount = clippedItemCount;
+            if (mOnItemsClippedListener != null) {
+                mOnItemsClippedListener.onItemsClipped(clippedItemCount);
+            }
         }
-        mPendingSavedState = null;
-        mPendingScrollPosition = NO_POSITION;
-        mPendingScrollPositionOffset = INVALID_OFFSET;
-        mDirtyPosition = NO_POSITION;
-        mAnchorInfo.reset();
-        mViewCache.clear();
     }
 
     boolean isLayoutRtl() {
@@ -1186,6 +2140,15 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      * @return the reference view
      */
     private View findFirstReferenceChild(int itemCount) {
+        if (isChildQueryCached(CHILD_QUERY_FIRST_REFERENCE, itemCount)) {
+            return mChildQueryResults[CHILD_QUERY_FIRST_REFERENCE];
+        }
+        View referenceChild = findFirstReferenceChildInternal(itemCount);
+        cacheChildQuery(CHILD_QUERY_FIRST_REFERENCE, itemCount, referenceChild);
+        return referenceChild;
+    }
+
+    private View findFirstReferenceChildInternal(int itemCount) {
         assert mFlexboxHelper.mIndexToFlexLine != null;
         View firstFound = findReferenceChild(0, getChildCount(), itemCount);
         if (firstFound == null) {
@@ -1209,6 +2172,15 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      * @return the reference view
      */
     private View findLastReferenceChild(int itemCount) {
+        if (isChildQueryCached(CHILD_QUERY_LAST_REFERENCE, itemCount)) {
+            return mChildQueryResults[CHILD_QUERY_LAST_REFERENCE];
+        }
+        View referenceChild = findLastReferenceChildInternal(itemCount);
+        cacheChildQuery(CHILD_QUERY_LAST_REFERENCE, itemCount, referenceChild);
+        return referenceChild;
+    }
+
+    private View findLastReferenceChildInternal(int itemCount) {
         assert mFlexboxHelper.mIndexToFlexLine != null;
         View lastFound = findReferenceChild(getChildCount() - 1, -1, itemCount);
         if (lastFound == null) {
@@ -1232,6 +2204,26 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
     private View findReferenceChild(int start, int end, int itemCount) {
         ensureOrientationHelper();
         ensureLayoutState();
+        int boundStart = mOrientationHelper.getStartAfterPadding();
+        int boundEnd = mOrientationHelper.getEndAfterPadding();
+        // The children in the flex lines entirely before (or after) the bounds can't be within
+        // the bounds, skip them unless no child is within the bounds
+        int searchFrom = end > start
+                ? findFirstChildIndexOfLineEndingAfter(boundStart)
+                : findLastChildIndexOfLineStartingBefore(boundEnd);
+        if (searchFrom != start) {
+            View view = findReferenceChildLinearly(searchFrom, end, itemCount);
+            if (view != null
+                    && !((RecyclerView.LayoutParams) view.getLayoutParams()).isItemRemoved()
+                    && mOrientationHelper.getDecoratedStart(view) >= boundStart
+                    && mOrientationHelper.getDecoratedEnd(view) <= boundEnd) {
+                return view;
+            }
+        }
+        return findReferenceChildLinearly(start, end, itemCount);
+    }
+
+    private View findReferenceChildLinearly(int start, int end, int itemCount) {
         View invalidMatch = null;
         View outOfBoundsMatch = null;
         int boundStart = mOrientationHelper.getStartAfterPadding();
@@ -1282,6 +2274,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      */
     private int fill(RecyclerView.Recycler recycler, RecyclerView.State state,
             LayoutState layoutState) {
+        long startNanos = mFlexboxHelper.mMetrics != null ? System.nanoTime() : 0;
         if (layoutState.mScrollingOffset != LayoutState.SCROLLING_OFFSET_NaN) {
             if (layoutState.mAvailable < 0) {
                 layoutState.mScrollingOffset += layoutState.mAvailable;
@@ -1292,10 +2285,22 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         int remainingSpace = layoutState.mAvailable;
         int consumed = 0;
         boolean mainAxisHorizontal = isMainAxisDirectionHorizontal();
+        int crossGap = mFlexboxHelper.getGapCross(mainAxisHorizontal);
         while ((remainingSpace > 0 || mLayoutState.mInfinite) &&
                 layoutState.hasMore(state, mFlexLines)) {
             FlexLine flexLine = mFlexLines.get(layoutState.mFlexLinePosition);
             layoutState.mPosition = flexLine.mFirstIndex;
+            if (layoutState.mFollowsLaidOutFlexLine && crossGap > 0) {
+                // Leave the gap between the flex line already laid out and the one being laid out
+                if (!mainAxisHorizontal && mIsRtl) {
+                    layoutState.mOffset -= crossGap * layoutState.mLayoutDirection;
+                } else {
+                    layoutState.mOffset += crossGap * layoutState.mLayoutDirection;
+                }
+                consumed += crossGap;
+                remainingSpace -= crossGap;
+            }
+            layoutState.mFollowsLaidOutFlexLine = true;
             consumed += layoutFlexLine(flexLine, layoutState);
 
             if (!mainAxisHorizontal && mIsRtl) {
@@ -1314,6 +2319,9 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
             }
             recycleByLayoutState(recycler, layoutState);
         }
+        if (mFlexboxHelper.mMetrics != null) {
+            mFlexboxHelper.mMetrics.mLayoutNanos += System.nanoTime() - startNanos;
+        }
         return start - layoutState.mAvailable;
     }
 
@@ -1478,7 +2486,8 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         // Only used when mIsRtl is true
         float childRight;
         float spaceBetweenItem = 0f;
-        switch (mJustifyContent) {
+        int justifyContent = mFlexboxHelper.getJustifyContent(flexLine);
+        switch (justifyContent) {
             case JustifyContent.FLEX_START:
                 childLeft = paddingLeft;
                 childRight = parentWidth - paddingRight;
@@ -1515,7 +2524,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
                 break;
             default:
                 throw new IllegalStateException(
-                        "Invalid justifyContent is set: " + mJustifyContent);
+                        "Invalid justifyContent is set: " + justifyContent);
         }
         childLeft -= mAnchorInfo.mPerpendicularCoordinate;
         childRight -= mAnchorInfo.mPerpendicularCoordinate;
@@ -1540,17 +2549,13 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
                 indexInFlexLine++;
             }
 
-            // Retrieve the measure spec from the cache because the view may be re-created when
-            // retrieved from Recycler, in that case measured width/height are set to 0 even
-            // each visible child should be measured at least once in the FlexboxHelper
-            long measureSpec = mFlexboxHelper.mMeasureSpecCache[i];
-            int widthSpec = mFlexboxHelper.extractLowerInt(measureSpec);
-            int heightSpec = mFlexboxHelper.extractHigherInt(measureSpec);
             LayoutParams lp = (LayoutParams) view.getLayoutParams();
-            if (shouldMeasureChild(view, widthSpec, heightSpec, lp)) {
-                view.measure(widthSpec, heightSpec);
-            }
+            measureChildIfNeeded(view, i, lp);
 
+            if (i != flexLine.mFirstVisibleIndex && view.getVisibility() != View.GONE) {
+                childLeft += mColumnGap;
+                childRight -= mColumnGap;
+            }
             childLeft += (lp.leftMargin + getLeftDecorationWidth(view));
             childRight -= (lp.rightMargin + getRightDecorationWidth(view));
 
@@ -1596,7 +2601,8 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         // Only used when mFromBottomToTop is true
         float childBottom;
         float spaceBetweenItem = 0f;
-        switch (mJustifyContent) {
+        int justifyContent = mFlexboxHelper.getJustifyContent(flexLine);
+        switch (justifyContent) {
             case JustifyContent.FLEX_START:
                 childTop = paddingTop;
                 childBottom = parentHeight - paddingBottom;
@@ -1634,7 +2640,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
                 break;
             default:
                 throw new IllegalStateException(
-                        "Invalid justifyContent is set: " + mJustifyContent);
+                        "Invalid justifyContent is set: " + justifyContent);
         }
         childTop -= mAnchorInfo.mPerpendicularCoordinate;
         childBottom -= mAnchorInfo.mPerpendicularCoordinate;
@@ -1650,17 +2656,13 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
                 continue;
             }
 
-            // Retrieve the measure spec from the cache because the view may be re-created when
-            // retrieved from Recycler, in that case measured width/height are set to 0 even
-            // each visible child should be measured at least once in the FlexboxHelper
-            long measureSpec = mFlexboxHelper.mMeasureSpecCache[i];
-            int widthSpec = mFlexboxHelper.extractLowerInt(measureSpec);
-            int heightSpec = mFlexboxHelper.extractHigherInt(measureSpec);
             LayoutParams lp = (LayoutParams) view.getLayoutParams();
-            if (shouldMeasureChild(view, widthSpec, heightSpec, lp)) {
-                view.measure(widthSpec, heightSpec);
-            }
+            measureChildIfNeeded(view, i, lp);
 
+            if (i != flexLine.mFirstVisibleIndex && view.getVisibility() != View.GONE) {
+                childTop += mRowGap;
+                childBottom -= mRowGap;
+            }
             childTop += (lp.topMargin + getTopDecorationHeight(view));
             childBottom -= (lp.rightMargin + getBottomDecorationHeight(view));
 
@@ -1745,6 +2747,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         mLayoutState.mOffset = anchorInfo.mCoordinate;
         mLayoutState.mScrollingOffset = LayoutState.SCROLLING_OFFSET_NaN;
         mLayoutState.mFlexLinePosition = anchorInfo.mFlexLinePosition;
+        mLayoutState.mFollowsLaidOutFlexLine = false;
 
         if (fromNextLine
                 && mFlexLines.size() > 1
@@ -1753,6 +2756,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
             FlexLine currentLine = mFlexLines.get(anchorInfo.mFlexLinePosition);
             mLayoutState.mFlexLinePosition++;
             mLayoutState.mPosition += currentLine.getItemCount();
+            mLayoutState.mFollowsLaidOutFlexLine = true;
         }
     }
 
@@ -1788,12 +2792,14 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         mLayoutState.mOffset = anchorInfo.mCoordinate;
         mLayoutState.mScrollingOffset = LayoutState.SCROLLING_OFFSET_NaN;
         mLayoutState.mFlexLinePosition = anchorInfo.mFlexLinePosition;
+        mLayoutState.mFollowsLaidOutFlexLine = false;
 
         if (fromPreviousLine && anchorInfo.mFlexLinePosition > 0
                 && mFlexLines.size() > anchorInfo.mFlexLinePosition) {
             FlexLine currentLine = mFlexLines.get(anchorInfo.mFlexLinePosition);
             mLayoutState.mFlexLinePosition--;
             mLayoutState.mPosition -= currentLine.getItemCount();
+            mLayoutState.mFollowsLaidOutFlexLine = true;
         }
     }
 
@@ -1898,15 +2904,197 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         mRecycleChildrenOnDetach = recycleChildrenOnDetach;
     }
 
+    /**
+     * @return {@code true} if this LayoutManager sizes the RecycledViewPool of the RecyclerView
+     * @see #setRecycledViewPoolAutoSized(boolean)
+     */
+    public boolean isRecycledViewPoolAutoSized() {
+        return mRecycledViewPoolAutoSized;
+    }
+
+    /**
+     * Sets whether this LayoutManager raises the maximum numbers of the recycled views in the
+     * {@link RecyclerView.RecycledViewPool} of the RecyclerView it's attached to.
+     * <p>
+     * The children are recycled per flex line. When a flex line has many small items, scrolling
+     * recycles more views of a view type at once than the pool keeps by default, and the ones
+     * discarded have to be created again for the flex lines coming into view. If enabled, the
+     * numbers of the children per view type in a flex line and the number of the visible flex
+     * lines are observed after each layout and whenever scrolling attaches or detaches a flex
+     * line, and the maximum number of each view type is raised so that the whole visible flex
+     * lines can be recycled without discarding any.
+     * <p>
+     * The limits are only raised, and they're kept in the pool after this is disabled. A limit is
+     * never set below the floor of its view type, i.e. the one given by
+     * {@link #setRecycledViewPoolFloor(int, int)}, or the default limit of the pool if not given.
+     * If the pool is shared among RecyclerViews, the limits raised by another RecyclerView may be
+     * overwritten.
+     *
+     * @param recycledViewPoolAutoSized {@code true} to size the RecycledViewPool by this
+     *                                  LayoutManager
+     * @see #getRecycledViewPoolLimits()
+     */
+    public void setRecycledViewPoolAutoSized(boolean recycledViewPoolAutoSized) {
+        mRecycledViewPoolAutoSized = recycledViewPoolAutoSized;
+        if (recycledViewPoolAutoSized) {
+            updateRecycledViewPoolLimits();
+        }
+    }
+
+    /**
+     * Sets the maximum number of the recycled views of the given view type which the
+     * {@link RecyclerView.RecycledViewPool} keeps at least, e.g. the one the app has set to the
+     * pool by {@link RecyclerView.RecycledViewPool#setMaxRecycledViews(int, int)}. While the pool
+     * is sized by this LayoutManager, the limit of the view type is never set below the floor.
+     * The pool itself isn't changed by this call.
+     *
+     * @param viewType         the view type
+     * @param maxRecycledViews the floor of the maximum number of the recycled views
+     * @throws IllegalArgumentException if maxRecycledViews is negative
+     * @see #setRecycledViewPoolAutoSized(boolean)
+     */
+    public void setRecycledViewPoolFloor(int viewType, int maxRecycledViews) {
+        if (maxRecycledViews < 0) {
+            throw new IllegalArgumentException(
+                    "maxRecycledViews must not be negative: " + maxRecycledViews);
+        }
+        mRecycledViewPoolFloors.put(viewType, maxRecycledViews);
+    }
+
+    /**
+     * @param viewType the view type
+     * @return the floor of the maximum number of the recycled views of the given view type,
+     * below which this LayoutManager never sets the limit
+     * @see #setRecycledViewPoolFloor(int, int)
+     */
+    public int getRecycledViewPoolFloor(int viewType) {
+        return mRecycledViewPoolFloors.get(viewType, DEFAULT_MAX_RECYCLED_VIEWS);
+    }
+
+    /**
+     * @return the maximum numbers of the recycled views per view type which this LayoutManager
+     * has set to the RecycledViewPool of the RecyclerView it's attached to. The view types whose
+     * limits haven't been raised aren't included.
+     * @see #setRecycledViewPoolAutoSized(boolean)
+     */
+    @NonNull
+    public SparseIntArray getRecycledViewPoolLimits() {
+        SparseIntArray limits = new SparseIntArray(mRecycledViewPoolLimits.size());
+        for (int i = 0, size = mRecycledViewPoolLimits.size(); i < size; i++) {
+            limits.append(mRecycledViewPoolLimits.keyAt(i), mRecycledViewPoolLimits.valueAt(i));
+        }
+        return limits;
+    }
+
+    /**
+     * Observes the attached children and raises the maximum numbers of the recycled views in the
+     * RecycledViewPool so that all the attached flex lines can be recycled at once, plus one flex
+     * line partially scrolled into view while they're recycled. No limit is set below the floor
+     * of its view type.
+     */
+    private void updateRecycledViewPoolLimits() {
+        if (!mRecycledViewPoolAutoSized || mRecyclerView == null
+                || mFlexboxHelper.mIndexToFlexLine == null) {
+            return;
+        }
+        int childCount = getChildCount();
+        if (childCount == 0) {
+            return;
+        }
+        mPoolObservedFirstLine = getAttachedFlexLine(getChildAt(0));
+        mPoolObservedLastLine = getAttachedFlexLine(getChildAt(childCount - 1));
+        mLineViewTypeCounts.clear();
+        mMaxLineViewTypeCounts.clear();
+        int lineCount = 0;
+        int currentLineIndex = NO_POSITION;
+        for (int i = 0; i < childCount; i++) {
+            View view = getChildAt(i);
+            if (view == null) {
+                continue;
+            }
+            int lineIndex = getAttachedFlexLine(view);
+            if (lineCount == 0 || lineIndex != currentLineIndex) {
+                updateMaxLineViewTypeCounts();
+                currentLineIndex = lineIndex;
+                lineCount++;
+            }
+            int viewType = getItemViewType(view);
+            mLineViewTypeCounts.put(viewType, mLineViewTypeCounts.get(viewType) + 1);
+        }
+        updateMaxLineViewTypeCounts();
+
+        RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+        for (int i = 0, size = mMaxLineViewTypeCounts.size(); i < size; i++) {
+            int viewType = mMaxLineViewTypeCounts.keyAt(i);
+            int limit = mMaxLineViewTypeCounts.valueAt(i) * (lineCount + 1);
+            if (limit > Math.max(getRecycledViewPoolFloor(viewType),
+                    mRecycledViewPoolLimits.get(viewType))) {
+                pool.setMaxRecycledViews(viewType, limit);
+                mRecycledViewPoolLimits.put(viewType, limit);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the first or the last attached flex line has changed since the
+     * limits of the RecycledViewPool were updated last
+     */
+    private boolean isAttachedFlexLinesChanged() {
+        if (!mRecycledViewPoolAutoSized) {
+            return false;
+        }
+        int childCount = getChildCount();
+        if (childCount == 0) {
+            return false;
+        }
+        return getAttachedFlexLine(getChildAt(0)) != mPoolObservedFirstLine
+                || getAttachedFlexLine(getChildAt(childCount - 1)) != mPoolObservedLastLine;
+    }
+
+    /**
+     * @return the index of the flex line the given child belongs to, or {@link #NO_POSITION} if
+     * unknown
+     */
+    private int getAttachedFlexLine(@Nullable View view) {
+        int[] indexToFlexLine = mFlexboxHelper.mIndexToFlexLine;
+        if (view == null || indexToFlexLine == null) {
+            return NO_POSITION;
+        }
+        int position = getPosition(view);
+        return position >= 0 && position < indexToFlexLine.length
+                ? indexToFlexLine[position] : NO_POSITION;
+    }
+
+    /**
+     * Folds the counts of the children per view type in the flex line observed last into the
+     * maximum counts.
+     */
+    private void updateMaxLineViewTypeCounts() {
+        for (int i = 0, size = mLineViewTypeCounts.size(); i < size; i++) {
+            int viewType = mLineViewTypeCounts.keyAt(i);
+            int count = mLineViewTypeCounts.valueAt(i);
+            if (count > mMaxLineViewTypeCounts.get(viewType)) {
+                mMaxLineViewTypeCounts.put(viewType, count);
+            }
+        }
+        mLineViewTypeCounts.clear();
+    }
+
     @Override
     public void onAttachedToWindow(RecyclerView recyclerView) {
         super.onAttachedToWindow(recyclerView);
         mParent = (View) recyclerView.getParent();
+        mRecyclerView = recyclerView;
+        // The limits set to the pool of the previous RecyclerView don't apply to the new one
+        mRecycledViewPoolLimits.clear();
+        mPoolObservedFirstLine = NO_POSITION;
+        mPoolObservedLastLine = NO_POSITION;
     }
 
     @Override
     public void onDetachedFromWindow(RecyclerView view, RecyclerView.Recycler recycler) {
         super.onDetachedFromWindow(view, recycler);
+        mRecyclerView = null;
         if (mRecycleChildrenOnDetach) {
             if (DEBUG) {
                 Log.d(TAG, "onDetachedFromWindow. Recycling children in the recycler");
@@ -1939,7 +3127,10 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
             RecyclerView.State state) {
         if (!isMainAxisDirectionHorizontal() || (mFlexWrap == FlexWrap.NOWRAP)) {
             int scrolled = handleScrollingMainOrientation(dx, recycler, state);
-            mViewCache.clear();
+            recycleViewCache(recycler, state);
+            invalidateChildQueries();
+            updateClippedItemCount();
+            dispatchLayoutPassCompleted();
             return scrolled;
         } else {
             int scrolled = handleScrollingSubOrientation(dx);
@@ -1949,13 +3140,28 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         }
     }
 
+    @Override
+    public void offsetChildrenHorizontal(int dx) {
+        super.offsetChildrenHorizontal(dx);
+        invalidateChildQueries();
+    }
+
+    @Override
+    public void offsetChildrenVertical(int dy) {
+        super.offsetChildrenVertical(dy);
+        invalidateChildQueries();
+    }
+
     @Override
     public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler,
             RecyclerView.State state) {
         if (isMainAxisDirectionHorizontal() ||
                 (mFlexWrap == FlexWrap.NOWRAP && !isMainAxisDirectionHorizontal())) {
             int scrolled = handleScrollingMainOrientation(dy, recycler, state);
-            mViewCache.clear();
+            recycleViewCache(recycler, state);
+            invalidateChildQueries();
+            updateClippedItemCount();
+            dispatchLayoutPassCompleted();
             return scrolled;
         } else {
             int scrolled = handleScrollingSubOrientation(dy);
@@ -2005,6 +3211,9 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         }
         mOrientationHelper.offsetChildren(-scrolled);
         mLayoutState.mLastScrollDelta = scrolled;
+        if (isAttachedFlexLinesChanged()) {
+            updateRecycledViewPoolLimits();
+        }
         return scrolled;
     }
 
@@ -2059,6 +3268,8 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
     private void updateLayoutState(int layoutDirection, int absDelta) {
         assert mFlexboxHelper.mIndexToFlexLine != null;
         mLayoutState.mLayoutDirection = layoutDirection;
+        // The flex lines toward the scroll direction are laid out next to the visible ones
+        mLayoutState.mFollowsLaidOutFlexLine = true;
         boolean mainAxisHorizontal = isMainAxisDirectionHorizontal();
 
         //noinspection ResourceType
@@ -2356,6 +3567,34 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         return (int) ((float) laidOutArea / laidOutRange * state.getItemCount());
     }
 
+    /**
+     * Measures the view at the given position with the measure specs of the flex line
+     * calculation unless its measurement is up to date.
+     *
+     * The measure specs are retrieved from the cache because the view may be re-created when
+     * retrieved from Recycler, in that case measured width/height are set to 0 even each
+     * visible child should be measured at least once in the FlexboxHelper.
+     */
+    private void measureChildIfNeeded(View view, int position, LayoutParams lp) {
+        long measureSpec = mFlexboxHelper.mMeasureSpecCache[position];
+        int widthSpec = mFlexboxHelper.extractLowerInt(measureSpec);
+        int heightSpec = mFlexboxHelper.extractHigherInt(measureSpec);
+        if (mEstimatedPositions.get(position)) {
+            // The estimated size includes the margins and the decorations, which are added
+            // around the view when it's laid out
+            calculateItemDecorationsForChild(view, TEMP_RECT);
+            widthSpec = makeExactMeasureSpecExcluding(widthSpec,
+                    lp.leftMargin + lp.rightMargin + getLeftDecorationWidth(view)
+                            + getRightDecorationWidth(view));
+            heightSpec = makeExactMeasureSpecExcluding(heightSpec,
+                    lp.topMargin + lp.bottomMargin + getTopDecorationHeight(view)
+                            + getBottomDecorationHeight(view));
+        }
+        if (shouldMeasureChild(view, widthSpec, heightSpec, lp)) {
+            mFlexboxHelper.measureChild(view, widthSpec, heightSpec);
+        }
+    }
+
     /**
      * Copied from {@link RecyclerView.LayoutManager#shouldMeasureChild
      * (View,
@@ -2369,6 +3608,16 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
                 || !isMeasurementUpToDate(child.getHeight(), heightSpec, lp.height);
     }
 
+    /**
+     * @return the exact measure spec whose size is the size of the given measure spec minus the
+     * excluded length, but not negative
+     */
+    private static int makeExactMeasureSpecExcluding(int measureSpec, int excluded) {
+        return View.MeasureSpec.makeMeasureSpec(
+                Math.max(View.MeasureSpec.getSize(measureSpec) - excluded, 0),
+                View.MeasureSpec.EXACTLY);
+    }
+
     /**
      * Copied from
      * {@link RecyclerView.LayoutManager#isMeasurementUpToDate(int, int,
@@ -2393,6 +3642,9 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
     private void clearFlexLines() {
         mFlexLines.clear();
+        mEstimatedPositions.clear();
+        mFlexLinesMainSize = Integer.MIN_VALUE;
+        mKeptFlexLines.clear();
         mAnchorInfo.reset();
         mAnchorInfo.mPerpendicularCoordinate = 0;
     }
@@ -2479,7 +3731,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      */
     @SuppressWarnings("WeakerAccess")
     public int findFirstVisibleItemPosition() {
-        final View child = findOneVisibleChild(0, getChildCount(), false);
+        final View child = findOneVisibleChild(CHILD_QUERY_FIRST_VISIBLE, 0, getChildCount(), false);
         return child == null ? NO_POSITION : getPosition(child);
     }
 
@@ -2494,7 +3746,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      */
     @SuppressWarnings("WeakerAccess")
     public int findFirstCompletelyVisibleItemPosition() {
-        final View child = findOneVisibleChild(0, getChildCount(), true);
+        final View child = findOneVisibleChild(CHILD_QUERY_FIRST_COMPLETELY_VISIBLE, 0, getChildCount(), true);
         return child == null ? NO_POSITION : getPosition(child);
     }
 
@@ -2513,7 +3765,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      */
     @SuppressWarnings("WeakerAccess")
     public int findLastVisibleItemPosition() {
-        final View child = findOneVisibleChild(getChildCount() - 1, -1, false);
+        final View child = findOneVisibleChild(CHILD_QUERY_LAST_VISIBLE, getChildCount() - 1, -1, false);
         return child == null ? NO_POSITION : getPosition(child);
     }
 
@@ -2528,10 +3780,26 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      */
     @SuppressWarnings("WeakerAccess")
     public int findLastCompletelyVisibleItemPosition() {
-        final View child = findOneVisibleChild(getChildCount() - 1, -1, true);
+        final View child = findOneVisibleChild(CHILD_QUERY_LAST_COMPLETELY_VISIBLE, getChildCount() - 1, -1, true);
         return child == null ? NO_POSITION : getPosition(child);
     }
 
+    /**
+     * Same as {@link #findOneVisibleChild(int, int, boolean)}, but reuses the result of the same
+     * query until the children are laid out or scrolled.
+     *
+     * @param query one of the CHILD_QUERY_ constants identifying the query
+     */
+    private View findOneVisibleChild(int query, int fromIndex, int toIndex,
+            boolean completelyVisible) {
+        if (isChildQueryCached(query, NO_POSITION)) {
+            return mChildQueryResults[query];
+        }
+        View child = findOneVisibleChild(fromIndex, toIndex, completelyVisible);
+        cacheChildQuery(query, NO_POSITION, child);
+        return child;
+    }
+
     /**
      * Returns the first child that is visible in the provided index range, i.e. either partially or
      * fully visible depending on the arguments provided.
@@ -2546,6 +3814,18 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
      */
     private View findOneVisibleChild(int fromIndex, int toIndex, boolean completelyVisible) {
         int next = toIndex > fromIndex ? 1 : -1;
+        ensureOrientationHelper();
+        // The children in the flex lines entirely before the visible area aren't visible, and
+        // the ones in the flex lines entirely after it aren't completely visible. (A partially
+        // visible child is searched from the last child linearly, since the children after the
+        // visible area are regarded as partially visible.)
+        if (next > 0) {
+            fromIndex = findFirstChildIndexOfLineEndingAfter(
+                    mOrientationHelper.getStartAfterPadding());
+        } else if (completelyVisible) {
+            fromIndex = findLastChildIndexOfLineStartingBefore(
+                    mOrientationHelper.getEndAfterPadding());
+        }
         for (int i = fromIndex; i != toIndex; i += next) {
             View view = getChildAt(i);
             if (isViewVisible(view, completelyVisible)) {
@@ -2555,6 +3835,162 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         return null;
     }
 
+    /**
+     * @param query     one of the CHILD_QUERY_ constants
+     * @param itemCount the item count used to find the reference child, ignored for the other
+     *                  queries
+     */
+    private boolean isChildQueryCached(int query, int itemCount) {
+        if (mChildQueryChildCount != getChildCount() || !mChildQueryCached[query]) {
+            return false;
+        }
+        return !isReferenceChildQuery(query) || mChildQueryItemCount == itemCount;
+    }
+
+    private void cacheChildQuery(int query, int itemCount, View result) {
+        int childCount = getChildCount();
+        if (mChildQueryChildCount != childCount) {
+            invalidateChildQueries();
+            mChildQueryChildCount = childCount;
+        }
+        if (isReferenceChildQuery(query) && mChildQueryItemCount != itemCount) {
+            // The reference child found for another item count is stale, the visible children
+            // are kept
+            mChildQueryCached[CHILD_QUERY_FIRST_REFERENCE] = false;
+            mChildQueryCached[CHILD_QUERY_LAST_REFERENCE] = false;
+            mChildQueryItemCount = itemCount;
+        }
+        mChildQueryResults[query] = result;
+        mChildQueryCached[query] = true;
+    }
+
+    private static boolean isReferenceChildQuery(int query) {
+        return query == CHILD_QUERY_FIRST_REFERENCE || query == CHILD_QUERY_LAST_REFERENCE;
+    }
+
+    private void invalidateChildQueries() {
+        Arrays.fill(mChildQueryResults, null);
+        Arrays.fill(mChildQueryCached, false);
+        mChildQueryChildCount = NO_POSITION;
+    }
+
+    /**
+     * Finds the first flex line whose attached children reach beyond the given coordinate along
+     * the scrolling direction by a binary search over the attached flex lines.
+     *
+     * @param coordinate the coordinate along the direction of {@link #mOrientationHelper}
+     * @return the index of the first attached child of the found flex line, or 0 if the flex
+     * lines can't be searched (e.g. they are laid out toward the start)
+     */
+    private int findFirstChildIndexOfLineEndingAfter(int coordinate) {
+        int firstPosition = getSearchableFirstChildPosition();
+        if (firstPosition == NO_POSITION) {
+            return 0;
+        }
+        int childCount = getChildCount();
+        int low = mFlexboxHelper.mIndexToFlexLine[firstPosition];
+        int high = mFlexboxHelper.mIndexToFlexLine[firstPosition + childCount - 1];
+        // Find the first flex line whose maximum end is equal to or larger than the coordinate.
+        // The maximum ends increase along with the flex lines since each flex line occupies
+        // its own band along the cross axis.
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            FlexLine flexLine = mFlexLines.get(mid);
+            int from = Math.max(flexLine.mFirstIndex - firstPosition, 0);
+            int to = Math.min(flexLine.mLastIndex - firstPosition, childCount - 1);
+            // Regard a flex line without attached children as reaching beyond the coordinate,
+            // which only makes the search start earlier
+            int maxEnd = from <= to ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            for (int i = from; i <= to; i++) {
+                maxEnd = Math.max(maxEnd, mOrientationHelper.getDecoratedEnd(getChildAt(i)));
+            }
+            if (maxEnd >= coordinate) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return Math.max(mFlexLines.get(low).mFirstIndex - firstPosition, 0);
+    }
+
+    /**
+     * Finds the last flex line whose attached children start before the given coordinate along
+     * the scrolling direction by a binary search over the attached flex lines.
+     *
+     * @param coordinate the coordinate along the direction of {@link #mOrientationHelper}
+     * @return the index of the last attached child of the found flex line, or the index of the
+     * last child if the flex lines can't be searched (e.g. they are laid out toward the start)
+     */
+    private int findLastChildIndexOfLineStartingBefore(int coordinate) {
+        int childCount = getChildCount();
+        int firstPosition = getSearchableFirstChildPosition();
+        if (firstPosition == NO_POSITION) {
+            return childCount - 1;
+        }
+        int low = mFlexboxHelper.mIndexToFlexLine[firstPosition];
+        int high = mFlexboxHelper.mIndexToFlexLine[firstPosition + childCount - 1];
+        // Find the last flex line whose minimum start is equal to or smaller than the
+        // coordinate
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            FlexLine flexLine = mFlexLines.get(mid);
+            int from = Math.max(flexLine.mFirstIndex - firstPosition, 0);
+            int to = Math.min(flexLine.mLastIndex - firstPosition, childCount - 1);
+            int minStart = from <= to ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+            for (int i = from; i <= to; i++) {
+                minStart = Math.min(minStart,
+                        mOrientationHelper.getDecoratedStart(getChildAt(i)));
+            }
+            if (minStart <= coordinate) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Math.min(mFlexLines.get(low).mLastIndex - firstPosition, childCount - 1);
+    }
+
+    /**
+     * @return the position of the first attached child if the attached children can be searched
+     * by the flex lines, i.e. they have the consecutive positions, their flex lines are
+     * calculated and the flex lines are laid out toward the end along the direction of
+     * {@link #mOrientationHelper}. Otherwise {@link RecyclerView#NO_POSITION}.
+     */
+    private int getSearchableFirstChildPosition() {
+        int childCount = getChildCount();
+        if (childCount < 2 || mFlexWrap == FlexWrap.NOWRAP
+                || mFlexboxHelper.mIndexToFlexLine == null) {
+            return NO_POSITION;
+        }
+        View firstChild = getChildAt(0);
+        View lastChild = getChildAt(childCount - 1);
+        if (firstChild == null || lastChild == null) {
+            return NO_POSITION;
+        }
+        int firstPosition = getPosition(firstChild);
+        int lastPosition = getPosition(lastChild);
+        if (firstPosition < 0 || lastPosition - firstPosition != childCount - 1
+                || lastPosition >= mFlexboxHelper.mIndexToFlexLine.length) {
+            return NO_POSITION;
+        }
+        int firstLine = mFlexboxHelper.mIndexToFlexLine[firstPosition];
+        int lastLine = mFlexboxHelper.mIndexToFlexLine[lastPosition];
+        if (firstLine == NO_POSITION || lastLine == NO_POSITION || firstLine >= lastLine
+                || lastLine >= mFlexLines.size()
+                || mFlexLines.get(firstLine).mLastIndex < firstPosition
+                || mFlexLines.get(lastLine).mFirstIndex > lastPosition) {
+            return NO_POSITION;
+        }
+        if (mOrientationHelper.getDecoratedStart(firstChild)
+                >= mOrientationHelper.getDecoratedStart(lastChild)
+                || mOrientationHelper.getStartAfterPadding()
+                > mOrientationHelper.getEndAfterPadding()) {
+            // The flex lines are laid out toward the start, or there is no space for the children
+            return NO_POSITION;
+        }
+        return firstPosition;
+    }
+
     /**
      * @param position the index of the view
      * @return the index of the {@link FlexLine}, which includes the view whose index is passed as
@@ -2565,6 +4001,31 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         return mFlexboxHelper.mIndexToFlexLine[position];
     }
 
+    /**
+     * Returns if the view whose index is passed as the position argument is the first item in
+     * the flex line which includes it. This method takes constant time and doesn't allocate
+     * since it's called for every item from the item decorations.
+     *
+     * @param position the index of the view
+     * @return {@code true} if the view is the first item in a flex line, {@code false} otherwise
+     */
+    boolean isFirstItemInFlexLine(int position) {
+        if (position == 0) {
+            return true;
+        }
+        int flexLineIndex = getPositionToFlexLineIndex(position);
+        int flexLinesSize = mFlexLines.size();
+        if (flexLineIndex != NO_POSITION && flexLineIndex < flexLinesSize) {
+            return mFlexLines.get(flexLineIndex).mFirstIndex == position;
+        }
+        if (flexLinesSize == 0) {
+            return false;
+        }
+        // The flex line which includes the view may be being calculated, in that case the view
+        // is the first item if it comes right after the last flex line calculated so far
+        return mFlexLines.get(flexLinesSize - 1).mLastIndex == position - 1;
+    }
+
     /**
      * LayoutParams used by the {@link FlexboxLayoutManager}, which stores per-child information
      * required for the Flexbox.
@@ -2576,49 +4037,47 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
     public static class LayoutParams extends RecyclerView.LayoutParams implements FlexItem {
 
         /**
-         * @see FlexItem#getFlexGrow()
-         */
-        private float mFlexGrow = FlexItem.FLEX_GROW_DEFAULT;
-
-        /**
-         * @see FlexItem#getFlexShrink()
-         */
-        private float mFlexShrink = FlexItem.FLEX_SHRINK_DEFAULT;
-
-        /**
-         * @see FlexItem#getAlignSelf()
-         */
-        private int mAlignSelf = AlignSelf.AUTO;
-
-        /**
-         * @see FlexItem#getFlexBasisPercent()
-         */
-        private float mFlexBasisPercent = FlexItem.FLEX_BASIS_PERCENT_DEFAULT;
-
-        /**
-         * @see FlexItem#getMinWidth()
+         * The style having the default values of the LayoutParams of the FlexboxLayoutManager,
+         * whose min sizes are 0 unlike {@link FlexItemStyle#DEFAULT}.
          */
-        private int mMinWidth;
+        private static final FlexItemStyle DEFAULT_STYLE = new FlexItemStyle.Builder()
+                .setMinWidth(0)
+                .setMinHeight(0)
+                .build();
 
         /**
-         * @see FlexItem#getMinHeight()
+         * The attributes of this flex item other than the size and the margins, which may be
+         * shared with other flex items.
+         *
+         * @see #setStyle(FlexItemStyle)
          */
-        private int mMinHeight;
+        private FlexItemStyle mStyle = DEFAULT_STYLE;
 
         /**
-         * @see FlexItem#getMaxWidth()
+         * @return the style holding the attributes of this flex item other than the size and
+         * the margins
          */
-        private int mMaxWidth = MAX_SIZE;
-
-        /**
-         * @see FlexItem#getMaxHeight()
-         */
-        private int mMaxHeight = MAX_SIZE;
+        @NonNull
+        public FlexItemStyle getStyle() {
+            return mStyle;
+        }
 
         /**
-         * @see FlexItem#isWrapBefore()
+         * Sets the style holding the attributes of this flex item other than the size and the
+         * margins. The same style can be set to many flex items (e.g. in
+         * {@code onBindViewHolder}), which share its attributes without copying them.
+         *
+         * @param style the style of this flex item, whose order needs to be
+         *              {@link FlexItem#ORDER_DEFAULT} as the order attribute isn't supported
          */
-        private boolean mWrapBefore;
+        public void setStyle(@NonNull FlexItemStyle style) {
+            if (style.getOrder() != FlexItem.ORDER_DEFAULT) {
+                throw new UnsupportedOperationException("Setting the order in the "
+                        + "FlexboxLayoutManager is not supported. Use FlexboxLayout "
+                        + "if you need to reorder using the attribute.");
+            }
+            mStyle = style;
+        }
 
         @Override
         public int getWidth() {
@@ -2642,93 +4101,113 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
         @Override
         public float getFlexGrow() {
-            return mFlexGrow;
+            return mStyle.getFlexGrow();
         }
 
         @Override
         public void setFlexGrow(float flexGrow) {
-            this.mFlexGrow = flexGrow;
+            if (mStyle.getFlexGrow() != flexGrow) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setFlexGrow(flexGrow).build();
+            }
         }
 
         @Override
         public float getFlexShrink() {
-            return mFlexShrink;
+            return mStyle.getFlexShrink();
         }
 
         @Override
         public void setFlexShrink(float flexShrink) {
-            this.mFlexShrink = flexShrink;
+            if (mStyle.getFlexShrink() != flexShrink) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setFlexShrink(flexShrink).build();
+            }
         }
 
         @AlignSelf
         @Override
         public int getAlignSelf() {
-            return mAlignSelf;
+            return mStyle.getAlignSelf();
         }
 
         @Override
         public void setAlignSelf(@AlignSelf int alignSelf) {
-            this.mAlignSelf = alignSelf;
+            if (mStyle.getAlignSelf() != alignSelf) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setAlignSelf(alignSelf).build();
+            }
         }
 
         @Override
         public int getMinWidth() {
-            return mMinWidth;
+            return mStyle.getMinWidth();
         }
 
         @Override
         public void setMinWidth(int minWidth) {
-            this.mMinWidth = minWidth;
+            if (mStyle.getMinWidth() != minWidth) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setMinWidth(minWidth).build();
+            }
         }
 
         @Override
         public int getMinHeight() {
-            return mMinHeight;
+            return mStyle.getMinHeight();
         }
 
         @Override
         public void setMinHeight(int minHeight) {
-            this.mMinHeight = minHeight;
+            if (mStyle.getMinHeight() != minHeight) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setMinHeight(minHeight).build();
+            }
         }
 
         @Override
         public int getMaxWidth() {
-            return mMaxWidth;
+            return mStyle.getMaxWidth();
         }
 
         @Override
         public void setMaxWidth(int maxWidth) {
-            this.mMaxWidth = maxWidth;
+            if (mStyle.getMaxWidth() != maxWidth) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setMaxWidth(maxWidth).build();
+            }
         }
 
         @Override
         public int getMaxHeight() {
-            return mMaxHeight;
+            return mStyle.getMaxHeight();
         }
 
         @Override
         public void setMaxHeight(int maxHeight) {
-            this.mMaxHeight = maxHeight;
+            if (mStyle.getMaxHeight() != maxHeight) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setMaxHeight(maxHeight).build();
+            }
         }
 
         @Override
         public boolean isWrapBefore() {
-            return mWrapBefore;
+            return mStyle.isWrapBefore();
         }
 
         @Override
         public void setWrapBefore(boolean wrapBefore) {
-            this.mWrapBefore = wrapBefore;
+            if (mStyle.isWrapBefore() != wrapBefore) {
+                mStyle = new FlexItemStyle.Builder(mStyle).setWrapBefore(wrapBefore).build();
+            }
         }
 
         @Override
         public float getFlexBasisPercent() {
-            return mFlexBasisPercent;
+            return mStyle.getFlexBasisPercent();
         }
 
         @Override
         public void setFlexBasisPercent(float flexBasisPercent) {
-            this.mFlexBasisPercent = flexBasisPercent;
+            if (mStyle.getFlexBasisPercent() != flexBasisPercent) {
+                mStyle = new FlexItemStyle.Builder(mStyle)
+                        .setFlexBasisPercent(flexBasisPercent)
+                        .build();
+            }
         }
 
         @Override
@@ -2774,15 +4253,7 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         public LayoutParams(LayoutParams source) {
             super(source);
 
-            mFlexGrow = source.mFlexGrow;
-            mFlexShrink = source.mFlexShrink;
-            mAlignSelf = source.mAlignSelf;
-            mFlexBasisPercent = source.mFlexBasisPercent;
-            mMinWidth = source.mMinWidth;
-            mMinHeight = source.mMinHeight;
-            mMaxWidth = source.mMaxWidth;
-            mMaxHeight = source.mMaxHeight;
-            mWrapBefore = source.mWrapBefore;
+            mStyle = source.mStyle;
         }
 
         @Override
@@ -2808,15 +4279,15 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
         @Override
         public void writeToParcel(Parcel dest, int flags) {
-            dest.writeFloat(this.mFlexGrow);
-            dest.writeFloat(this.mFlexShrink);
-            dest.writeInt(this.mAlignSelf);
-            dest.writeFloat(this.mFlexBasisPercent);
-            dest.writeInt(this.mMinWidth);
-            dest.writeInt(this.mMinHeight);
-            dest.writeInt(this.mMaxWidth);
-            dest.writeInt(this.mMaxHeight);
-            dest.writeByte(this.mWrapBefore ? (byte) 1 : (byte) 0);
+            dest.writeFloat(mStyle.getFlexGrow());
+            dest.writeFloat(mStyle.getFlexShrink());
+            dest.writeInt(mStyle.getAlignSelf());
+            dest.writeFloat(mStyle.getFlexBasisPercent());
+            dest.writeInt(mStyle.getMinWidth());
+            dest.writeInt(mStyle.getMinHeight());
+            dest.writeInt(mStyle.getMaxWidth());
+            dest.writeInt(mStyle.getMaxHeight());
+            dest.writeByte(mStyle.isWrapBefore() ? (byte) 1 : (byte) 0);
             dest.writeInt(this.bottomMargin);
             dest.writeInt(this.leftMargin);
             dest.writeInt(this.rightMargin);
@@ -2827,15 +4298,17 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
         protected LayoutParams(Parcel in) {
             super(WRAP_CONTENT, WRAP_CONTENT);
-            this.mFlexGrow = in.readFloat();
-            this.mFlexShrink = in.readFloat();
-            this.mAlignSelf = in.readInt();
-            this.mFlexBasisPercent = in.readFloat();
-            this.mMinWidth = in.readInt();
-            this.mMinHeight = in.readInt();
-            this.mMaxWidth = in.readInt();
-            this.mMaxHeight = in.readInt();
-            this.mWrapBefore = in.readByte() != 0;
+            this.mStyle = new FlexItemStyle.Builder()
+                    .setFlexGrow(in.readFloat())
+                    .setFlexShrink(in.readFloat())
+                    .setAlignSelf(in.readInt())
+                    .setFlexBasisPercent(in.readFloat())
+                    .setMinWidth(in.readInt())
+                    .setMinHeight(in.readInt())
+                    .setMaxWidth(in.readInt())
+                    .setMaxHeight(in.readInt())
+                    .setWrapBefore(in.readByte() != 0)
+                    .build();
             this.bottomMargin = in.readInt();
             this.leftMargin = in.readInt();
             this.rightMargin = in.readInt();
@@ -2968,6 +4441,26 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
         }
     }
 
+    /**
+     * The flex lines and the caches of the flex items calculated for a main size.
+     */
+    private static class KeptFlexLines {
+
+        final List<FlexLine> mFlexLines;
+
+        final FlexboxHelper.ItemCaches mItemCaches;
+
+        /** The number of the items in the adapter when the flex lines are calculated */
+        final int mItemCount;
+
+        KeptFlexLines(List<FlexLine> flexLines, FlexboxHelper.ItemCaches itemCaches,
+                int itemCount) {
+            mFlexLines = flexLines;
+            mItemCaches = itemCaches;
+            mItemCount = itemCount;
+        }
+    }
+
     /**
      * Helper class that keeps temporary state while the FlexboxLayoutManager is filling out the
      * empty space.
@@ -3018,6 +4511,12 @@ public class FlexboxLayoutManager extends RecyclerView.LayoutManager implements
 
         private boolean mShouldRecycle;
 
+        /**
+         * If set to true, the next flex line is laid out next to the flex line already laid out,
+         * thus the gap between flex lines along the cross axis needs to be put before it.
+         */
+        private boolean mFollowsLaidOutFlexLine;
+
         /**
          * @return {@code true} if there are more items to layout
          */
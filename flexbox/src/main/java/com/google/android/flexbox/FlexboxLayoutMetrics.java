@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Holds the timings and counters of a layout pass of a flex container, reported through the
+ * {@link FlexboxLayoutListener}. Timings are in nanoseconds.
+ */
+public final class FlexboxLayoutMetrics {
+
+    long mCalculateFlexLinesNanos;
+
+    long mDetermineMainSizeNanos;
+
+    long mDetermineCrossSizeNanos;
+
+    long mStretchViewsNanos;
+
+    long mLayoutNanos;
+
+    int mMeasureCount;
+
+    int mBoundViewCount;
+
+    int mComputedLineCount;
+
+    int mReusedLineCount;
+
+    FlexboxLayoutMetrics() {
+    }
+
+    /**
+     * @return the time spent to calculate the flex lines, including the first measurement of
+     * the flex items
+     */
+    public long getCalculateFlexLinesNanos() {
+        return mCalculateFlexLinesNanos;
+    }
+
+    /**
+     * @return the time spent to expand or shrink the flex items along the main axis
+     */
+    public long getDetermineMainSizeNanos() {
+        return mDetermineMainSizeNanos;
+    }
+
+    /**
+     * @return the time spent to determine the cross size of the flex lines. Always 0 for the
+     * {@link FlexboxLayoutManager}, which doesn't support the alignContent attribute.
+     */
+    public long getDetermineCrossSizeNanos() {
+        return mDetermineCrossSizeNanos;
+    }
+
+    /**
+     * @return the time spent to stretch the flex items along the cross axis
+     */
+    public long getStretchViewsNanos() {
+        return mStretchViewsNanos;
+    }
+
+    /**
+     * @return the time spent to lay out the flex items. For the {@link FlexboxLayoutManager},
+     * this is the time spent to fill the visible area, which includes the time to bind the views.
+     */
+    public long getLayoutNanos() {
+        return mLayoutNanos;
+    }
+
+    /**
+     * @return the number of times a flex item is measured
+     */
+    public int getMeasureCount() {
+        return mMeasureCount;
+    }
+
+    /**
+     * @return the number of views retrieved from the RecyclerView's Recycler. Always 0 for the
+     * {@link FlexboxLayout}.
+     */
+    public int getBoundViewCount() {
+        return mBoundViewCount;
+    }
+
+    /**
+     * @return the number of flex lines calculated
+     */
+    public int getComputedLineCount() {
+        return mComputedLineCount;
+    }
+
+    /**
+     * @return the number of flex lines which are calculated in an earlier pass and taken in
+     * place of calculating them in this pass, when the {@link FlexboxLayoutManager} lays out
+     * its children. A scroll calculates only the new flex lines, thus this is 0 for a scroll.
+     * Always 0 for the {@link FlexboxLayout}, which calculates all flex lines on every
+     * measurement.
+     */
+    public int getReusedLineCount() {
+        return mReusedLineCount;
+    }
+
+    void reset() {
+        mCalculateFlexLinesNanos = 0;
+        mDetermineMainSizeNanos = 0;
+        mDetermineCrossSizeNanos = 0;
+        mStretchViewsNanos = 0;
+        mLayoutNanos = 0;
+        mMeasureCount = 0;
+        mBoundViewCount = 0;
+        mComputedLineCount = 0;
+        mReusedLineCount = 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "FlexboxLayoutMetrics{" +
+                "calculateFlexLinesNanos=" + mCalculateFlexLinesNanos +
+                ", determineMainSizeNanos=" + mDetermineMainSizeNanos +
+                ", determineCrossSizeNanos=" + mDetermineCrossSizeNanos +
+                ", stretchViewsNanos=" + mStretchViewsNanos +
+                ", layoutNanos=" + mLayoutNanos +
+                ", measureCount=" + mMeasureCount +
+                ", boundViewCount=" + mBoundViewCount +
+                ", computedLineCount=" + mComputedLineCount +
+                ", reusedLineCount=" + mReusedLineCount +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import androidx.annotation.IntDef;
+
+/**
+ * This attribute controls how the flex items that don't fit in the flex lines limited by the
+ * maxLine attribute are treated.
+ */
+@IntDef({MaxLineOverflow.VISIBLE, MaxLineOverflow.CLIP})
+@Retention(RetentionPolicy.SOURCE)
+public @interface MaxLineOverflow {
+
+    /**
+     * The remaining flex items are put in the last flex line allowed by the maxLine attribute.
+     */
+    int VISIBLE = 0;
+
+    /**
+     * The remaining flex items are not measured nor put in any flex line once the last flex line
+     * allowed by the maxLine attribute is full. Such flex items are hidden.
+     */
+    int CLIP = 1;
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+/**
+ * Interface definition for a callback to be invoked when the number of flex items hidden by
+ * the {@link MaxLineOverflow#CLIP} policy changes. E.g. it can be used to show a label like
+ * "+N more" after the last flex line.
+ */
+public interface OnItemsClippedListener {
+
+    /**
+     * Called after the flex container is laid out when the number of clipped flex items differs
+     * from the one notified last time. This is called during the layout pass, thus post any
+     * change that requests a layout of the flex container itself.
+     *
+     * @param clippedItemCount the number of flex items which aren't laid out because they don't
+     *                         fit in the flex lines limited by the maxLine attribute
+     */
+    void onItemsClipped(int clippedItemCount);
+}
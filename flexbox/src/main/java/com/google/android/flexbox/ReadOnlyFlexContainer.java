@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.view.View;
+
+import java.util.List;
+
+import androidx.annotation.Nullable;
+
+/**
+ * The part of a flex container used by {@link FlexboxHelper}, which provides the flex items and
+ * the attributes and receives the calculated flex lines. Neither the flex items nor the
+ * attributes are changed through this interface, so that a flex container which only provides
+ * them (e.g. the one of {@link FlexLineProducer}) doesn't need to implement the rest of
+ * {@link FlexContainer}.
+ */
+interface ReadOnlyFlexContainer {
+
+    /**
+     * @return the number of flex items contained in the flex container.
+     */
+    int getFlexItemCount();
+
+    /**
+     * Returns a flex item as a View at the given index.
+     *
+     * @param index the index
+     * @return the view at the index
+     */
+    View getFlexItemAt(int index);
+
+    /**
+     * Returns a flex item as a View, which is reordered by taking the order attribute into
+     * account.
+     *
+     * @param index the index of the view
+     * @return the reordered view, which order attribute is taken into account.
+     * If the index is negative or out of bounds of the number of contained views,
+     * returns {@code null}.
+     * @see FlexItem#getOrder()
+     */
+    View getReorderedFlexItemAt(int index);
+
+    /**
+     * Returns the flex item at the given index whose size is provided by the
+     * {@link FlexItemSizeProvider}, which is only used by the flex line calculation. The flex
+     * container may return a view of the given size standing in for the flex item instead of
+     * retrieving its view, which is then measured when the flex item is laid out.
+     *
+     * @param index  the index of the flex item
+     * @param width  the provided width of the flex item, including its margins
+     * @param height the provided height of the flex item, including its margins
+     * @return the view of the flex item or the view standing in for it
+     */
+    View getSizedFlexItemAt(int index, int width, int height);
+
+    /**
+     * @return the flex direction attribute of the flex container.
+     * @see FlexDirection
+     */
+    @FlexDirection
+    int getFlexDirection();
+
+    /**
+     * @return the flex wrap attribute of the flex container.
+     * @see FlexWrap
+     */
+    @FlexWrap
+    int getFlexWrap();
+
+    /**
+     * @return the justify content attribute of the flex container.
+     * @see JustifyContent
+     */
+    @JustifyContent
+    int getJustifyContent();
+
+    /**
+     * @return the align content attribute of the flex container.
+     * @see AlignContent
+     */
+    @AlignContent
+    int getAlignContent();
+
+    /**
+     * @return the align items attribute of the flex container.
+     * @see AlignItems
+     */
+    @AlignItems
+    int getAlignItems();
+
+    /**
+     * Returns true if the main axis is horizontal, false otherwise.
+     *
+     * @return true if the main axis is horizontal, false otherwise
+     */
+    boolean isMainAxisDirectionHorizontal();
+
+    /**
+     * Returns the length of decoration (such as dividers) of the flex item along the main axis.
+     *
+     * @param view            the view from which the length of the decoration is retrieved
+     * @param index           the absolute index of the flex item within the flex container
+     * @param indexInFlexLine the relative index of the flex item within the flex line, not
+     *                        counting the flex items whose visibility is {@link View#GONE}
+     * @return the length of the decoration. Note that the length of the flex item itself is not
+     * included in the result.
+     */
+    int getDecorationLengthMainAxis(View view, int index, int indexInFlexLine);
+
+    /**
+     * Returns the length of decoration (such as dividers) of the flex item along the cross axis.
+     *
+     * @param view the view from which the length of the decoration is retrieved
+     * @return the length of the decoration. Note that the length of the flex item itself is not
+     * included in the result.
+     */
+    int getDecorationLengthCrossAxis(View view);
+
+    /**
+     * @return the top padding of the flex container.
+     */
+    int getPaddingTop();
+
+    /**
+     * @return the left padding of the flex container.
+     */
+    int getPaddingLeft();
+
+    /**
+     * @return the right padding of the flex container.
+     */
+    int getPaddingRight();
+
+    /**
+     * @return the bottom padding of the flex container.
+     */
+    int getPaddingBottom();
+
+    /**
+     * @return the start padding of this view depending on its resolved layout direction.
+     */
+    int getPaddingStart();
+
+    /**
+     * @return the end padding of this view depending on its resolved layout direction.
+     */
+    int getPaddingEnd();
+
+    /**
+     * Returns the child measure spec for its width.
+     *
+     * @param widthSpec      the measure spec for the width imposed by the parent
+     * @param padding        the padding along the width for the parent
+     * @param childDimension the value of the child dimension
+     */
+    int getChildWidthMeasureSpec(int widthSpec, int padding, int childDimension);
+
+    /**
+     * Returns the child measure spec for its height.
+     *
+     * @param heightSpec     the measure spec for the height imposed by the parent
+     * @param padding        the padding along the height for the parent
+     * @param childDimension the value of the child dimension
+     */
+    int getChildHeightMeasureSpec(int heightSpec, int padding, int childDimension);
+
+    /**
+     * @return the largest main size of all flex lines including decorator lengths.
+     */
+    int getLargestMainSize();
+
+    /**
+     * @return the sum of the cross sizes of all flex lines including decorator lengths.
+     */
+    int getSumOfCrossSize();
+
+    /**
+     * Callback when a new flex item is added to the current container
+     *
+     * @param view            the view as a flex item which is added
+     * @param index           the absolute index of the flex item added
+     * @param indexInFlexLine the relative index of the flex item added within the flex line
+     * @param flexLine        the flex line where the new flex item is added
+     */
+    void onNewFlexItemAdded(View view, int index, int indexInFlexLine, FlexLine flexLine);
+
+    /**
+     * Callback when a new flex line is added to the current container
+     *
+     * @param flexLine the new added flex line
+     */
+    void onNewFlexLineAdded(FlexLine flexLine);
+
+    /**
+     * Sets the list of the flex lines that compose the flex container to the one received as an
+     * argument.
+     *
+     * @param flexLines the list of flex lines
+     */
+    void setFlexLines(List<FlexLine> flexLines);
+
+    /**
+     * @return the current value of the maximum number of flex lines. If not set,
+     * {@link FlexContainer#NOT_SET} is returned.
+     */
+    int getMaxLine();
+
+    /**
+     * @return the policy for the flex items which don't fit in the flex lines limited by the
+     * maxLine attribute
+     * @see MaxLineOverflow
+     */
+    @MaxLineOverflow
+    int getMaxLineOverflow();
+
+    /**
+     * @return the gap between adjacent flex items stacked vertically, i.e. between flex items in
+     * a flex line if the main axis direction is vertical or between flex lines if the main axis
+     * direction is horizontal
+     */
+    int getRowGap();
+
+    /**
+     * @return the gap between adjacent flex items placed side by side horizontally, i.e. between
+     * flex items in a flex line if the main axis direction is horizontal or between flex lines if
+     * the main axis direction is vertical
+     */
+    int getColumnGap();
+
+    /**
+     * @return the list of the flex lines including dummy flex lines (flex line that doesn't have
+     * any flex items in it but used for the alignment along the cross axis), which aren't included
+     * in the {@link FlexContainer#getFlexLines()}.
+     */
+    List<FlexLine> getFlexLinesInternal();
+
+    /**
+     * Update the view cache in the flex container.
+     *
+     * @param position the position of the view to be updated
+     * @param view     the view instance
+     */
+    void updateViewCache(int position, View view);
+
+    /**
+     * Returns the flex item whose size is shared by all the flex items in the flex container if
+     * the flex items are declared to have the same fixed size. If non null value is returned,
+     * the flex lines are calculated arithmetically from the returned flex item without
+     * retrieving or measuring any view.
+     *
+     * @return the flex item representing the fixed size of all flex items, or {@code null} if
+     * the size of each flex item needs to be determined by measuring the view
+     */
+    @Nullable
+    FlexItem getFixedSizeFlexItem();
+}